@@ -53,7 +53,7 @@ import static java.net.InetSocketAddress.createUnresolved;
 @Warmup(iterations = 5, time = 5)
 @Measurement(iterations = 5, time = 5)
 public class RoundRobinLoadBalancerSDEventsBenchmark {
-    @Param({"5", "10", "100"})
+    @Param({"5", "10", "100", "1000", "5000"})
     public int ops;
 
     private List<ServiceDiscovererEvent<InetSocketAddress>> availableEvents;
@@ -91,6 +91,14 @@ public class RoundRobinLoadBalancerSDEventsBenchmark {
                         .newLoadBalancer(from(availableEvents), ConnFactory.INSTANCE, "benchmark");
     }
 
+    @Benchmark
+    public LoadBalancer<LoadBalancedConnection> availableThenMixed() {
+        // A large batch of changes applied to a load balancer that already uses all the hosts, like a new answer for
+        // an SRV record with many targets.
+        return new RoundRobinLoadBalancerFactory.Builder<InetSocketAddress, LoadBalancedConnection>().build()
+                .newLoadBalancer(from(availableEvents, mixedEvents), ConnFactory.INSTANCE, "benchmark");
+    }
+
     private static final class ConnFactory implements ConnectionFactory<InetSocketAddress, LoadBalancedConnection> {
         static final ConnFactory INSTANCE = new ConnFactory();
 
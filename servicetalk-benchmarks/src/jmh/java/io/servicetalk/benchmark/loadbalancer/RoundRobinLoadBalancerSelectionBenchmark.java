@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.DefaultContextMap;
+import io.servicetalk.context.api.ContextMap;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory;
+import io.servicetalk.transport.api.TransportObserver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.RequestConcurrencyController.Result.Accepted;
+import static io.servicetalk.client.api.RequestConcurrencyController.Result.RejectedTemporary;
+import static io.servicetalk.client.api.RequestTracker.REQUEST_TRACKER_KEY;
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.concurrent.api.Completable.completed;
+import static io.servicetalk.concurrent.api.Completable.never;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static java.net.InetSocketAddress.createUnresolved;
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the cost of selecting a connection of a single host, when most of its connections are busy.
+ * <p>
+ * Connections accept a single request at a time. Each operation finishes the oldest in-flight request, the same way a
+ * client would, and selects a connection for a new request, so that the share of busy connections stays constant.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RoundRobinLoadBalancerSelectionBenchmark {
+    private static final Predicate<BenchmarkConnection> SELECTOR = conn -> conn.tryRequest() == Accepted;
+
+    @Param({"16", "256", "1024"})
+    public int connections;
+
+    @Param({"50", "90", "99"})
+    public int busyPercentage;
+
+    @Param({"false", "true"})
+    public boolean trackFreeConnections;
+
+    private LoadBalancer<BenchmarkConnection> loadBalancer;
+    private ContextMap context;
+    private final Queue<InFlightRequest> inFlight = new ArrayDeque<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        loadBalancer = new RoundRobinLoadBalancerFactory.Builder<InetSocketAddress, BenchmarkConnection>()
+                .trackFreeConnections(trackFreeConnections)
+                .build()
+                .newLoadBalancer(from(singletonList(new DefaultServiceDiscovererEvent<>(
+                        createUnresolved("127.0.0.1", 0), AVAILABLE))), ConnFactory.INSTANCE, "benchmark");
+        context = new DefaultContextMap();
+        for (int i = 0; i < connections; ++i) {
+            // New connections are reserved for the caller.
+            final BenchmarkConnection connection = loadBalancer.newConnection(context).toFuture().get();
+            context.remove(REQUEST_TRACKER_KEY);
+            connection.releaseAsync().toFuture().get();
+        }
+        final int busy = connections * busyPercentage / 100;
+        for (int i = 0; i < busy; ++i) {
+            startRequest();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        loadBalancer.closeAsync().toFuture().get();
+    }
+
+    @Benchmark
+    public BenchmarkConnection selectConnection() throws Exception {
+        final InFlightRequest request = inFlight.poll();
+        assert request != null;
+        request.finish();
+        return startRequest();
+    }
+
+    private BenchmarkConnection startRequest() throws Exception {
+        final BenchmarkConnection connection = loadBalancer.selectConnection(SELECTOR, context).toFuture().get();
+        final RequestTracker tracker = context.remove(REQUEST_TRACKER_KEY);
+        inFlight.add(new InFlightRequest(connection, tracker, tracker == null ? 0 : tracker.beforeStart()));
+        return connection;
+    }
+
+    private static final class InFlightRequest {
+        private final BenchmarkConnection connection;
+        @Nullable
+        private final RequestTracker tracker;
+        private final long startTimeNs;
+
+        InFlightRequest(final BenchmarkConnection connection, @Nullable final RequestTracker tracker,
+                        final long startTimeNs) {
+            this.connection = connection;
+            this.tracker = tracker;
+            this.startTimeNs = startTimeNs;
+        }
+
+        void finish() {
+            connection.requestFinished();
+            if (tracker != null) {
+                tracker.onSuccess(startTimeNs);
+            }
+        }
+    }
+
+    static final class BenchmarkConnection implements LoadBalancedConnection {
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        @Override
+        public Result tryRequest() {
+            return busy.compareAndSet(false, true) ? Accepted : RejectedTemporary;
+        }
+
+        @Override
+        public void requestFinished() {
+            busy.set(false);
+        }
+
+        @Override
+        public boolean tryReserve() {
+            return busy.compareAndSet(false, true);
+        }
+
+        @Override
+        public Completable releaseAsync() {
+            return Completable.defer(() -> {
+                busy.set(false);
+                return completed();
+            });
+        }
+
+        @Override
+        public int score() {
+            return 0;
+        }
+
+        @Override
+        public Completable onClose() {
+            // The load balancer removes connections from the pool when they close, keep them open.
+            return never();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return completed();
+        }
+
+        @Override
+        public Completable closeAsyncGracefully() {
+            return completed();
+        }
+    }
+
+    private static final class ConnFactory implements ConnectionFactory<InetSocketAddress, BenchmarkConnection> {
+        static final ConnFactory INSTANCE = new ConnFactory();
+
+        private ConnFactory() {
+        }
+
+        @Override
+        public Single<BenchmarkConnection> newConnection(final InetSocketAddress inetSocketAddress,
+                                                         @Nullable final ContextMap context,
+                                                         @Nullable final TransportObserver observer) {
+            return succeeded(new BenchmarkConnection());
+        }
+
+        @Override
+        public Completable onClose() {
+            return completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return completed();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.HttpClient;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.transport.api.IoExecutor;
+import io.servicetalk.transport.api.IoTransport;
+import io.servicetalk.transport.api.ServerContext;
+import io.servicetalk.transport.netty.internal.NettyIoExecutors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static io.servicetalk.http.api.HttpExecutionStrategies.offloadNone;
+import static java.net.InetAddress.getLoopbackAddress;
+
+/**
+ * Compares HTTP/1.1 request-response throughput of the {@link IoTransport#IO_URING} and {@link IoTransport#EPOLL}
+ * transports. Run on Linux, a kernel 5.10 or newer is recommended for io_uring. If the requested transport is not
+ * available the {@link IoExecutor} falls back to the best available transport, check the logs before comparing the
+ * results.
+ * <p>
+ * Run with {@code -prof perfnorm} (or under {@code strace -c -f}) to compare the number of syscalls per request.
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class IoTransportHttpBenchmark {
+    static {
+        AsyncContext.disable(); // reduce noise in benchmarks.
+    }
+
+    private static final byte[] PAYLOAD = new byte[256];
+
+    @Param({"EPOLL", "IO_URING"})
+    public IoTransport transport;
+
+    private IoExecutor ioExecutor;
+    private ServerContext serverContext;
+    private BlockingHttpClient blockingClient;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        ioExecutor = NettyIoExecutors.createIoExecutor(2, "io-transport-benchmark", transport);
+        serverContext = HttpServers.forAddress(new InetSocketAddress(getLoopbackAddress(), 0))
+                .ioExecutor(ioExecutor)
+                .executionStrategy(offloadNone())
+                .listenBlockingAndAwait((ctx, request, responseFactory) ->
+                        responseFactory.ok().payloadBody(ctx.executionContext().bufferAllocator().wrap(PAYLOAD)));
+        blockingClient = HttpClients.forResolvedAddress(serverContext.listenAddress())
+                .ioExecutor(ioExecutor)
+                .executionStrategy(offloadNone())
+                .buildBlocking();
+        client = blockingClient.asClient();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try {
+            blockingClient.close();
+            serverContext.close();
+        } finally {
+            ioExecutor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Benchmark
+    public HttpResponse request1() throws Exception {
+        return blockingClient.request(blockingClient.get("/"));
+    }
+
+    @Benchmark
+    public int request10Concurrent() throws Exception {
+        final int totalRequests = 10;
+        final List<Future<HttpResponse>> responses = new ArrayList<>(totalRequests);
+        for (int i = 0; i < totalRequests; ++i) {
+            responses.add(client.request(client.get("/")).toFuture());
+        }
+        int status = 0;
+        for (Future<HttpResponse> response : responses) {
+            status += response.get().status().code();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.CompletableSource;
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.transport.netty.internal.NoopTransportObserver.NoopWriteObserver;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalChannel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.transport.netty.internal.Flush.composeFlushes;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEach;
+
+/**
+ * Compares {@link FlushStrategies#flushOnEach()} and {@link FlushStrategies#adaptiveFlush()} for pipelined writes,
+ * which are issued by separate tasks in the same event loop tick like responses to pipelined requests, and for writes
+ * on an idle connection. Flushes of pending writes burn CPU to approximate the cost of a write syscall, the number of
+ * those flushes per operation is reported as a secondary result.
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class FlushStrategyBenchmark {
+    static {
+        AsyncContext.disable(); // reduce noise in benchmarks.
+    }
+
+    private static final long FLUSH_COST_TOKENS = 500;
+
+    @Param({"flushOnEach", "adaptiveFlush"})
+    public String strategy;
+
+    @Param({"1", "10"})
+    public int pipelinedWrites;
+
+    private EventLoopGroup group;
+    private Channel channel;
+    private FlushStrategy flushStrategy;
+    // Accessed only from the event loop.
+    private int unflushedWrites;
+    private long flushes;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        flushStrategy = "adaptiveFlush".equals(strategy) ? adaptiveFlush() : flushOnEach();
+        group = new DefaultEventLoopGroup(1);
+        channel = new LocalChannel();
+        group.register(channel).sync();
+        channel.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ++unflushedWrites;
+                promise.setSuccess();
+            }
+
+            @Override
+            public void flush(ChannelHandlerContext ctx) {
+                // Like the transport, only a flush of pending writes costs a syscall.
+                if (unflushedWrites > 0) {
+                    unflushedWrites = 0;
+                    Blackhole.consumeCPU(FLUSH_COST_TOKENS);
+                    ++flushes;
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public void write(FlushCounters counters) throws InterruptedException, ExecutionException {
+        final CountDownLatch latch = new CountDownLatch(pipelinedWrites);
+        final EventLoop eventLoop = channel.eventLoop();
+        eventLoop.execute(() -> {
+            for (int i = 0; i < pipelinedWrites; ++i) {
+                eventLoop.execute(() -> write(latch));
+            }
+        });
+        latch.await();
+        // Wait for the coalesced flush, which runs after the last write completes.
+        counters.flushes += eventLoop.submit(() -> {
+            final long result = flushes;
+            flushes = 0;
+            return result;
+        }).get();
+    }
+
+    private void write(final CountDownLatch latch) {
+        toSource(composeFlushes(channel, Publisher.from("item"), flushStrategy, NoopWriteObserver.INSTANCE)
+                .beforeOnNext(channel::write)
+                .ignoreElements())
+                .subscribe(new CompletableSource.Subscriber() {
+                    @Override
+                    public void onSubscribe(final Cancellable cancellable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                        latch.countDown();
+                    }
+                });
+    }
+
+    /**
+     * Reports the number of flushes per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class FlushCounters {
+        public long flushes;
+    }
+}
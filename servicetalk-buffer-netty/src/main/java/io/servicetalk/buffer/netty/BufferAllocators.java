@@ -18,6 +18,8 @@ package io.servicetalk.buffer.netty;
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.BufferAllocator;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * Available {@link BufferAllocator}s.
  */
@@ -39,7 +41,33 @@ public final class BufferAllocators {
      */
     public static final BufferAllocator PREFER_HEAP_ALLOCATOR = BufferUtils.PREFER_HEAP_ALLOCATOR;
 
+    /**
+     * {@link BufferAllocator} whose {@link Buffer}s are backed by pooled, reference counted Netty buffers.
+     * <p>
+     * Unlike other allocators, memory is not reclaimed by the GC. Every {@link Buffer} allocated by this allocator
+     * must be {@link #release(Buffer) released} exactly once, or written to a transport which releases it after the
+     * write. When configured as the allocator of a client or a server, payload body {@link Buffer}s read from the
+     * transport are backed by pooled memory too and have to be released by the application after they are consumed.
+     * Payload bodies which are discarded without being read, like request payload bodies drained by the server or
+     * response payload bodies of retried, hedged and redirected requests, are released by ServiceTalk.
+     * Use it only if the lifecycle of all {@link Buffer}s can be guaranteed, leaks are reported by Netty's
+     * {@code ResourceLeakDetector}.
+     */
+    public static final BufferAllocator POOLED_ALLOCATOR = BufferUtils.POOLED_ALLOCATOR;
+
     private BufferAllocators() {
         // no instances
     }
+
+    /**
+     * Releases the passed {@link Buffer}, if it is backed by reference counted memory of {@link #POOLED_ALLOCATOR}.
+     * Releasing {@link Buffer}s of other allocators has no effect.
+     *
+     * @param buffer the {@link Buffer} to release.
+     * @return {@code true} if the memory was returned to the pool.
+     */
+    public static boolean release(Buffer buffer) {
+        final ByteBuf byteBuf = BufferUtils.toByteBufNoThrow(buffer);
+        return byteBuf != null && byteBuf.release();
+    }
 }
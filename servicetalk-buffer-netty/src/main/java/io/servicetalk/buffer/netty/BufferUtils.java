@@ -22,6 +22,7 @@ import io.servicetalk.buffer.api.EmptyBuffer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
 import javax.annotation.Nullable;
@@ -36,6 +37,7 @@ public final class BufferUtils {
 
     static final BufferAllocator PREFER_HEAP_ALLOCATOR = new ServiceTalkBufferAllocator(false);
     static final BufferAllocator PREFER_DIRECT_ALLOCATOR = new ServiceTalkBufferAllocator(true);
+    static final PooledBufferAllocator POOLED_ALLOCATOR = new PooledBufferAllocator(PooledByteBufAllocator.DEFAULT);
 
     private BufferUtils() {
         // no instances
@@ -105,6 +107,9 @@ public final class BufferUtils {
      * @return the {@link ByteBufAllocator} to use.
      */
     public static ByteBufAllocator getByteBufAllocator(BufferAllocator allocator) {
+        if (allocator instanceof PooledBufferAllocator) {
+            return ((PooledBufferAllocator) allocator).allocator;
+        }
         return (ByteBufAllocator) (allocator instanceof ByteBufAllocator ? allocator :
                 directBufferPreferred() ? PREFER_DIRECT_ALLOCATOR : PREFER_HEAP_ALLOCATOR);
     }
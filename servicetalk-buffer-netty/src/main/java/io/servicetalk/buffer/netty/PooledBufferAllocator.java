@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.buffer.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.buffer.api.CompositeBuffer;
+import io.servicetalk.buffer.netty.ServiceTalkBufferAllocator.ForceTypeByteBufAllocator;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+import static io.servicetalk.buffer.api.EmptyBuffer.EMPTY_BUFFER;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link BufferAllocator} whose {@link Buffer}s are backed by reference counted buffers of a
+ * {@link PooledByteBufAllocator}. Memory is returned to the pool only when a {@link Buffer} is released, see
+ * {@link BufferAllocators#release(Buffer)}. Wrapped memory is not pooled, releasing it has no effect.
+ */
+final class PooledBufferAllocator implements BufferAllocator {
+    final PooledByteBufAllocator allocator;
+    private final ByteBufAllocator forceHeapAllocator;
+    private final ByteBufAllocator forceDirectAllocator;
+
+    PooledBufferAllocator(final PooledByteBufAllocator allocator) {
+        this.allocator = allocator;
+        this.forceHeapAllocator = new ForceTypeByteBufAllocator(allocator, false);
+        this.forceDirectAllocator = new ForceTypeByteBufAllocator(allocator, true);
+    }
+
+    @Override
+    public Buffer fromUtf8(CharSequence data) {
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.writeUtf8(allocator, data));
+    }
+
+    @Override
+    public Buffer fromUtf8(CharSequence data, boolean direct) {
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.writeUtf8(direct ?
+                forceDirectAllocator : forceHeapAllocator, data));
+    }
+
+    @Override
+    public Buffer fromAscii(CharSequence data) {
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.writeAscii(allocator, data));
+    }
+
+    @Override
+    public Buffer fromAscii(CharSequence data, boolean direct) {
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.writeAscii(direct ?
+                forceDirectAllocator : forceHeapAllocator, data));
+    }
+
+    @Override
+    public Buffer fromSequence(CharSequence data, Charset charset) {
+        if (charset == US_ASCII) {
+            return fromAscii(data);
+        }
+        if (charset == UTF_8) {
+            return fromUtf8(data);
+        }
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.encodeString(allocator,
+                data instanceof CharBuffer ? (CharBuffer) data : CharBuffer.wrap(data), charset));
+    }
+
+    @Override
+    public Buffer fromSequence(CharSequence data, Charset charset, boolean direct) {
+        if (charset == US_ASCII) {
+            return fromAscii(data, direct);
+        }
+        if (charset == UTF_8) {
+            return fromUtf8(data, direct);
+        }
+        return data.length() == 0 ? EMPTY_BUFFER : new NettyBuffer<>(ByteBufUtil.encodeString(direct ?
+                        forceDirectAllocator : forceHeapAllocator,
+                data instanceof CharBuffer ? (CharBuffer) data : CharBuffer.wrap(data), charset));
+    }
+
+    @Override
+    public Buffer newBuffer(int initialCapacity) {
+        return new NettyBuffer<>(allocator.buffer(initialCapacity));
+    }
+
+    @Override
+    public Buffer newBuffer(final int initialCapacity, final int maxCapacity) {
+        return new NettyBuffer<>(allocator.buffer(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public Buffer newBuffer(int initialCapacity, boolean direct) {
+        return new NettyBuffer<>(direct ? allocator.directBuffer(initialCapacity) :
+                allocator.heapBuffer(initialCapacity));
+    }
+
+    @Override
+    public CompositeBuffer newCompositeBuffer() {
+        return new NettyCompositeBuffer(allocator.compositeBuffer());
+    }
+
+    @Override
+    public CompositeBuffer newCompositeBuffer(int maxComponents) {
+        return new NettyCompositeBuffer(allocator.compositeBuffer(maxComponents));
+    }
+
+    @Override
+    public Buffer wrap(byte[] bytes) {
+        // There is no pooled memory to return for wrapped data, use unreleasable buffers.
+        return BufferUtils.PREFER_HEAP_ALLOCATOR.wrap(bytes);
+    }
+
+    @Override
+    public Buffer wrap(ByteBuffer buffer) {
+        return BufferUtils.PREFER_HEAP_ALLOCATOR.wrap(buffer);
+    }
+}
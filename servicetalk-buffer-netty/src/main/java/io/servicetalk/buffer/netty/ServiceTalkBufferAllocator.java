@@ -174,7 +174,7 @@ final class ServiceTalkBufferAllocator extends AbstractByteBufAllocator implemen
         return buffer.isReadOnly() ? buf.asReadOnly() : buf;
     }
 
-    private static final class ForceTypeByteBufAllocator implements ByteBufAllocator {
+    static final class ForceTypeByteBufAllocator implements ByteBufAllocator {
 
         private final ByteBufAllocator allocator;
         private final boolean direct;
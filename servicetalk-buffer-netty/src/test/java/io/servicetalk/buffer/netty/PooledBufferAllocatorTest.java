@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.buffer.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.CompositeBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetector.Level;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.POOLED_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledBufferAllocatorTest {
+
+    private static Level level;
+
+    @BeforeAll
+    static void setUp() {
+        level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(Level.PARANOID);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ResourceLeakDetector.setLevel(level);
+    }
+
+    @Test
+    void newBufferIsReleasable() {
+        assertReleasable(POOLED_ALLOCATOR.newBuffer(16));
+    }
+
+    @Test
+    void newBufferDirect() {
+        Buffer buffer = POOLED_ALLOCATOR.newBuffer(16, true);
+        assertTrue(buffer.isDirect());
+        assertReleasable(buffer);
+    }
+
+    @Test
+    void newBufferHeap() {
+        Buffer buffer = POOLED_ALLOCATOR.newBuffer(16, false);
+        assertFalse(buffer.isDirect());
+        assertReleasable(buffer);
+    }
+
+    @Test
+    void fromAscii() {
+        Buffer buffer = POOLED_ALLOCATOR.fromAscii("test");
+        assertEquals("test", buffer.toString(US_ASCII));
+        assertReleasable(buffer);
+    }
+
+    @Test
+    void fromSequence() {
+        Buffer buffer = POOLED_ALLOCATOR.fromSequence("test", US_ASCII, false);
+        assertEquals("test", buffer.toString(US_ASCII));
+        assertReleasable(buffer);
+    }
+
+    @Test
+    void compositeBufferReleasesComponents() {
+        Buffer component = POOLED_ALLOCATOR.fromAscii("test");
+        ByteBuf componentByteBuf = BufferUtils.toByteBuf(component);
+        CompositeBuffer composite = POOLED_ALLOCATOR.newCompositeBuffer().addBuffer(component);
+        assertEquals("test", composite.toString(US_ASCII));
+        assertReleasable(composite);
+        assertEquals(0, componentByteBuf.refCnt());
+    }
+
+    @Test
+    void wrappedMemoryIsNotReleasable() {
+        Buffer array = POOLED_ALLOCATOR.wrap(new byte[] {1, 2, 3});
+        assertFalse(release(array));
+        assertEquals(3, array.readableBytes());
+
+        Buffer byteBuffer = POOLED_ALLOCATOR.wrap(ByteBuffer.allocate(3));
+        assertFalse(release(byteBuffer));
+        assertEquals(3, byteBuffer.readableBytes());
+    }
+
+    @Test
+    void unpooledBufferIsNotReleasable() {
+        Buffer buffer = DEFAULT_ALLOCATOR.fromAscii("test");
+        assertFalse(release(buffer));
+        assertEquals("test", buffer.toString(US_ASCII));
+    }
+
+    @Test
+    void ioByteBufAllocatorIsPooled() {
+        assertTrue(BufferUtils.getByteBufAllocator(POOLED_ALLOCATOR).isDirectBufferPooled());
+        assertFalse(BufferUtils.getByteBufAllocator(DEFAULT_ALLOCATOR).isDirectBufferPooled());
+    }
+
+    private static void assertReleasable(Buffer buffer) {
+        ByteBuf byteBuf = BufferUtils.toByteBuf(buffer);
+        assertEquals(1, byteBuf.refCnt());
+        assertTrue(release(buffer));
+        assertEquals(0, byteBuf.refCnt());
+    }
+}
@@ -24,6 +24,7 @@ import io.servicetalk.client.api.partition.PartitionMapFactory;
 import io.servicetalk.client.api.partition.PartitionedServiceDiscovererEvent;
 import io.servicetalk.concurrent.CompletableSource;
 import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.PublisherSource.Processor;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
 import io.servicetalk.concurrent.api.AsyncCloseable;
 import io.servicetalk.concurrent.api.Completable;
@@ -36,21 +37,29 @@ import io.servicetalk.concurrent.internal.SequentialCancellable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.EXPIRED;
 import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.UNAVAILABLE;
 import static io.servicetalk.concurrent.api.AsyncCloseables.emptyAsyncCloseable;
+import static io.servicetalk.concurrent.api.Processors.newPublisherProcessor;
+import static io.servicetalk.concurrent.api.Publisher.defer;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverCompleteFromSource;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -92,9 +101,17 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultPartitionedClientGroup.class);
 
-    private final PartitionMap<Partition<Client>> partitionMap;
+    private final PartitionMap<Partition<U, R, Client>> partitionMap;
     private final SequentialCancellable sequentialCancellable = new SequentialCancellable();
     private final Function<PartitionAttributes, Client> unknownPartitionClient;
+    private final PartitionedClientFactory<U, R, Client> clientFactory;
+    private final int psdMaxQueueSize;
+    private final int maxActiveClients;
+    /**
+     * Partitions with an active client, only tracked if the number of active clients is bounded.
+     */
+    @Nullable
+    private final Set<Partition<U, R, Client>> activePartitions;
 
     /**
      * Creates a new instance.
@@ -112,10 +129,42 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
                                          final PartitionMapFactory partitionMapFactory,
                                          final Publisher<PartitionedServiceDiscovererEvent<R>> psdEvents,
                                          final int psdMaxQueueSize) {
+        this(closedPartitionClient, unknownPartitionClient, clientFactory, partitionMapFactory, psdEvents,
+                psdMaxQueueSize, Integer.MAX_VALUE);
+    }
 
+    /**
+     * Creates a new instance.
+     * <p>
+     * Clients are created when a partition is selected for the first time. If more than {@code maxActiveClients}
+     * clients are active, the least recently selected client is closed gracefully and created again when its partition
+     * is selected next time.
+     *
+     * @param closedPartitionClient factory for clients that handle requests for a closed partition
+     * @param unknownPartitionClient factory for clients that handles requests for an unknown partition
+     * @param clientFactory used to create clients for newly discovered partitions
+     * @param partitionMapFactory factory to provide a {@link PartitionMap} implementation appropriate for the use-case
+     * @param psdEvents the stream of {@link PartitionedServiceDiscovererEvent}s
+     * @param psdMaxQueueSize max number of new partitions to queue up
+     * @param maxActiveClients max number of active clients, {@link Integer#MAX_VALUE} to never close idle clients
+     */
+    public DefaultPartitionedClientGroup(final Function<PartitionAttributes, Client> closedPartitionClient,
+                                         final Function<PartitionAttributes, Client> unknownPartitionClient,
+                                         final PartitionedClientFactory<U, R, Client> clientFactory,
+                                         final PartitionMapFactory partitionMapFactory,
+                                         final Publisher<PartitionedServiceDiscovererEvent<R>> psdEvents,
+                                         final int psdMaxQueueSize,
+                                         final int maxActiveClients) {
+        if (maxActiveClients <= 0) {
+            throw new IllegalArgumentException("maxActiveClients: " + maxActiveClients + " (expected >0)");
+        }
         this.unknownPartitionClient = unknownPartitionClient;
+        this.clientFactory = requireNonNull(clientFactory);
+        this.psdMaxQueueSize = psdMaxQueueSize;
+        this.maxActiveClients = maxActiveClients;
+        this.activePartitions = maxActiveClients == Integer.MAX_VALUE ? null : new HashSet<>();
         this.partitionMap = partitionMapFactory.newPartitionMap(event ->
-                new Partition<>(event, closedPartitionClient.apply(event)));
+                new Partition<>(this, event, closedPartitionClient.apply(event)));
         toSource(psdEvents
                 .groupToMany(event -> UNAVAILABLE.equals(event.status()) ?
                                 partitionMap.remove(event.partitionAddress()).iterator()
@@ -123,7 +172,7 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
                                 // as it will just return current partitions.
                                 : partitionMap.add(event.partitionAddress()).iterator(),
                         psdMaxQueueSize))
-                .subscribe(new GroupedByPartitionSubscriber(clientFactory));
+                .subscribe(new GroupedByPartitionSubscriber());
     }
 
     @Override
@@ -152,61 +201,60 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
 
     @Override
     public Client get(final PartitionAttributes partitionAttributes) {
-        final Partition<Client> partition = partitionMap.get(partitionAttributes);
-        final Client client;
-        if (partition == null || (client = partition.client()) == null) {
+        final Partition<U, R, Client> partition = partitionMap.get(partitionAttributes);
+        if (partition == null) {
             return unknownPartitionClient.apply(partitionAttributes);
         }
-        return client;
+        return partition.client();
+    }
+
+    private void onClientCreated(final Partition<U, R, Client> partition) {
+        assert activePartitions != null;
+        Partition<U, R, Client> leastRecentlySelected = null;
+        synchronized (activePartitions) {
+            activePartitions.add(partition);
+            if (activePartitions.size() > maxActiveClients) {
+                // The scan is linear in the number of active clients, but it only happens when a client is created,
+                // which is much less frequent than the selection of a partition.
+                for (Partition<U, R, Client> p : activePartitions) {
+                    if (p != partition && (leastRecentlySelected == null ||
+                            p.lastSelectedNanos - leastRecentlySelected.lastSelectedNanos < 0)) {
+                        leastRecentlySelected = p;
+                    }
+                }
+                activePartitions.remove(leastRecentlySelected);
+            }
+        }
+        if (leastRecentlySelected != null) {
+            leastRecentlySelected.evictClient();
+        }
     }
 
-    private static final class PartitionServiceDiscoverer<U, R, C extends AsyncCloseable,
-            PSDE extends PartitionedServiceDiscovererEvent<R>>
+    private void onClientRemoved(final Partition<U, R, Client> partition) {
+        if (activePartitions != null) {
+            synchronized (activePartitions) {
+                activePartitions.remove(partition);
+            }
+        }
+    }
+
+    private static final class PartitionServiceDiscoverer<U, R, C extends ListenableAsyncCloseable>
             implements ServiceDiscoverer<U, R, ServiceDiscovererEvent<R>> {
         private final ListenableAsyncCloseable close;
-        private final GroupedPublisher<Partition<C>, PSDE> newGroup;
-        private final Partition<C> partition;
+        private final Partition<U, R, C> partition;
 
-        PartitionServiceDiscoverer(final GroupedPublisher<Partition<C>, PSDE> newGroup) {
-            this.newGroup = newGroup;
-            this.partition = newGroup.key();
+        PartitionServiceDiscoverer(final Partition<U, R, C> partition) {
+            this.partition = partition;
             close = emptyAsyncCloseable();
         }
 
         /**
          * @param ignoredAddress the address is ignored since discovery already happened
-         * @return stream of {@link PartitionedServiceDiscovererEvent}s for this partitions with valid addresses
+         * @return stream of {@link ServiceDiscovererEvent}s for this partitions with valid addresses
          */
         @Override
         public Publisher<Collection<ServiceDiscovererEvent<R>>> discover(final U ignoredAddress) {
-            return newGroup.filter(new Predicate<PSDE>() {
-                // Use a mutable Count to avoid boxing-unboxing and put on each call.
-                private final Map<R, MutableInt> addressCount = new HashMap<>();
-
-                @Override
-                public boolean test(PSDE evt) {
-                    if (EXPIRED.equals(evt.status())) {
-                        return false;
-                    }
-                    MutableInt counter = addressCount.computeIfAbsent(evt.address(), __ -> new MutableInt());
-                    boolean acceptEvent;
-                    if (UNAVAILABLE.equals(evt.status())) {
-                        acceptEvent = --counter.value == 0;
-                        if (acceptEvent) {
-                            // If address is unavailable and no more add events are pending stop tracking and
-                            // close partition.
-                            addressCount.remove(evt.address());
-                            if (addressCount.isEmpty()) {
-                                // closeNow will subscribe to closeAsync() so we do not have to here.
-                                partition.closeNow();
-                            }
-                        }
-                    } else {
-                        acceptEvent = ++counter.value == 1;
-                    }
-                    return acceptEvent;
-                }
-            }).beforeFinally(partition::closeNow).map(Collections::singletonList);
+            return partition.discover();
         }
 
         @Override
@@ -228,42 +276,162 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
         public Completable closeAsyncGracefully() {
             return close.closeAsyncGracefully();
         }
-
-        static final class MutableInt {
-            int value;
-        }
     }
 
-    private static final class Partition<C extends AsyncCloseable> implements AsyncCloseable {
+    /**
+     * Tracks the addresses of a partition and creates its client on demand. A client that is closed because too many
+     * clients are active is created again on the next selection, its {@link ServiceDiscoverer} first replays the
+     * currently available addresses.
+     */
+    private static final class Partition<U, R, C extends ListenableAsyncCloseable> implements AsyncCloseable {
         @SuppressWarnings("rawtypes")
         private static final AtomicReferenceFieldUpdater<Partition, Object> clientUpdater =
                 AtomicReferenceFieldUpdater.newUpdater(Partition.class, Object.class, "client");
 
+        private final DefaultPartitionedClientGroup<U, R, C> group;
         private final PartitionAttributes attributes;
         private final C closed;
+        private final SequentialCancellable groupCancellable = new SequentialCancellable();
+        // Use a mutable Count to avoid boxing-unboxing and put on each call.
+        private final Map<R, MutableInt> addressCount = new HashMap<>();
+        private final Map<R, ServiceDiscovererEvent<R>> available = new HashMap<>();
+        // A client that lost the race in newClient() may subscribe to discover() as well until it is closed.
+        private final List<Processor<Collection<ServiceDiscovererEvent<R>>, Collection<ServiceDiscovererEvent<R>>>>
+                processors = new ArrayList<>(1);
 
         @Nullable
         private volatile Object client;
+        private volatile long lastSelectedNanos;
 
-        Partition(PartitionAttributes attributes, C closed) {
+        Partition(DefaultPartitionedClientGroup<U, R, C> group, PartitionAttributes attributes, C closed) {
+            this.group = group;
             this.attributes = requireNonNull(attributes, "PartitionAttributes for partition is null");
             this.closed = requireNonNull(closed, "Closed Client for partition is null");
         }
 
-        void client(C client) {
-            if (!clientUpdater.compareAndSet(this, null, client)) {
-                client.closeAsync().subscribe();
+        void track(final GroupedPublisher<Partition<U, R, C>, ? extends PartitionedServiceDiscovererEvent<R>> events) {
+            toSource(events).subscribe(new PublisherSource.Subscriber<PartitionedServiceDiscovererEvent<R>>() {
+                @Override
+                public void onSubscribe(final Subscription s) {
+                    // Events are processed synchronously, see GroupedByPartitionSubscriber#onSubscribe.
+                    s.request(Long.MAX_VALUE);
+                    groupCancellable.nextCancellable(s);
+                }
+
+                @Override
+                public void onNext(@Nullable final PartitionedServiceDiscovererEvent<R> event) {
+                    onEvent(requireNonNull(event));
+                }
+
+                @Override
+                public void onError(final Throwable t) {
+                    closeNow();
+                }
+
+                @Override
+                public void onComplete() {
+                    closeNow();
+                }
+            });
+        }
+
+        private void onEvent(final ServiceDiscovererEvent<R> event) {
+            if (EXPIRED.equals(event.status())) {
+                return;
+            }
+            final List<Processor<Collection<ServiceDiscovererEvent<R>>, Collection<ServiceDiscovererEvent<R>>>> current;
+            final boolean closePartition;
+            synchronized (this) {
+                MutableInt counter = addressCount.computeIfAbsent(event.address(), __ -> new MutableInt());
+                if (UNAVAILABLE.equals(event.status())) {
+                    if (--counter.value != 0) {
+                        return;
+                    }
+                    // If address is unavailable and no more add events are pending stop tracking and close partition.
+                    addressCount.remove(event.address());
+                    available.remove(event.address());
+                    closePartition = addressCount.isEmpty();
+                } else {
+                    if (++counter.value != 1) {
+                        return;
+                    }
+                    available.put(event.address(), event);
+                    closePartition = false;
+                }
+                current = processors.isEmpty() ? emptyList() : new ArrayList<>(processors);
+            }
+            // Events are delivered sequentially, so the event can't overtake a snapshot taken by discover().
+            for (Processor<Collection<ServiceDiscovererEvent<R>>, Collection<ServiceDiscovererEvent<R>>> p : current) {
+                p.onNext(singletonList(event));
+            }
+            if (closePartition) {
+                closeNow();
             }
         }
 
-        void closeNow() {
-            closeAsync().subscribe();
+        Publisher<Collection<ServiceDiscovererEvent<R>>> discover() {
+            return defer(() -> {
+                final Processor<Collection<ServiceDiscovererEvent<R>>, Collection<ServiceDiscovererEvent<R>>>
+                        newProcessor = newPublisherProcessor(group.psdMaxQueueSize);
+                final List<ServiceDiscovererEvent<R>> snapshot;
+                synchronized (this) {
+                    snapshot = new ArrayList<>(available.values());
+                    processors.add(newProcessor);
+                }
+                final Publisher<Collection<ServiceDiscovererEvent<R>>> updates = fromSource(newProcessor);
+                return (snapshot.isEmpty() ? updates :
+                        Publisher.<Collection<ServiceDiscovererEvent<R>>>from(snapshot).concat(updates))
+                        .beforeFinally(() -> {
+                            synchronized (this) {
+                                processors.remove(newProcessor);
+                            }
+                        });
+            });
         }
 
-        @Nullable
         @SuppressWarnings("unchecked")
         C client() {
-            return (C) client;
+            Object current = client;
+            if (current == null) {
+                current = newClient();
+            }
+            if (group.activePartitions != null) {
+                lastSelectedNanos = nanoTime();
+            }
+            return (C) current;
+        }
+
+        private Object newClient() {
+            // Create the client without holding the monitor, otherwise discovery events for this partition would wait
+            // for it. Concurrent selections may create more than one client, only the first one is published.
+            final C newClient = requireNonNull(group.clientFactory.apply(attributes,
+                    new PartitionServiceDiscoverer<>(this)), "<null> Client created for partition");
+            while (!clientUpdater.compareAndSet(this, null, newClient)) {
+                final Object current = client;
+                if (current != null) {
+                    // Another selection published its client first or the partition was closed.
+                    newClient.closeAsync().subscribe();
+                    return current;
+                }
+            }
+            if (group.activePartitions != null) {
+                lastSelectedNanos = nanoTime();
+                group.onClientCreated(this);
+            }
+            return newClient;
+        }
+
+        @SuppressWarnings("unchecked")
+        void evictClient() {
+            final Object current = client;
+            if (current != null && current != closed && clientUpdater.compareAndSet(this, current, null)) {
+                LOGGER.debug("Closing the least recently selected client of partition {}", this);
+                ((C) current).closeAsyncGracefully().subscribe();
+            }
+        }
+
+        void closeNow() {
+            closeAsync().subscribe();
         }
 
         @SuppressWarnings("unchecked")
@@ -273,7 +441,9 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
                 @Override
                 protected void handleSubscribe(CompletableSource.Subscriber subscriber) {
                     Object oldClient = clientUpdater.getAndSet(DefaultPartitionedClientGroup.Partition.this, closed);
+                    groupCancellable.cancel();
                     if (oldClient != null && oldClient != closed) {
+                        group.onClientRemoved(DefaultPartitionedClientGroup.Partition.this);
                         toSource(((C) oldClient).closeAsync()).subscribe(subscriber);
                     } else {
                         deliverCompleteFromSource(subscriber);
@@ -286,18 +456,16 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
         public String toString() {
             return attributes.toString();
         }
+
+        private static final class MutableInt {
+            int value;
+        }
     }
 
     private final class GroupedByPartitionSubscriber
-            implements PublisherSource.Subscriber<GroupedPublisher<Partition<Client>,
+            implements PublisherSource.Subscriber<GroupedPublisher<Partition<U, R, Client>,
             ? extends PartitionedServiceDiscovererEvent<R>>> {
 
-        private final PartitionedClientFactory<U, R, Client> clientFactory;
-
-        GroupedByPartitionSubscriber(final PartitionedClientFactory<U, R, Client> clientFactory) {
-            this.clientFactory = clientFactory;
-        }
-
         @Override
         public void onSubscribe(final Subscription s) {
             // We request max value here to make sure we do not access Subscription concurrently
@@ -309,12 +477,11 @@ public final class DefaultPartitionedClientGroup<U, R, Client extends Listenable
         }
 
         @Override
-        public void onNext(@Nonnull final GroupedPublisher<Partition<Client>,
+        public void onNext(@Nonnull final GroupedPublisher<Partition<U, R, Client>,
                         ? extends PartitionedServiceDiscovererEvent<R>> newGroup) {
             requireNonNull(newGroup);
-            Client newClient = requireNonNull(clientFactory.apply(newGroup.key().attributes,
-                    new PartitionServiceDiscoverer<>(newGroup)), "<null> Client created for partition");
-            newGroup.key().client(newClient);
+            // Clients are created on demand when the partition is selected, see Partition#client().
+            newGroup.key().track(newGroup);
         }
 
         @Override
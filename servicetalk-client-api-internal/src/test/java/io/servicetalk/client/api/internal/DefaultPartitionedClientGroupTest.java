@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.client.api.internal;
+
+import io.servicetalk.client.api.ServiceDiscoverer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.client.api.internal.partition.DefaultPartitionAttributesBuilder;
+import io.servicetalk.client.api.internal.partition.PowerSetPartitionMapFactory;
+import io.servicetalk.client.api.partition.PartitionAttributes;
+import io.servicetalk.client.api.partition.PartitionAttributes.Key;
+import io.servicetalk.client.api.partition.PartitionedServiceDiscovererEvent;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.TestPublisher;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.UNAVAILABLE;
+import static io.servicetalk.concurrent.api.AsyncCloseables.emptyAsyncCloseable;
+import static io.servicetalk.concurrent.test.internal.AwaitUtils.await;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SuppressWarnings("deprecation")
+class DefaultPartitionedClientGroupTest {
+    private static final Key<String> SHARD = Key.newKey("shard");
+
+    private final TestPublisher<PartitionedServiceDiscovererEvent<String>> psdEvents = new TestPublisher<>();
+    private final List<TestClient> createdClients = new CopyOnWriteArrayList<>();
+    @Nullable
+    private DefaultPartitionedClientGroup<String, String, TestClient> group;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (group != null) {
+            group.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test
+    void clientsAreCreatedOnFirstSelection() {
+        group = newGroup(Integer.MAX_VALUE);
+        psdEvents.onNext(event("a", "host-1", AVAILABLE), event("b", "host-2", AVAILABLE));
+        assertTrue(createdClients.isEmpty());
+
+        TestClient client = group.get(shard("a"));
+        assertEquals(1, createdClients.size());
+        assertEquals(singletonList("host-1"), client.addresses());
+        assertSame(client, group.get(shard("a")));
+
+        psdEvents.onNext(event("a", "host-3", AVAILABLE));
+        assertEquals(asList("host-1", "host-3"), client.addresses());
+    }
+
+    @Test
+    void leastRecentlySelectedClientIsClosedGracefully() {
+        group = newGroup(2);
+        psdEvents.onNext(event("a", "host-1", AVAILABLE), event("b", "host-2", AVAILABLE),
+                event("c", "host-3", AVAILABLE));
+
+        TestClient clientA = group.get(shard("a"));
+        TestClient clientB = group.get(shard("b"));
+        assertSame(clientA, group.get(shard("a")));
+        TestClient clientC = group.get(shard("c"));
+
+        assertTrue(clientB.closedGracefully);
+        assertFalse(clientA.closedGracefully);
+        assertFalse(clientC.closedGracefully);
+        assertEquals(3, createdClients.size());
+    }
+
+    @Test
+    void closedClientIsCreatedAgainWithCurrentAddresses() {
+        group = newGroup(1);
+        psdEvents.onNext(event("a", "host-1", AVAILABLE), event("a", "host-2", AVAILABLE),
+                event("b", "host-3", AVAILABLE));
+
+        TestClient clientA = group.get(shard("a"));
+        group.get(shard("b"));
+        assertTrue(clientA.closedGracefully);
+
+        psdEvents.onNext(event("a", "host-1", UNAVAILABLE), event("a", "host-4", AVAILABLE));
+        TestClient newClientA = group.get(shard("a"));
+        assertNotSame(clientA, newClientA);
+        assertEquals(asList("host-2", "host-4"), newClientA.addresses());
+    }
+
+    @Test
+    void discoveryEventsDoNotWaitForClientCreation() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch created = new CountDownLatch(1);
+        group = newGroup(Integer.MAX_VALUE, sd -> {
+            TestClient client = new TestClient(sd);
+            creating.countDown();
+            await(created);
+            return client;
+        });
+        psdEvents.onNext(event("a", "host-1", AVAILABLE));
+
+        ExecutorService executor = newSingleThreadExecutor();
+        try {
+            Future<TestClient> client = executor.submit(() -> group.get(shard("a")));
+            creating.await();
+            // Would block on the partition while the client is created.
+            psdEvents.onNext(event("a", "host-2", AVAILABLE));
+            created.countDown();
+            assertEquals(asList("host-1", "host-2"), client.get().addresses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentlyCreatedClientIsClosed() throws Exception {
+        CountDownLatch creating = new CountDownLatch(2);
+        group = newGroup(Integer.MAX_VALUE, sd -> {
+            TestClient client = new TestClient(sd);
+            creating.countDown();
+            await(creating);
+            return client;
+        });
+        psdEvents.onNext(event("a", "host-1", AVAILABLE));
+
+        ExecutorService executor = newFixedThreadPool(2);
+        try {
+            Future<TestClient> first = executor.submit(() -> group.get(shard("a")));
+            Future<TestClient> second = executor.submit(() -> group.get(shard("a")));
+            TestClient client = first.get();
+            assertSame(client, second.get());
+            assertEquals(2, createdClients.size());
+            for (TestClient created : createdClients) {
+                assertEquals(created != client, created.closed);
+            }
+
+            psdEvents.onNext(event("a", "host-2", AVAILABLE));
+            assertEquals(asList("host-1", "host-2"), client.addresses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidMaxActiveClients() {
+        assertThrows(IllegalArgumentException.class, () -> newGroup(0));
+    }
+
+    private DefaultPartitionedClientGroup<String, String, TestClient> newGroup(int maxActiveClients) {
+        return newGroup(maxActiveClients, TestClient::new);
+    }
+
+    private DefaultPartitionedClientGroup<String, String, TestClient> newGroup(
+            int maxActiveClients,
+            Function<ServiceDiscoverer<String, String, ServiceDiscovererEvent<String>>, TestClient> clientFactory) {
+        return new DefaultPartitionedClientGroup<>(__ -> new TestClient(null), __ -> new TestClient(null),
+                (pa, sd) -> {
+                    TestClient client = clientFactory.apply(sd);
+                    createdClients.add(client);
+                    return client;
+                }, PowerSetPartitionMapFactory.INSTANCE, psdEvents, 32, maxActiveClients);
+    }
+
+    private static PartitionAttributes shard(String name) {
+        return new DefaultPartitionAttributesBuilder(1).add(SHARD, name).build();
+    }
+
+    private static PartitionedServiceDiscovererEvent<String> event(String shard, String address,
+                                                                   ServiceDiscovererEvent.Status status) {
+        final PartitionAttributes attributes = shard(shard);
+        return new PartitionedServiceDiscovererEvent<String>() {
+            @Override
+            public PartitionAttributes partitionAddress() {
+                return attributes;
+            }
+
+            @Override
+            public String address() {
+                return address;
+            }
+
+            @Override
+            public Status status() {
+                return status;
+            }
+        };
+    }
+
+    private static final class TestClient implements ListenableAsyncCloseable {
+        private final ListenableAsyncCloseable closeable = emptyAsyncCloseable();
+        private final List<ServiceDiscovererEvent<String>> events = new CopyOnWriteArrayList<>();
+        @Nullable
+        private final Cancellable discovery;
+        volatile boolean closedGracefully;
+        volatile boolean closed;
+
+        TestClient(@Nullable ServiceDiscoverer<String, String, ServiceDiscovererEvent<String>> sd) {
+            discovery = sd == null ? null : sd.discover("ignored").forEach(events::addAll);
+        }
+
+        List<String> addresses() {
+            List<String> addresses = new ArrayList<>();
+            for (ServiceDiscovererEvent<String> event : events) {
+                if (UNAVAILABLE.equals(event.status())) {
+                    addresses.remove(event.address());
+                } else {
+                    addresses.add(event.address());
+                }
+            }
+            addresses.sort(null);
+            return addresses;
+        }
+
+        @Override
+        public Completable onClose() {
+            return closeable.onClose();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            closed = true;
+            if (discovery != null) {
+                discovery.cancel();
+            }
+            return closeable.closeAsync();
+        }
+
+        @Override
+        public Completable closeAsyncGracefully() {
+            closedGracefully = true;
+            return closeAsync();
+        }
+    }
+}
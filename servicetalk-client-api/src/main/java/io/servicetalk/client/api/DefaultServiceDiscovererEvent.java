@@ -15,6 +15,9 @@
  */
 package io.servicetalk.client.api;
 
+import java.util.Objects;
+import javax.annotation.Nullable;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -24,6 +27,9 @@ import static java.util.Objects.requireNonNull;
 public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscovererEvent<T> {
     private final T address;
     private final Status status;
+    private final double weight;
+    @Nullable
+    private final String zone;
 
     /**
      * Create a new instance.
@@ -31,8 +37,34 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
      * @param status Value returned by {@link #status()}.
      */
     public DefaultServiceDiscovererEvent(T address, Status status) {
+        this(address, status, 1);
+    }
+
+    /**
+     * Create a new instance.
+     * @param address The address returned by {@link #address()}.
+     * @param status Value returned by {@link #status()}.
+     * @param weight Value returned by {@link #weight()}.
+     */
+    public DefaultServiceDiscovererEvent(T address, Status status, double weight) {
+        this(address, status, weight, null);
+    }
+
+    /**
+     * Create a new instance.
+     * @param address The address returned by {@link #address()}.
+     * @param status Value returned by {@link #status()}.
+     * @param weight Value returned by {@link #weight()}.
+     * @param zone Value returned by {@link #zone()}.
+     */
+    public DefaultServiceDiscovererEvent(T address, Status status, double weight, @Nullable String zone) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight: " + weight + " (expected >0 and finite)");
+        }
         this.address = requireNonNull(address);
         this.status = requireNonNull(status);
+        this.weight = weight;
+        this.zone = zone;
     }
 
     @Override
@@ -45,6 +77,17 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
         return status;
     }
 
+    @Override
+    public double weight() {
+        return weight;
+    }
+
+    @Nullable
+    @Override
+    public String zone() {
+        return zone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -54,13 +97,16 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
             return false;
         }
         final DefaultServiceDiscovererEvent<?> that = (DefaultServiceDiscovererEvent<?>) o;
-        return status.equals(that.status) && address.equals(that.address);
+        return status.equals(that.status) && address.equals(that.address) &&
+                Double.compare(weight, that.weight) == 0 && Objects.equals(zone, that.zone);
     }
 
     @Override
     public int hashCode() {
         int result = address.hashCode();
         result = 31 * result + status.hashCode();
+        result = 31 * result + Double.hashCode(weight);
+        result = 31 * result + Objects.hashCode(zone);
         return result;
     }
 
@@ -69,6 +115,8 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
         return "DefaultServiceDiscovererEvent{" +
                 "address=" + address +
                 ", status=" + status +
+                (weight == 1 ? "" : ", weight=" + weight) +
+                (zone == null ? "" : ", zone=" + zone) +
                 '}';
     }
 }
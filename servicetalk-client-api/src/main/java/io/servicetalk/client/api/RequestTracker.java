@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.client.api;
+
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.function.Predicate;
+
+import static io.servicetalk.context.api.ContextMap.Key.newKey;
+
+/**
+ * A tracker of the latency and outcome of requests issued over a connection selected by a {@link LoadBalancer}.
+ * <p>
+ * {@link LoadBalancer} implementations that rank hosts by the observed request outcomes put an instance of this
+ * tracker into the request {@link ContextMap context} under {@link #REQUEST_TRACKER_KEY} when they select a connection
+ * via {@link LoadBalancer#selectConnection(Predicate, ContextMap)}. The client that issues the request is expected to
+ * remove the tracker from the context, call {@link #beforeStart()} before the request is written, and notify either
+ * {@link #onSuccess(long)} or {@link #onError(long, ErrorClass)} exactly once when the request terminates.
+ */
+public interface RequestTracker {
+
+    /**
+     * The {@link ContextMap.Key} under which a {@link LoadBalancer} stores the {@link RequestTracker} associated with
+     * the selected connection.
+     */
+    ContextMap.Key<RequestTracker> REQUEST_TRACKER_KEY = newKey("REQUEST_TRACKER_KEY", RequestTracker.class);
+
+    /**
+     * Invoked before a request is issued over the selected connection.
+     *
+     * @return the current time in nanoseconds, which has to be passed to the termination callbacks.
+     */
+    long beforeStart();
+
+    /**
+     * Invoked when a request completes successfully.
+     *
+     * @param beforeStartTimeNs the value returned by {@link #beforeStart()}.
+     */
+    void onSuccess(long beforeStartTimeNs);
+
+    /**
+     * Invoked when a request terminates with an error or is cancelled.
+     *
+     * @param beforeStartTimeNs the value returned by {@link #beforeStart()}.
+     * @param errorClass the {@link ErrorClass} of the observed error.
+     */
+    void onError(long beforeStartTimeNs, ErrorClass errorClass);
+
+    /**
+     * Classification of errors observed for a request.
+     */
+    enum ErrorClass {
+        /**
+         * The request timed out locally, for example due to a client-side deadline.
+         */
+        LOCAL_ORIGIN_TIMEOUT(true),
+        /**
+         * The request failed locally because the connection could not be established.
+         */
+        LOCAL_ORIGIN_CONNECT_FAILED(true),
+        /**
+         * The request failed locally, for example due to a connection reset or a protocol error.
+         */
+        LOCAL_ORIGIN_REQUEST_FAILED(true),
+        /**
+         * The remote peer reported a timeout, for example with a {@code 504} HTTP status code.
+         */
+        EXT_ORIGIN_TIMEOUT(false),
+        /**
+         * The remote peer reported a failure, for example with a {@code 5xx} HTTP status code.
+         */
+        EXT_ORIGIN_REQUEST_FAILED(false),
+        /**
+         * The request was cancelled before it terminated.
+         */
+        CANCELLED(true);
+
+        private final boolean isLocal;
+
+        ErrorClass(boolean isLocal) {
+            this.isLocal = isLocal;
+        }
+
+        /**
+         * Whether the error was detected locally, as opposed to being reported by the remote peer.
+         *
+         * @return {@code true} if the error was detected locally.
+         */
+        public boolean isLocal() {
+            return isLocal;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package io.servicetalk.client.api;
 
 import java.util.Locale;
+import javax.annotation.Nullable;
 
 /**
  * Notification from the Service Discovery system that availability for an address has changed.
@@ -39,6 +40,32 @@ public interface ServiceDiscovererEvent<ResolvedAddress> {
      */
     Status status();
 
+    /**
+     * The relative weight of the {@link #address() address} compared to other addresses of the same service.
+     * <p>
+     * {@link LoadBalancer} implementations that support weights send each address a share of the traffic that is
+     * proportional to its weight, for example to use instances with more resources to their full capacity. Addresses
+     * with equal weights receive equal shares of the traffic.
+     *
+     * @return a positive weight of the {@link #address() address}, {@code 1} by default.
+     */
+    default double weight() {
+        return 1;
+    }
+
+    /**
+     * The zone, for example an availability zone or a data center, in which the {@link #address() address} is located.
+     * <p>
+     * {@link LoadBalancer} implementations that are aware of the locality prefer addresses in the same zone as the
+     * client, to reduce the latency and the cost of the traffic across zones.
+     *
+     * @return the zone of the {@link #address() address}, or {@code null} if unknown.
+     */
+    @Nullable
+    default String zone() {
+        return null;
+    }
+
     /**
      * Status provided by the {@link ServiceDiscoverer} system that guides the actions of {@link LoadBalancer} upon the
      * bound {@link ServiceDiscovererEvent#address()} (via {@link ServiceDiscovererEvent}).
@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.servicetalk.concurrent.internal.FileChannelUtils.DEFAULT_MAP_CHUNK_SIZE;
+import static io.servicetalk.concurrent.internal.FileChannelUtils.mapChunk;
+import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.handleExceptionFromOnSubscribe;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.newExceptionForInvalidRequestN;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Publisher} created from a region of a {@link FileChannel} such that any data requested from the
+ * {@link Publisher} is emitted as read-only {@link java.nio.MappedByteBuffer} regions of the file, without copying the
+ * file content into the heap.
+ * <p>
+ * Every {@link Subscription#request(long) requested} item maps at most {@code mapChunkSize} bytes of the file, so the
+ * number of mapped regions which are alive at the same time is bounded by the demand of the {@link Subscriber}. The
+ * {@link FileChannel} is closed when the {@link Publisher} terminates or is cancelled, mapped regions that were
+ * already emitted stay valid after that.
+ */
+final class FromFileChannelPublisher extends Publisher<ByteBuffer> implements PublisherSource<ByteBuffer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FromFileChannelPublisher.class);
+    private static final AtomicIntegerFieldUpdater<FromFileChannelPublisher> subscribedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(FromFileChannelPublisher.class, "subscribed");
+
+    @SuppressWarnings("unused")
+    private volatile int subscribed;
+
+    private final FileChannel channel;
+    private final long position;
+    private final long count;
+    private final int mapChunkSize;
+
+    /**
+     * A new instance.
+     *
+     * @param channel the {@link FileChannel} to expose as a {@link Publisher}
+     * @param position the position in the file of the first byte to emit
+     * @param count the number of bytes to emit
+     */
+    FromFileChannelPublisher(final FileChannel channel, final long position, final long count) {
+        this(channel, position, count, DEFAULT_MAP_CHUNK_SIZE);
+    }
+
+    /**
+     * A new instance.
+     *
+     * @param channel the {@link FileChannel} to expose as a {@link Publisher}
+     * @param position the position in the file of the first byte to emit
+     * @param count the number of bytes to emit
+     * @param mapChunkSize the maximum number of bytes mapped into a single {@link ByteBuffer} emitted by the
+     * {@link Publisher}.
+     */
+    FromFileChannelPublisher(final FileChannel channel, final long position, final long count,
+                             final int mapChunkSize) {
+        this.channel = requireNonNull(channel);
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected: >=0)");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count: " + count + " (expected: >=0)");
+        }
+        if (mapChunkSize <= 0) {
+            throw new IllegalArgumentException("mapChunkSize: " + mapChunkSize + " (expected: >0)");
+        }
+        this.position = position;
+        this.count = count;
+        this.mapChunkSize = mapChunkSize;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+        subscribeInternal(subscriber);
+    }
+
+    @Override
+    protected void handleSubscribe(final Subscriber<? super ByteBuffer> subscriber) {
+        if (subscribedUpdater.compareAndSet(this, 0, 1)) {
+            try {
+                subscriber.onSubscribe(new FileChannelPublisherSubscription(channel, subscriber, position,
+                        position + count, mapChunkSize));
+            } catch (Throwable t) {
+                handleExceptionFromOnSubscribe(subscriber, t);
+            }
+        } else {
+            deliverErrorFromSource(subscriber, new DuplicateSubscribeException(null, subscriber));
+        }
+    }
+
+    private static final class FileChannelPublisherSubscription implements Subscription {
+        /**
+         * Value assigned to {@link #requested} when terminal event was sent.
+         */
+        private static final int TERMINAL_SENT = -1;
+
+        private final FileChannel channel;
+        private final Subscriber<? super ByteBuffer> subscriber;
+        private final long end;
+        private final int mapChunkSize;
+        private long position;
+        /**
+         * Contains the outstanding demand or {@link #TERMINAL_SENT} indicating when {@link FileChannel} and
+         * {@link Subscription} are terminated.
+         */
+        private long requested;
+        private boolean ignoreRequests;
+
+        FileChannelPublisherSubscription(final FileChannel channel, final Subscriber<? super ByteBuffer> subscriber,
+                                         final long position, final long end, final int mapChunkSize) {
+            this.channel = channel;
+            this.subscriber = subscriber;
+            this.position = position;
+            this.end = end;
+            this.mapChunkSize = mapChunkSize;
+        }
+
+        @Override
+        public void request(final long n) {
+            // No need to protect against concurrency between request and cancel
+            // https://github.com/reactive-streams/reactive-streams-jvm#2.7
+            if (requested == TERMINAL_SENT) {
+                return;
+            }
+            if (!isRequestNValid(n)) {
+                sendOnError(closeChannelOnError(newExceptionForInvalidRequestN(n)));
+                return;
+            }
+            requested = addWithOverflowProtection(requested, n);
+            if (ignoreRequests) {
+                // Re-entry from onNext, the outer loop delivers the additional demand.
+                return;
+            }
+            ignoreRequests = true;
+            mapAndDeliver();
+            if (requested != TERMINAL_SENT) {
+                ignoreRequests = false;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (trySetTerminalSent()) {
+                closeChannel();
+            }
+        }
+
+        private void mapAndDeliver() {
+            try {
+                while (position < end && requested > 0) {
+                    final ByteBuffer region = mapChunk(channel, position, end, mapChunkSize);
+                    position += region.remaining();
+                    requested--;
+                    subscriber.onNext(region);
+                }
+                if (position == end) {
+                    sendOnComplete();
+                }
+            } catch (Throwable t) {
+                sendOnError(closeChannelOnError(t));
+            }
+        }
+
+        private void sendOnComplete() {
+            closeChannel();
+            if (trySetTerminalSent()) {
+                try {
+                    subscriber.onComplete();
+                } catch (Throwable t) {
+                    LOGGER.info("Ignoring exception from onComplete of Subscriber {}.", subscriber, t);
+                }
+            }
+        }
+
+        private void sendOnError(final Throwable t) {
+            if (trySetTerminalSent()) {
+                try {
+                    subscriber.onError(t);
+                } catch (Throwable tt) {
+                    LOGGER.info("Ignoring exception from onError of Subscriber {}.", subscriber, tt);
+                }
+            }
+        }
+
+        private Throwable closeChannelOnError(final Throwable t) {
+            try {
+                channel.close();
+            } catch (Throwable e) {
+                // ignored, we are already closing with an error.
+            }
+            return t;
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (Throwable e) {
+                sendOnError(e);
+            }
+        }
+
+        /**
+         * @return {@code true} if terminal event wasn't sent and marks the state as sent, {@code false} otherwise
+         */
+        private boolean trySetTerminalSent() {
+            if (requested == TERMINAL_SENT) {
+                return false;
+            }
+            requested = TERMINAL_SENT;
+            return true;
+        }
+    }
+}
@@ -30,6 +30,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -3928,6 +3931,57 @@ public abstract class Publisher<T> {
         return new FromInputStreamPublisher(stream, readChunkSize);
     }
 
+    /**
+     * Create a new {@link Publisher} that when subscribed will emit {@code count} bytes of the {@link FileChannel},
+     * starting at {@code position}, as read-only {@link MappedByteBuffer} regions to the {@link Subscriber} and then
+     * {@link Subscriber#onComplete()}.
+     * <p>
+     * Unlike {@link #fromInputStream(InputStream)} the content of the file is not copied into the heap, each region is
+     * only mapped when the {@link Subscriber} {@link Subscription#request(long) requests} it. Use
+     * {@code map(allocator::wrap)} to expose the regions as read-only {@code Buffer}s. The {@link FileChannel} is
+     * closed when the returned {@link Publisher} terminates or is cancelled, the emitted regions remain valid after
+     * that.
+     * <p>
+     * Mapping a region may block on file system operations. Make sure the {@link Executor} for this execution chain
+     * can tolerate this behavior.
+     * @param channel provides the data in the form of read-only {@link MappedByteBuffer}s to be emitted to the
+     * {@link Subscriber} by the returned {@link Publisher}.
+     * @param position the position in the file of the first byte to emit.
+     * @param count the number of bytes to emit.
+     * @return a new {@link Publisher} that when subscribed will emit {@code count} bytes of the {@link FileChannel} to
+     * the {@link Subscriber} and then {@link Subscriber#onComplete()}.
+     */
+    public static Publisher<ByteBuffer> fromFileChannel(FileChannel channel, long position, long count) {
+        return new FromFileChannelPublisher(channel, position, count);
+    }
+
+    /**
+     * Create a new {@link Publisher} that when subscribed will emit {@code count} bytes of the {@link FileChannel},
+     * starting at {@code position}, as read-only {@link MappedByteBuffer} regions to the {@link Subscriber} and then
+     * {@link Subscriber#onComplete()}.
+     * <p>
+     * Unlike {@link #fromInputStream(InputStream)} the content of the file is not copied into the heap, each region is
+     * only mapped when the {@link Subscriber} {@link Subscription#request(long) requests} it. Use
+     * {@code map(allocator::wrap)} to expose the regions as read-only {@code Buffer}s. The {@link FileChannel} is
+     * closed when the returned {@link Publisher} terminates or is cancelled, the emitted regions remain valid after
+     * that.
+     * <p>
+     * Mapping a region may block on file system operations. Make sure the {@link Executor} for this execution chain
+     * can tolerate this behavior.
+     * @param channel provides the data in the form of read-only {@link MappedByteBuffer}s to be emitted to the
+     * {@link Subscriber} by the returned {@link Publisher}.
+     * @param position the position in the file of the first byte to emit.
+     * @param count the number of bytes to emit.
+     * @param mapChunkSize the maximum number of bytes mapped into a single {@link MappedByteBuffer} emitted by the
+     * returned {@link Publisher}.
+     * @return a new {@link Publisher} that when subscribed will emit {@code count} bytes of the {@link FileChannel} to
+     * the {@link Subscriber} and then {@link Subscriber#onComplete()}.
+     */
+    public static Publisher<ByteBuffer> fromFileChannel(FileChannel channel, long position, long count,
+                                                        int mapChunkSize) {
+        return new FromFileChannelPublisher(channel, position, count, mapChunkSize);
+    }
+
     /**
      * Create a new {@link Publisher} that when subscribed will emit all {@link Integer}s within the range of
      * [{@code begin}, {@code end}).
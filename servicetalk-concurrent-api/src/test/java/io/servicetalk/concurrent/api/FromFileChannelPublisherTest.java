@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
+import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static io.servicetalk.concurrent.api.Publisher.fromFileChannel;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FromFileChannelPublisherTest {
+
+    private final TestPublisherSubscriber<ByteBuffer> sub1 = new TestPublisherSubscriber<>();
+    private final TestPublisherSubscriber<ByteBuffer> sub2 = new TestPublisherSubscriber<>();
+
+    private final byte[] content = init0toN(37);
+
+    private Path file;
+    private FileChannel channel;
+
+    @BeforeEach
+    void setup() throws Exception {
+        file = Files.createTempFile("servicetalk", ".bin");
+        Files.write(file, content);
+        channel = FileChannel.open(file, READ);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.close();
+        Files.delete(file);
+    }
+
+    @Test
+    void emitsReadOnlyRegionsOnDemand() throws Exception {
+        toSource(fromFileChannel(channel, 0, content.length, 10)).subscribe(sub1);
+        sub1.awaitSubscription().request(1);
+        ByteBuffer first = sub1.takeOnNext();
+        assertThat(first.isReadOnly(), is(true));
+        assertArrayEquals(copyOfRange(0, 10), toArray(first));
+        assertThat(sub1.pollAllOnNext(), hasSize(0));
+
+        sub1.awaitSubscription().request(Long.MAX_VALUE);
+        List<ByteBuffer> rest = sub1.takeOnNext(3);
+        assertArrayEquals(copyOfRange(10, 20), toArray(rest.get(0)));
+        assertArrayEquals(copyOfRange(20, 30), toArray(rest.get(1)));
+        assertArrayEquals(copyOfRange(30, 37), toArray(rest.get(2)));
+        sub1.awaitOnComplete();
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    void emitsRegionOfFile() throws Exception {
+        toSource(fromFileChannel(channel, 5, 20)).subscribe(sub1);
+        sub1.awaitSubscription().request(Long.MAX_VALUE);
+        assertArrayEquals(copyOfRange(5, 25), toArray(sub1.takeOnNext()));
+        sub1.awaitOnComplete();
+    }
+
+    @Test
+    void emptyRegionCompletes() throws Exception {
+        toSource(fromFileChannel(channel, content.length, 0)).subscribe(sub1);
+        sub1.awaitSubscription().request(1);
+        sub1.awaitOnComplete();
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    void reentrantRequestsDeliverInOrder() throws Exception {
+        toSource(fromFileChannel(channel, 0, content.length, 1)
+                .whenOnNext(b -> sub1.awaitSubscription().request(1))).subscribe(sub1);
+        sub1.awaitSubscription().request(1);
+        List<ByteBuffer> items = sub1.takeOnNext(content.length);
+        for (int i = 0; i < content.length; ++i) {
+            assertThat(items.get(i).get(0), is(content[i]));
+        }
+        sub1.awaitOnComplete();
+    }
+
+    @Test
+    void closeChannelOnCancel() throws Exception {
+        toSource(fromFileChannel(channel, 0, content.length)).subscribe(sub1);
+        sub1.awaitSubscription().cancel();
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    void channelClosedAndErrorOnInvalidReqN() throws Exception {
+        toSource(fromFileChannel(channel, 0, content.length)).subscribe(sub1);
+        sub1.awaitSubscription().request(-1);
+        assertThat(sub1.awaitOnError(), instanceOf(IllegalArgumentException.class));
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    void errorWhenRegionExceedsFile() throws Exception {
+        toSource(fromFileChannel(channel, 0, content.length + 1L, content.length + 1)).subscribe(sub1);
+        sub1.awaitSubscription().request(1);
+        assertThat(sub1.awaitOnError(), instanceOf(IOException.class));
+        assertThat(channel.isOpen(), is(false));
+    }
+
+    @Test
+    void noDuplicateSubscription() throws Exception {
+        Publisher<ByteBuffer> pub = fromFileChannel(channel, 0, content.length);
+        toSource(pub).subscribe(sub1);
+        toSource(pub).subscribe(sub2);
+        assertThat(sub2.awaitOnError(), instanceOf(DuplicateSubscribeException.class));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> fromFileChannel(channel, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> fromFileChannel(channel, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> fromFileChannel(channel, 0, 1, 0));
+    }
+
+    private byte[] copyOfRange(final int from, final int to) {
+        final byte[] bytes = new byte[to - from];
+        System.arraycopy(content, from, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] init0toN(final int n) {
+        final byte[] bytes = new byte[n];
+        for (byte i = 0; i < bytes.length; i++) {
+            bytes[i] = i;
+        }
+        return bytes;
+    }
+}
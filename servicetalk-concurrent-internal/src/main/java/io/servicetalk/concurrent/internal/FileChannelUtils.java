@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.internal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.lang.Math.min;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * A set of utility methods for reading a region of a {@link FileChannel} as memory-mapped chunks.
+ */
+public final class FileChannelUtils {
+
+    /**
+     * The default maximum number of bytes mapped into a single chunk.
+     */
+    public static final int DEFAULT_MAP_CHUNK_SIZE = 256 * 1024;
+
+    private FileChannelUtils() {
+        // no instances
+    }
+
+    /**
+     * Maps the next chunk of a region of a {@link FileChannel} as read-only.
+     *
+     * @param channel the {@link FileChannel} to map.
+     * @param position the position in the file where the chunk starts.
+     * @param end the position in the file where the region ends, exclusive.
+     * @param mapChunkSize the maximum number of bytes to map.
+     * @return a read-only {@link MappedByteBuffer} of {@code min(mapChunkSize, end - position)} bytes.
+     * @throws IOException if the chunk can not be mapped.
+     */
+    public static MappedByteBuffer mapChunk(final FileChannel channel, final long position, final long end,
+                                            final int mapChunkSize) throws IOException {
+        return channel.map(READ_ONLY, position, min(mapChunkSize, end - position));
+    }
+}
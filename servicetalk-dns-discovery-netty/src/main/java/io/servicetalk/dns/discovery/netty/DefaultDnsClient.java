@@ -90,7 +90,9 @@ import static io.servicetalk.transport.netty.internal.BuilderUtils.datagramChann
 import static io.servicetalk.transport.netty.internal.BuilderUtils.socketChannel;
 import static io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutors.toEventLoopAwareNettyIoExecutor;
 import static io.servicetalk.utils.internal.ThrowableUtils.addSuppressed;
+import static java.lang.Math.min;
 import static java.nio.ByteBuffer.wrap;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
@@ -119,9 +121,16 @@ final class DefaultDnsClient implements DnsClient {
     private final boolean srvFilterDuplicateEvents;
     private final boolean inactiveEventsOnError;
     private final long ttlJitterNanos;
+    private final double prefetchTtlFraction;
+    private final long maxStaleNanos;
+    private final long staleRetryNanos;
+    @Nullable
+    private final SharedDnsCache sharedCache;
+    private final Object sharedCacheNamespace;
     private boolean closed;
 
     DefaultDnsClient(final IoExecutor ioExecutor, final int minTTL, final long ttlJitterNanos,
+                     final double prefetchTtlFraction, final long maxStaleNanos,
                      final int srvConcurrency, final boolean inactiveEventsOnError,
                      final boolean completeOncePreferredResolved, final boolean srvFilterDuplicateEvents,
                      Duration srvHostNameRepeatInitialDelay, Duration srvHostNameRepeatJitter,
@@ -130,7 +139,8 @@ final class DefaultDnsClient implements DnsClient {
                      @Nullable final DnsResolverAddressTypes dnsResolverAddressTypes,
                      @Nullable final DnsServerAddressStreamProvider dnsServerAddressStreamProvider,
                      @Nullable final DnsServiceDiscovererObserver observer,
-                     ServiceDiscovererEvent.Status missingRecordStatus) {
+                     ServiceDiscovererEvent.Status missingRecordStatus,
+                     @Nullable final SharedDnsCache sharedCache) {
         if (srvConcurrency <= 0) {
             throw new IllegalArgumentException("srvConcurrency: " + srvConcurrency + " (expected >0)");
         }
@@ -145,8 +155,14 @@ final class DefaultDnsClient implements DnsClient {
         this.ttlCache = new MinTtlCache(new DefaultDnsCache(minTTL, Integer.MAX_VALUE, minTTL), minTTL,
                 nettyIoExecutor);
         this.ttlJitterNanos = ttlJitterNanos;
+        this.prefetchTtlFraction = prefetchTtlFraction;
+        this.maxStaleNanos = maxStaleNanos;
+        this.staleRetryNanos = SECONDS.toNanos(minTTL);
         this.observer = observer;
         this.missingRecordStatus = missingRecordStatus;
+        this.sharedCache = sharedCache;
+        // Answers are only shared between resolvers that would send the same queries to the same servers.
+        this.sharedCacheNamespace = asList(dnsResolverAddressTypes, ndots, dnsServerAddressStreamProvider);
         asyncCloseable = toAsyncCloseable(graceful -> {
             if (nettyIoExecutor.isCurrentThreadEventLoop()) {
                 closeAsync0();
@@ -389,7 +405,44 @@ final class DefaultDnsClient implements DnsClient {
             return new AbstractDnsSubscription(subscriber) {
                 @Override
                 protected Future<DnsAnswer<InetAddress>> doDnsQuery() {
+                    if (sharedCache == null) {
+                        return resolveAll0();
+                    }
+                    // A refresh ahead of the TTL must not be answered by the cached entry it is meant to replace.
+                    if (prefetchTtlFraction >= 1) {
+                        final DnsAnswer<InetAddress> cached = sharedCache.get(name, sharedCacheNamespace);
+                        if (cached != null) {
+                            reportSharedCacheResult(true);
+                            return nettyIoExecutor.eventLoopGroup().next().newSucceededFuture(cached);
+                        }
+                    }
+                    reportSharedCacheResult(false);
+                    return sharedCache.resolve(name, sharedCacheNamespace, nettyIoExecutor.eventLoopGroup().next(),
+                            this::resolveAll0);
+                }
+
+                private void reportSharedCacheResult(final boolean hit) {
+                    if (observer == null) {
+                        return;
+                    }
+                    try {
+                        if (hit) {
+                            observer.onSharedCacheHit(name);
+                        } else {
+                            observer.onSharedCacheMiss(name);
+                        }
+                    } catch (Throwable unexpected) {
+                        LOGGER.warn("Unexpected exception from {} while reporting shared DNS cache result for {}",
+                                observer, name, unexpected);
+                    }
+                }
+
+                private Future<DnsAnswer<InetAddress>> resolveAll0() {
                     ttlCache.prepareForResolution(name);
+                    if (prefetchTtlFraction < 1) {
+                        // A refresh runs before the cached entries expire, remove them to query the DNS server.
+                        ttlCache.clear(name);
+                    }
                     Promise<DnsAnswer<InetAddress>> dnsAnswerPromise =
                             nettyIoExecutor.eventLoopGroup().next().newPromise();
                     resolver.resolveAll(name).addListener(completedFuture -> {
@@ -423,7 +476,7 @@ final class DefaultDnsClient implements DnsClient {
         }
     }
 
-    private static final class DnsAnswer<T> {
+    static final class DnsAnswer<T> {
         private final List<T> answer;
         private final long ttlNanos;
 
@@ -511,6 +564,7 @@ final class DefaultDnsClient implements DnsClient {
             private long pendingRequests;
             private List<T> activeAddresses;
             private long resolveDoneNoScheduleTime;
+            private long resolveSuccessTime;
             @Nullable
             private Cancellable cancellableForQuery;
             private long ttlNanos;
@@ -642,8 +696,17 @@ final class DefaultDnsClient implements DnsClient {
             private void scheduleQuery0(final long nanos) {
                 assertInEventloop();
 
-                final long delay = ThreadLocalRandom.current()
-                        .nextLong(nanos, addWithOverflowProtection(nanos, ttlJitterNanos));
+                final long delay;
+                if (prefetchTtlFraction < 1) {
+                    // Refresh ahead of the TTL, the jitter must not push the query beyond the TTL.
+                    final long refreshNanos = (long) (nanos * prefetchTtlFraction);
+                    final long jitterNanos = min(ttlJitterNanos, nanos - refreshNanos);
+                    delay = jitterNanos <= 0 ? refreshNanos : ThreadLocalRandom.current()
+                            .nextLong(refreshNanos, refreshNanos + jitterNanos);
+                } else {
+                    delay = ThreadLocalRandom.current()
+                            .nextLong(nanos, addWithOverflowProtection(nanos, ttlJitterNanos));
+                }
                 LOGGER.debug("DnsClient {}, scheduling DNS query for {} after {}ms, original TTL: {}ms.",
                         DefaultDnsClient.this, AbstractDnsPublisher.this, NANOSECONDS.toMillis(delay),
                         NANOSECONDS.toMillis(nanos));
@@ -663,7 +726,9 @@ final class DefaultDnsClient implements DnsClient {
                 final Throwable cause = addressFuture.cause();
                 if (cause != null) {
                     reportResolutionFailed(resolutionObserver, cause);
-                    cancelAndTerminate0(cause);
+                    if (!retryServingStale0(cause)) {
+                        cancelAndTerminate0(cause);
+                    }
                 } else {
                     // DNS lookup can return duplicate InetAddress
                     final DnsAnswer<T> dnsAnswer = addressFuture.getNow();
@@ -673,6 +738,7 @@ final class DefaultDnsClient implements DnsClient {
                                     reportResolutionResult(resolutionObserver, dnsAnswer, nAvailable, nMissing),
                             missingRecordStatus);
                     ttlNanos = dnsAnswer.ttlNanos();
+                    resolveSuccessTime = nettyIoExecutor.currentTime(NANOSECONDS);
                     if (events != null) {
                         activeAddresses = addresses;
                         if (--pendingRequests > 0) {
@@ -699,6 +765,31 @@ final class DefaultDnsClient implements DnsClient {
                 }
             }
 
+            /**
+             * Schedules a retry of a failed resolution if the last successful answer is still within the max-stale
+             * window. Subscribers keep the previously discovered addresses until the retry completes.
+             *
+             * @param cause the cause of the failed resolution.
+             * @return {@code true} if a retry was scheduled, {@code false} if the subscription has to be terminated.
+             */
+            private boolean retryServingStale0(final Throwable cause) {
+                if (maxStaleNanos <= 0 || ttlNanos < 0) {
+                    return false;
+                }
+                final long staleDeadline = addWithOverflowProtection(resolveSuccessTime + ttlNanos, maxStaleNanos);
+                final long remainingNanos = staleDeadline - nettyIoExecutor.currentTime(NANOSECONDS);
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                final long delay = min(staleRetryNanos, remainingNanos);
+                LOGGER.warn("DnsClient {}, failed to resolve {}, keeping the last answer (size {}) and retrying " +
+                        "after {}ms, max-stale window expires in {}ms.", DefaultDnsClient.this,
+                        AbstractDnsPublisher.this, activeAddresses.size(), NANOSECONDS.toMillis(delay),
+                        NANOSECONDS.toMillis(remainingNanos), cause);
+                cancellableForQuery = nettyIoExecutor.schedule(this::doQuery0, delay, NANOSECONDS);
+                return true;
+            }
+
             private void reportResolutionFailed(@Nullable final DnsResolutionObserver resolutionObserver,
                                                 final Throwable cause) {
                 if (resolutionObserver == null) {
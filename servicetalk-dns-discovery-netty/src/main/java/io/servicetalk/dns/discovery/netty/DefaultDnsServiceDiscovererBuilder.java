@@ -54,6 +54,8 @@ public final class DefaultDnsServiceDiscovererBuilder {
     private Duration queryTimeout;
     private int minTTLSeconds = 10;
     private Duration ttlJitter = ofSeconds(4);
+    private double prefetchTtlFraction = 1.0;
+    private Duration maxStale = Duration.ZERO;
     private int srvConcurrency = 2048;
     private boolean inactiveEventsOnError;
     private boolean completeOncePreferredResolved = true;
@@ -65,6 +67,8 @@ public final class DefaultDnsServiceDiscovererBuilder {
     @Nullable
     private DnsServiceDiscovererObserver observer;
     private ServiceDiscovererEvent.Status missingRecordStatus = EXPIRED;
+    @Nullable
+    private SharedDnsCache sharedCache;
 
     /**
      * The minimum allowed TTL. This will be the minimum poll interval.
@@ -95,6 +99,48 @@ public final class DefaultDnsServiceDiscovererBuilder {
         return this;
     }
 
+    /**
+     * The fraction of the TTL after which records are refreshed in the background.
+     * <p>
+     * By default, the next query is scheduled after the TTL expires. A value less than {@code 1} re-resolves records
+     * while the previous answer is still valid, which hides the latency and hiccups of the DNS server from the
+     * subscribers. The answer of a refresh bypasses the resolver cache. The {@link #ttlJitter(Duration) jitter} is
+     * limited to not push a refresh beyond the TTL.
+     *
+     * @param prefetchTtlFraction The fraction of the TTL after which records are refreshed, in the range
+     * {@code (0, 1]}.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder prefetchTtlFraction(final double prefetchTtlFraction) {
+        if (!(prefetchTtlFraction > 0 && prefetchTtlFraction <= 1)) {
+            throw new IllegalArgumentException("prefetchTtlFraction: " + prefetchTtlFraction +
+                    " (expected (0, 1])");
+        }
+        this.prefetchTtlFraction = prefetchTtlFraction;
+        return this;
+    }
+
+    /**
+     * The maximum duration after the TTL expires for which the last successful answer is kept when re-resolution
+     * fails.
+     * <p>
+     * By default, a failed resolution terminates the discovery stream with an error. Within the max-stale window,
+     * a failure is reported to the {@link DnsServiceDiscovererObserver} and the resolution is retried every
+     * {@link #minTTL(int) minTTL} seconds, while the previously discovered addresses remain available. If the
+     * resolution doesn't succeed before the window expires, the stream is terminated with the last error.
+     *
+     * @param maxStale The maximum duration after the TTL expires for which the last successful answer is kept,
+     * {@link Duration#ZERO} to disable serving stale answers.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder maxStale(final Duration maxStale) {
+        if (maxStale.isNegative()) {
+            throw new IllegalArgumentException("maxStale: " + maxStale + " (expected >= 0)");
+        }
+        this.maxStale = maxStale;
+        return this;
+    }
+
     /**
      * Set the {@link DnsServerAddressStreamProvider} which determines which DNS server should be used per query.
      *
@@ -182,6 +228,20 @@ public final class DefaultDnsServiceDiscovererBuilder {
         return this;
     }
 
+    /**
+     * Sets a {@link SharedDnsCache} to reuse answers of {@code A}/{@code AAAA} queries across discoverers.
+     * <p>
+     * Discoverers built with the same cache instance answer lookups from the cache until the TTL expires and send a
+     * single DNS query for concurrent lookups of the same hostname.
+     *
+     * @param sharedCache a {@link SharedDnsCache} to share with other discoverers.
+     * @return {@code this}.
+     */
+    public DefaultDnsServiceDiscovererBuilder sharedCache(final SharedDnsCache sharedCache) {
+        this.sharedCache = requireNonNull(sharedCache);
+        return this;
+    }
+
     /**
      * Sets a {@link DnsServiceDiscovererObserver} that provides visibility into
      * <a href="https://tools.ietf.org/html/rfc1034">DNS</a> {@link ServiceDiscoverer} built by this builder.
@@ -306,10 +366,11 @@ public final class DefaultDnsServiceDiscovererBuilder {
     DnsClient build() {
         final DnsClient rawClient = new DefaultDnsClient(
                 ioExecutor == null ? globalExecutionContext().ioExecutor() : ioExecutor, minTTLSeconds,
-                ttlJitter.toNanos(), srvConcurrency,
+                ttlJitter.toNanos(), prefetchTtlFraction, maxStale.toNanos(), srvConcurrency,
                 inactiveEventsOnError, completeOncePreferredResolved, srvFilterDuplicateEvents,
                 srvHostNameRepeatInitialDelay, srvHostNameRepeatJitter, maxUdpPayloadSize, ndots, optResourceEnabled,
-                queryTimeout, dnsResolverAddressTypes, dnsServerAddressStreamProvider, observer, missingRecordStatus);
+                queryTimeout, dnsResolverAddressTypes, dnsServerAddressStreamProvider, observer, missingRecordStatus,
+                sharedCache);
         return filterFactory == null ? rawClient : filterFactory.create(rawClient);
     }
 }
@@ -132,7 +132,8 @@ final class DnsClients {
                                                                final Function<T, R> mapper) {
         List<ServiceDiscovererEvent<R>> result = new ArrayList<>(original.size());
         for (ServiceDiscovererEvent<T> evt : original) {
-            result.add(new DefaultServiceDiscovererEvent<>(mapper.apply(evt.address()), evt.status()));
+            result.add(new DefaultServiceDiscovererEvent<>(mapper.apply(evt.address()), evt.status(), evt.weight(),
+                    evt.zone()));
         }
         return result;
     }
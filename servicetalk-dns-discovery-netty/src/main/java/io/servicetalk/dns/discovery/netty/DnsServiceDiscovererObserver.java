@@ -33,6 +33,23 @@ public interface DnsServiceDiscovererObserver {
      */
     DnsDiscoveryObserver onNewDiscovery(String name);
 
+    /**
+     * Notifies that a DNS resolution was answered by the {@link SharedDnsCache}.
+     *
+     * @param name the name of the DNS record that was looked up
+     */
+    default void onSharedCacheHit(String name) {
+    }
+
+    /**
+     * Notifies that a DNS resolution could not be answered by the {@link SharedDnsCache} and has to wait for a DNS
+     * query, which may be shared with other concurrent resolutions of the same name.
+     *
+     * @param name the name of the DNS record that was looked up
+     */
+    default void onSharedCacheMiss(String name) {
+    }
+
     /**
      * An observer that provides visibility into individual DNS resolutions.
      */
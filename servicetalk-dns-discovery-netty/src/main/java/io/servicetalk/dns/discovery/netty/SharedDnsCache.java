@@ -0,0 +1,338 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.dns.discovery.netty;
+
+import io.servicetalk.dns.discovery.netty.DefaultDnsClient.DnsAnswer;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of DNS {@code A}/{@code AAAA} answers that can be shared by multiple DNS
+ * {@link io.servicetalk.client.api.ServiceDiscoverer}s.
+ * <p>
+ * Every {@link DefaultDnsServiceDiscovererBuilder#build() built} discoverer has its own resolver and cache. When many
+ * discoverers resolve the same hostnames, passing the same instance to
+ * {@link DefaultDnsServiceDiscovererBuilder#sharedCache(SharedDnsCache)} lets them reuse answers until their TTL
+ * expires, and coalesces concurrent queries for the same hostname into a single DNS query. Answers are only shared
+ * between discoverers with the same {@link DnsResolverAddressTypes}, {@code ndots} and
+ * {@link DnsServerAddressStreamProvider} instance.
+ * <p>
+ * Entries are distributed over a number of shards with independent locks to limit contention between event loops.
+ * Every shard evicts its least recently used entries when it exceeds its share of the
+ * {@link Builder#maxEntries(int) maximum number of entries}. Aggregated counters of hits, misses and coalesced
+ * queries are exposed for monitoring, per-hostname hits and misses are reported through
+ * {@link DnsServiceDiscovererObserver}.
+ */
+public final class SharedDnsCache {
+    private static final AtomicLongFieldUpdater<SharedDnsCache> hitsUpdater =
+            AtomicLongFieldUpdater.newUpdater(SharedDnsCache.class, "hits");
+    private static final AtomicLongFieldUpdater<SharedDnsCache> missesUpdater =
+            AtomicLongFieldUpdater.newUpdater(SharedDnsCache.class, "misses");
+    private static final AtomicLongFieldUpdater<SharedDnsCache> coalescedUpdater =
+            AtomicLongFieldUpdater.newUpdater(SharedDnsCache.class, "coalesced");
+
+    private static final int DEFAULT_SHARDS = 16;
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final Shard[] shards;
+    private final LongSupplier currentTimeNanos;
+    private volatile long hits;
+    private volatile long misses;
+    private volatile long coalesced;
+
+    SharedDnsCache(final int shards, final int maxEntries, final LongSupplier currentTimeNanos) {
+        // Round up to a power of two to select a shard with a mask.
+        final int nShards = shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        final int maxShardEntries = Math.max(1, maxEntries / nShards);
+        this.shards = new Shard[nShards];
+        for (int i = 0; i < nShards; ++i) {
+            this.shards[i] = new Shard(maxShardEntries);
+        }
+        this.currentTimeNanos = currentTimeNanos;
+    }
+
+    /**
+     * Returns the total number of lookups answered from the cache.
+     *
+     * @return the total number of lookups answered from the cache.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the total number of lookups that were not answered from the cache.
+     *
+     * @return the total number of lookups that were not answered from the cache.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the total number of missed lookups that waited for a query already in flight instead of sending a new
+     * one.
+     *
+     * @return the total number of missed lookups that waited for a query already in flight.
+     */
+    public long coalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Returns a copy of a cached answer that did not expire yet.
+     *
+     * @param name the hostname to look up.
+     * @param namespace the settings of the resolver that must match for answers to be shared.
+     * @return a copy of the cached answer with the remaining TTL, or {@code null} if there is none.
+     */
+    @Nullable
+    DnsAnswer<InetAddress> get(final String name, final Object namespace) {
+        final Key key = new Key(name, namespace);
+        final Shard shard = shard(key);
+        final DnsAnswer<InetAddress> answer;
+        synchronized (shard) {
+            answer = shard.answer(key, currentTimeNanos.getAsLong());
+        }
+        if (answer != null) {
+            hitsUpdater.incrementAndGet(this);
+        }
+        return answer;
+    }
+
+    /**
+     * Resolves a hostname and caches the answer, or waits for a resolution of the same hostname that is in flight.
+     * Every call counts as a miss.
+     *
+     * @param name the hostname to resolve.
+     * @param namespace the settings of the resolver that must match for answers to be shared.
+     * @param eventLoop the {@link EventLoop} on which the returned {@link Future} is notified.
+     * @param resolver resolves the hostname if no resolution is in flight.
+     * @return a {@link Future} notified with a copy of the answer. Cancelling it does not cancel the resolution.
+     */
+    Future<DnsAnswer<InetAddress>> resolve(final String name, final Object namespace, final EventLoop eventLoop,
+                                           final Supplier<Future<DnsAnswer<InetAddress>>> resolver) {
+        missesUpdater.incrementAndGet(this);
+        final Key key = new Key(name, namespace);
+        final Shard shard = shard(key);
+        final CacheEntry entry;
+        final Promise<DnsAnswer<InetAddress>> inFlight;
+        final boolean owner;
+        synchronized (shard) {
+            CacheEntry e = shard.get(key);
+            if (e == null) {
+                e = new CacheEntry();
+                shard.put(key, e);
+            }
+            entry = e;
+            if (e.inFlight == null) {
+                e.inFlight = eventLoop.newPromise();
+                owner = true;
+            } else {
+                owner = false;
+            }
+            inFlight = e.inFlight;
+        }
+        if (owner) {
+            final Future<DnsAnswer<InetAddress>> future = resolve0(eventLoop, resolver);
+            future.addListener(f -> onResolved(shard, key, entry, inFlight, future));
+        } else {
+            coalescedUpdater.incrementAndGet(this);
+        }
+        // Every caller gets its own Future, a cancellation must not fail the other callers.
+        final Promise<DnsAnswer<InetAddress>> promise = eventLoop.newPromise();
+        inFlight.addListener(f -> {
+            final Throwable cause = f.cause();
+            if (cause != null) {
+                promise.tryFailure(cause);
+            } else {
+                final DnsAnswer<InetAddress> answer = inFlight.getNow();
+                promise.trySuccess(new DnsAnswer<>(new ArrayList<>(answer.answer()), answer.ttlNanos()));
+            }
+        });
+        return promise;
+    }
+
+    private static Future<DnsAnswer<InetAddress>> resolve0(
+            final EventLoop eventLoop, final Supplier<Future<DnsAnswer<InetAddress>>> resolver) {
+        try {
+            return resolver.get();
+        } catch (Throwable cause) {
+            return eventLoop.newFailedFuture(cause);
+        }
+    }
+
+    private void onResolved(final Shard shard, final Key key, final CacheEntry entry,
+                            final Promise<DnsAnswer<InetAddress>> inFlight,
+                            final Future<DnsAnswer<InetAddress>> future) {
+        final Throwable cause = future.cause();
+        synchronized (shard) {
+            entry.inFlight = null;
+            if (cause == null) {
+                entry.answer = future.getNow();
+                entry.expiresAtNanos = currentTimeNanos.getAsLong() + entry.answer.ttlNanos();
+            } else if (entry.answer == null && shard.get(key) == entry) {
+                shard.remove(key);
+            }
+        }
+        if (cause == null) {
+            inFlight.trySuccess(future.getNow());
+        } else {
+            inFlight.tryFailure(cause);
+        }
+    }
+
+    private Shard shard(final Key key) {
+        final int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & (shards.length - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "SharedDnsCache{" +
+                "shards=" + shards.length +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", coalesced=" + coalesced +
+                '}';
+    }
+
+    private static final class Shard extends LinkedHashMap<Key, CacheEntry> {
+        private static final long serialVersionUID = -3305213428093214311L;
+
+        private final int maxEntries;
+
+        Shard(final int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Nullable
+        DnsAnswer<InetAddress> answer(final Key key, final long nowNanos) {
+            final CacheEntry entry = get(key);
+            if (entry == null || entry.answer == null) {
+                return null;
+            }
+            final long remainingNanos = entry.expiresAtNanos - nowNanos;
+            if (remainingNanos <= 0) {
+                return null;
+            }
+            return new DnsAnswer<>(new ArrayList<>(entry.answer.answer()), remainingNanos);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, CacheEntry> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    private static final class CacheEntry {
+        @Nullable
+        DnsAnswer<InetAddress> answer;
+        long expiresAtNanos;
+        @Nullable
+        Promise<DnsAnswer<InetAddress>> inFlight;
+    }
+
+    private static final class Key {
+        private final String name;
+        private final Object namespace;
+
+        Key(final String name, final Object namespace) {
+            this.name = name;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return name.equals(key.name) && namespace.equals(key.namespace);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + namespace.hashCode();
+        }
+    }
+
+    /**
+     * A builder for {@link SharedDnsCache}.
+     */
+    public static final class Builder {
+        private int shards = DEFAULT_SHARDS;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the number of shards, rounded up to a power of two.
+         *
+         * @param shards the number of shards.
+         * @return {@code this}.
+         */
+        public Builder shards(final int shards) {
+            if (shards <= 0 || shards > 1 << 16) {
+                throw new IllegalArgumentException("shards: " + shards + " (expected >0 and <=65536)");
+            }
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of cached hostnames.
+         *
+         * @param maxEntries the maximum number of cached hostnames.
+         * @return {@code this}.
+         */
+        public Builder maxEntries(final int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries: " + maxEntries + " (expected >0)");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link SharedDnsCache}.
+         *
+         * @return a new {@link SharedDnsCache}.
+         */
+        public SharedDnsCache build() {
+            return new SharedDnsCache(shards, maxEntries, System::nanoTime);
+        }
+    }
+}
@@ -57,6 +57,7 @@ import static io.servicetalk.dns.discovery.netty.TestRecordStore.createSrvRecord
 import static io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor;
 import static java.net.InetAddress.getByName;
 import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.function.Function.identity;
@@ -70,6 +71,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 class DefaultDnsClientTest {
     private static final int DEFAULT_TTL = 1;
@@ -719,6 +721,109 @@ class DefaultDnsClientTest {
         assertEvent(subscriber.takeOnNext(), ip, AVAILABLE);
     }
 
+    @ParameterizedTest(name = "missing-record-status={0}")
+    @MethodSource("missingRecordStatus")
+    void repeatDiscoverNxDomainServesStaleAndRecover(ServiceDiscovererEvent.Status missingRecordStatus)
+            throws Exception {
+        setup(missingRecordStatus);
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder(missingRecordStatus).inactiveEventsOnError(true).maxStale(ofSeconds(30)).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(4);
+
+        assertEvent(subscriber.takeOnNext(), ip1, AVAILABLE);
+        recordStore.removeIPv4Address(domain, DEFAULT_TTL, ip1);
+        // The last answer is kept while resolutions fail within the max-stale window.
+        assertNull(subscriber.pollOnNext(3, SECONDS));
+        assertNull(subscriber.pollTerminal(10, MILLISECONDS));
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip2);
+        List<ServiceDiscovererEvent<InetAddress>> signals = subscriber.takeOnNext(2);
+        assertHasEvent(signals, ip1, missingRecordStatus);
+        assertHasEvent(signals, ip2, AVAILABLE);
+    }
+
+    @ParameterizedTest(name = "missing-record-status={0}")
+    @MethodSource("missingRecordStatus")
+    void repeatDiscoverNxDomainFailsAfterMaxStale(ServiceDiscovererEvent.Status missingRecordStatus)
+            throws Exception {
+        setup(missingRecordStatus);
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder(missingRecordStatus).inactiveEventsOnError(true).maxStale(ofSeconds(1)).build();
+        final String ip = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(4);
+
+        assertEvent(subscriber.takeOnNext(), ip, AVAILABLE);
+        recordStore.removeIPv4Address(domain, DEFAULT_TTL, ip);
+        assertEvent(subscriber.takeOnNext(), ip, missingRecordStatus);
+        assertThat(subscriber.awaitOnError(), instanceOf(UnknownHostException.class));
+    }
+
+    @ParameterizedTest(name = "missing-record-status={0}")
+    @MethodSource("missingRecordStatus")
+    void prefetchDiscoversNewRecords(ServiceDiscovererEvent.Status missingRecordStatus) throws Exception {
+        setup(missingRecordStatus);
+        client.closeAsync().toFuture().get();
+        client = dnsClientBuilder(missingRecordStatus).prefetchTtlFraction(0.5).build();
+        final String ip1 = nextIp();
+        final String ip2 = nextIp();
+        final String domain = "servicetalk.io";
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip1);
+
+        TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+        Subscription subscription = subscriber.awaitSubscription();
+        subscription.request(4);
+
+        assertEvent(subscriber.takeOnNext(), ip1, AVAILABLE);
+        recordStore.addIPv4Address(domain, DEFAULT_TTL, ip2);
+        assertEvent(subscriber.takeOnNext(), ip2, AVAILABLE);
+    }
+
+    @ParameterizedTest(name = "missing-record-status={0}")
+    @MethodSource("missingRecordStatus")
+    void sharedCacheAnswersOtherClient(ServiceDiscovererEvent.Status missingRecordStatus) throws Exception {
+        setup(missingRecordStatus);
+        client.closeAsync().toFuture().get();
+        final SharedDnsCache sharedCache = new SharedDnsCache.Builder().build();
+        final DnsServiceDiscovererObserver observer = mock(DnsServiceDiscovererObserver.class);
+        client = dnsClientBuilder(missingRecordStatus).sharedCache(sharedCache).observer(observer).build();
+        final DnsClient client2 = dnsClientBuilder(missingRecordStatus).sharedCache(sharedCache).observer(observer)
+                .build();
+        try {
+            final String ip = nextIp();
+            final String domain = "servicetalk.io";
+            recordStore.addIPv4Address(domain, 30, ip);
+
+            TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber = dnsQuery(domain);
+            subscriber.awaitSubscription().request(1);
+            assertEvent(subscriber.takeOnNext(), ip, AVAILABLE);
+            // The record is removed from the server, only a cached answer can be discovered by the second client.
+            recordStore.removeIPv4Address(domain, 30, ip);
+
+            TestPublisherSubscriber<ServiceDiscovererEvent<InetAddress>> subscriber2 = new TestPublisherSubscriber<>();
+            toSource(client2.dnsQuery(domain).flatMapConcatIterable(identity())).subscribe(subscriber2);
+            subscriber2.awaitSubscription().request(1);
+            assertEvent(subscriber2.takeOnNext(), ip, AVAILABLE);
+
+            assertThat(sharedCache.misses(), is(1L));
+            assertThat(sharedCache.hits(), is(1L));
+            verify(observer).onSharedCacheMiss(domain);
+            verify(observer).onSharedCacheHit(domain);
+        } finally {
+            client2.closeAsync().toFuture().get();
+        }
+    }
+
     @ParameterizedTest(name = "missing-record-status={0}")
     @MethodSource("missingRecordStatus")
     void preferIpv4(ServiceDiscovererEvent.Status missingRecordStatus) throws Exception {
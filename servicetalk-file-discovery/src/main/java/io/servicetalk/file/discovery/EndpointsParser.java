@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.file.discovery;
+
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Parses the content of an endpoints file into the endpoints of every service.
+ */
+@FunctionalInterface
+public interface EndpointsParser {
+
+    /**
+     * Parses the content of an endpoints file.
+     *
+     * @param content the content of the file.
+     * @return the endpoints of every service, by service name. The {@link ServiceDiscovererEvent#status() status} of
+     * the endpoints is ignored, all of them are considered {@link ServiceDiscovererEvent.Status#AVAILABLE available}.
+     * @throws Exception if the content can not be parsed, the previously discovered endpoints are kept.
+     */
+    Map<String, ? extends Collection<? extends ServiceDiscovererEvent<InetSocketAddress>>> parse(byte[] content)
+            throws Exception;
+
+    /**
+     * Returns a parser of JSON objects that map service names to arrays of endpoints.
+     * <pre>
+     * {
+     *   "payments": [
+     *     {"host": "10.0.0.1", "port": 8080, "weight": 2.0, "zone": "us-east-1a"},
+     *     {"host": "10.0.0.2", "port": 8080}
+     *   ]
+     * }
+     * </pre>
+     * The {@code host} and {@code port} of an endpoint are required, the {@code weight} and {@code zone} are optional.
+     *
+     * @return a parser of JSON objects that map service names to arrays of endpoints.
+     */
+    static EndpointsParser json() {
+        return JsonEndpointsParser.INSTANCE;
+    }
+}
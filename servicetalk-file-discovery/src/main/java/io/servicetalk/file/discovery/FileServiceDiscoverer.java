@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.file.discovery;
+
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.ServiceDiscoverer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.PublisherSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Publisher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
+import static io.servicetalk.concurrent.api.Completable.completed;
+import static io.servicetalk.concurrent.api.Processors.newPublisherProcessor;
+import static io.servicetalk.concurrent.api.Publisher.defer;
+import static io.servicetalk.concurrent.api.Publisher.failed;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+final class FileServiceDiscoverer
+        implements ServiceDiscoverer<String, InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileServiceDiscoverer.class);
+    // Changes of the file are rare, a subscriber that falls this far behind is failed and has to re-subscribe.
+    private static final int MAX_BUFFERED_CHANGES = 64;
+
+    private final Path file;
+    private final EndpointsParser parser;
+    private final long checkIntervalNanos;
+    private final ServiceDiscovererEvent.Status missingRecordStatus;
+    private final WatchService watchService;
+    private final ListenableAsyncCloseable asyncCloseable;
+    private final Map<String, List<Processor<Collection<ServiceDiscovererEvent<InetSocketAddress>>,
+            Collection<ServiceDiscovererEvent<InetSocketAddress>>>>> subscribers = new HashMap<>();
+    // Guarded by subscribers.
+    private Map<String, Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>>> endpoints;
+    // Guarded by subscribers.
+    private boolean closed;
+    // Only accessed by the watcher.
+    @Nullable
+    private byte[] lastContent;
+
+    FileServiceDiscoverer(final Path file, final EndpointsParser parser, final long checkIntervalNanos,
+                          final ServiceDiscovererEvent.Status missingRecordStatus, final Executor executor)
+            throws Exception {
+        this.file = file.toAbsolutePath();
+        this.parser = parser;
+        this.checkIntervalNanos = checkIntervalNanos;
+        this.missingRecordStatus = missingRecordStatus;
+        final byte[] content = Files.readAllBytes(this.file);
+        endpoints = parse(content);
+        lastContent = content;
+        // A file can not be watched, watch the directory. Orchestrators update mounted config maps by replacing
+        // a symlink in the directory, the content is compared to filter events of other files.
+        watchService = this.file.getFileSystem().newWatchService();
+        try {
+            this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (Throwable cause) {
+            watchService.close();
+            throw cause;
+        }
+        asyncCloseable = toAsyncCloseable(graceful -> {
+            close0();
+            return completed();
+        });
+        executor.execute(this::watch);
+    }
+
+    @Override
+    public Publisher<Collection<ServiceDiscovererEvent<InetSocketAddress>>> discover(final String serviceName) {
+        return defer(() -> {
+            final Processor<Collection<ServiceDiscovererEvent<InetSocketAddress>>,
+                    Collection<ServiceDiscovererEvent<InetSocketAddress>>> processor =
+                    newPublisherProcessor(MAX_BUFFERED_CHANGES);
+            synchronized (subscribers) {
+                if (closed) {
+                    return failed(new IllegalStateException(this + " is closed"));
+                }
+                subscribers.computeIfAbsent(serviceName, __ -> new CopyOnWriteArrayList<>()).add(processor);
+                final Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> current =
+                        endpoints.get(serviceName);
+                if (current != null && !current.isEmpty()) {
+                    processor.onNext(new ArrayList<>(current.values()));
+                }
+            }
+            return fromSource(processor).beforeFinally(() -> {
+                synchronized (subscribers) {
+                    final List<?> processors = subscribers.get(serviceName);
+                    if (processors != null && processors.remove(processor) && processors.isEmpty()) {
+                        subscribers.remove(serviceName);
+                    }
+                }
+            });
+        });
+    }
+
+    private void watch() {
+        for (;;) {
+            try {
+                // The timeout catches changes on file systems that don't deliver events.
+                final WatchKey key = watchService.poll(checkIntervalNanos, NANOSECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            reload();
+        }
+    }
+
+    private void reload() {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException cause) {
+            if (lastContent != null) {
+                LOGGER.warn("{} failed to read the file, keeping the discovered endpoints.", this, cause);
+                lastContent = null;
+            }
+            return;
+        }
+        if (Arrays.equals(content, lastContent)) {
+            return;
+        }
+        lastContent = content;
+        final Map<String, Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>>> newEndpoints;
+        try {
+            newEndpoints = parse(content);
+        } catch (Throwable cause) {
+            LOGGER.warn("{} failed to parse the file, keeping the discovered endpoints.", this, cause);
+            return;
+        }
+        synchronized (subscribers) {
+            if (closed) {
+                return;
+            }
+            for (Map.Entry<String, List<Processor<Collection<ServiceDiscovererEvent<InetSocketAddress>>,
+                    Collection<ServiceDiscovererEvent<InetSocketAddress>>>>> entry : subscribers.entrySet()) {
+                final List<ServiceDiscovererEvent<InetSocketAddress>> events = difference(
+                        endpoints.getOrDefault(entry.getKey(), emptyMap()),
+                        newEndpoints.getOrDefault(entry.getKey(), emptyMap()));
+                if (!events.isEmpty()) {
+                    LOGGER.debug("{} sending events for service {}: {}.", this, entry.getKey(), events);
+                    for (Processor<Collection<ServiceDiscovererEvent<InetSocketAddress>>,
+                            Collection<ServiceDiscovererEvent<InetSocketAddress>>> processor : entry.getValue()) {
+                        processor.onNext(events);
+                    }
+                }
+            }
+            endpoints = newEndpoints;
+        }
+    }
+
+    private List<ServiceDiscovererEvent<InetSocketAddress>> difference(
+            final Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> oldEndpoints,
+            final Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> newEndpoints) {
+        final List<ServiceDiscovererEvent<InetSocketAddress>> events = new ArrayList<>();
+        for (ServiceDiscovererEvent<InetSocketAddress> endpoint : newEndpoints.values()) {
+            // A changed weight or zone of an endpoint is sent as another available event.
+            if (!endpoint.equals(oldEndpoints.get(endpoint.address()))) {
+                events.add(endpoint);
+            }
+        }
+        for (InetSocketAddress address : oldEndpoints.keySet()) {
+            if (!newEndpoints.containsKey(address)) {
+                events.add(new DefaultServiceDiscovererEvent<>(address, missingRecordStatus));
+            }
+        }
+        return events;
+    }
+
+    private Map<String, Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>>> parse(
+            final byte[] content) throws Exception {
+        final Map<String, ? extends Collection<? extends ServiceDiscovererEvent<InetSocketAddress>>> services =
+                parser.parse(content);
+        final Map<String, Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>>> result =
+                new HashMap<>(services.size());
+        services.forEach((serviceName, serviceEndpoints) -> {
+            final Map<InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> byAddress =
+                    new LinkedHashMap<>(serviceEndpoints.size());
+            for (ServiceDiscovererEvent<InetSocketAddress> endpoint : serviceEndpoints) {
+                // Later entries for the same address win.
+                byAddress.put(endpoint.address(), new DefaultServiceDiscovererEvent<>(endpoint.address(), AVAILABLE,
+                        endpoint.weight(), endpoint.zone()));
+            }
+            result.put(serviceName, byAddress);
+        });
+        return result;
+    }
+
+    private void close0() {
+        final List<Processor<Collection<ServiceDiscovererEvent<InetSocketAddress>>,
+                Collection<ServiceDiscovererEvent<InetSocketAddress>>>> processors = new ArrayList<>();
+        synchronized (subscribers) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.values().forEach(processors::addAll);
+            subscribers.clear();
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.debug("{} failed to close the watch service.", this, e);
+        }
+        final IllegalStateException cause = new IllegalStateException(this + " is closed");
+        for (Processor<?, ?> processor : processors) {
+            processor.onError(cause);
+        }
+    }
+
+    @Override
+    public Completable onClose() {
+        return asyncCloseable.onClose();
+    }
+
+    @Override
+    public Completable onClosing() {
+        return asyncCloseable.onClosing();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return asyncCloseable.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return asyncCloseable.closeAsyncGracefully();
+    }
+
+    @Override
+    public String toString() {
+        return "FileServiceDiscoverer{file=" + file + '}';
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.file.discovery;
+
+import io.servicetalk.client.api.ServiceDiscoverer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.Executor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.EXPIRED;
+import static io.servicetalk.concurrent.api.Executors.global;
+import static java.time.Duration.ofSeconds;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builder for a {@link ServiceDiscoverer} that discovers the endpoints of services from a local file.
+ * <p>
+ * The file maps service names to their endpoints, it is parsed with {@link EndpointsParser#json()} by default.
+ * The file is watched for changes with a {@link java.nio.file.WatchService} and checked periodically. When the
+ * content changes, only the differences are sent to the subscribers of each service: endpoints that are added or
+ * whose weight or zone changed are {@link ServiceDiscovererEvent.Status#AVAILABLE available}, endpoints that are
+ * removed have the {@link #missingRecordStatus(ServiceDiscovererEvent.Status) missing record status}. If the file
+ * can not be read or parsed, the previously discovered endpoints are kept.
+ */
+public final class FileServiceDiscovererBuilder {
+    private final Path file;
+    private EndpointsParser parser = EndpointsParser.json();
+    private Duration checkInterval = ofSeconds(10);
+    private ServiceDiscovererEvent.Status missingRecordStatus = EXPIRED;
+    @Nullable
+    private Executor executor;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param file the file to discover endpoints from.
+     */
+    public FileServiceDiscovererBuilder(final Path file) {
+        this.file = requireNonNull(file);
+    }
+
+    /**
+     * Sets the {@link EndpointsParser} for the content of the file.
+     *
+     * @param parser the {@link EndpointsParser} for the content of the file.
+     * @return {@code this}.
+     */
+    public FileServiceDiscovererBuilder parser(final EndpointsParser parser) {
+        this.parser = requireNonNull(parser);
+        return this;
+    }
+
+    /**
+     * Sets the interval to check the file for changes that were not reported by the file system.
+     *
+     * @param checkInterval the interval to check the file for changes.
+     * @return {@code this}.
+     */
+    public FileServiceDiscovererBuilder checkInterval(final Duration checkInterval) {
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("checkInterval: " + checkInterval + " (expected > 0)");
+        }
+        this.checkInterval = checkInterval;
+        return this;
+    }
+
+    /**
+     * Sets the {@link ServiceDiscovererEvent.Status} of the events for endpoints that are removed from the file.
+     *
+     * @param missingRecordStatus the {@link ServiceDiscovererEvent.Status} of the events for removed endpoints.
+     * @return {@code this}.
+     */
+    public FileServiceDiscovererBuilder missingRecordStatus(final ServiceDiscovererEvent.Status missingRecordStatus) {
+        if (AVAILABLE.equals(missingRecordStatus)) {
+            throw new IllegalArgumentException(AVAILABLE + " status can not be used as missing records' status.");
+        }
+        this.missingRecordStatus = requireNonNull(missingRecordStatus);
+        return this;
+    }
+
+    /**
+     * Sets the {@link Executor} that runs the watcher of the file, which blocks one thread until the
+     * {@link ServiceDiscoverer} is closed.
+     *
+     * @param executor the {@link Executor} that runs the watcher of the file.
+     * @return {@code this}.
+     */
+    public FileServiceDiscovererBuilder executor(final Executor executor) {
+        this.executor = requireNonNull(executor);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link ServiceDiscoverer} that discovers endpoints by service name.
+     *
+     * @return a new {@link ServiceDiscoverer} that discovers endpoints by service name.
+     * @throws UncheckedIOException if the file can not be read.
+     * @throws IllegalArgumentException if the content of the file can not be parsed.
+     */
+    public ServiceDiscoverer<String, InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> build() {
+        try {
+            return new FileServiceDiscoverer(file, parser, checkInterval.toNanos(), missingRecordStatus,
+                    executor == null ? global() : executor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to parse " + file, e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.file.discovery;
+
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+
+final class JsonEndpointsParser implements EndpointsParser {
+    static final EndpointsParser INSTANCE = new JsonEndpointsParser();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonEndpointsParser() {
+    }
+
+    @Override
+    public Map<String, List<ServiceDiscovererEvent<InetSocketAddress>>> parse(final byte[] content) throws Exception {
+        final JsonNode root = mapper.readTree(content);
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Expected an object of service names to endpoints");
+        }
+        final Map<String, List<ServiceDiscovererEvent<InetSocketAddress>>> services = new HashMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> service = fields.next();
+            if (!service.getValue().isArray()) {
+                throw new IllegalArgumentException("Expected an array of endpoints for service: " + service.getKey());
+            }
+            final List<ServiceDiscovererEvent<InetSocketAddress>> endpoints =
+                    new ArrayList<>(service.getValue().size());
+            for (JsonNode endpoint : service.getValue()) {
+                endpoints.add(endpoint(service.getKey(), endpoint));
+            }
+            services.put(service.getKey(), endpoints);
+        }
+        return services;
+    }
+
+    private static ServiceDiscovererEvent<InetSocketAddress> endpoint(final String service, final JsonNode endpoint) {
+        final JsonNode host = endpoint.get("host");
+        final JsonNode port = endpoint.get("port");
+        if (host == null || !host.isTextual() || port == null || !port.canConvertToInt()) {
+            throw new IllegalArgumentException("Expected a host and a port for an endpoint of service " + service +
+                    ": " + endpoint);
+        }
+        final JsonNode weight = endpoint.get("weight");
+        final JsonNode zone = endpoint.get("zone");
+        return new DefaultServiceDiscovererEvent<>(new InetSocketAddress(host.asText(), port.asInt()), AVAILABLE,
+                weight == null ? 1 : weight.asDouble(), textOrNull(zone));
+    }
+
+    @Nullable
+    private static String textOrNull(@Nullable final JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.file.discovery;
+
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.ServiceDiscoverer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.test.internal.TestPublisherSubscriber;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.EXPIRED;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileServiceDiscovererTest {
+
+    private Path directory;
+    private Path file;
+    @Nullable
+    private ServiceDiscoverer<String, InetSocketAddress, ServiceDiscovererEvent<InetSocketAddress>> discoverer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("servicetalk-file-discovery");
+        file = directory.resolve("endpoints.json");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (discoverer != null) {
+            discoverer.closeAsync().toFuture().get();
+        }
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    @Test
+    void emitsInitialEndpoints() throws Exception {
+        write("{\"svc\": [{\"host\": \"127.0.0.1\", \"port\": 8080, \"weight\": 2.0, \"zone\": \"a\"}," +
+                "{\"host\": \"127.0.0.2\", \"port\": 8080}], \"other\": [{\"host\": \"127.0.0.3\", \"port\": 80}]}");
+        TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> subscriber = discover("svc");
+
+        assertThat(subscriber.takeOnNext(), containsInAnyOrder(
+                available("127.0.0.1", 2, "a"), available("127.0.0.2", 1, null)));
+    }
+
+    @Test
+    void emitsOnlyDifferences() throws Exception {
+        write("{\"svc\": [{\"host\": \"127.0.0.1\", \"port\": 8080}, {\"host\": \"127.0.0.2\", \"port\": 8080}]}");
+        TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> subscriber = discover("svc");
+        subscriber.takeOnNext();
+
+        write("{\"svc\": [{\"host\": \"127.0.0.2\", \"port\": 8080, \"weight\": 3.0}," +
+                "{\"host\": \"127.0.0.3\", \"port\": 8080}, {\"host\": \"127.0.0.4\", \"port\": 8080}]}");
+        assertThat(subscriber.takeOnNext(), containsInAnyOrder(
+                new DefaultServiceDiscovererEvent<>(address("127.0.0.1"), EXPIRED),
+                available("127.0.0.2", 3, null), available("127.0.0.3", 1, null), available("127.0.0.4", 1, null)));
+    }
+
+    @Test
+    void keepsEndpointsOnInvalidContent() throws Exception {
+        write("{\"svc\": [{\"host\": \"127.0.0.1\", \"port\": 8080}]}");
+        TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> subscriber = discover("svc");
+        subscriber.takeOnNext();
+
+        write("{\"svc\": [{\"host\": ");
+        assertThat(subscriber.pollOnNext(500, MILLISECONDS), nullValue());
+        Files.delete(file);
+        assertThat(subscriber.pollOnNext(500, MILLISECONDS), nullValue());
+
+        write("{\"svc\": [{\"host\": \"127.0.0.2\", \"port\": 8080}]}");
+        assertThat(subscriber.takeOnNext(), containsInAnyOrder(
+                new DefaultServiceDiscovererEvent<>(address("127.0.0.1"), EXPIRED),
+                available("127.0.0.2", 1, null)));
+    }
+
+    @Test
+    void failsToBuildForMissingFile() {
+        assertThrows(UncheckedIOException.class, () -> new FileServiceDiscovererBuilder(file).build());
+    }
+
+    @Test
+    void closeFailsSubscribers() throws Exception {
+        write("{\"svc\": [{\"host\": \"127.0.0.1\", \"port\": 8080}]}");
+        TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> subscriber = discover("svc");
+        subscriber.takeOnNext();
+
+        discoverer.closeAsync().toFuture().get();
+        assertThat(subscriber.awaitOnError(), instanceOf(IllegalStateException.class));
+    }
+
+    private TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> discover(
+            final String serviceName) {
+        if (discoverer == null) {
+            discoverer = new FileServiceDiscovererBuilder(file)
+                    .checkInterval(ofMillis(50))
+                    .build();
+        }
+        TestPublisherSubscriber<Collection<ServiceDiscovererEvent<InetSocketAddress>>> subscriber =
+                new TestPublisherSubscriber<>();
+        toSource(discoverer.discover(serviceName)).subscribe(subscriber);
+        subscriber.awaitSubscription().request(Long.MAX_VALUE);
+        return subscriber;
+    }
+
+    private void write(final String content) throws IOException {
+        // Replace the file atomically, like orchestrators update mounted configuration.
+        final Path tmp = directory.resolve("endpoints.json.tmp");
+        Files.write(tmp, content.getBytes(UTF_8));
+        Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static ServiceDiscovererEvent<InetSocketAddress> available(final String ip, final double weight,
+                                                                       @Nullable final String zone) {
+        return new DefaultServiceDiscovererEvent<>(address(ip), AVAILABLE, weight, zone);
+    }
+
+    private static InetSocketAddress address(final String ip) {
+        return new InetSocketAddress(ip, 8080);
+    }
+}
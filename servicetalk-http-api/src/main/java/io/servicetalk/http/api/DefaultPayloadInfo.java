@@ -24,6 +24,7 @@ final class DefaultPayloadInfo implements PayloadInfo {
     private static final byte MAY_HAVE_TRAILERS = 2;
     private static final byte GENERIC_TYPE_BUFFER = 4;
     private static final byte EMPTY = 8;
+    private static final byte FILE_REGION = 16;
 
     private byte flags;
 
@@ -61,6 +62,16 @@ final class DefaultPayloadInfo implements PayloadInfo {
         return isSet(GENERIC_TYPE_BUFFER);
     }
 
+    /**
+     * Returns {@code true} if the message body may contain {@link HttpFileRegion}s, which have to be converted to
+     * {@link io.servicetalk.buffer.api.Buffer}s before the message body is consumed as a payload body.
+     *
+     * @return {@code true} if the message body may contain {@link HttpFileRegion}s.
+     */
+    boolean mayHaveFileRegion() {
+        return isSet(FILE_REGION);
+    }
+
     DefaultPayloadInfo setEmpty(boolean empty) {
         return set(EMPTY, empty);
     }
@@ -77,6 +88,10 @@ final class DefaultPayloadInfo implements PayloadInfo {
         return set(GENERIC_TYPE_BUFFER, genericTypeBuffer);
     }
 
+    DefaultPayloadInfo setMayHaveFileRegion(boolean mayHaveFileRegion) {
+        return set(FILE_REGION, mayHaveFileRegion);
+    }
+
     DefaultPayloadInfo setMayHaveTrailersAndGenericTypeBuffer(boolean mayHaveTrailers) {
         if (mayHaveTrailers) {
             flags = (byte) ((flags | MAY_HAVE_TRAILERS) & ~GENERIC_TYPE_BUFFER);
@@ -148,6 +163,7 @@ final class DefaultPayloadInfo implements PayloadInfo {
                 ", isSafeToAggregate=" + isSafeToAggregate() +
                 ", mayHaveTrailers=" + mayHaveTrailers() +
                 ", isGenericTypeBuffer=" + isGenericTypeBuffer() +
+                ", mayHaveFileRegion=" + mayHaveFileRegion() +
                 '}';
     }
 }
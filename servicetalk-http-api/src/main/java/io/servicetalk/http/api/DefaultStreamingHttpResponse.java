@@ -22,6 +22,7 @@ import io.servicetalk.concurrent.api.Single;
 import io.servicetalk.context.api.ContextMap;
 import io.servicetalk.encoding.api.ContentCodec;
 
+import java.nio.channels.FileChannel;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 import javax.annotation.Nullable;
@@ -86,6 +87,12 @@ final class DefaultStreamingHttpResponse extends DefaultHttpResponseMetaData
         return this;
     }
 
+    @Override
+    public StreamingHttpResponse payloadBody(final FileChannel fileChannel, final long position, final long count) {
+        payloadHolder.payloadBody(new HttpFileRegion(fileChannel, position, count));
+        return this;
+    }
+
     @Deprecated
     @Override
     public <T> StreamingHttpResponse payloadBody(final Publisher<T> payloadBody,
@@ -182,6 +189,10 @@ final class DefaultStreamingHttpResponse extends DefaultHttpResponseMetaData
         return payloadHolder.isGenericTypeBuffer();
     }
 
+    boolean mayHaveFileRegion() {
+        return payloadHolder.mayHaveFileRegion();
+    }
+
     StreamingHttpPayloadHolder payloadHolder() {
         return payloadHolder;
     }
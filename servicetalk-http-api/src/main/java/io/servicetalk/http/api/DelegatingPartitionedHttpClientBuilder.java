@@ -115,6 +115,12 @@ public class DelegatingPartitionedHttpClientBuilder<U, R> implements Partitioned
         return this;
     }
 
+    @Override
+    public PartitionedHttpClientBuilder<U, R> maxActivePartitionClients(final int maxActiveClients) {
+        delegate = delegate.maxActivePartitionClients(maxActiveClients);
+        return this;
+    }
+
     @Override
     public PartitionedHttpClientBuilder<U, R> initializer(final SingleAddressInitializer<U, R> initializer) {
         delegate = delegate.initializer(initializer);
@@ -432,6 +432,18 @@ public final class HttpApiConversions {
         return metadata instanceof PayloadInfo && ((PayloadInfo) metadata).mayHaveTrailers();
     }
 
+    /**
+     * Checks whether a response message body may contain {@link HttpFileRegion}s, see
+     * {@link StreamingHttpResponse#payloadBody(java.nio.channels.FileChannel, long, long)}.
+     *
+     * @param metadata The response to check.
+     * @return {@code true} if the response message body may contain {@link HttpFileRegion}s, {@code false} otherwise.
+     */
+    public static boolean mayHaveFileRegion(HttpMetaData metadata) {
+        return metadata instanceof DefaultStreamingHttpResponse &&
+                ((DefaultStreamingHttpResponse) metadata).mayHaveFileRegion();
+    }
+
     /**
      * A holder for {@link StreamingHttpService} that adapts another {@code service} to the streaming programming model.
      *
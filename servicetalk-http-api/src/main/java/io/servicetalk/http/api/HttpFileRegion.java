@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static io.servicetalk.concurrent.internal.FileChannelUtils.DEFAULT_MAP_CHUNK_SIZE;
+import static io.servicetalk.concurrent.internal.FileChannelUtils.mapChunk;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A region of a file used as the payload body of a {@link StreamingHttpResponse}, see
+ * {@link StreamingHttpResponse#payloadBody(FileChannel, long, long)}.
+ * <p>
+ * Transports which can write the region without copying it to user space (e.g. cleartext HTTP/1.x) receive it as an
+ * element of the {@link StreamingHttpResponse#messageBody() message body}. Otherwise, the region is read as
+ * memory-mapped {@link Buffer}s, see {@link #toBuffers(BufferAllocator)}.
+ */
+public final class HttpFileRegion {
+    private final FileChannel fileChannel;
+    private final long position;
+    private final long count;
+
+    HttpFileRegion(final FileChannel fileChannel, final long position, final long count) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected >=0)");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count: " + count + " (expected >=0)");
+        }
+        this.fileChannel = requireNonNull(fileChannel);
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * Returns the {@link FileChannel} to read from. It is owned by the caller, and is not closed after the write.
+     *
+     * @return the {@link FileChannel} to read from.
+     */
+    public FileChannel fileChannel() {
+        return fileChannel;
+    }
+
+    /**
+     * Returns the position in the file where the region starts.
+     *
+     * @return the position in the file where the region starts.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the number of bytes in the region.
+     *
+     * @return the number of bytes in the region.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the content of the region as read-only {@link Buffer}s that wrap memory-mapped chunks of the file. Every
+     * chunk is mapped when the {@link Iterator} advances to it.
+     *
+     * @param allocator the {@link BufferAllocator} used to wrap the mapped chunks.
+     * @return the content of the region as read-only {@link Buffer}s.
+     */
+    public Iterable<Buffer> toBuffers(final BufferAllocator allocator) {
+        return () -> new Iterator<Buffer>() {
+            private long offset;
+
+            @Override
+            public boolean hasNext() {
+                return offset < count;
+            }
+
+            @Override
+            public Buffer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final ByteBuffer chunk;
+                try {
+                    chunk = mapChunk(fileChannel, position + offset, position + count, DEFAULT_MAP_CHUNK_SIZE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                offset += chunk.remaining();
+                return allocator.wrap(chunk);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{fileChannel=" + fileChannel +
+                ", position=" + position +
+                ", count=" + count +
+                '}';
+    }
+}
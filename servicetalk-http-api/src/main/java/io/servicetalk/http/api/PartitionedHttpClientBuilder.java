@@ -140,6 +140,22 @@ public interface PartitionedHttpClientBuilder<U, R> // FIXME: 0.43 - remove depr
      */
     PartitionedHttpClientBuilder<U, R> partitionMapFactory(PartitionMapFactory partitionMapFactory);
 
+    /**
+     * Sets the maximum number of partitions that have an active client.
+     * <p>
+     * Clients are created when a partition is selected for the first time. If more clients are active, the client of
+     * the least recently selected partition is closed gracefully. It is created again when its partition is selected
+     * next time. By default, clients are never closed while their partition is available.
+     *
+     * @param maxActiveClients the maximum number of partitions that have an active client.
+     * @return {@code this}.
+     */
+    default PartitionedHttpClientBuilder<U, R> maxActivePartitionClients(int maxActiveClients) {
+        // FIXME: 0.43 - remove default implementation
+        throw new UnsupportedOperationException(
+                "PartitionedHttpClientBuilder#maxActivePartitionClients(int) is not supported by " + getClass());
+    }
+
     /**
      * Set a function which can customize options for each {@link StreamingHttpClient} that is built.
      * @param initializer Initializes the {@link SingleAddressHttpClientBuilder} used to build new
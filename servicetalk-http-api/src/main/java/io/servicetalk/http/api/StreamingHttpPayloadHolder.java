@@ -40,6 +40,7 @@ import static io.servicetalk.concurrent.api.Publisher.empty;
 import static io.servicetalk.concurrent.api.Publisher.from;
 import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
 import static io.servicetalk.http.api.HttpDataSourceTransformations.aggregatePayloadAndTrailers;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
 
@@ -71,7 +72,9 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
 
     @SuppressWarnings("unchecked")
     Publisher<Buffer> payloadBody() {
-        return messageBody == null ? empty() : !payloadInfo.isGenericTypeBuffer() || payloadInfo.mayHaveTrailers() ?
+        return messageBody == null ? empty() : payloadInfo.mayHaveFileRegion() ?
+                fileRegionsToBuffers(messageBody).liftSync(HttpTransportBufferFilterOperator.INSTANCE) :
+                !payloadInfo.isGenericTypeBuffer() || payloadInfo.mayHaveTrailers() ?
                 messageBody.liftSync(HttpTransportBufferFilterOperator.INSTANCE) : (Publisher<Buffer>) messageBody;
     }
 
@@ -81,7 +84,7 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
     }
 
     void payloadBody(final Publisher<Buffer> payloadBody) {
-        payloadInfo.setEmpty(payloadBody == EMPTY);
+        payloadInfo.setEmpty(payloadBody == EMPTY).setMayHaveFileRegion(false);
         if (messageBody == null) {
             messageBody = requireNonNull(payloadBody);
             payloadInfo.setGenericTypeBuffer(true);
@@ -100,7 +103,7 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
     }
 
     void messageBody(Publisher<?> msgBody) {
-        payloadInfo.setEmpty(messageBody == EMPTY);
+        payloadInfo.setEmpty(messageBody == EMPTY).setMayHaveFileRegion(false);
         if (messageBody == null) {
             messageBody = requireNonNull(msgBody);
         } else { // discard old trailers
@@ -109,6 +112,16 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
         payloadInfo.setMayHaveTrailersAndGenericTypeBuffer(true);
     }
 
+    void payloadBody(final HttpFileRegion fileRegion) {
+        if (messageBody == null) {
+            messageBody = from(fileRegion);
+        } else { // discard old payload body and trailers
+            messageBody = Publisher.<Object>from(fileRegion)
+                    .liftSync(new ObjectBridgeFlowControlAndDiscardOperator(messageBody));
+        }
+        payloadInfo.setEmpty(false).setMayHaveTrailers(false).setGenericTypeBuffer(false).setMayHaveFileRegion(true);
+    }
+
     <T> void payloadBody(final Publisher<T> payloadBody, final HttpStreamingSerializer<T> serializer) {
         payloadBody(serializer.serialize(headers, payloadBody, allocator));
         // Because #serialize(...) method may apply operators, check the original payloadBody again:
@@ -121,6 +134,7 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
     }
 
     void transformPayloadBody(UnaryOperator<Publisher<Buffer>> transformer) {
+        convertFileRegions();
         if (payloadInfo.mayHaveTrailers()) {
             assert messageBody != null;
             payloadInfo.setEmpty(false);    // transformer may add payload content
@@ -165,6 +179,7 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
 
     private <T, S> void transform(final TrailersTransformer<T, S> trailersTransformer,
                                   final Function<Publisher<?>, Publisher<?>> internalTransformer) {
+        convertFileRegions();
         if (messageBody == null) {
             messageBody = defer(() ->
                     from(trailersTransformer.payloadComplete(trailersTransformer.newState(),
@@ -177,10 +192,15 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
     }
 
     Single<PayloadAndTrailers> aggregate() {
+        convertFileRegions();
         payloadInfo.setSafeToAggregate(true);
         return aggregatePayloadAndTrailers(payloadInfo, messageBody(), allocator);
     }
 
+    boolean mayHaveFileRegion() {
+        return payloadInfo.mayHaveFileRegion();
+    }
+
     @Override
     public boolean isEmpty() {
         return payloadInfo.isEmpty();
@@ -244,6 +264,19 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
         return result;
     }
 
+    private void convertFileRegions() {
+        if (payloadInfo.mayHaveFileRegion()) {
+            assert messageBody != null;
+            messageBody = fileRegionsToBuffers(messageBody);
+            payloadInfo.setMayHaveFileRegion(false);
+        }
+    }
+
+    private Publisher<Object> fileRegionsToBuffers(final Publisher<?> messageBody) {
+        return messageBody.flatMapConcatIterable(item -> item instanceof HttpFileRegion ?
+                ((HttpFileRegion) item).toBuffers(allocator) : singletonList(item));
+    }
+
     private static void throwDuplicateTrailersException(HttpHeaders trailers, Object o) {
         throw new IllegalStateException("trailers already set to: " + trailers +
                 " but duplicate trailers seen: " + o);
@@ -21,6 +21,7 @@ import io.servicetalk.concurrent.api.Single;
 import io.servicetalk.context.api.ContextMap;
 import io.servicetalk.encoding.api.ContentCodec;
 
+import java.nio.channels.FileChannel;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
@@ -80,6 +81,25 @@ public interface StreamingHttpResponse extends HttpResponseMetaData {
      */
     StreamingHttpResponse payloadBody(Publisher<Buffer> payloadBody);
 
+    /**
+     * Returns a {@link StreamingHttpResponse} with its underlying payload set to a region of a file.
+     * <p>
+     * On cleartext HTTP/1.x connections the region is written by the transport without copying it to user space (e.g.
+     * {@code sendfile}). Otherwise, or if the payload body is consumed or transformed as {@link Buffer}s, the region
+     * is read as memory-mapped {@link Buffer}s. The {@code fileChannel} is owned by the caller, it is not closed after
+     * the response is written. If the {@code content-length} header is not set, the payload body is sent with
+     * {@code transfer-encoding: chunked}.
+     * @param fileChannel The {@link FileChannel} to read from.
+     * @param position The position in the file where the region starts.
+     * @param count The number of bytes to write.
+     * @return {@code this}
+     */
+    // FIXME: 0.43 - remove default implementation
+    default StreamingHttpResponse payloadBody(FileChannel fileChannel, long position, long count) {
+        throw new UnsupportedOperationException("StreamingHttpResponse#payloadBody(FileChannel, long, long) " +
+                "is not supported by " + getClass());
+    }
+
     /**
      * Returns a {@link StreamingHttpResponse} with its underlying payload set to the result of serialization.
      * <p>
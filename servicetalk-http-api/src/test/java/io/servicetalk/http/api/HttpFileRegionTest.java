@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Publisher.empty;
+import static io.servicetalk.http.api.DefaultHttpHeadersFactory.INSTANCE;
+import static io.servicetalk.http.api.HttpApiConversions.mayHaveFileRegion;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpFileRegionTest {
+
+    private static final int FILE_SIZE = 600 * 1024;
+    private static final int POSITION = 3;
+    private static final int COUNT = FILE_SIZE - 2 * POSITION;
+
+    private final byte[] content = new byte[FILE_SIZE];
+    private final Path file;
+    private final FileChannel fileChannel;
+
+    HttpFileRegionTest() throws Exception {
+        ThreadLocalRandom.current().nextBytes(content);
+        file = Files.createTempFile("servicetalk", ".bin");
+        Files.write(file, content);
+        fileChannel = FileChannel.open(file, READ);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fileChannel.close();
+        Files.delete(file);
+    }
+
+    @Test
+    void messageBodyContainsFileRegion() throws Exception {
+        StreamingHttpResponse response = newResponse().payloadBody(fileChannel, POSITION, COUNT);
+        assertTrue(mayHaveFileRegion(response));
+        Collection<Object> messageBody = response.messageBody().toFuture().get();
+        assertEquals(1, messageBody.size());
+        HttpFileRegion region = (HttpFileRegion) messageBody.iterator().next();
+        assertSame(fileChannel, region.fileChannel());
+        assertEquals(POSITION, region.position());
+        assertEquals(COUNT, region.count());
+    }
+
+    @Test
+    void payloadBodyReadsMappedBuffers() throws Exception {
+        StreamingHttpResponse response = newResponse().payloadBody(fileChannel, POSITION, COUNT);
+        Collection<Buffer> buffers = response.payloadBody().toFuture().get();
+        assertTrue(buffers.size() > 1);
+        assertContent(buffers);
+        // Consuming the payload body does not change the response.
+        assertTrue(mayHaveFileRegion(response));
+    }
+
+    @Test
+    void transformPayloadBodyConvertsFileRegion() throws Exception {
+        StreamingHttpResponse response = newResponse().payloadBody(fileChannel, POSITION, COUNT)
+                .transformPayloadBody(payload -> payload);
+        assertFalse(mayHaveFileRegion(response));
+        assertContent(response.toResponse().toFuture().get().payloadBody());
+    }
+
+    @Test
+    void aggregate() throws Exception {
+        assertContent(newResponse().payloadBody(fileChannel, POSITION, COUNT)
+                .toResponse().toFuture().get().payloadBody());
+    }
+
+    @Test
+    void payloadBodyReplacesFileRegion() throws Exception {
+        StreamingHttpResponse response = newResponse().payloadBody(fileChannel, POSITION, COUNT)
+                .payloadBody(empty());
+        assertFalse(mayHaveFileRegion(response));
+        assertEquals(0, response.toResponse().toFuture().get().payloadBody().readableBytes());
+    }
+
+    @Test
+    void invalidArguments() {
+        StreamingHttpResponse response = newResponse();
+        assertThrows(IllegalArgumentException.class, () -> response.payloadBody(fileChannel, -1, COUNT));
+        assertThrows(IllegalArgumentException.class, () -> response.payloadBody(fileChannel, POSITION, -1));
+    }
+
+    private void assertContent(Buffer payload) {
+        assertContent(singletonList(payload));
+    }
+
+    private void assertContent(Iterable<Buffer> payload) {
+        byte[] actual = new byte[COUNT];
+        int offset = 0;
+        for (Buffer buffer : payload) {
+            final int length = buffer.readableBytes();
+            buffer.readBytes(actual, offset, length);
+            offset += length;
+        }
+        assertEquals(COUNT, offset);
+        assertArrayEquals(Arrays.copyOfRange(content, POSITION, POSITION + COUNT), actual);
+    }
+
+    private static StreamingHttpResponse newResponse() {
+        return StreamingHttpResponses.newResponse(OK, HTTP_1_1, INSTANCE.newHeaders(), DEFAULT_ALLOCATOR, INSTANCE);
+    }
+}
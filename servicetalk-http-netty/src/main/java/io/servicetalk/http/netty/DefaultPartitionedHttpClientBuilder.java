@@ -82,6 +82,7 @@ final class DefaultPartitionedHttpClientBuilder<U, R> implements PartitionedHttp
     @Nullable
     private BiIntFunction<Throwable, ? extends Completable> serviceDiscovererRetryStrategy;
     private int serviceDiscoveryMaxQueueSize = 32;
+    private int maxActiveClients = Integer.MAX_VALUE;
     @Nullable
     private HttpHeadersFactory headersFactory;
     @Nullable
@@ -130,7 +131,7 @@ final class DefaultPartitionedHttpClientBuilder<U, R> implements PartitionedHttp
                         clientFactory, partitionAttributesBuilderFactory,
                         new DefaultStreamingHttpRequestResponseFactory(executionContext.bufferAllocator(),
                                 headersFactory != null ? headersFactory : DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1),
-                        executionContext, partitionMapFactory);
+                        executionContext, partitionMapFactory, maxActiveClients);
 
         LOGGER.debug("Partitioned client created with base strategy {}", executionContext.executionStrategy());
         return new FilterableClientToClient(partitionedClient, executionContext);
@@ -156,11 +157,12 @@ final class DefaultPartitionedHttpClientBuilder<U, R> implements PartitionedHttp
                 final Function<HttpRequestMetaData, PartitionAttributesBuilder> pabf,
                 final StreamingHttpRequestResponseFactory reqRespFactory,
                 final HttpExecutionContext executionContext,
-                final PartitionMapFactory partitionMapFactory) {
+                final PartitionMapFactory partitionMapFactory,
+                final int maxActiveClients) {
             this.pabf = pabf;
             this.executionContext = executionContext;
             this.group = new DefaultPartitionedClientGroup<>(PARTITION_CLOSED, PARTITION_UNKNOWN, clientFactory,
-                    partitionMapFactory, psdEvents, psdMaxQueueSize);
+                    partitionMapFactory, psdEvents, psdMaxQueueSize, maxActiveClients);
             this.reqRespFactory = requireNonNull(reqRespFactory);
         }
 
@@ -314,6 +316,15 @@ final class DefaultPartitionedHttpClientBuilder<U, R> implements PartitionedHttp
         return this;
     }
 
+    @Override
+    public PartitionedHttpClientBuilder<U, R> maxActivePartitionClients(final int maxActiveClients) {
+        if (maxActiveClients <= 0) {
+            throw new IllegalArgumentException("maxActiveClients: " + maxActiveClients + " (expected >0)");
+        }
+        this.maxActiveClients = maxActiveClients;
+        return this;
+    }
+
     @Override
     public PartitionedHttpClientBuilder<U, R> initializer(final SingleAddressInitializer<U, R> initializer) {
         this.clientInitializer = requireNonNull(initializer);
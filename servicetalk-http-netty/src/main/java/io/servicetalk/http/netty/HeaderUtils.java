@@ -17,6 +17,7 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.CharSequences;
+import io.servicetalk.concurrent.api.Completable;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.ScanWithMapper;
 import io.servicetalk.http.api.EmptyHttpHeaders;
@@ -37,6 +38,7 @@ import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.buffer.api.CharSequences.parseLong;
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
 import static io.servicetalk.concurrent.api.Publisher.empty;
 import static io.servicetalk.concurrent.api.Publisher.from;
 import static io.servicetalk.concurrent.api.Publisher.fromIterable;
@@ -230,6 +232,22 @@ final class HeaderUtils {
                 flatMessage.concat(messageBody.ignoreElements());
     }
 
+    /**
+     * Consumes a message body which is discarded without being read by the user. There is no other consumer to
+     * release pooled {@link Buffer}s, so they are released here.
+     *
+     * @param messageBody the message body to consume.
+     * @param <T> the type of the message body items.
+     * @return a {@link Completable} that completes when the message body is consumed.
+     */
+    static <T> Completable drainMessageBody(final Publisher<T> messageBody) {
+        return messageBody.whenOnNext(item -> {
+            if (item instanceof Buffer) {
+                release((Buffer) item);
+            }
+        }).ignoreElements();
+    }
+
     private static final class ContentLengthList<T> extends ArrayList<T> {
         int contentLength;
 
@@ -0,0 +1,535 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.DelayedCancellable;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpExecutionStrategies;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpRequestMetaData;
+import io.servicetalk.http.api.HttpResponseMetaData;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.transport.api.ExecutionStrategyInfluencer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Processors.newSingleProcessor;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.http.api.HttpContextKeys.HTTP_EXECUTION_STRATEGY_KEY;
+import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.SERVER_ERROR_5XX;
+import static io.servicetalk.http.netty.HeaderUtils.drainMessageBody;
+import static io.servicetalk.utils.internal.DurationUtils.ensurePositive;
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.time.Duration.ofMillis;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A filter to enable request hedging for HTTP clients.
+ * <p>
+ * When a response to an eligible request does not arrive within the hedging delay, the filter sends a speculative
+ * duplicate of the request. The first successful response wins and the other request is cancelled. A response is
+ * successful if it is accepted by {@link Builder#acceptResponses(Predicate)}, by default any response without a
+ * {@code 5xx} status code. While the other request is in flight, unsuccessful responses and failures are discarded,
+ * otherwise they are returned as is. A request that fails before the hedging delay elapses is not hedged, failures are
+ * left to {@link RetryingHttpRequesterFilter}.
+ * <p>
+ * Only requests accepted by {@link Builder#hedgeRequests(Predicate)} are hedged, by default requests with an
+ * {@link io.servicetalk.http.api.HttpRequestMethod.Properties#isIdempotent() idempotent} method. The payload body of a
+ * hedged request is subscribed to by both requests, so it has to be repeatable, for example an aggregated payload
+ * body. The number of duplicate requests is limited by a budget, see {@link Builder#budget(double, int)}, which is
+ * shared by all clients that use the same instance of this filter.
+ * <p>
+ * The load balancer selects a connection for the duplicate like for any other request, it does not know about the
+ * original request. The duplicate is therefore not guaranteed to be sent to a different host, in particular with few
+ * hosts or with consistent hashing, in which case hedging only helps if the latency is caused by the connection rather
+ * than by the host.
+ */
+public final class HedgingHttpRequesterFilter
+        implements StreamingHttpClientFilterFactory, ExecutionStrategyInfluencer<HttpExecutionStrategy> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgingHttpRequesterFilter.class);
+
+    private static final Duration DEFAULT_DELAY = ofMillis(100);
+    private static final double DEFAULT_BUDGET_RATIO = 0.1;
+    private static final int DEFAULT_BUDGET_MAX_TOKENS = 10;
+
+    private final Predicate<HttpRequestMetaData> hedgeRequests;
+    private final Predicate<HttpResponseMetaData> acceptResponses;
+    private final HedgingDelay delay;
+    private final HedgingBudget budget;
+
+    private HedgingHttpRequesterFilter(final Predicate<HttpRequestMetaData> hedgeRequests,
+                                       final Predicate<HttpResponseMetaData> acceptResponses,
+                                       final HedgingDelay delay, final HedgingBudget budget) {
+        this.hedgeRequests = hedgeRequests;
+        this.acceptResponses = acceptResponses;
+        this.delay = delay;
+        this.budget = budget;
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final StreamingHttpRequest request) {
+                if (!hedgeRequests.test(request)) {
+                    return delegate.request(request);
+                }
+                final HttpExecutionStrategy strategy = request.context()
+                        .getOrDefault(HTTP_EXECUTION_STRATEGY_KEY, executionContext().executionStrategy());
+                assert strategy != null;
+                final Executor executor = strategy.isRequestResponseOffloaded() ?
+                        executionContext().executor() : executionContext().ioExecutor();
+                return Single.defer(() -> {
+                    budget.deposit();
+                    final HedgedRequest hedgedRequest = new HedgedRequest(delegate, request, executor,
+                            acceptResponses, delay, budget);
+                    hedgedRequest.start();
+                    return fromSource(hedgedRequest.result)
+                            .beforeCancel(hedgedRequest::cancel)
+                            .shareContextOnSubscribe();
+                });
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy requiredOffloads() {
+        // No influence since we do not block.
+        return HttpExecutionStrategies.offloadNone();
+    }
+
+    private static StreamingHttpRequest duplicate(final StreamingHttpRequester requester,
+                                                  final StreamingHttpRequest request) {
+        // The duplicate needs its own headers and context: both requests are processed concurrently and the layers
+        // below this filter modify them.
+        final StreamingHttpRequest duplicate = requester.newRequest(request.method(), request.requestTarget())
+                .version(request.version())
+                .context(request.context().copy())
+                .transformMessageBody(__ -> request.messageBody());
+        duplicate.headers().set(request.headers());
+        return duplicate;
+    }
+
+    /**
+     * The state of a single request and its duplicate.
+     */
+    private static final class HedgedRequest {
+        private static final AtomicIntegerFieldUpdater<HedgedRequest> inFlightUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(HedgedRequest.class, "inFlight");
+        private static final int TERMINATED = -1;
+
+        final SingleSource.Processor<StreamingHttpResponse, StreamingHttpResponse> result = newSingleProcessor();
+        private final StreamingHttpRequester delegate;
+        private final StreamingHttpRequest request;
+        private final Executor executor;
+        private final Predicate<HttpResponseMetaData> acceptResponses;
+        private final HedgingDelay delay;
+        private final HedgingBudget budget;
+        private final DelayedCancellable timer = new DelayedCancellable();
+        private final Attempt original = new Attempt();
+        private final Attempt hedge = new Attempt();
+        /**
+         * The number of requests in flight, or {@link #TERMINATED} once the result is determined or cancelled.
+         */
+        private volatile int inFlight;
+
+        HedgedRequest(final StreamingHttpRequester delegate, final StreamingHttpRequest request,
+                      final Executor executor, final Predicate<HttpResponseMetaData> acceptResponses,
+                      final HedgingDelay delay, final HedgingBudget budget) {
+            this.delegate = delegate;
+            this.request = request;
+            this.executor = executor;
+            this.acceptResponses = acceptResponses;
+            this.delay = delay;
+            this.budget = budget;
+        }
+
+        void start() {
+            inFlight = 1;
+            try {
+                timer.delayedCancellable(executor.schedule(this::startHedge, delay.delayNanos(), NANOSECONDS));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Failed to schedule the hedged request for {}.", request, e);
+            }
+            original.subscribe(delegate.request(request));
+        }
+
+        private void startHedge() {
+            if (inFlight <= 0 || !budget.tryAcquire()) {
+                return;
+            }
+            for (;;) {
+                final int inFlight = this.inFlight;
+                if (inFlight <= 0) {
+                    // The original request terminated in the meantime.
+                    budget.release();
+                    return;
+                }
+                if (inFlightUpdater.compareAndSet(this, inFlight, inFlight + 1)) {
+                    break;
+                }
+            }
+            LOGGER.debug("No response for {} within the hedging delay, sending a duplicate request.", request);
+            hedge.subscribe(delegate.request(duplicate(delegate, request)));
+        }
+
+        void cancel() {
+            inFlight = TERMINATED;
+            timer.cancel();
+            original.cancel();
+            hedge.cancel();
+        }
+
+        private final class Attempt extends DelayedCancellable
+                implements SingleSource.Subscriber<StreamingHttpResponse> {
+            private long startTimeNanos;
+
+            void subscribe(final Single<StreamingHttpResponse> response) {
+                startTimeNanos = executor.currentTime(NANOSECONDS);
+                toSource(response).subscribe(this);
+            }
+
+            @Override
+            public void onSubscribe(final Cancellable cancellable) {
+                delayedCancellable(cancellable);
+            }
+
+            @Override
+            public void onSuccess(@Nullable final StreamingHttpResponse response) {
+                if (response != null && !acceptResponses.test(response)) {
+                    onUnsuccessful(response, null);
+                    return;
+                }
+                for (;;) {
+                    final int inFlight = HedgedRequest.this.inFlight;
+                    if (inFlight == TERMINATED) {
+                        // Lost the race, drain the payload body to release the connection.
+                        drain(response);
+                        return;
+                    }
+                    if (inFlightUpdater.compareAndSet(HedgedRequest.this, inFlight, TERMINATED)) {
+                        break;
+                    }
+                }
+                final long nowNanos = executor.currentTime(NANOSECONDS);
+                delay.record(nowNanos - startTimeNanos);
+                if (this == hedge) {
+                    // The original request lost, its latency is at least the time until the duplicate won. Without
+                    // it, only the latencies of the fast requests would be recorded and the delay would shrink.
+                    delay.record(nowNanos - original.startTimeNanos);
+                }
+                timer.cancel();
+                (this == original ? hedge : original).cancel();
+                result.onSuccess(response);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                onUnsuccessful(null, t);
+            }
+
+            private void onUnsuccessful(@Nullable final StreamingHttpResponse response, @Nullable final Throwable t) {
+                // Wait for the other request, if there is one in flight.
+                for (;;) {
+                    final int inFlight = HedgedRequest.this.inFlight;
+                    if (inFlight == TERMINATED) {
+                        drain(response);
+                        return;
+                    }
+                    if (inFlight > 1) {
+                        if (inFlightUpdater.compareAndSet(HedgedRequest.this, inFlight, inFlight - 1)) {
+                            drain(response);
+                            return;
+                        }
+                    } else if (inFlightUpdater.compareAndSet(HedgedRequest.this, inFlight, TERMINATED)) {
+                        break;
+                    }
+                }
+                timer.cancel();
+                if (t == null) {
+                    result.onSuccess(response);
+                } else {
+                    result.onError(t);
+                }
+            }
+        }
+
+        private static void drain(@Nullable final StreamingHttpResponse response) {
+            if (response != null) {
+                drainMessageBody(response.messageBody()).onErrorComplete().subscribe();
+            }
+        }
+    }
+
+    /**
+     * Determines how long to wait for a response before sending a duplicate request.
+     */
+    private static class HedgingDelay {
+        private final long delayNanos;
+
+        HedgingDelay(final long delayNanos) {
+            this.delayNanos = delayNanos;
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        void record(final long latencyNanos) {
+        }
+    }
+
+    /**
+     * Uses a percentile of the latencies of recent responses as the hedging delay.
+     */
+    private static final class PercentileHedgingDelay extends HedgingDelay {
+        private static final AtomicIntegerFieldUpdater<PercentileHedgingDelay> countUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(PercentileHedgingDelay.class, "count");
+
+        private static final int SAMPLES = 512;
+        /**
+         * Sorting the samples is the expensive part, it is amortized over this number of responses.
+         */
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+        private final double percentile;
+        private volatile int count;
+        private volatile boolean full;
+        private volatile long percentileNanos;
+
+        PercentileHedgingDelay(final double percentile, final long initialDelayNanos) {
+            super(initialDelayNanos);
+            this.percentile = percentile;
+            this.percentileNanos = initialDelayNanos;
+        }
+
+        @Override
+        long delayNanos() {
+            return percentileNanos;
+        }
+
+        @Override
+        void record(final long latencyNanos) {
+            final int index = countUpdater.getAndIncrement(this) & (SAMPLES - 1);
+            samples.set(index, max(0, latencyNanos));
+            if (index == SAMPLES - 1) {
+                full = true;
+            }
+            if (((index + 1) & (RECOMPUTE_INTERVAL - 1)) == 0) {
+                final long[] sorted = new long[full ? SAMPLES : index + 1];
+                for (int i = 0; i < sorted.length; ++i) {
+                    sorted[i] = samples.get(i);
+                }
+                Arrays.sort(sorted);
+                percentileNanos = sorted[min(sorted.length - 1, max(0, (int) ceil(percentile * sorted.length) - 1))];
+            }
+        }
+    }
+
+    /**
+     * A token bucket which is filled by every eligible request and drained by every duplicate request.
+     */
+    private static final class HedgingBudget {
+        private static final AtomicLongFieldUpdater<HedgingBudget> milliTokensUpdater =
+                AtomicLongFieldUpdater.newUpdater(HedgingBudget.class, "milliTokens");
+        private static final long MILLIS_PER_TOKEN = 1000;
+
+        private final long depositMilliTokens;
+        private final long maxMilliTokens;
+        private volatile long milliTokens;
+
+        HedgingBudget(final double ratio, final int maxTokens) {
+            this.depositMilliTokens = (long) (ratio * MILLIS_PER_TOKEN);
+            this.maxMilliTokens = maxTokens * MILLIS_PER_TOKEN;
+            this.milliTokens = maxMilliTokens;
+        }
+
+        void deposit() {
+            for (;;) {
+                final long current = milliTokens;
+                if (current >= maxMilliTokens || milliTokensUpdater.compareAndSet(this, current,
+                        min(maxMilliTokens, current + depositMilliTokens))) {
+                    return;
+                }
+            }
+        }
+
+        void release() {
+            for (;;) {
+                final long current = milliTokens;
+                if (current >= maxMilliTokens || milliTokensUpdater.compareAndSet(this, current,
+                        min(maxMilliTokens, current + MILLIS_PER_TOKEN))) {
+                    return;
+                }
+            }
+        }
+
+        boolean tryAcquire() {
+            for (;;) {
+                final long current = milliTokens;
+                if (current < MILLIS_PER_TOKEN) {
+                    LOGGER.debug("Hedging budget exhausted, not sending a duplicate request.");
+                    return false;
+                }
+                if (milliTokensUpdater.compareAndSet(this, current, current - MILLIS_PER_TOKEN)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link HedgingHttpRequesterFilter}.
+     */
+    public static final class Builder {
+        private Predicate<HttpRequestMetaData> hedgeRequests =
+                metaData -> metaData.method().properties().isIdempotent();
+        private Predicate<HttpResponseMetaData> acceptResponses =
+                metaData -> metaData.status().statusClass() != SERVER_ERROR_5XX;
+        private Duration delay = DEFAULT_DELAY;
+        private double percentile;
+        private double budgetRatio = DEFAULT_BUDGET_RATIO;
+        private int budgetMaxTokens = DEFAULT_BUDGET_MAX_TOKENS;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the {@link Predicate} that selects the requests to hedge.
+         * <p>
+         * Hedged requests may be processed twice by the server, so only requests that are safe to repeat should be
+         * hedged. By default, requests with an
+         * {@link io.servicetalk.http.api.HttpRequestMethod.Properties#isIdempotent() idempotent} method are hedged.
+         * gRPC calls use the {@code POST} method, the predicate can select idempotent calls by their path instead.
+         *
+         * @param hedgeRequests the {@link Predicate} that selects the requests to hedge.
+         * @return {@code this}.
+         */
+        public Builder hedgeRequests(final Predicate<HttpRequestMetaData> hedgeRequests) {
+            this.hedgeRequests = requireNonNull(hedgeRequests);
+            return this;
+        }
+
+        /**
+         * Sets the {@link Predicate} that decides whether a response is successful and wins over the other request.
+         * <p>
+         * A response that is not accepted is discarded while the other request is in flight, so that a fast error
+         * response to one request does not cancel the other request, which may succeed. By default, responses without
+         * a {@code 5xx} status code are accepted.
+         *
+         * @param acceptResponses the {@link Predicate} that decides whether a response is successful.
+         * @return {@code this}.
+         */
+        public Builder acceptResponses(final Predicate<HttpResponseMetaData> acceptResponses) {
+            this.acceptResponses = requireNonNull(acceptResponses);
+            return this;
+        }
+
+        /**
+         * Sends a duplicate request when there is no response within a fixed delay.
+         *
+         * @param delay the delay after which a duplicate request is sent.
+         * @return {@code this}.
+         */
+        public Builder delay(final Duration delay) {
+            this.delay = ensurePositive(delay, "delay");
+            this.percentile = 0;
+            return this;
+        }
+
+        /**
+         * Sends a duplicate request when there is no response within a percentile of the latencies of recent
+         * responses, for example {@code 0.95} to hedge the slowest 5% of the requests. When the duplicate wins, the
+         * time until then is recorded for the original request as well, which is a lower bound of its latency.
+         *
+         * @param percentile the percentile of the latencies, in the range {@code (0, 1)}.
+         * @param initialDelay the delay to use until enough responses were observed.
+         * @return {@code this}.
+         */
+        public Builder delayPercentile(final double percentile, final Duration initialDelay) {
+            if (!(percentile > 0 && percentile < 1)) {
+                throw new IllegalArgumentException("percentile: " + percentile + " (expected (0, 1))");
+            }
+            this.delay = ensurePositive(initialDelay, "initialDelay");
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the budget that limits the number of duplicate requests.
+         * <p>
+         * Every eligible request adds {@code ratio} tokens to the budget, up to {@code maxTokens}, and every duplicate
+         * request takes one token. In the long run at most {@code ratio} of the requests are duplicated, which
+         * prevents hedging from overloading the servers when all of them are slow. The budget is shared by all clients
+         * that use this filter.
+         *
+         * @param ratio the share of requests that may be duplicated, in the range {@code [0, 1]}.
+         * @param maxTokens the maximum number of tokens, which allows short bursts of duplicate requests.
+         * @return {@code this}.
+         */
+        public Builder budget(final double ratio, final int maxTokens) {
+            if (!(ratio >= 0 && ratio <= 1)) {
+                throw new IllegalArgumentException("ratio: " + ratio + " (expected [0, 1])");
+            }
+            if (maxTokens <= 0) {
+                throw new IllegalArgumentException("maxTokens: " + maxTokens + " (expected >0)");
+            }
+            this.budgetRatio = ratio;
+            this.budgetMaxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link HedgingHttpRequesterFilter}.
+         *
+         * @return a new {@link HedgingHttpRequesterFilter}.
+         */
+        public HedgingHttpRequesterFilter build() {
+            final HedgingDelay hedgingDelay = percentile == 0 ? new HedgingDelay(delay.toNanos()) :
+                    new PercentileHedgingDelay(percentile, delay.toNanos());
+            return new HedgingHttpRequesterFilter(hedgeRequests, acceptResponses, hedgingDelay,
+                    new HedgingBudget(budgetRatio, budgetMaxTokens));
+        }
+    }
+}
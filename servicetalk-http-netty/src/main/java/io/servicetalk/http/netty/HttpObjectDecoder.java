@@ -64,6 +64,8 @@ import static io.netty.handler.codec.http.HttpConstants.SP;
 import static io.netty.util.ByteProcessor.FIND_LF;
 import static io.servicetalk.buffer.api.CharSequences.emptyAsciiString;
 import static io.servicetalk.buffer.api.CharSequences.newAsciiString;
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferUtils.getByteBufAllocator;
 import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
 import static io.servicetalk.http.api.HeaderUtils.isTransferEncodingChunked;
@@ -125,6 +127,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
     private static final int CHUNK_DELIMETER_SIZE = 2; // CRLF
     private static final int MAX_ALLOWED_CHARS_TO_SKIP = CHUNK_DELIMETER_SIZE * 2; // Max allowed prefacing CRLF to skip
     private static final int MAX_ALLOWED_CHARS_TO_SKIP_PLUS_ONE = MAX_ALLOWED_CHARS_TO_SKIP + 1;
+    private static final ByteBufAllocator HEADERS_ALLOCATOR = getByteBufAllocator(DEFAULT_ALLOCATOR);
 
     private final int maxStartLineLength;
     private final int maxHeaderFieldLength;
@@ -141,6 +144,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
      * </pre>
      */
     private final boolean allowLFWithoutCR;
+    private final boolean pooled;
     @Nullable
     private T message;
     @Nullable
@@ -180,6 +184,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
                       final boolean allowPrematureClosureBeforePayloadBody, final boolean allowLFWithoutCR,
                       final CloseHandler closeHandler) {
         super(alloc);
+        this.pooled = alloc.isDirectBufferPooled();
         this.closeHandler = requireNonNull(closeHandler);
         if (maxStartLineLength <= 0) {
             throw new IllegalArgumentException("maxStartLineLength: " + maxStartLineLength + " (expected >0)");
@@ -672,8 +677,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
         if (nameEnd == nameStart) {
             throw newDecoderExceptionAtLine("Empty header name in line ", parsingLine);
         }
-        // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
-        final CharSequence name = newAsciiString(newBufferFrom(buffer.retainedSlice(nameStart, nameEnd - nameStart)));
+        final CharSequence name = newAsciiString(newBufferFrom(headerBytes(buffer, nameStart, nameEnd - nameStart)));
         final CharSequence value;
         try {
             final int valueStart;
@@ -683,8 +687,7 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
             } else {
                 final int valueEnd =
                         buffer.forEachByteDesc(valueStart, nonControlIndex - valueStart + 1, FIND_FIELD_VALUE);
-                // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
-                value = newAsciiString(newBufferFrom(buffer.retainedSlice(valueStart, valueEnd - valueStart + 1)));
+                value = newAsciiString(newBufferFrom(headerBytes(buffer, valueStart, valueEnd - valueStart + 1)));
             }
         } catch (IllegalCharacterException cause) {
             throw invalidHeaderValue(name, parsingLine, cause);
@@ -713,6 +716,15 @@ abstract class HttpObjectDecoder<T extends HttpMetaData> extends ByteToMessageDe
                 cause);
     }
 
+    private ByteBuf headerBytes(final ByteBuf buffer, final int index, final int length) {
+        if (pooled) {
+            // Headers are never released, so they must not reference pooled memory.
+            return HEADERS_ALLOCATOR.heapBuffer(length).writeBytes(buffer, index, length);
+        }
+        // We assume the allocator will not leak memory, and so we retain + slice to avoid copying data.
+        return buffer.retainedSlice(index, length);
+    }
+
     @Nullable
     private State readHeaders(final ByteBuf buffer) {
         final long longLFIndex = findCRLF(buffer, maxHeaderFieldLength, allowLFWithoutCR);
@@ -32,6 +32,7 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.EmptyHttpHeaders;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpHeaderNames;
 import io.servicetalk.http.api.HttpHeaderValues;
 import io.servicetalk.http.api.HttpHeaders;
@@ -43,6 +44,7 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
 import io.netty.util.concurrent.PromiseCombiner;
 
 import java.io.IOException;
@@ -60,6 +62,7 @@ import static io.netty.handler.codec.http.HttpConstants.CR;
 import static io.netty.handler.codec.http.HttpConstants.LF;
 import static io.netty.handler.codec.http.HttpConstants.SP;
 import static io.servicetalk.buffer.api.CharSequences.unwrapBuffer;
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
 import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.buffer.netty.BufferUtils.toByteBufNoThrow;
 import static io.servicetalk.http.api.HeaderUtils.isTransferEncodingChunked;
@@ -200,6 +203,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
             final Buffer stBuffer = (Buffer) msg;
             final int readableBytes = stBuffer.readableBytes();
             if (readableBytes <= 0) {
+                release(stBuffer);
                 ctx.write(EMPTY_BUFFER, promise);
             } else if (state == CONTENT_LEN_CHUNKED) {
                 PromiseCombiner promiseCombiner = new PromiseCombiner(ctx.executor());
@@ -208,6 +212,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
             } else if (state <= CONTENT_LEN_LARGEST_VALUE || state >= 0 && (state -= readableBytes) < 0) {
                 // state may be <0 if there is no content-length or transfer-encoding, so let this pass through, but if
                 // state would go negative (or already zeroed) then fail.
+                release(stBuffer);
                 tryTooMuchContent(ctx, readableBytes, promise);
             } else {
                 if (state == 0) {
@@ -215,6 +220,25 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
                 }
                 ctx.write(encodeAndRetain(stBuffer), promise);
             }
+        } else if (msg instanceof HttpFileRegion) {
+            final HttpFileRegion fileRegion = (HttpFileRegion) msg;
+            final long count = fileRegion.count();
+            if (count <= 0) {
+                ctx.write(EMPTY_BUFFER, promise);
+            } else if (state == CONTENT_LEN_CHUNKED) {
+                PromiseCombiner promiseCombiner = new PromiseCombiner(ctx.executor());
+                writeChunkSize(ctx, count, promiseCombiner);
+                promiseCombiner.add(ctx.write(new UserFileRegion(fileRegion)));
+                promiseCombiner.add(ctx.write(CRLF_BUF.duplicate()));
+                promiseCombiner.finish(promise);
+            } else if (state <= CONTENT_LEN_LARGEST_VALUE || state >= 0 && (state -= count) < 0) {
+                tryTooMuchContent(ctx, count, promise);
+            } else {
+                if (state == 0) {
+                    contentLenConsumed(ctx, promise);
+                }
+                ctx.write(new UserFileRegion(fileRegion), promise);
+            }
         } else if (msg instanceof HttpHeaders) {
             final boolean isChunked = state == CONTENT_LEN_CHUNKED;
             state = CONTENT_LEN_INIT;
@@ -244,7 +268,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
                 " attempted to write non-empty trailers: " + trailers));
     }
 
-    private void tryTooMuchContent(ChannelHandlerContext ctx, int bytes, ChannelPromise promise) {
+    private void tryTooMuchContent(ChannelHandlerContext ctx, long bytes, ChannelPromise promise) {
         if (state == CONTENT_LEN_EMPTY) {
             promise.tryFailure(new IOException("payload body must be empty, but write of: " + bytes +
                     " bytes attempted on channel: " + ctx.channel()));
@@ -389,16 +413,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
     private static void encodeChunkedContent(ChannelHandlerContext ctx, Buffer msg, long contentLength,
                                              PromiseCombiner promiseCombiner) {
         if (contentLength > 0) {
-            String lengthHex = toHexString(contentLength);
-            ByteBuf buf = ctx.alloc().directBuffer(lengthHex.length() + 2);
-            try {
-                buf.writeCharSequence(lengthHex, US_ASCII);
-                writeShortBE(buf, CRLF_SHORT);
-            } catch (Throwable e) {
-                buf.release();
-                throw e;
-            }
-            promiseCombiner.add(ctx.write(buf));
+            writeChunkSize(ctx, contentLength, promiseCombiner);
             promiseCombiner.add(ctx.write(encodeAndRetain(msg)));
             promiseCombiner.add(ctx.write(CRLF_BUF.duplicate()));
         } else {
@@ -409,6 +424,20 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
         }
     }
 
+    private static void writeChunkSize(ChannelHandlerContext ctx, long contentLength,
+                                       PromiseCombiner promiseCombiner) {
+        String lengthHex = toHexString(contentLength);
+        ByteBuf buf = ctx.alloc().directBuffer(lengthHex.length() + 2);
+        try {
+            buf.writeCharSequence(lengthHex, US_ASCII);
+            writeShortBE(buf, CRLF_SHORT);
+        } catch (Throwable e) {
+            buf.release();
+            throw e;
+        }
+        promiseCombiner.add(ctx.write(buf));
+    }
+
     private void encodeAndWriteTrailers(ChannelHandlerContext ctx, HttpHeaders headers, ChannelPromise promise) {
         if (headers.isEmpty()) {
             ctx.write(ZERO_CRLF_CRLF_BUF.duplicate(), promise);
@@ -480,13 +509,33 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelDuplexHa
     }
 
     static ByteBuf encodeAndRetain(Buffer msg) {
+        final ByteBuf byteBuf = toByteBuf(msg);
+        // Pooled memory is owned by the transport once it is written, and released after the write.
+        if (byteBuf.alloc().isDirectBufferPooled()) {
+            return byteBuf;
+        }
         // We still want to retain the objects we encode because otherwise folks may hold on to references of objects
         // with a 0 reference count and get an IllegalReferenceCountException.
-        return toByteBuf(msg).retain();
+        return byteBuf.retain();
     }
 
     private static ByteBuf toByteBuf(Buffer buffer) {
         ByteBuf byteBuf = toByteBufNoThrow(buffer);
         return byteBuf != null ? byteBuf : wrappedBuffer(buffer.toNioBuffer());
     }
+
+    /**
+     * A {@link DefaultFileRegion} which doesn't close the {@link HttpFileRegion#fileChannel()}, it is owned by the
+     * user.
+     */
+    private static final class UserFileRegion extends DefaultFileRegion {
+        UserFileRegion(final HttpFileRegion fileRegion) {
+            super(fileRegion.fileChannel(), fileRegion.position(), fileRegion.count());
+        }
+
+        @Override
+        protected void deallocate() {
+            // noop
+        }
+    }
 }
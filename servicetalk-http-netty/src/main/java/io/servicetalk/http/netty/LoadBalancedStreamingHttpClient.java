@@ -16,6 +16,8 @@
 package io.servicetalk.http.netty;
 
 import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.client.api.RequestTracker.ErrorClass;
 import io.servicetalk.concurrent.api.Completable;
 import io.servicetalk.concurrent.api.Single;
 import io.servicetalk.concurrent.api.TerminalSignalConsumer;
@@ -29,6 +31,7 @@ import io.servicetalk.http.api.HttpExecutionContext;
 import io.servicetalk.http.api.HttpExecutionStrategy;
 import io.servicetalk.http.api.HttpRequestMetaData;
 import io.servicetalk.http.api.HttpRequestMethod;
+import io.servicetalk.http.api.HttpResponseStatus;
 import io.servicetalk.http.api.ReservedStreamingHttpConnection;
 import io.servicetalk.http.api.StreamingHttpRequest;
 import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
@@ -41,12 +44,25 @@ import io.servicetalk.transport.api.IoThreadFactory.IoThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 
 import static io.servicetalk.client.api.RequestConcurrencyController.Result.Accepted;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.EXT_ORIGIN_REQUEST_FAILED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.EXT_ORIGIN_TIMEOUT;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.LOCAL_ORIGIN_CONNECT_FAILED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.LOCAL_ORIGIN_REQUEST_FAILED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.LOCAL_ORIGIN_TIMEOUT;
+import static io.servicetalk.client.api.RequestTracker.REQUEST_TRACKER_KEY;
 import static io.servicetalk.context.api.ContextMap.Key.newKey;
+import static io.servicetalk.http.api.HttpResponseStatus.GATEWAY_TIMEOUT;
+import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.SERVER_ERROR_5XX;
 import static io.servicetalk.http.netty.AbstractLifecycleObserverHttpFilter.ON_CONNECTION_SELECTED_CONSUMER;
 import static io.servicetalk.http.netty.AbstractStreamingHttpConnection.requestExecutionStrategy;
 import static io.servicetalk.http.netty.LoadBalancedStreamingHttpClient.OnStreamClosedRunnable.areStreamsSupported;
@@ -86,12 +102,13 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
         // correct.
         return loadBalancer.selectConnection(SELECTOR_FOR_REQUEST, request.context()).flatMap(c -> {
             notifyConnectionSelected(request, c);
+            final RequestTracker tracker = request.context().remove(REQUEST_TRACKER_KEY);
             final OnStreamClosedRunnable onStreamClosed = areStreamsSupported(c.connectionContext()) ?
                         new OnStreamClosedRunnable(c::requestFinished) : null;
                 if (onStreamClosed != null) {
                     request.context().put(OnStreamClosedRunnable.KEY, onStreamClosed);
                 }
-                return c.request(request)
+                Single<StreamingHttpResponse> response = c.request(request)
                         .liftSync(new BeforeFinallyHttpOperator(new TerminalSignalConsumer() {
                             // Still check ownership of the `onStreamClosed` inside all terminal events to mitigate
                             // scenarios when users didn't let it propagate down to HTTP/2 layer (cleared the request
@@ -132,7 +149,14 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
                                     c.requestFinished();
                                 }
                             }
-                        }))
+                        }));
+                if (tracker != null) {
+                    // The tracker is notified after the request is finished, so that the load balancer can rely on the
+                    // connection being able to accept a new request when the tracker is notified.
+                    final RequestTrackerSignalConsumer trackerConsumer = new RequestTrackerSignalConsumer(tracker);
+                    response = response.map(trackerConsumer).liftSync(new BeforeFinallyHttpOperator(trackerConsumer));
+                }
+                return response
                         // shareContextOnSubscribe is used because otherwise the AsyncContext modified during response
                         // meta data processing will not be visible during processing of the response payload for
                         // ConnectionFilters (it already is visible on ClientFilters).
@@ -157,9 +181,12 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
             final ContextMap context = metaData.context();
             final boolean forceNew = Boolean.TRUE.equals(context.get(HttpContextKeys.HTTP_FORCE_NEW_CONNECTION));
 
-            Single<FilterableStreamingHttpLoadBalancedConnection> connection = forceNew ?
+            Single<FilterableStreamingHttpLoadBalancedConnection> connection = (forceNew ?
                     loadBalancer.newConnection(context) :
-                    loadBalancer.selectConnection(SELECTOR_FOR_RESERVE, context);
+                    loadBalancer.selectConnection(SELECTOR_FOR_RESERVE, context))
+                    // Requests on reserved connections are not reported to the load balancer, don't leak its tracker
+                    // into the context which may be reused for later requests.
+                    .whenOnSuccess(__ -> context.remove(REQUEST_TRACKER_KEY));
 
             final HttpExecutionStrategy strategy = requestExecutionStrategy(metaData,
                     executionContext().executionStrategy());
@@ -204,6 +231,69 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
         return reqRespFactory.newRequest(method, requestTarget);
     }
 
+    /**
+     * Reports the outcome of a request to the {@link RequestTracker} provided by the {@link LoadBalancer}. Responses
+     * with a {@code 5xx} status code are reported as errors, even though the request itself completes successfully.
+     */
+    private static final class RequestTrackerSignalConsumer
+            implements TerminalSignalConsumer, Function<StreamingHttpResponse, StreamingHttpResponse> {
+
+        private final RequestTracker tracker;
+        private final long startTimeNs;
+        @Nullable
+        private ErrorClass responseErrorClass;
+
+        RequestTrackerSignalConsumer(final RequestTracker tracker) {
+            this.tracker = tracker;
+            this.startTimeNs = tracker.beforeStart();
+        }
+
+        @Override
+        public StreamingHttpResponse apply(final StreamingHttpResponse response) {
+            // Visibility for the terminal signal is guaranteed by the ordering of signals in the response stream.
+            responseErrorClass = classifyResponse(response.status());
+            return response;
+        }
+
+        @Override
+        public void onComplete() {
+            final ErrorClass errorClass = responseErrorClass;
+            if (errorClass == null) {
+                tracker.onSuccess(startTimeNs);
+            } else {
+                tracker.onError(startTimeNs, errorClass);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            tracker.onError(startTimeNs, classifyError(throwable));
+        }
+
+        @Override
+        public void cancel() {
+            tracker.onError(startTimeNs, CANCELLED);
+        }
+
+        @Nullable
+        private static ErrorClass classifyResponse(final HttpResponseStatus status) {
+            if (status.code() == GATEWAY_TIMEOUT.code()) {
+                return EXT_ORIGIN_TIMEOUT;
+            }
+            return SERVER_ERROR_5XX.contains(status) ? EXT_ORIGIN_REQUEST_FAILED : null;
+        }
+
+        private static ErrorClass classifyError(final Throwable cause) {
+            if (cause instanceof TimeoutException) {
+                return LOCAL_ORIGIN_TIMEOUT;
+            }
+            if (cause instanceof ConnectException) {
+                return LOCAL_ORIGIN_CONNECT_FAILED;
+            }
+            return LOCAL_ORIGIN_REQUEST_FAILED;
+        }
+    }
+
     /**
      * Special {@link Runnable} to correctly handle cancellation of HTTP/2 streams without closing the entire TCP
      * connection.
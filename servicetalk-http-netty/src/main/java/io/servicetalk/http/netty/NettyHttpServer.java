@@ -89,6 +89,7 @@ import static io.servicetalk.concurrent.api.AsyncCloseables.toListenableAsyncClo
 import static io.servicetalk.concurrent.api.Completable.defer;
 import static io.servicetalk.concurrent.api.Single.failed;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.http.api.HttpApiConversions.mayHaveFileRegion;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_2_0;
 import static io.servicetalk.http.api.StreamingHttpRequests.newTransportRequest;
@@ -96,6 +97,7 @@ import static io.servicetalk.http.netty.AbstractStreamingHttpConnection.isSafeTo
 import static io.servicetalk.http.netty.HeaderUtils.REQ_EXPECT_CONTINUE;
 import static io.servicetalk.http.netty.HeaderUtils.addResponseTransferEncodingIfNecessary;
 import static io.servicetalk.http.netty.HeaderUtils.canAddResponseContentLength;
+import static io.servicetalk.http.netty.HeaderUtils.drainMessageBody;
 import static io.servicetalk.http.netty.HeaderUtils.emptyMessageBody;
 import static io.servicetalk.http.netty.HeaderUtils.flatEmptyMessage;
 import static io.servicetalk.http.netty.HeaderUtils.setResponseContentLength;
@@ -106,6 +108,7 @@ import static io.servicetalk.transport.netty.internal.CloseHandler.CloseEvent.CH
 import static io.servicetalk.transport.netty.internal.CloseHandler.forPipelinedRequestResponse;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEnd;
 import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
+import static java.util.function.UnaryOperator.identity;
 
 final class NettyHttpServer {
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyHttpServer.class);
@@ -390,6 +393,11 @@ final class NettyHttpServer {
                             if (flushStrategy != null) {
                                 c = updateFlushStrategy((prev, isOriginal) -> isOriginal ? flushStrategy : prev);
                             }
+                            if (mayHaveFileRegion(response) && (protocol().major() > 1 || sslConfig() != null)) {
+                                // File regions can be written without copying only on cleartext HTTP/1.x
+                                // connections, otherwise they are read as memory-mapped buffers.
+                                response.transformPayloadBody(identity());
+                            }
                             Publisher<Object> pub = handleResponse(protocol(), requestMethod, response);
                             return (c == null ? pub : pub.beforeFinally(c::cancel))
                                     // No need to make a copy of the context while consuming response message body.
@@ -401,7 +409,7 @@ final class NettyHttpServer {
                             // Discarding the request payload body is an operation which should not impact the state of
                             // request/response processing. It's appropriate to recover from any error here.
                             // ST may introduce RejectedSubscribeError if user already consumed the request payload body
-                            requestCompletion : request.messageBody().ignoreElements().onErrorComplete())
+                            requestCompletion : drainMessageBody(request.messageBody()).onErrorComplete())
                             // No need to make a copy of the context in both cases.
                             .shareContextOnSubscribe()));
                 } else {
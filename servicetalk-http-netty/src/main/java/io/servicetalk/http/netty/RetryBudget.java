@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+import static io.servicetalk.utils.internal.DurationUtils.ensurePositive;
+import static java.time.Duration.ofSeconds;
+
+/**
+ * A budget that limits the number of retries to a ratio of the number of requests in a sliding time window.
+ * <p>
+ * Every request deposits {@code ratio} tokens and every retry withdraws one token, tokens expire at the end of the
+ * window. A reserve of {@code minRetriesPerSecond} allows clients with a low request rate to retry. When the servers
+ * fail all requests, the budget limits the additional load caused by retries to {@code ratio} of the requests, instead
+ * of multiplying it by the maximum number of retries per request.
+ * <p>
+ * A budget can be shared by multiple clients by passing the same instance to
+ * {@link RetryingHttpRequesterFilter.Builder#retryBudget(RetryBudget)}. Counters of the observed requests, retries and
+ * retries rejected by the budget are exposed for monitoring.
+ */
+public final class RetryBudget {
+    private static final AtomicLongFieldUpdater<RetryBudget> requestsUpdater =
+            AtomicLongFieldUpdater.newUpdater(RetryBudget.class, "requests");
+    private static final AtomicLongFieldUpdater<RetryBudget> retriesUpdater =
+            AtomicLongFieldUpdater.newUpdater(RetryBudget.class, "retries");
+    private static final AtomicLongFieldUpdater<RetryBudget> exhaustedUpdater =
+            AtomicLongFieldUpdater.newUpdater(RetryBudget.class, "exhausted");
+
+    private static final Duration DEFAULT_WINDOW = ofSeconds(10);
+    private static final double DEFAULT_RATIO = 0.2;
+    private static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+    private static final int SLOTS = 10;
+
+    private final double ratio;
+    private final long reserve;
+    private final WindowedCounter windowRequests;
+    private final WindowedCounter windowRetries;
+    private volatile long requests;
+    private volatile long retries;
+    private volatile long exhausted;
+
+    RetryBudget(final double ratio, final long windowNanos, final int minRetriesPerSecond,
+                final LongSupplier currentTimeNanos) {
+        this.ratio = ratio;
+        this.reserve = (long) (minRetriesPerSecond * (windowNanos / 1e9));
+        final long slotNanos = Math.max(1, windowNanos / SLOTS);
+        this.windowRequests = new WindowedCounter(slotNanos, currentTimeNanos);
+        this.windowRetries = new WindowedCounter(slotNanos, currentTimeNanos);
+    }
+
+    /**
+     * Records a request, which deposits {@code ratio} tokens into the budget.
+     */
+    void onRequest() {
+        requestsUpdater.incrementAndGet(this);
+        windowRequests.increment();
+    }
+
+    /**
+     * Withdraws a token for a retry, if the budget allows for one more retry.
+     *
+     * @return {@code true} if the retry is allowed.
+     */
+    boolean tryRetry() {
+        // The check and the withdrawal are not atomic, concurrent retries can exceed the budget by a few tokens.
+        if (windowRetries.sum() + 1 > windowRequests.sum() * ratio + reserve) {
+            exhaustedUpdater.incrementAndGet(this);
+            return false;
+        }
+        retriesUpdater.incrementAndGet(this);
+        windowRetries.increment();
+        return true;
+    }
+
+    /**
+     * Returns the total number of requests observed by this budget.
+     *
+     * @return the total number of requests observed by this budget.
+     */
+    public long requests() {
+        return requests;
+    }
+
+    /**
+     * Returns the total number of retries allowed by this budget.
+     *
+     * @return the total number of retries allowed by this budget.
+     */
+    public long retries() {
+        return retries;
+    }
+
+    /**
+     * Returns the total number of retries rejected because the budget was exhausted.
+     *
+     * @return the total number of retries rejected because the budget was exhausted.
+     */
+    public long exhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBudget{" +
+                "ratio=" + ratio +
+                ", reserve=" + reserve +
+                ", requests=" + requests +
+                ", retries=" + retries +
+                ", exhausted=" + exhausted +
+                '}';
+    }
+
+    /**
+     * A lock-free counter of the events in a sliding window, which is divided into {@link #SLOTS} slots. Every slot
+     * packs the time slice it counts for into the upper and the count into the lower 32 bits.
+     */
+    private static final class WindowedCounter {
+        private static final long MASK = 0xFFFFFFFFL;
+
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+        private final long slotNanos;
+        private final LongSupplier currentTimeNanos;
+
+        WindowedCounter(final long slotNanos, final LongSupplier currentTimeNanos) {
+            this.slotNanos = slotNanos;
+            this.currentTimeNanos = currentTimeNanos;
+        }
+
+        void increment() {
+            final long slice = currentSlice();
+            final int index = (int) (slice % SLOTS);
+            for (;;) {
+                final long current = slots.get(index);
+                final long next;
+                if (current >>> 32 == slice) {
+                    if ((current & MASK) == MASK) {
+                        // The count is saturated.
+                        return;
+                    }
+                    next = current + 1;
+                } else {
+                    next = slice << 32 | 1;
+                }
+                if (slots.compareAndSet(index, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        long sum() {
+            final long slice = currentSlice();
+            long sum = 0;
+            for (int i = 0; i < SLOTS; ++i) {
+                final long value = slots.get(i);
+                // Slots that were not updated within the window are stale.
+                if (((slice - (value >>> 32)) & MASK) < SLOTS) {
+                    sum += value & MASK;
+                }
+            }
+            return sum;
+        }
+
+        private long currentSlice() {
+            // Only the lower 32 bits are kept, the slices wrap around after 2^32 slots.
+            return (currentTimeNanos.getAsLong() / slotNanos) & MASK;
+        }
+    }
+
+    /**
+     * A builder for {@link RetryBudget}.
+     */
+    public static final class Builder {
+        private double ratio = DEFAULT_RATIO;
+        private Duration window = DEFAULT_WINDOW;
+        private int minRetriesPerSecond = DEFAULT_MIN_RETRIES_PER_SECOND;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the maximum ratio of retries to requests.
+         *
+         * @param ratio the maximum ratio of retries to requests, {@code 0.2} allows one retry per five requests.
+         * @return {@code this}.
+         */
+        public Builder ratio(final double ratio) {
+            if (!(ratio >= 0) || Double.isInfinite(ratio)) {
+                throw new IllegalArgumentException("ratio: " + ratio + " (expected >=0)");
+            }
+            this.ratio = ratio;
+            return this;
+        }
+
+        /**
+         * Sets the duration of the sliding window in which requests and retries are counted.
+         *
+         * @param window the duration of the sliding window.
+         * @return {@code this}.
+         */
+        public Builder window(final Duration window) {
+            this.window = ensurePositive(window, "window");
+            return this;
+        }
+
+        /**
+         * Sets the number of retries per second that are allowed regardless of the number of requests.
+         *
+         * @param minRetriesPerSecond the number of retries per second that are allowed regardless of the number of
+         * requests.
+         * @return {@code this}.
+         */
+        public Builder minRetriesPerSecond(final int minRetriesPerSecond) {
+            if (minRetriesPerSecond < 0) {
+                throw new IllegalArgumentException("minRetriesPerSecond: " + minRetriesPerSecond +
+                        " (expected >=0)");
+            }
+            this.minRetriesPerSecond = minRetriesPerSecond;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link RetryBudget}.
+         *
+         * @return a new {@link RetryBudget}.
+         */
+        public RetryBudget build() {
+            return new RetryBudget(ratio, window.toNanos(), minRetriesPerSecond, System::nanoTime);
+        }
+    }
+}
@@ -43,6 +43,9 @@ import io.servicetalk.transport.api.ExecutionContext;
 import io.servicetalk.transport.api.ExecutionStrategyInfluencer;
 import io.servicetalk.transport.api.RetryableException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.time.Duration;
 import java.util.function.BiFunction;
@@ -52,6 +55,7 @@ import javax.annotation.Nullable;
 import static io.servicetalk.concurrent.api.AsyncCloseables.emptyAsyncCloseable;
 import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
 import static io.servicetalk.concurrent.api.Completable.completed;
+import static io.servicetalk.concurrent.api.Completable.defer;
 import static io.servicetalk.concurrent.api.Completable.failed;
 import static io.servicetalk.concurrent.api.RetryStrategies.retryWithConstantBackoffDeltaJitter;
 import static io.servicetalk.concurrent.api.RetryStrategies.retryWithConstantBackoffFullJitter;
@@ -63,6 +67,7 @@ import static io.servicetalk.http.api.HttpContextKeys.HTTP_EXECUTION_STRATEGY_KE
 import static io.servicetalk.http.api.HttpHeaderNames.EXPECT;
 import static io.servicetalk.http.api.HttpHeaderValues.CONTINUE;
 import static io.servicetalk.http.api.HttpResponseStatus.EXPECTATION_FAILED;
+import static io.servicetalk.http.netty.HeaderUtils.drainMessageBody;
 import static io.servicetalk.http.netty.RetryingHttpRequesterFilter.BackOffPolicy.NO_RETRIES;
 import static io.servicetalk.utils.internal.DurationUtils.ensurePositive;
 import static java.time.Duration.ofDays;
@@ -78,18 +83,20 @@ import static java.util.Objects.requireNonNull;
  * {@link Builder#retryOther(BiFunction)}).
  * Similarly, max-retries for each flow can be set in the {@link BackOffPolicy}, as well
  * as a total max-retries to be respected by both flows, as set in
- * {@link Builder#maxTotalRetries(int)}.
+ * {@link Builder#maxTotalRetries(int)}. Retries across all requests can be limited to a ratio of the requests by a
+ * {@link RetryBudget}, as set in {@link Builder#retryBudget(RetryBudget)}.
  * @see RetryStrategies
  */
 public final class RetryingHttpRequesterFilter
         implements StreamingHttpClientFilterFactory, ExecutionStrategyInfluencer<HttpExecutionStrategy> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingHttpRequesterFilter.class);
     private static final int DEFAULT_MAX_TOTAL_RETRIES = 4;
     private static final RetryingHttpRequesterFilter DISABLE_AUTO_RETRIES =
             new RetryingHttpRequesterFilter(true, false, 1, null,
-                    (__, ___) -> NO_RETRIES);
+                    (__, ___) -> NO_RETRIES, null);
     private static final RetryingHttpRequesterFilter DISABLE_ALL_RETRIES =
             new RetryingHttpRequesterFilter(false, true, 0, null,
-                    (__, ___) -> NO_RETRIES);
+                    (__, ___) -> NO_RETRIES, null);
 
     private final boolean waitForLb;
     private final boolean ignoreSdErrors;
@@ -97,16 +104,20 @@ public final class RetryingHttpRequesterFilter
     @Nullable
     private final Function<HttpResponseMetaData, HttpResponseException> responseMapper;
     private final BiFunction<HttpRequestMetaData, Throwable, BackOffPolicy> retryFor;
+    @Nullable
+    private final RetryBudget retryBudget;
 
     RetryingHttpRequesterFilter(
             final boolean waitForLb, final boolean ignoreSdErrors, final int maxTotalRetries,
             @Nullable final Function<HttpResponseMetaData, HttpResponseException> responseMapper,
-            final BiFunction<HttpRequestMetaData, Throwable, BackOffPolicy> retryFor) {
+            final BiFunction<HttpRequestMetaData, Throwable, BackOffPolicy> retryFor,
+            @Nullable final RetryBudget retryBudget) {
         this.waitForLb = waitForLb;
         this.ignoreSdErrors = ignoreSdErrors;
         this.maxTotalRetries = maxTotalRetries;
         this.responseMapper = responseMapper;
         this.retryFor = retryFor;
+        this.retryBudget = retryBudget;
     }
 
     @Override
@@ -188,13 +199,25 @@ public final class RetryingHttpRequesterFilter
                 final BackOffPolicy backOffPolicy = retryFor.apply(requestMetaData, t);
                 if (backOffPolicy != NO_RETRIES) {
                     final int offsetCount = count - lbNotReadyCount;
+                    Completable retry = backOffPolicy.newStrategy(executor).apply(offsetCount, t);
+                    if (retryBudget != null) {
+                        // Withdraw from the budget only once the policy decided to retry, retries rejected by the
+                        // policy must not drain the budget.
+                        retry = retry.concat(defer(() -> {
+                            if (retryBudget.tryRetry()) {
+                                return completed();
+                            }
+                            LOGGER.debug("Retry budget exhausted, not retrying request {}: {}.", requestMetaData,
+                                    retryBudget, t);
+                            return failed(t);
+                        }));
+                    }
                     if (t instanceof DelayedRetry) {
                         final Duration constant = ((DelayedRetry) t).delay();
-                        return backOffPolicy.newStrategy(executor).apply(offsetCount, t)
-                                .concat(executor.timer(constant));
+                        return retry.concat(executor.timer(constant));
                     }
 
-                    return backOffPolicy.newStrategy(executor).apply(offsetCount, t);
+                    return retry;
                 }
 
                 return failed(t);
@@ -214,8 +237,8 @@ public final class RetryingHttpRequesterFilter
         @Override
         public Single<? extends FilterableReservedStreamingHttpConnection> reserveConnection(
                 final HttpRequestMetaData metaData) {
-            return delegate().reserveConnection(metaData)
-                    .retryWhen(retryStrategy(metaData, executionContext()));
+            return withRetryBudget(delegate().reserveConnection(metaData)
+                    .retryWhen(retryStrategy(metaData, executionContext())));
         }
 
         @Override
@@ -227,12 +250,17 @@ public final class RetryingHttpRequesterFilter
                     final HttpResponseException exception = responseMapper.apply(resp);
                     return exception != null ?
                             // Drain response payload body before discarding it:
-                            resp.payloadBody().ignoreElements().onErrorComplete().concat(Single.failed(exception)) :
+                            drainMessageBody(resp.payloadBody()).onErrorComplete().concat(Single.failed(exception)) :
                             Single.succeeded(resp);
                 });
             }
 
-            return single.retryWhen(retryStrategy(request, executionContext()));
+            return withRetryBudget(single.retryWhen(retryStrategy(request, executionContext())));
+        }
+
+        private <T> Single<T> withRetryBudget(final Single<T> single) {
+            // Every subscribe is an original request, retries re-subscribe to the source before retryWhen.
+            return retryBudget == null ? single : single.beforeOnSubscribe(__ -> retryBudget.onRequest());
         }
 
         @Override
@@ -674,6 +702,9 @@ public final class RetryingHttpRequesterFilter
         private BiFunction<HttpRequestMetaData, Throwable, BackOffPolicy>
                 retryOther;
 
+        @Nullable
+        private RetryBudget retryBudget;
+
         /**
          * By default, automatic retries wait for the associated {@link LoadBalancer} to be
          * {@link LoadBalancerReadyEvent ready} before triggering a retry for requests. This behavior may add latency to
@@ -836,6 +867,23 @@ public final class RetryingHttpRequesterFilter
             return this;
         }
 
+        /**
+         * Limits the retries across all requests to a ratio of the requests, in addition to the per request limit
+         * set by {@link #maxTotalRetries(int)}.
+         * <p>
+         * Without a budget, every request that fails is retried when the servers are unavailable or overloaded, which
+         * multiplies the load on the servers. A retry that is rejected by the budget fails the request with the
+         * original error. Retries while waiting for the {@link LoadBalancer} to become ready do not count towards the
+         * budget. The same {@link RetryBudget} can be passed to the builders of multiple clients to share the budget.
+         *
+         * @param retryBudget the {@link RetryBudget} to use.
+         * @return {@code this}.
+         */
+        public Builder retryBudget(final RetryBudget retryBudget) {
+            this.retryBudget = requireNonNull(retryBudget);
+            return this;
+        }
+
         /**
          * Builds a retrying {@link RetryingHttpRequesterFilter} with this' builders configuration.
          *
@@ -912,7 +960,7 @@ public final class RetryingHttpRequesterFilter
                         return NO_RETRIES;
                     };
             return new RetryingHttpRequesterFilter(waitForLb, ignoreSdErrors, maxTotalRetries, responseMapper,
-                    allPredicate);
+                    allPredicate, retryBudget);
         }
     }
 }
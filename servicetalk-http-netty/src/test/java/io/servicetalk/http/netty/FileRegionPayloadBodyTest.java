@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.netty.AbstractNettyHttpServerTest.ExecutorSupplier.CACHED;
+import static io.servicetalk.http.netty.AbstractNettyHttpServerTest.ExecutorSupplier.CACHED_SERVER;
+import static io.servicetalk.http.netty.HttpProtocol.HTTP_1;
+import static io.servicetalk.http.netty.HttpProtocol.HTTP_2;
+import static java.lang.String.valueOf;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+class FileRegionPayloadBodyTest extends AbstractNettyHttpServerTest {
+
+    private static final int FILE_SIZE = 1024 * 1024 + 13;
+    private static final int POSITION = 7;
+    private static final int COUNT = FILE_SIZE - 2 * POSITION;
+
+    private final byte[] content = new byte[FILE_SIZE];
+    @Nullable
+    private Path file;
+    @Nullable
+    private FileChannel fileChannel;
+    private boolean setContentLength;
+
+    private void setUp(HttpProtocol protocol, boolean sslEnabled, boolean setContentLength) throws Exception {
+        ThreadLocalRandom.current().nextBytes(content);
+        file = Files.createTempFile("servicetalk", ".bin");
+        Files.write(file, content);
+        fileChannel = FileChannel.open(file, READ);
+        this.setContentLength = setContentLength;
+        protocol(protocol.config);
+        sslEnabled(sslEnabled);
+        setUp(CACHED, CACHED_SERVER);
+    }
+
+    @AfterEach
+    void deleteFile() throws Exception {
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+        if (file != null) {
+            Files.delete(file);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static List<Arguments> data() {
+        List<Arguments> list = new ArrayList<>();
+        for (boolean setContentLength : new boolean[] {false, true}) {
+            // Zero-copy write
+            list.add(Arguments.of(HTTP_1, false, setContentLength));
+            // Memory-mapped reads
+            list.add(Arguments.of(HTTP_1, true, setContentLength));
+            list.add(Arguments.of(HTTP_2, false, setContentLength));
+        }
+        return list;
+    }
+
+    @Override
+    protected void service(final StreamingHttpService __) {
+        super.service((ctx, request, factory) -> {
+            assert fileChannel != null;
+            final StreamingHttpResponse response = factory.ok().payloadBody(fileChannel, POSITION, COUNT);
+            if (setContentLength) {
+                response.setHeader(CONTENT_LENGTH, valueOf(COUNT));
+            }
+            return succeeded(response);
+        });
+    }
+
+    @ParameterizedTest(name = "{displayName} [{index}] protocol={0} sslEnabled={1} setContentLength={2}")
+    @MethodSource("data")
+    void fileRegionIsWritten(HttpProtocol protocol, boolean sslEnabled, boolean setContentLength) throws Exception {
+        setUp(protocol, sslEnabled, setContentLength);
+        // Multiple requests verify the FileChannel is not closed after a response is written.
+        for (int i = 0; i < 3; ++i) {
+            HttpResponse response = makeRequest(streamingHttpConnection().get("/")).toResponse().toFuture().get();
+            assertThat(response.status(), is(OK));
+            byte[] actual = new byte[response.payloadBody().readableBytes()];
+            response.payloadBody().readBytes(actual);
+            assertThat(actual, equalTo(Arrays.copyOfRange(content, POSITION, POSITION + COUNT)));
+        }
+    }
+}
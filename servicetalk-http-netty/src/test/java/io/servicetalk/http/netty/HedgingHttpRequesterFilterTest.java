@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.api.AsyncCloseables;
+import io.servicetalk.concurrent.api.CompositeCloseable;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.transport.api.ServerContext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.servicetalk.http.netty.HttpClients.forSingleAddress;
+import static io.servicetalk.http.netty.HttpServers.forAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HedgingHttpRequesterFilterTest {
+
+    private static final Duration SLOW_RESPONSE_DELAY = ofSeconds(1);
+    private static final String ATTEMPT_HEADER = "attempt";
+
+    // Counts the requests per request target, only the first request to every target is slow. Further requests to
+    // targets starting with "/unavailable" fail fast. Every response carries the number of the request it answers.
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final ServerContext serverContext;
+    @Nullable
+    private BlockingHttpClient client;
+
+    HedgingHttpRequesterFilterTest() throws Exception {
+        serverContext = forAddress(localAddress(0))
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> {
+                    final int count = requests.computeIfAbsent(request.requestTarget(), __ -> new AtomicInteger())
+                            .incrementAndGet();
+                    final String attempt = String.valueOf(count);
+                    if (count == 1) {
+                        return ctx.executionContext().executor().timer(SLOW_RESPONSE_DELAY)
+                                .concat(succeeded(responseFactory.ok().setHeader(ATTEMPT_HEADER, attempt)));
+                    }
+                    return succeeded((request.requestTarget().startsWith("/unavailable") ?
+                            responseFactory.serviceUnavailable() : responseFactory.ok())
+                            .setHeader(ATTEMPT_HEADER, attempt));
+                });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        CompositeCloseable closeable = AsyncCloseables.newCompositeCloseable();
+        if (client != null) {
+            closeable.append(client.asClient());
+        }
+        closeable.append(serverContext);
+        closeable.close();
+    }
+
+    @Test
+    void slowRequestIsHedged() throws Exception {
+        client = newClient(new HedgingHttpRequesterFilter.Builder().delay(ofMillis(10)).build());
+        final HttpResponse response = client.request(client.get("/slow"));
+        assertThat(response.status(), is(OK));
+        // The duplicate answered, the slow original request was cancelled.
+        assertThat(response.headers().get(ATTEMPT_HEADER).toString(), is("2"));
+        assertThat(requests.get("/slow").get(), is(2));
+    }
+
+    @Test
+    void unsuccessfulResponseDoesNotWin() throws Exception {
+        client = newClient(new HedgingHttpRequesterFilter.Builder().delay(ofMillis(10)).build());
+        final HttpResponse response = client.request(client.get("/unavailable"));
+        assertThat(response.status(), is(OK));
+        assertThat(response.headers().get(ATTEMPT_HEADER).toString(), is("1"));
+        assertThat(requests.get("/unavailable").get(), is(2));
+    }
+
+    @Test
+    void acceptedResponseWins() throws Exception {
+        client = newClient(new HedgingHttpRequesterFilter.Builder()
+                .delay(ofMillis(10))
+                .acceptResponses(__ -> true)
+                .build());
+        final HttpResponse response = client.request(client.get("/unavailable-accepted"));
+        assertThat(response.status(), is(SERVICE_UNAVAILABLE));
+        assertThat(response.headers().get(ATTEMPT_HEADER).toString(), is("2"));
+        assertThat(requests.get("/unavailable-accepted").get(), is(2));
+    }
+
+    @Test
+    void nonIdempotentRequestIsNotHedged() throws Exception {
+        client = newClient(new HedgingHttpRequesterFilter.Builder().delay(ofMillis(10)).build());
+        final HttpResponse response = client.request(client.post("/post"));
+        assertThat(response.status(), is(OK));
+        assertThat(requests.get("/post").get(), is(1));
+    }
+
+    @Test
+    void exhaustedBudgetPreventsHedging() throws Exception {
+        client = newClient(new HedgingHttpRequesterFilter.Builder()
+                .delay(ofMillis(10))
+                .budget(0, 1)
+                .build());
+        assertThat(client.request(client.get("/first")).status(), is(OK));
+        assertThat(requests.get("/first").get(), is(2));
+
+        assertThat(client.request(client.get("/second")).status(), is(OK));
+        assertThat(requests.get("/second").get(), is(1));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgingHttpRequesterFilter.Builder()
+                .delayPercentile(1, ofMillis(10)));
+        assertThrows(IllegalArgumentException.class, () -> new HedgingHttpRequesterFilter.Builder()
+                .budget(1.5, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HedgingHttpRequesterFilter.Builder()
+                .budget(0.1, 0));
+    }
+
+    private BlockingHttpClient newClient(final HedgingHttpRequesterFilter filter) {
+        return forSingleAddress(serverHostAndPort(serverContext))
+                .appendClientFilter(filter)
+                .buildBlocking();
+    }
+}
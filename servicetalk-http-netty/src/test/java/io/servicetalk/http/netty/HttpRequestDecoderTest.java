@@ -15,12 +15,14 @@
  */
 package io.servicetalk.http.netty;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.DefaultHttpHeadersFactory;
 import io.servicetalk.http.api.HttpMetaData;
 import io.servicetalk.http.api.HttpProtocolVersion;
 import io.servicetalk.http.api.HttpRequestMetaData;
 import io.servicetalk.http.api.HttpRequestMethod;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.DecoderException;
 import org.junit.jupiter.api.Test;
@@ -30,6 +32,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.POOLED_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
 import static io.servicetalk.buffer.netty.BufferUtils.getByteBufAllocator;
 import static io.servicetalk.http.api.HttpHeaderNames.HOST;
 import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
@@ -38,6 +42,7 @@ import static io.servicetalk.http.api.HttpRequestMethod.POST;
 import static io.servicetalk.http.api.HttpRequestMethod.Properties.NONE;
 import static io.servicetalk.transport.netty.internal.CloseHandler.UNSUPPORTED_PROTOCOL_CLOSE_HANDLER;
 import static java.lang.Integer.toHexString;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
@@ -46,6 +51,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HttpRequestDecoderTest extends HttpObjectDecoderTest {
 
@@ -281,6 +287,33 @@ class HttpRequestDecoderTest extends HttpObjectDecoderTest {
         assertFalse(channel.finishAndReleaseAll());
     }
 
+    @Test
+    void pooledAllocatorReleasesReadBufferWithPayload() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(new ArrayDeque<>(),
+                getByteBufAllocator(POOLED_ALLOCATOR), DefaultHttpHeadersFactory.INSTANCE, 8192, 8192, false, false,
+                UNSUPPORTED_PROTOCOL_CLOSE_HANDLER));
+        ByteBuf msg = getByteBufAllocator(POOLED_ALLOCATOR).buffer();
+        msg.writeCharSequence("POST /some/path HTTP/1.1" + "\r\n" +
+                "Host: servicetalk.io" + "\r\n" +
+                "Connection: keep-alive" + "\r\n" +
+                "Content-Length: 4" + "\r\n" + "\r\n" +
+                "test", US_ASCII);
+        channel.writeInbound(msg);
+
+        HttpMetaData metaData = assertStartLineForContent(channel);
+        Buffer payload = channel.readInbound();
+        assertThat(payload.toString(US_ASCII), equalTo("test"));
+        assertEmptyTrailers(channel);
+        assertFalse(channel.finishAndReleaseAll());
+
+        // The payload retains the read buffer until it is released by the application.
+        assertThat(msg.refCnt(), is(1));
+        assertTrue(release(payload));
+        assertThat(msg.refCnt(), is(0));
+        // Headers are copied and stay readable after the read buffer is released.
+        assertStandardHeaders(metaData.headers());
+    }
+
     @Test
     void unexpectedContentAfterNoContentHeaders() {
         writeMsg("POST /some/path HTTP/1.1" + "\r\n" +
@@ -17,13 +17,17 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.concurrent.internal.TestTimeoutConstants;
 import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.BlockingHttpConnection;
 import io.servicetalk.http.api.HttpRequest;
 import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.transport.api.IoExecutor;
 import io.servicetalk.transport.api.ServerContext;
 import io.servicetalk.transport.netty.internal.EventLoopAwareNettyIoExecutor;
 import io.servicetalk.transport.netty.internal.IoUringUtils;
 import io.servicetalk.transport.netty.internal.NettyIoExecutors;
 
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.incubator.channel.uring.IOUring;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
 import org.junit.jupiter.api.Test;
@@ -31,18 +35,35 @@ import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.net.SocketOption;
+import java.util.ArrayList;
+import java.util.List;
+
 import static io.servicetalk.http.api.HttpExecutionStrategies.defaultStrategy;
 import static io.servicetalk.http.api.HttpExecutionStrategies.offloadNone;
 import static io.servicetalk.http.api.HttpResponseStatus.OK;
 import static io.servicetalk.http.api.HttpSerializers.textSerializerUtf8;
 import static io.servicetalk.http.netty.TestServiceStreaming.SVC_ECHO;
+import static io.servicetalk.transport.api.IoTransport.EPOLL;
+import static io.servicetalk.transport.api.IoTransport.IO_URING;
+import static io.servicetalk.transport.api.ServiceTalkSocketOptions.CONNECT_TIMEOUT;
+import static io.servicetalk.transport.api.ServiceTalkSocketOptions.IDLE_TIMEOUT;
+import static io.servicetalk.transport.api.ServiceTalkSocketOptions.WRITE_BUFFER_THRESHOLD;
 import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
 import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static java.lang.String.valueOf;
+import static java.net.StandardSocketOptions.SO_KEEPALIVE;
+import static java.net.StandardSocketOptions.SO_REUSEADDR;
+import static java.net.StandardSocketOptions.TCP_NODELAY;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.joining;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.junit.jupiter.api.condition.OS.LINUX;
 import static org.junit.jupiter.api.condition.OS.MAC;
@@ -98,4 +119,101 @@ class IoUringTest {
             }
         }
     }
+
+    @Test
+    @EnabledOnOs(LINUX)
+    void ioUringCanBeSelectedExplicitly() throws Exception {
+        assumeTrue(TestTimeoutConstants.CI || IOUring.isAvailable(), "io_uring is unavailable on " +
+                System.getProperty("os.name") + ' ' + System.getProperty("os.version"));
+        IOUring.ensureAvailability();
+
+        EventLoopAwareNettyIoExecutor ioUringExecutor = NettyIoExecutors.createIoExecutor(2, "io-uring", IO_URING);
+        try {
+            assertThat(ioUringExecutor.eventLoopGroup(), is(instanceOf(IOUringEventLoopGroup.class)));
+            try (ServerContext serverContext = HttpServers.forAddress(localAddress(0))
+                    .ioExecutor(ioUringExecutor)
+                    .listenStreamingAndAwait(new TestServiceStreaming());
+                 BlockingHttpClient client = HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                         .ioExecutor(ioUringExecutor)
+                         .buildBlocking()) {
+                HttpResponse response = client.request(client.post(SVC_ECHO)
+                        .payloadBody("bonjour!", textSerializerUtf8()));
+                assertThat(response.status(), is(OK));
+                assertThat(response.payloadBody(textSerializerUtf8()), is("bonjour!"));
+            }
+        } finally {
+            ioUringExecutor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test
+    @EnabledOnOs(MAC)
+    void ioUringFallsBackOnMacOs() throws Exception {
+        EventLoopAwareNettyIoExecutor executor = NettyIoExecutors.createIoExecutor(1, "io-uring", IO_URING);
+        try {
+            assertThat(executor.eventLoopGroup(), is(not(instanceOf(IOUringEventLoopGroup.class))));
+        } finally {
+            executor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test
+    @EnabledOnOs(LINUX)
+    void ioUringFallsBackToEpollWhenUnavailable() throws Exception {
+        assumeFalse(IOUring.isAvailable(), "io_uring is available");
+        assumeTrue(Epoll.isAvailable(), "epoll is unavailable");
+        EventLoopAwareNettyIoExecutor executor = NettyIoExecutors.createIoExecutor(1, "io-uring", IO_URING);
+        try {
+            assertThat(executor.eventLoopGroup(), is(instanceOf(EpollEventLoopGroup.class)));
+        } finally {
+            executor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test
+    @EnabledOnOs(LINUX)
+    void socketOptionsParityWithEpoll() throws Exception {
+        assumeTrue(TestTimeoutConstants.CI || IOUring.isAvailable(), "io_uring is unavailable on " +
+                System.getProperty("os.name") + ' ' + System.getProperty("os.version"));
+        IOUring.ensureAvailability();
+        Epoll.ensureAvailability();
+
+        EventLoopAwareNettyIoExecutor ioUringExecutor = NettyIoExecutors.createIoExecutor(1, "io-uring", IO_URING);
+        EventLoopAwareNettyIoExecutor epollExecutor = NettyIoExecutors.createIoExecutor(1, "epoll", EPOLL);
+        try {
+            assertThat(epollExecutor.eventLoopGroup(), is(instanceOf(EpollEventLoopGroup.class)));
+            assertThat(socketOptions(ioUringExecutor), is(socketOptions(epollExecutor)));
+        } finally {
+            ioUringExecutor.closeAsync().toFuture().get();
+            epollExecutor.closeAsync().toFuture().get();
+        }
+    }
+
+    private static List<Object> socketOptions(IoExecutor ioExecutor) throws Exception {
+        final List<SocketOption<?>> options = asList(TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR,
+                CONNECT_TIMEOUT, WRITE_BUFFER_THRESHOLD, IDLE_TIMEOUT);
+        try (ServerContext serverContext = HttpServers.forAddress(localAddress(0))
+                .ioExecutor(ioExecutor)
+                .socketOption(SO_REUSEADDR, true)
+                .socketOption(IDLE_TIMEOUT, 30000L)
+                .listenBlockingAndAwait((ctx, request, responseFactory) -> responseFactory.ok()
+                        .payloadBody(options.stream().map(o -> valueOf(ctx.socketOption(o)))
+                                .collect(joining(",")), textSerializerUtf8()));
+             BlockingHttpClient client = HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                     .ioExecutor(ioExecutor)
+                     .socketOption(TCP_NODELAY, true)
+                     .socketOption(SO_KEEPALIVE, true)
+                     .socketOption(CONNECT_TIMEOUT, 5000)
+                     .socketOption(WRITE_BUFFER_THRESHOLD, 64 * 1024)
+                     .socketOption(IDLE_TIMEOUT, 30000L)
+                     .buildBlocking();
+             BlockingHttpConnection connection = client.reserveConnection(client.get("/"))) {
+            final List<Object> values = new ArrayList<>();
+            for (SocketOption<?> option : options) {
+                values.add(connection.connectionContext().socketOption(option));
+            }
+            values.add(connection.request(connection.get("/")).payloadBody(textSerializerUtf8()));
+            return values;
+        }
+    }
 }
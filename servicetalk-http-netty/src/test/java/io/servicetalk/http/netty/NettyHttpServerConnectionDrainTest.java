@@ -26,16 +26,24 @@ import io.servicetalk.transport.api.ServerContext;
 import io.servicetalk.transport.netty.internal.AddressUtils;
 
 import io.netty.util.CharsetUtil;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetector.Level;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.buffer.netty.BufferAllocators.POOLED_ALLOCATOR;
+import static io.servicetalk.buffer.netty.BufferUtils.toByteBuf;
 import static io.servicetalk.concurrent.api.Publisher.from;
 import static io.servicetalk.concurrent.api.Single.succeeded;
 import static io.servicetalk.concurrent.internal.FutureUtils.awaitTermination;
@@ -45,12 +53,17 @@ import static io.servicetalk.http.api.HttpSerializers.textSerializerUtf8;
 import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class NettyHttpServerConnectionDrainTest {
     private static final String LARGE_TEXT;
 
+    private static Level level;
+
     static {
         int capacity = 1_000_000;
         ThreadLocalRandom rnd = ThreadLocalRandom.current();
@@ -61,6 +74,17 @@ class NettyHttpServerConnectionDrainTest {
         LARGE_TEXT = sb.toString();
     }
 
+    @BeforeAll
+    static void setUp() {
+        level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(Level.PARANOID);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ResourceLeakDetector.setLevel(level);
+    }
+
     @Disabled("https://github.com/apple/servicetalk/issues/981")
     @Test
     void requestIsAutoDrainedWhenUserFailsToConsume() throws Exception {
@@ -107,6 +131,30 @@ class NettyHttpServerConnectionDrainTest {
         }
     }
 
+    @Test
+    void pooledRequestIsReleasedWhenAutoDrained() throws Exception {
+        List<Integer> refCounts = new CopyOnWriteArrayList<>();
+        CountDownLatch drainedLatch = new CountDownLatch(1);
+        try (ServerContext serverContext = HttpServers.forAddress(AddressUtils.localAddress(0))
+                .bufferAllocator(POOLED_ALLOCATOR)
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> {
+                    // Observe the payload consumed by the auto-draining, the service never subscribes to it. Every
+                    // Buffer is checked right after it was delivered to the draining, before its memory is reused.
+                    request.transformPayloadBody(payload -> payload
+                            .afterOnNext(buffer -> refCounts.add(toByteBuf(buffer).refCnt()))
+                            .afterFinally(drainedLatch::countDown));
+                    return succeeded(responseFactory.ok().payloadBody(from("OK"), appSerializerUtf8FixLen()));
+                });
+             BlockingHttpClient client = HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                     .buildBlocking()) {
+
+            postLargePayloadAndAssertResponseOk(client);
+            drainedLatch.await();
+            assertThat(refCounts, not(empty()));
+            assertThat(refCounts, everyItem(equalTo(0)));
+        }
+    }
+
     @Disabled("https://github.com/apple/servicetalk/issues/981")
     @Test
     void requestTimesOutWithoutAutoDrainingOrUserConsuming() throws Exception {
@@ -20,10 +20,12 @@ import io.servicetalk.concurrent.api.Single;
 import io.servicetalk.context.api.ContextMap;
 import io.servicetalk.http.api.BlockingHttpClient;
 import io.servicetalk.http.api.FilterableStreamingHttpConnection;
+import io.servicetalk.http.api.FilterableStreamingHttpLoadBalancedConnection;
 import io.servicetalk.http.api.HttpContextKeys;
 import io.servicetalk.http.api.HttpRequest;
 import io.servicetalk.http.api.HttpServerContext;
 import io.servicetalk.http.api.ReservedBlockingHttpConnection;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory;
 import io.servicetalk.transport.api.TransportObserver;
 
 import org.junit.jupiter.api.AfterEach;
@@ -34,8 +36,10 @@ import java.net.InetSocketAddress;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.client.api.RequestTracker.REQUEST_TRACKER_KEY;
 import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class ReserveConnectionTest {
 
@@ -103,4 +107,22 @@ class ReserveConnectionTest {
 
         assertEquals(3, createdConnections.get());
     }
+
+    @Test
+    void doesNotLeakRequestTracker() throws Exception {
+        InetSocketAddress listenAddress = (InetSocketAddress) serverContext.listenAddress();
+        try (BlockingHttpClient client = HttpClients
+                .forSingleAddress(listenAddress.getHostName(), listenAddress.getPort())
+                .loadBalancerFactory(DefaultHttpLoadBalancerFactory.Builder.from(
+                        new RoundRobinLoadBalancerFactory.Builder<InetSocketAddress,
+                                FilterableStreamingHttpLoadBalancedConnection>()
+                                .trackFreeConnections(true).build()).build())
+                .buildBlocking()) {
+            HttpRequest metaData = client.get("/");
+
+            ReservedBlockingHttpConnection connection = client.reserveConnection(metaData);
+            assertNull(metaData.context().get(REQUEST_TRACKER_KEY));
+            connection.release();
+        }
+    }
 }
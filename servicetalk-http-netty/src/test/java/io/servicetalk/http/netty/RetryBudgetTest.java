@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RetryBudgetTest {
+
+    private static final long WINDOW_NANOS = SECONDS.toNanos(10);
+
+    private long currentTimeNanos;
+
+    @Test
+    void retriesAreLimitedByRatio() {
+        final RetryBudget budget = new RetryBudget(0.2, WINDOW_NANOS, 0, () -> currentTimeNanos);
+        for (int i = 0; i < 100; ++i) {
+            budget.onRequest();
+        }
+        assertThat(retries(budget, 100), is(20));
+        assertThat(budget.requests(), is(100L));
+        assertThat(budget.retries(), is(20L));
+        assertThat(budget.exhausted(), is(80L));
+    }
+
+    @Test
+    void reserveAllowsRetriesWithoutRequests() {
+        final RetryBudget budget = new RetryBudget(0.2, WINDOW_NANOS, 1, () -> currentTimeNanos);
+        assertThat(retries(budget, 100), is(10));
+    }
+
+    @Test
+    void depositsExpireAfterWindow() {
+        final RetryBudget budget = new RetryBudget(1, WINDOW_NANOS, 0, () -> currentTimeNanos);
+        for (int i = 0; i < 10; ++i) {
+            budget.onRequest();
+        }
+        assertThat(retries(budget, 5), is(5));
+
+        // Retries expire as well, the remaining deposits are still available until the end of the window.
+        currentTimeNanos += WINDOW_NANOS / 2;
+        assertThat(retries(budget, 10), is(5));
+
+        currentTimeNanos += WINDOW_NANOS;
+        assertThat(retries(budget, 10), is(0));
+        budget.onRequest();
+        assertThat(retries(budget, 10), is(1));
+    }
+
+    @Test
+    void negativeTime() {
+        currentTimeNanos = -WINDOW_NANOS * 3 / 2;
+        final RetryBudget budget = new RetryBudget(1, WINDOW_NANOS, 0, () -> currentTimeNanos);
+        budget.onRequest();
+        currentTimeNanos += WINDOW_NANOS / 2;
+        budget.onRequest();
+        currentTimeNanos += WINDOW_NANOS / 2;
+        assertThat(retries(budget, 10), is(1));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryBudget.Builder().ratio(-1));
+        assertThrows(IllegalArgumentException.class, () -> new RetryBudget.Builder().minRetriesPerSecond(-1));
+        assertThrows(IllegalArgumentException.class, () -> new RetryBudget.Builder().window(Duration.ZERO));
+    }
+
+    private static int retries(final RetryBudget budget, final int attempts) {
+        int retries = 0;
+        for (int i = 0; i < attempts; ++i) {
+            if (budget.tryRetry()) {
+                ++retries;
+            }
+        }
+        return retries;
+    }
+}
@@ -158,6 +158,39 @@ class RetryingHttpRequesterFilterTest {
         assertRequestRetryingPred(failingClient);
     }
 
+    @Test
+    void exhaustedRetryBudget() {
+        final RetryBudget retryBudget = new RetryBudget.Builder().ratio(0).minRetriesPerSecond(0).build();
+        failingClient = failingConnClientBuilder
+                .appendClientFilter(new Builder().maxTotalRetries(4).retryBudget(retryBudget).build())
+                .buildBlocking();
+        Exception e = assertThrows(Exception.class, () -> failingClient.request(failingClient.get("/")));
+        assertThat("Unexpected exception.", e, instanceOf(RetryableException.class));
+        assertThat("Unexpected calls to select.", lbSelectInvoked.get(), is(lessThanOrEqualTo(2)));
+        assertThat("Unexpected requests.", retryBudget.requests(), is(1L));
+        assertThat("Unexpected retries.", retryBudget.retries(), is(0L));
+        assertThat("Unexpected exhausted retries.", retryBudget.exhausted(), is(1L));
+    }
+
+    @Test
+    void retriesRejectedByPolicyDoNotDrainRetryBudget() {
+        final RetryBudget retryBudget = new RetryBudget.Builder().ratio(1).minRetriesPerSecond(10).build();
+        normalClient = normalClientBuilder
+                .appendClientFilter(new Builder()
+                        .maxTotalRetries(10)
+                        .retryBudget(retryBudget)
+                        .responseMapper(metaData -> metaData.headers().contains(RETRYABLE_HEADER) ?
+                                new HttpResponseException("Retryable header", metaData) : null)
+                        .retryResponses((requestMetaData, throwable) -> ofImmediate(2))
+                        .build())
+                .buildBlocking();
+        Exception e = assertThrows(Exception.class, () -> normalClient.request(normalClient.get("/")));
+        assertThat("Unexpected exception.", e, instanceOf(HttpResponseException.class));
+        assertThat("Unexpected requests.", retryBudget.requests(), is(1L));
+        assertThat("Unexpected retries.", retryBudget.retries(), is(2L));
+        assertThat("Unexpected exhausted retries.", retryBudget.exhausted(), is(0L));
+    }
+
     private void assertRequestRetryingPred(final BlockingHttpClient client) {
         Exception e = assertThrows(Exception.class, () -> client.request(client.get("/")));
         assertThat("Unexpected exception.", e, instanceOf(RetryableException.class));
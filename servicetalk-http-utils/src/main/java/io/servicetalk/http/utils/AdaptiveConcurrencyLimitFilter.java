@@ -0,0 +1,480 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.client.api.RequestRejectedException;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TerminalSignalConsumer;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.StreamingHttpServiceFilterFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpExecutionStrategies.offloadNone;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.servicetalk.http.api.HttpResponseStatus.TOO_MANY_REQUESTS;
+import static io.servicetalk.utils.internal.DurationUtils.ensurePositive;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.time.Duration.ofSeconds;
+
+/**
+ * Limits the number of concurrent requests to a limit that is discovered from the observed round trip times, and
+ * rejects the requests that exceed the limit early.
+ * <p>
+ * Unlike a static limit, like the maximum number of pipelined requests or concurrent streams, the limit follows the
+ * changing capacity of the target: it grows while the round trip times stay stable and shrinks when they grow or when
+ * requests are dropped. Two algorithms are available:
+ * <ul>
+ *     <li>{@link Builder#gradient(double, double) Gradient}: compares the latest round trip time with its long-term
+ *     average and scales the limit by their ratio, leaving room for a small queue.</li>
+ *     <li>{@link Builder#aimd(double, Duration) AIMD}: additively increases the limit while it is used and
+ *     multiplicatively decreases it when a request is dropped or takes longer than a timeout.</li>
+ * </ul>
+ * <p>
+ * On the client-side a request that exceeds the limit fails with a {@link RequestRejectedException}, which is
+ * retryable. On the server-side it is answered with {@code 503 Service Unavailable} without invoking the service.
+ * A request occupies the limit until its response payload body terminates. Responses with status {@code 503} or
+ * {@code 429}, {@link RequestRejectedException}s and {@link TimeoutException}s are considered drops. Every client and
+ * service created by this factory tracks its own limit.
+ */
+public final class AdaptiveConcurrencyLimitFilter implements StreamingHttpClientFilterFactory,
+                                                             StreamingHttpServiceFilterFactory {
+    private static final int DEFAULT_INITIAL_LIMIT = 20;
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT = 1000;
+    private static final double DEFAULT_SMOOTHING = 0.2;
+    private static final double DEFAULT_RTT_TOLERANCE = 1.5;
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    private static final Duration DEFAULT_AIMD_TIMEOUT = ofSeconds(5);
+
+    private final int initialLimit;
+    private final Supplier<LimitAlgorithm> algorithmFactory;
+    private final LongSupplier currentTimeNanos;
+
+    AdaptiveConcurrencyLimitFilter(final int initialLimit, final Supplier<LimitAlgorithm> algorithmFactory,
+                                   final LongSupplier currentTimeNanos) {
+        this.initialLimit = initialLimit;
+        this.algorithmFactory = algorithmFactory;
+        this.currentTimeNanos = currentTimeNanos;
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        final Limiter limiter = newLimiter();
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final StreamingHttpRequest request) {
+                return defer(() -> {
+                    final Permit permit = limiter.tryAcquire();
+                    if (permit == null) {
+                        return failed(new RequestRejectedException("Concurrency limit " + limiter.limit +
+                                " reached, rejecting request"));
+                    }
+                    return limiter.track(delegate.request(request), permit).shareContextOnSubscribe();
+                });
+            }
+        };
+    }
+
+    @Override
+    public StreamingHttpServiceFilter create(final StreamingHttpService service) {
+        final Limiter limiter = newLimiter();
+        return new StreamingHttpServiceFilter(service) {
+            @Override
+            public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
+                                                        final StreamingHttpRequest request,
+                                                        final StreamingHttpResponseFactory responseFactory) {
+                return defer(() -> {
+                    final Permit permit = limiter.tryAcquire();
+                    if (permit == null) {
+                        return succeeded(responseFactory.serviceUnavailable());
+                    }
+                    return limiter.track(delegate().handle(ctx, request, responseFactory), permit)
+                            .shareContextOnSubscribe();
+                });
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy requiredOffloads() {
+        return offloadNone();
+    }
+
+    private Limiter newLimiter() {
+        final LimitAlgorithm algorithm = algorithmFactory.get();
+        return new Limiter(algorithm.clamp(initialLimit), algorithm, currentTimeNanos);
+    }
+
+    /**
+     * Tracks the number of in-flight requests against the current limit. Acquiring and releasing a permit is
+     * lock-free, only updating the limit from a sample is serialized.
+     */
+    static final class Limiter {
+        private static final AtomicIntegerFieldUpdater<Limiter> inFlightUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Limiter.class, "inFlight");
+
+        private final LimitAlgorithm algorithm;
+        private final LongSupplier currentTimeNanos;
+        private volatile int inFlight;
+        volatile int limit;
+
+        Limiter(final int initialLimit, final LimitAlgorithm algorithm, final LongSupplier currentTimeNanos) {
+            this.limit = initialLimit;
+            this.algorithm = algorithm;
+            this.currentTimeNanos = currentTimeNanos;
+        }
+
+        @Nullable
+        Permit tryAcquire() {
+            for (;;) {
+                final int current = inFlight;
+                if (current >= limit) {
+                    return null;
+                }
+                if (inFlightUpdater.compareAndSet(this, current, current + 1)) {
+                    return new Permit(this, current + 1, currentTimeNanos.getAsLong());
+                }
+            }
+        }
+
+        Single<StreamingHttpResponse> track(final Single<StreamingHttpResponse> response, final Permit permit) {
+            return response.map(permit::onResponse).liftSync(new BeforeFinallyHttpOperator(permit));
+        }
+
+        int inFlight() {
+            return inFlight;
+        }
+
+        void release(final Permit permit, final boolean sample) {
+            inFlightUpdater.decrementAndGet(this);
+            if (sample) {
+                final long rttNanos = currentTimeNanos.getAsLong() - permit.startTimeNanos;
+                synchronized (algorithm) {
+                    limit = algorithm.update(limit, rttNanos, permit.inFlight, permit.dropped);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Limiter{" +
+                    "limit=" + limit +
+                    ", inFlight=" + inFlight +
+                    ", algorithm=" + algorithm +
+                    '}';
+        }
+    }
+
+    /**
+     * A slot of the limit which is held by a single request until its response terminates.
+     */
+    static final class Permit implements TerminalSignalConsumer {
+        private final Limiter limiter;
+        private final int inFlight;
+        private final long startTimeNanos;
+        private boolean dropped;
+
+        Permit(final Limiter limiter, final int inFlight, final long startTimeNanos) {
+            this.limiter = limiter;
+            this.inFlight = inFlight;
+            this.startTimeNanos = startTimeNanos;
+        }
+
+        StreamingHttpResponse onResponse(final StreamingHttpResponse response) {
+            final int code = response.status().code();
+            // The response is delivered before the terminal signal of its payload body, no need for a volatile.
+            dropped = code == SERVICE_UNAVAILABLE.code() || code == TOO_MANY_REQUESTS.code();
+            return response;
+        }
+
+        @Override
+        public void onComplete() {
+            limiter.release(this, true);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            if (throwable instanceof RequestRejectedException || throwable instanceof TimeoutException) {
+                dropped = true;
+                limiter.release(this, true);
+            } else {
+                // Other errors, like a failed connect, tell nothing about the capacity of the target.
+                limiter.release(this, false);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            limiter.release(this, false);
+        }
+    }
+
+    /**
+     * Computes a new limit from a sample of a completed request. Implementations are not thread-safe, calls are
+     * serialized by the {@link Limiter}.
+     */
+    abstract static class LimitAlgorithm {
+        private final int minLimit;
+        private final int maxLimit;
+
+        LimitAlgorithm(final int minLimit, final int maxLimit) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        /**
+         * Computes the new limit.
+         *
+         * @param limit the current limit.
+         * @param rttNanos the round trip time of the request in nanoseconds.
+         * @param inFlight the number of in-flight requests when the request started, including the request itself.
+         * @param dropped {@code true} if the request was dropped by the target.
+         * @return the new limit.
+         */
+        abstract int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+        final int clamp(final double limit) {
+            return (int) max(minLimit, min(maxLimit, limit));
+        }
+    }
+
+    /**
+     * Scales the limit by the ratio of the long-term average round trip time to the latest round trip time, and adds
+     * the square root of the limit to leave room for a queue which absorbs bursts.
+     */
+    static final class GradientLimit extends LimitAlgorithm {
+        private static final int LONG_RTT_WINDOW = 600;
+        private static final double LONG_RTT_ALPHA = 2.0 / (LONG_RTT_WINDOW + 1);
+        private static final double MIN_GRADIENT = 0.5;
+
+        private final double smoothing;
+        private final double rttTolerance;
+        private double estimatedLimit = -1;
+        private double longRttNanos;
+
+        GradientLimit(final int minLimit, final int maxLimit, final double smoothing, final double rttTolerance) {
+            super(minLimit, maxLimit);
+            this.smoothing = smoothing;
+            this.rttTolerance = rttTolerance;
+        }
+
+        @Override
+        int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+            if (estimatedLimit < 0) {
+                estimatedLimit = limit;
+            }
+            final double shortRttNanos = max(1, rttNanos);
+            if (longRttNanos == 0) {
+                longRttNanos = shortRttNanos;
+            } else {
+                longRttNanos += (shortRttNanos - longRttNanos) * LONG_RTT_ALPHA;
+                // After a sustained increase the long-term average lags behind, let it recover faster once the round
+                // trip times go back to normal.
+                if (longRttNanos / shortRttNanos > 2) {
+                    longRttNanos *= 0.95;
+                }
+            }
+            if (!dropped && inFlight < estimatedLimit / 2) {
+                // The limit is not used, the sample tells nothing about it.
+                return limit;
+            }
+            final double gradient = dropped ? MIN_GRADIENT :
+                    max(MIN_GRADIENT, min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+            final double newLimit = estimatedLimit * gradient + sqrt(estimatedLimit);
+            estimatedLimit = max(1, estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+            return clamp(estimatedLimit);
+        }
+
+        @Override
+        public String toString() {
+            return "GradientLimit{" +
+                    "estimatedLimit=" + estimatedLimit +
+                    ", longRttNanos=" + longRttNanos +
+                    '}';
+        }
+    }
+
+    /**
+     * Additively increases the limit by one while more than half of it is used, and multiplies it with a backoff
+     * ratio when a request is dropped or exceeds a timeout.
+     */
+    static final class AimdLimit extends LimitAlgorithm {
+        private final double backoffRatio;
+        private final long timeoutNanos;
+
+        AimdLimit(final int minLimit, final int maxLimit, final double backoffRatio, final long timeoutNanos) {
+            super(minLimit, maxLimit);
+            this.backoffRatio = backoffRatio;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+            if (dropped || rttNanos > timeoutNanos) {
+                return clamp(min(limit - 1, limit * backoffRatio));
+            }
+            if (inFlight * 2 >= limit) {
+                return clamp(limit + 1);
+            }
+            return limit;
+        }
+
+        @Override
+        public String toString() {
+            return "AimdLimit{" +
+                    "backoffRatio=" + backoffRatio +
+                    ", timeoutNanos=" + timeoutNanos +
+                    '}';
+        }
+    }
+
+    /**
+     * A builder for {@link AdaptiveConcurrencyLimitFilter}.
+     */
+    public static final class Builder {
+        private int initialLimit = DEFAULT_INITIAL_LIMIT;
+        private int minLimit = DEFAULT_MIN_LIMIT;
+        private int maxLimit = DEFAULT_MAX_LIMIT;
+        private boolean aimd;
+        private double smoothing = DEFAULT_SMOOTHING;
+        private double rttTolerance = DEFAULT_RTT_TOLERANCE;
+        private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+        private Duration timeout = DEFAULT_AIMD_TIMEOUT;
+
+        /**
+         * Creates a new instance with default settings, which uses the {@link #gradient(double, double) gradient}
+         * algorithm.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the limit before any round trip time was observed.
+         *
+         * @param initialLimit the limit before any round trip time was observed.
+         * @return {@code this}.
+         */
+        public Builder initialLimit(final int initialLimit) {
+            if (initialLimit <= 0) {
+                throw new IllegalArgumentException("initialLimit: " + initialLimit + " (expected >0)");
+            }
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the limit.
+         *
+         * @param minLimit the lowest value of the limit.
+         * @param maxLimit the highest value of the limit.
+         * @return {@code this}.
+         */
+        public Builder limits(final int minLimit, final int maxLimit) {
+            if (minLimit <= 0) {
+                throw new IllegalArgumentException("minLimit: " + minLimit + " (expected >0)");
+            }
+            if (maxLimit < minLimit) {
+                throw new IllegalArgumentException("maxLimit: " + maxLimit + " (expected >=" + minLimit + ")");
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Uses the gradient algorithm, which scales the limit by the ratio of the long-term average round trip time to
+         * the latest round trip time.
+         *
+         * @param smoothing the weight of a new estimate of the limit, in the range {@code (0, 1]}.
+         * @param rttTolerance how much longer than the long-term average a round trip time may be before the limit
+         * decreases, {@code 1.5} tolerates a {@code 50%} increase.
+         * @return {@code this}.
+         */
+        public Builder gradient(final double smoothing, final double rttTolerance) {
+            if (!(smoothing > 0 && smoothing <= 1)) {
+                throw new IllegalArgumentException("smoothing: " + smoothing + " (expected (0, 1])");
+            }
+            if (!(rttTolerance >= 1) || Double.isInfinite(rttTolerance)) {
+                throw new IllegalArgumentException("rttTolerance: " + rttTolerance + " (expected >=1)");
+            }
+            this.aimd = false;
+            this.smoothing = smoothing;
+            this.rttTolerance = rttTolerance;
+            return this;
+        }
+
+        /**
+         * Uses the additive-increase/multiplicative-decrease algorithm, which increases the limit by one while it is
+         * used and multiplies it with {@code backoffRatio} when a request is dropped or exceeds the {@code timeout}.
+         *
+         * @param backoffRatio the ratio to multiply the limit with on a drop, in the range {@code [0.5, 1)}.
+         * @param timeout the round trip time above which a request is considered dropped.
+         * @return {@code this}.
+         */
+        public Builder aimd(final double backoffRatio, final Duration timeout) {
+            if (!(backoffRatio >= 0.5 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("backoffRatio: " + backoffRatio + " (expected [0.5, 1))");
+            }
+            this.aimd = true;
+            this.backoffRatio = backoffRatio;
+            this.timeout = ensurePositive(timeout, "timeout");
+            return this;
+        }
+
+        /**
+         * Builds a new {@link AdaptiveConcurrencyLimitFilter}.
+         *
+         * @return a new {@link AdaptiveConcurrencyLimitFilter}.
+         */
+        public AdaptiveConcurrencyLimitFilter build() {
+            final int minLimit = this.minLimit;
+            final int maxLimit = this.maxLimit;
+            final Supplier<LimitAlgorithm> algorithmFactory;
+            if (aimd) {
+                final double backoffRatio = this.backoffRatio;
+                final long timeoutNanos = timeout.toNanos();
+                algorithmFactory = () -> new AimdLimit(minLimit, maxLimit, backoffRatio, timeoutNanos);
+            } else {
+                final double smoothing = this.smoothing;
+                final double rttTolerance = this.rttTolerance;
+                algorithmFactory = () -> new GradientLimit(minLimit, maxLimit, smoothing, rttTolerance);
+            }
+            return new AdaptiveConcurrencyLimitFilter(initialLimit, algorithmFactory, System::nanoTime);
+        }
+    }
+}
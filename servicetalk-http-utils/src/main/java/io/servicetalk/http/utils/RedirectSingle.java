@@ -15,6 +15,7 @@
  */
 package io.servicetalk.http.utils;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.concurrent.Cancellable;
 import io.servicetalk.concurrent.SingleSource;
 import io.servicetalk.concurrent.api.Single;
@@ -38,6 +39,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.safeOnError;
 import static io.servicetalk.http.api.HttpContextKeys.HTTP_EXECUTION_STRATEGY_KEY;
@@ -184,8 +186,12 @@ final class RedirectSingle extends SubscribableSingle<StreamingHttpResponse> {
                 }
 
                 terminalDelivered = true;   // Mark as "delivered" because we do not own `target` from this point
-                toSource(response.messageBody().ignoreElements()    // Consume any payload of the redirect response
-                        .concat(redirectSingle.requester.request(newRequest)))
+                // Consume any payload of the redirect response, pooled buffers have no other consumer to release them
+                toSource(response.messageBody().whenOnNext(item -> {
+                    if (item instanceof Buffer) {
+                        release((Buffer) item);
+                    }
+                }).ignoreElements().concat(redirectSingle.requester.request(newRequest)))
                         .subscribe(new RedirectSubscriber(target, redirectSingle, newRequest, redirectCount + 1,
                                 sequentialCancellable));
             } catch (Throwable cause) {
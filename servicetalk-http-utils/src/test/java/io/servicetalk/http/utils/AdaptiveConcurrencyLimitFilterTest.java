@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.client.api.RequestRejectedException;
+import io.servicetalk.concurrent.SingleSource.Processor;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.utils.AdaptiveConcurrencyLimitFilter.AimdLimit;
+import io.servicetalk.http.utils.AdaptiveConcurrencyLimitFilter.GradientLimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.servicetalk.concurrent.api.Processors.newSingleProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.servicetalk.http.utils.PayloadSizeLimitingHttpRequesterFilterTest.REQ_RESP_FACTORY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyLimitFilterTest {
+    private static final long TIMEOUT_NANOS = SECONDS.toNanos(1);
+
+    private final AtomicLong currentTimeNanos = new AtomicLong();
+    private final Queue<Processor<StreamingHttpResponse, StreamingHttpResponse>> responses = new ArrayDeque<>();
+    private final AdaptiveConcurrencyLimitFilter filter = new AdaptiveConcurrencyLimitFilter(2,
+            () -> new AimdLimit(1, 10, 0.5, TIMEOUT_NANOS), currentTimeNanos::get);
+
+    @Test
+    void serviceRejectsRequestsAboveLimit() throws Exception {
+        final StreamingHttpServiceFilter service = filter.create((ctx, request, responseFactory) -> {
+            Processor<StreamingHttpResponse, StreamingHttpResponse> processor = newSingleProcessor();
+            responses.add(processor);
+            return fromSource(processor);
+        });
+        final HttpServiceContext ctx = mock(HttpServiceContext.class);
+        final Future<StreamingHttpResponse> first = service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY)
+                .toFuture();
+        final Future<StreamingHttpResponse> second = service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY)
+                .toFuture();
+        assertThat(service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture().get().status(),
+                is(SERVICE_UNAVAILABLE));
+        assertThat(responses.size(), is(2));
+
+        // The permit is held until the payload body completes.
+        responses.poll().onSuccess(REQ_RESP_FACTORY.ok());
+        final StreamingHttpResponse response = first.get();
+        assertThat(response.status(), is(OK));
+        assertThat(service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture().get().status(),
+                is(SERVICE_UNAVAILABLE));
+        response.messageBody().ignoreElements().toFuture().get();
+
+        // Both permits were used, the limit increased.
+        service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture();
+        service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture();
+        assertThat(responses.size(), is(3));
+        assertThat(second.isDone(), is(false));
+    }
+
+    @Test
+    void clientFailsRequestsAboveLimit() throws Exception {
+        final FilterableStreamingHttpClient client = mock(FilterableStreamingHttpClient.class);
+        when(client.request(any())).thenAnswer(invocation -> {
+            Processor<StreamingHttpResponse, StreamingHttpResponse> processor = newSingleProcessor();
+            responses.add(processor);
+            return fromSource(processor);
+        });
+        final StreamingHttpClientFilter filtered = filter.create(client);
+        final StreamingHttpRequest request = REQ_RESP_FACTORY.get("/");
+        final Future<StreamingHttpResponse> first = filtered.request(request).toFuture();
+        filtered.request(request).toFuture();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> filtered.request(request).toFuture().get());
+        assertThat(e.getCause(), instanceOf(RequestRejectedException.class));
+
+        // A cancelled request releases its permit.
+        first.cancel(true);
+        filtered.request(request).toFuture();
+        assertThat(responses.size(), is(3));
+    }
+
+    @Test
+    void droppedResponseDecreasesLimit() throws Exception {
+        final StreamingHttpServiceFilter service = filter.create((ctx, request, responseFactory) -> {
+            if (request.path().equals("/drop")) {
+                return succeeded(responseFactory.serviceUnavailable());
+            }
+            Processor<StreamingHttpResponse, StreamingHttpResponse> processor = newSingleProcessor();
+            responses.add(processor);
+            return fromSource(processor);
+        });
+        final HttpServiceContext ctx = mock(HttpServiceContext.class);
+        service.handle(ctx, REQ_RESP_FACTORY.get("/drop"), REQ_RESP_FACTORY).toFuture().get()
+                .messageBody().ignoreElements().toFuture().get();
+
+        service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture();
+        assertThat(service.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture().get().status(),
+                is(SERVICE_UNAVAILABLE));
+        assertThat(responses.size(), is(1));
+
+        // Every service tracks its own limit.
+        final StreamingHttpServiceFilter other = filter.create((ctx2, request, responseFactory) -> {
+            Processor<StreamingHttpResponse, StreamingHttpResponse> processor = newSingleProcessor();
+            responses.add(processor);
+            return fromSource(processor);
+        });
+        other.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture();
+        other.handle(ctx, REQ_RESP_FACTORY.get("/"), REQ_RESP_FACTORY).toFuture();
+        assertThat(responses.size(), is(3));
+    }
+
+    @Test
+    void aimdIncreasesWhileUsedAndBacksOff() {
+        final AimdLimit aimd = new AimdLimit(1, 10, 0.5, TIMEOUT_NANOS);
+        final long rtt = MILLISECONDS.toNanos(10);
+        assertThat(aimd.update(4, rtt, 1, false), is(4));
+        assertThat(aimd.update(4, rtt, 2, false), is(5));
+        assertThat(aimd.update(10, rtt, 10, false), is(10));
+        assertThat(aimd.update(8, rtt, 8, true), is(4));
+        assertThat(aimd.update(8, TIMEOUT_NANOS + 1, 8, false), is(4));
+        assertThat(aimd.update(1, rtt, 1, true), is(1));
+    }
+
+    @Test
+    void gradientFollowsRoundTripTime() {
+        final GradientLimit gradient = new GradientLimit(1, 1000, 0.2, 1.5);
+        int limit = 20;
+        for (int i = 0; i < 100; ++i) {
+            limit = gradient.update(limit, MILLISECONDS.toNanos(10), limit, false);
+        }
+        final int stableLimit = limit;
+        assertThat(stableLimit, greaterThan(20));
+
+        for (int i = 0; i < 20; ++i) {
+            limit = gradient.update(limit, MILLISECONDS.toNanos(100), limit, false);
+        }
+        assertThat(limit, lessThan(stableLimit));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Samples hosts proportionally to their {@link Host#weight() weight} in constant time, using Vose's alias method.
+ * <p>
+ * A table is built for a specific list of hosts and has to be rebuilt when the list changes. Because the
+ * {@link RoundRobinLoadBalancer} replaces its list of hosts on every change, the identity of the list is used to
+ * detect that the table is stale, see {@link #isBuiltFor(List)}.
+ */
+final class AliasTable {
+
+    static final AliasTable EMPTY = new AliasTable(emptyList(), null, null);
+
+    private final List<?> hosts;
+    @Nullable
+    private final double[] probabilities;
+    @Nullable
+    private final int[] aliases;
+
+    private AliasTable(final List<?> hosts, @Nullable final double[] probabilities, @Nullable final int[] aliases) {
+        this.hosts = hosts;
+        this.probabilities = probabilities;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Builds a new table for the passed hosts.
+     *
+     * @param hosts the hosts to sample.
+     * @return a new {@link AliasTable}.
+     */
+    static AliasTable forHosts(final List<? extends Host<?, ?>> hosts) {
+        final int size = hosts.size();
+        final double[] weights = new double[size];
+        double sum = 0;
+        boolean uniform = true;
+        for (int i = 0; i < size; ++i) {
+            weights[i] = hosts.get(i).weight();
+            sum += weights[i];
+            uniform &= weights[i] == weights[0];
+        }
+        if (uniform) {
+            // All hosts have the same share, there is no need for a table.
+            return new AliasTable(hosts, null, null);
+        }
+
+        final double[] probabilities = new double[size];
+        final int[] aliases = new int[size];
+        // Scale the weights so that their average is 1 and split them into the ones below and above the average.
+        final int[] small = new int[size];
+        final int[] large = new int[size];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < size; ++i) {
+            weights[i] = weights[i] * size / sum;
+            if (weights[i] < 1) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+        // Pair every small bucket with a large one, which fills the remainder of the small bucket.
+        while (smallSize > 0 && largeSize > 0) {
+            final int less = small[--smallSize];
+            final int more = large[--largeSize];
+            probabilities[less] = weights[less];
+            aliases[less] = more;
+            weights[more] = (weights[more] + weights[less]) - 1;
+            if (weights[more] < 1) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+        // The remaining buckets are full, up to rounding errors.
+        while (largeSize > 0) {
+            probabilities[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0) {
+            probabilities[small[--smallSize]] = 1;
+        }
+        return new AliasTable(hosts, probabilities, aliases);
+    }
+
+    /**
+     * Whether this table was built for the passed list of hosts.
+     *
+     * @param hosts the current list of hosts.
+     * @return {@code true} if this table was built for the passed list of hosts.
+     */
+    boolean isBuiltFor(final List<?> hosts) {
+        return this.hosts == hosts;
+    }
+
+    /**
+     * Whether all hosts have the same weight.
+     *
+     * @return {@code true} if all hosts have the same weight.
+     */
+    boolean isUniform() {
+        return probabilities == null;
+    }
+
+    /**
+     * Picks the index of a host with a probability proportional to its weight.
+     *
+     * @param random the source of randomness.
+     * @return the index of the picked host.
+     */
+    int sample(final ThreadLocalRandom random) {
+        final int index = random.nextInt(hosts.size());
+        if (probabilities == null) {
+            return index;
+        }
+        assert aliases != null;
+        return random.nextDouble() < probabilities[index] ? index : aliases[index];
+    }
+}
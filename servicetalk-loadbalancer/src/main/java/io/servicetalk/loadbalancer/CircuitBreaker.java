@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.RequestTracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The circuit breaker of a single host, as described in {@link CircuitBreakerConfig}.
+ * <p>
+ * Request outcomes are reported through the {@link RequestTracker} methods, and failed connection attempts through
+ * {@link #onConnectFailure()}. The host acquires a permission with {@link #tryAcquirePermission()} before handing out
+ * a connection, which bounds the number of probes in the half-open state, while health checks that don't send traffic
+ * use the side-effect-free {@link #isOpen()}. All state is updated lock-free: the state transitions are driven by
+ * compare-and-set on {@link #state}, the probes are reserved by compare-and-set on {@link #probesStarted} and every
+ * round of probes is started by compare-and-set on {@link #deadlineNanos}. The sliding window is an array of slots
+ * which each pack the time slice they count for, the successes and the failures into a {@code long}.
+ */
+final class CircuitBreaker implements RequestTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final AtomicIntegerFieldUpdater<CircuitBreaker> stateUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(CircuitBreaker.class, "state");
+    private static final AtomicIntegerFieldUpdater<CircuitBreaker> probesStartedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(CircuitBreaker.class, "probesStarted");
+    private static final AtomicIntegerFieldUpdater<CircuitBreaker> probesSucceededUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(CircuitBreaker.class, "probesSucceeded");
+    private static final AtomicLongFieldUpdater<CircuitBreaker> deadlineNanosUpdater =
+            AtomicLongFieldUpdater.newUpdater(CircuitBreaker.class, "deadlineNanos");
+
+    static final int CLOSED = 0;
+    static final int OPEN = 1;
+    static final int HALF_OPEN = 2;
+
+    private static final int SLOTS = 10;
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int SLICE_SHIFT = 2 * COUNT_BITS;
+    private static final long SLICE_MASK = (1L << (Long.SIZE - SLICE_SHIFT)) - 1;
+    private static final long SUCCESS_INCREMENT = 1L << COUNT_BITS;
+    private static final long FAILURE_INCREMENT = 1;
+
+    private final String targetResource;
+    private final Object address;
+    @Nullable
+    private final RequestTracker delegate;
+    private final LongSupplier currentTimeNanos;
+    private final double failureRateThreshold;
+    private final int minimumRequests;
+    private final long slotNanos;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+    private volatile int state;
+    /**
+     * In the open state the time when the circuit becomes half-open, in the half-open state the time after which
+     * probes that did not report an outcome are given up on.
+     */
+    private volatile long deadlineNanos;
+    /**
+     * The number of probes reserved in the current round, {@link #halfOpenProbes} while open, so that no probe is let
+     * through until a new round is started.
+     */
+    private volatile int probesStarted;
+    private volatile int probesSucceeded;
+
+    CircuitBreaker(final String targetResource, final Object address, final CircuitBreakerConfig config,
+                   @Nullable final RequestTracker delegate) {
+        this(targetResource, address, config, delegate, System::nanoTime);
+    }
+
+    CircuitBreaker(final String targetResource, final Object address, final CircuitBreakerConfig config,
+                   @Nullable final RequestTracker delegate, final LongSupplier currentTimeNanos) {
+        this.targetResource = requireNonNull(targetResource);
+        this.address = requireNonNull(address);
+        this.delegate = delegate;
+        this.currentTimeNanos = requireNonNull(currentTimeNanos);
+        this.failureRateThreshold = config.failureRateThreshold();
+        this.minimumRequests = config.minimumRequests();
+        this.slotNanos = Math.max(1, config.window().toNanos() / SLOTS);
+        this.openDurationNanos = config.openDuration().toNanos();
+        this.halfOpenProbes = config.halfOpenProbes();
+    }
+
+    @Override
+    public long beforeStart() {
+        return delegate == null ? currentTimeNanos.getAsLong() : delegate.beforeStart();
+    }
+
+    @Override
+    public void onSuccess(final long beforeStartTimeNs) {
+        if (delegate != null) {
+            delegate.onSuccess(beforeStartTimeNs);
+        }
+        final int state = this.state;
+        if (state == CLOSED) {
+            record(SUCCESS_INCREMENT);
+        } else if (state == HALF_OPEN && probesSucceededUpdater.incrementAndGet(this) >= halfOpenProbes &&
+                stateUpdater.compareAndSet(this, HALF_OPEN, CLOSED)) {
+            // Failures from before the circuit opened must not open it again right away.
+            for (int i = 0; i < SLOTS; ++i) {
+                slots.set(i, 0);
+            }
+            LOGGER.info("{}: circuit of host {} closed after {} successful probes.", targetResource, address,
+                    halfOpenProbes);
+        }
+    }
+
+    @Override
+    public void onError(final long beforeStartTimeNs, final ErrorClass errorClass) {
+        if (delegate != null) {
+            delegate.onError(beforeStartTimeNs, errorClass);
+        }
+        // Cancellation is initiated by the caller and doesn't tell anything about the health of the host.
+        if (errorClass != CANCELLED) {
+            onFailure();
+        }
+    }
+
+    /**
+     * Records a failed connection attempt, which counts as a failed request.
+     */
+    void onConnectFailure() {
+        onFailure();
+    }
+
+    private void onFailure() {
+        final int state = this.state;
+        if (state == CLOSED) {
+            if (record(FAILURE_INCREMENT)) {
+                open(CLOSED, "a failure rate above " + failureRateThreshold);
+            }
+        } else if (state == HALF_OPEN) {
+            open(HALF_OPEN, "a failed probe");
+        }
+    }
+
+    /**
+     * Whether the circuit currently rejects all selections. Unlike {@link #tryAcquirePermission()}, it doesn't change
+     * the state, so it can be used by checks which don't send a request to the host.
+     *
+     * @return {@code true} if the circuit is open, or half-open with all probes in flight.
+     */
+    boolean isOpen() {
+        final int state = this.state;
+        if (state == CLOSED || currentTimeNanos.getAsLong() - deadlineNanos >= 0) {
+            // Once the deadline passed, the next selection starts a new round of probes.
+            return false;
+        }
+        return state == OPEN || probesStarted >= halfOpenProbes;
+    }
+
+    /**
+     * Acquires the permission to select the host for a request. Moves an open circuit to half-open once the open
+     * duration elapsed, and grants at most {@link CircuitBreakerConfig#halfOpenProbes()} permissions per round of
+     * probes in the half-open state. A permission which is not used for a request has to be returned with
+     * {@link #releasePermission()}.
+     *
+     * @return {@code true} if the host can be selected.
+     */
+    boolean tryAcquirePermission() {
+        final int state = this.state;
+        if (state == CLOSED) {
+            return true;
+        }
+        final long now = currentTimeNanos.getAsLong();
+        final long deadline = deadlineNanos;
+        if (state == OPEN) {
+            if (now - deadline < 0) {
+                return false;
+            }
+            if (stateUpdater.compareAndSet(this, OPEN, HALF_OPEN)) {
+                LOGGER.debug("{}: circuit of host {} is half-open.", targetResource, address);
+            }
+        }
+        for (;;) {
+            final int started = probesStarted;
+            if (started >= halfOpenProbes) {
+                break;
+            }
+            if (probesStartedUpdater.compareAndSet(this, started, started + 1)) {
+                return true;
+            }
+        }
+        // All probes of the round are reserved. Once the deadline passed, either the circuit just became half-open or
+        // the outcome of some probes was never reported, for example because they were cancelled. A single selection
+        // starts a new round instead of staying half-open forever.
+        if (now - deadline >= 0 && this.state == HALF_OPEN &&
+                deadlineNanosUpdater.compareAndSet(this, deadline, now + openDurationNanos)) {
+            probesSucceeded = 0;
+            probesStarted = 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a permission acquired by {@link #tryAcquirePermission()} which was not used for a request.
+     */
+    void releasePermission() {
+        // A permission acquired in a previous round may be returned to the current one, which lets one more probe
+        // through at most.
+        while (state == HALF_OPEN) {
+            final int started = probesStarted;
+            if (started <= 0 || probesStartedUpdater.compareAndSet(this, started, started - 1)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the current state of the circuit.
+     *
+     * @return one of {@link #CLOSED}, {@link #OPEN} and {@link #HALF_OPEN}.
+     */
+    int state() {
+        return state;
+    }
+
+    private void open(final int expectedState, final String reason) {
+        // The deadline and the probes are written before the state, so that a selection which observes the open state
+        // also observes the new deadline and no probes left. Losing the race to another transition only shifts the
+        // deadline by a few nanoseconds.
+        deadlineNanos = currentTimeNanos.getAsLong() + openDurationNanos;
+        probesStarted = halfOpenProbes;
+        if (stateUpdater.compareAndSet(this, expectedState, OPEN)) {
+            LOGGER.info("{}: circuit of host {} opened for {}ms after {}.", targetResource, address,
+                    NANOSECONDS.toMillis(openDurationNanos), reason);
+        }
+    }
+
+    /**
+     * Counts an outcome in the sliding window.
+     *
+     * @param increment {@link #SUCCESS_INCREMENT} or {@link #FAILURE_INCREMENT}.
+     * @return {@code true} if the failure rate in the window reached the threshold.
+     */
+    private boolean record(final long increment) {
+        final long slice = (currentTimeNanos.getAsLong() / slotNanos) & SLICE_MASK;
+        final int index = (int) (slice % SLOTS);
+        for (;;) {
+            final long current = slots.get(index);
+            final long next;
+            if (current >>> SLICE_SHIFT == slice) {
+                final long shift = increment == SUCCESS_INCREMENT ? COUNT_BITS : 0;
+                if (((current >>> shift) & COUNT_MASK) == COUNT_MASK) {
+                    // The count is saturated, the slot still reflects the failure rate well enough.
+                    break;
+                }
+                next = current + increment;
+            } else {
+                next = slice << SLICE_SHIFT | increment;
+            }
+            if (slots.compareAndSet(index, current, next)) {
+                break;
+            }
+        }
+        if (increment == SUCCESS_INCREMENT) {
+            return false;
+        }
+        long successes = 0;
+        long failures = 0;
+        for (int i = 0; i < SLOTS; ++i) {
+            final long value = slots.get(i);
+            // Slots that were not updated within the window are stale.
+            if (((slice - (value >>> SLICE_SHIFT)) & SLICE_MASK) < SLOTS) {
+                successes += (value >>> COUNT_BITS) & COUNT_MASK;
+                failures += value & COUNT_MASK;
+            }
+        }
+        final long total = successes + failures;
+        return total >= minimumRequests && failures >= failureRateThreshold * total;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+                "address=" + address +
+                ", state=" + (state == CLOSED ? "CLOSED" : state == OPEN ? "OPEN" : "HALF_OPEN") +
+                '}';
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.RequestTracker;
+
+import java.time.Duration;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of the per host circuit breaker, which stops selecting a host when the share of failed requests
+ * reported through a {@link RequestTracker} gets too high.
+ * <p>
+ * A circuit breaker has three states:
+ * <ul>
+ * <li>Closed: the host is selected as usual. Request outcomes are counted in a sliding
+ * {@link Builder#window(Duration) window}, once the window contains at least
+ * {@link Builder#minimumRequests(int) minimum requests} and the share of failures reaches the
+ * {@link Builder#failureRateThreshold(double) failure rate threshold} the circuit opens. Failed connection attempts
+ * count as failed requests.</li>
+ * <li>Open: the host is skipped by the load balancer, requests neither wait for a connect timeout nor for a request
+ * timeout. After the {@link Builder#openDuration(Duration) open duration} the circuit becomes half-open.</li>
+ * <li>Half-open: up to {@link Builder#halfOpenProbes(int) probes} requests are let through. If all of them succeed
+ * the circuit closes, a single failure opens it again.</li>
+ * </ul>
+ * Unlike the outlier detection, which compares hosts with each other, the circuit breaker evaluates every host on its
+ * own, and can therefore skip all hosts of a target resource at once.
+ */
+public final class CircuitBreakerConfig {
+
+    static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+    static final int DEFAULT_MINIMUM_REQUESTS = 20;
+    static final Duration DEFAULT_WINDOW = ofSeconds(10);
+    static final Duration DEFAULT_OPEN_DURATION = ofSeconds(10);
+    static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private final double failureRateThreshold;
+    private final int minimumRequests;
+    private final Duration window;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+
+    private CircuitBreakerConfig(final double failureRateThreshold, final int minimumRequests, final Duration window,
+                                 final Duration openDuration, final int halfOpenProbes) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumRequests = minimumRequests;
+        this.window = window;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Returns the share of failed requests in the window at which the circuit opens.
+     *
+     * @return the share of failed requests in the window at which the circuit opens.
+     */
+    public double failureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Returns the minimum number of requests in the window for the failure rate to be evaluated.
+     *
+     * @return the minimum number of requests in the window for the failure rate to be evaluated.
+     */
+    public int minimumRequests() {
+        return minimumRequests;
+    }
+
+    /**
+     * Returns the duration of the sliding window in which request outcomes are counted.
+     *
+     * @return the duration of the sliding window in which request outcomes are counted.
+     */
+    public Duration window() {
+        return window;
+    }
+
+    /**
+     * Returns the time the circuit stays open before probe requests are let through.
+     *
+     * @return the time the circuit stays open before probe requests are let through.
+     */
+    public Duration openDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Returns the number of probe requests which have to succeed in the half-open state to close the circuit.
+     *
+     * @return the number of probe requests which have to succeed in the half-open state to close the circuit.
+     */
+    public int halfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerConfig{" +
+                "failureRateThreshold=" + failureRateThreshold +
+                ", minimumRequests=" + minimumRequests +
+                ", window=" + window +
+                ", openDuration=" + openDuration +
+                ", halfOpenProbes=" + halfOpenProbes +
+                '}';
+    }
+
+    /**
+     * Builder for {@link CircuitBreakerConfig}.
+     */
+    public static final class Builder {
+        private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+        private int minimumRequests = DEFAULT_MINIMUM_REQUESTS;
+        private Duration window = DEFAULT_WINDOW;
+        private Duration openDuration = DEFAULT_OPEN_DURATION;
+        private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the share of failed requests in the window at which the circuit opens.
+         *
+         * @param failureRateThreshold the share of failed requests in the range {@code (0, 1]}.
+         * @return {@code this}.
+         */
+        public Builder failureRateThreshold(final double failureRateThreshold) {
+            if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+                throw new IllegalArgumentException("failureRateThreshold: " + failureRateThreshold +
+                        " (expected (0, 1])");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of requests in the window for the failure rate to be evaluated, so that a few
+         * failures of a host with little traffic do not open its circuit.
+         *
+         * @param minimumRequests the minimum number of requests in the window.
+         * @return {@code this}.
+         */
+        public Builder minimumRequests(final int minimumRequests) {
+            if (minimumRequests <= 0) {
+                throw new IllegalArgumentException("minimumRequests: " + minimumRequests + " (expected >0)");
+            }
+            this.minimumRequests = minimumRequests;
+            return this;
+        }
+
+        /**
+         * Sets the duration of the sliding window in which request outcomes are counted.
+         *
+         * @param window the duration of the sliding window.
+         * @return {@code this}.
+         */
+        public Builder window(final Duration window) {
+            this.window = requirePositive(window, "window");
+            return this;
+        }
+
+        /**
+         * Sets the time the circuit stays open before probe requests are let through.
+         *
+         * @param openDuration the time the circuit stays open.
+         * @return {@code this}.
+         */
+        public Builder openDuration(final Duration openDuration) {
+            this.openDuration = requirePositive(openDuration, "openDuration");
+            return this;
+        }
+
+        /**
+         * Sets the number of probe requests which are let through in the half-open state, and have to succeed to
+         * close the circuit.
+         *
+         * @param halfOpenProbes the number of probe requests.
+         * @return {@code this}.
+         */
+        public Builder halfOpenProbes(final int halfOpenProbes) {
+            if (halfOpenProbes <= 0) {
+                throw new IllegalArgumentException("halfOpenProbes: " + halfOpenProbes + " (expected >0)");
+            }
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        /**
+         * Builds the {@link CircuitBreakerConfig} configured by this builder.
+         *
+         * @return a new instance of {@link CircuitBreakerConfig} with settings from this builder.
+         */
+        public CircuitBreakerConfig build() {
+            return new CircuitBreakerConfig(failureRateThreshold, minimumRequests, window, openDuration,
+                    halfOpenProbes);
+        }
+
+        private static Duration requirePositive(final Duration duration, final String name) {
+            if (requireNonNull(duration, name).isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + ": " + duration + " (expected >0)");
+            }
+            return duration;
+        }
+    }
+}
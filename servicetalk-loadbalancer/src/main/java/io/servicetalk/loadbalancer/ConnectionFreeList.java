@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.RequestTracker;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A lock-free list of the connections of a {@link Host} that are likely to accept a new request.
+ * <p>
+ * Instead of probing the connections of a host one by one, selections poll connections from this list. A connection
+ * re-enters the list when it is added to the host, when it is selected (it may accept more concurrent requests), and
+ * when a request issued over it terminates, which is reported through the {@link RequestTracker} that the host puts
+ * into the request context. Connections that reject the selection are dropped from the list until one of their
+ * requests terminates, so the cost of a selection does not depend on the number of connections.
+ * <p>
+ * The list is a hint: connections selected without a request context or reserved connections are not reported back,
+ * therefore the {@link Host} probes a few random connections when the list is empty, before it opens a new
+ * connection.
+ *
+ * @param <C> The type of connection.
+ */
+final class ConnectionFreeList<C extends LoadBalancedConnection> {
+
+    private final Queue<PooledConnection<C>> free = new ConcurrentLinkedQueue<>();
+    private final Map<C, PooledConnection<C>> pooled = new ConcurrentHashMap<>();
+    @Nullable
+    private final RequestTracker delegate;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the {@link RequestTracker} of the host that is notified about the request outcomes, or
+     * {@code null} if the host does not track requests.
+     */
+    ConnectionFreeList(@Nullable final RequestTracker delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Adds a new connection of the host to the list.
+     *
+     * @param connection the new connection.
+     */
+    void add(final C connection) {
+        final PooledConnection<C> pooledConnection = new PooledConnection<>(this, connection);
+        if (pooled.putIfAbsent(connection, pooledConnection) == null) {
+            pooledConnection.offer();
+        }
+    }
+
+    /**
+     * Removes a closed connection of the host from the list.
+     *
+     * @param connection the closed connection.
+     */
+    void remove(final C connection) {
+        final PooledConnection<C> pooledConnection = pooled.remove(connection);
+        if (pooledConnection != null) {
+            pooledConnection.removed = true;
+        }
+    }
+
+    /**
+     * Polls the list until a connection accepted by the passed {@code selector} is found or the list is empty.
+     *
+     * @param selector the {@link Predicate} that a connection has to satisfy.
+     * @return a selected connection or {@code null} if the list has no connection accepted by the {@code selector}.
+     */
+    @Nullable
+    C poll(final Predicate<C> selector) {
+        PooledConnection<C> pooledConnection;
+        while ((pooledConnection = free.poll()) != null) {
+            pooledConnection.inList = 0;
+            if (pooledConnection.removed) {
+                continue;
+            }
+            if (selector.test(pooledConnection.connection)) {
+                // The connection may accept more concurrent requests, let other selections try it as well.
+                pooledConnection.offer();
+                return pooledConnection.connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the {@link RequestTracker} to put into the request context when the passed connection is selected.
+     *
+     * @param connection the selected connection.
+     * @return the {@link RequestTracker} for the passed connection or the {@link RequestTracker} of the host if the
+     * connection is not in this list.
+     */
+    @Nullable
+    RequestTracker tracker(final C connection) {
+        final PooledConnection<C> pooledConnection = pooled.get(connection);
+        return pooledConnection == null ? delegate : pooledConnection;
+    }
+
+    private static final class PooledConnection<C extends LoadBalancedConnection> implements RequestTracker {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<PooledConnection> inListUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(PooledConnection.class, "inList");
+
+        private final ConnectionFreeList<C> freeList;
+        final C connection;
+        volatile int inList;
+        volatile boolean removed;
+
+        PooledConnection(final ConnectionFreeList<C> freeList, final C connection) {
+            this.freeList = freeList;
+            this.connection = requireNonNull(connection);
+        }
+
+        void offer() {
+            // A connection is in the list at most once, duplicates would only waste the selection attempts.
+            if (!removed && inListUpdater.compareAndSet(this, 0, 1)) {
+                freeList.free.offer(this);
+            }
+        }
+
+        @Override
+        public long beforeStart() {
+            final RequestTracker delegate = freeList.delegate;
+            return delegate == null ? 0 : delegate.beforeStart();
+        }
+
+        @Override
+        public void onSuccess(final long beforeStartTimeNs) {
+            final RequestTracker delegate = freeList.delegate;
+            if (delegate != null) {
+                delegate.onSuccess(beforeStartTimeNs);
+            }
+            offer();
+        }
+
+        @Override
+        public void onError(final long beforeStartTimeNs, final ErrorClass errorClass) {
+            final RequestTracker delegate = freeList.delegate;
+            if (delegate != null) {
+                delegate.onError(beforeStartTimeNs, errorClass);
+            }
+            offer();
+        }
+
+        @Override
+        public String toString() {
+            return connection.toString();
+        }
+    }
+}
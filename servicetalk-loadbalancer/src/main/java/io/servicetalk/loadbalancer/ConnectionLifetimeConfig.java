@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.api.Executor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Configuration for the maximum age and the maximum idle time of the connections of a host, after which connections
+ * are removed from the pool and closed gracefully.
+ */
+final class ConnectionLifetimeConfig {
+    final Executor executor;
+    private final long maxAgeNanos;
+    private final long maxAgeJitterNanos;
+    final long idleTimeoutNanos;
+    final int minIdleConnections;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param executor the {@link Executor} which schedules the checks of the connections.
+     * @param maxAgeNanos the maximum age of a connection, or {@code 0} if connections have no maximum age.
+     * @param maxAgeJitterNanos the upper bound of the random time by which the maximum age of a connection is reduced.
+     * @param idleTimeoutNanos the time after which a connection that was not selected is closed, or {@code 0} if idle
+     * connections are not closed.
+     * @param minIdleConnections the number of connections of a host that are kept even if they are idle.
+     */
+    ConnectionLifetimeConfig(final Executor executor, final long maxAgeNanos, final long maxAgeJitterNanos,
+                             final long idleTimeoutNanos, final int minIdleConnections) {
+        this.executor = executor;
+        this.maxAgeNanos = maxAgeNanos;
+        this.maxAgeJitterNanos = maxAgeJitterNanos;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.minIdleConnections = minIdleConnections;
+    }
+
+    /**
+     * Returns the age of a new connection at which it is drained, reduced by a random jitter so that connections that
+     * were opened at the same time are not all replaced at once.
+     *
+     * @return the age in nanoseconds, or {@link Long#MAX_VALUE} if connections have no maximum age.
+     */
+    long nextMaxAgeNanos() {
+        if (maxAgeNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+        return maxAgeJitterNanos == 0 ? maxAgeNanos :
+                maxAgeNanos - ThreadLocalRandom.current().nextLong(maxAgeJitterNanos + 1);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HostSelector} that maps the value of a {@link ContextMap.Key} of the request context to a host with ring hash
+ * consistent hashing, so that requests with the same value are sent to the same host.
+ * <p>
+ * Every host owns a number of points on a ring of 64-bit hashes, proportional to its {@link Host#weight() weight}, and
+ * a request is sent to the owner of the first point at or after the hash of its key. When a host is added or removed,
+ * only the keys of the ring segments that it gains or loses move to a different host, unless the total weight crosses
+ * a power of two: then the points of every host are halved or doubled, and keys also move between the other hosts.
+ * The hash of a key is derived from its {@link Object#hashCode()}, so keys need a value based hash code that is the
+ * same in every JVM, like {@link String} has, for all clients to agree on the host of a key.
+ * <p>
+ * If the owner of a key has no connection that can serve the request and can not open a new one, for example because
+ * it is expired or unhealthy, the next hosts on the ring are tried, so that a key fails over to the same host on every
+ * client. Requests without a key are handled by the delegate {@link HostSelector}.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class ConsistentHashSelector<ResolvedAddress, C extends LoadBalancedConnection>
+        implements HostSelector<ResolvedAddress, C> {
+
+    static final int DEFAULT_RING_SIZE = 1024;
+
+    private final HostSelector<ResolvedAddress, C> delegate;
+    private final ContextMap.Key<?> hashKey;
+    private final int ringSize;
+    private final String targetResource;
+    private volatile Ring ring = new Ring(emptyList(), new long[0], new int[0]);
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the {@link HostSelector} for requests without a key.
+     * @param hashKey the {@link ContextMap.Key} whose value determines the host.
+     * @param ringSize the minimum number of points on the ring.
+     * @param targetResource the name of the target resource, used in exception messages.
+     */
+    ConsistentHashSelector(final HostSelector<ResolvedAddress, C> delegate, final ContextMap.Key<?> hashKey,
+                           final int ringSize, final String targetResource) {
+        if (ringSize <= 0) {
+            throw new IllegalArgumentException("ringSize: " + ringSize + " (expected >0)");
+        }
+        this.delegate = requireNonNull(delegate);
+        this.hashKey = requireNonNull(hashKey);
+        this.ringSize = ringSize;
+        this.targetResource = requireNonNull(targetResource);
+    }
+
+    /**
+     * Routes the requests with a value for {@code hashKey} with consistent hashing, if consistent hashing is enabled.
+     *
+     * @param selector the {@link HostSelector} for requests without a key.
+     * @param hashKey the {@link ContextMap.Key} whose value determines the host, or {@code null} if consistent hashing
+     * is disabled.
+     * @param ringSize the minimum number of points on the ring.
+     * @param targetResource the name of the target resource, used in exception messages.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return the {@link HostSelector} to use.
+     */
+    static <ResolvedAddress, C extends LoadBalancedConnection> HostSelector<ResolvedAddress, C> withConsistentHashing(
+            final HostSelector<ResolvedAddress, C> selector, @Nullable final ContextMap.Key<?> hashKey,
+            final int ringSize, final String targetResource) {
+        if (hashKey == null) {
+            return selector;
+        }
+        return new ConsistentHashSelector<>(selector, hashKey, ringSize, targetResource);
+    }
+
+    @Override
+    public Single<C> selectConnection(final List<Host<ResolvedAddress, C>> hosts, final Predicate<C> selector,
+                                      @Nullable final ContextMap context,
+                                      final boolean forceNewConnectionAndReserve) {
+        final Object key = context == null ? null : context.get(hashKey);
+        if (key == null) {
+            return delegate.selectConnection(hosts, selector, context, forceNewConnectionAndReserve);
+        }
+        final Ring ring = ring(hosts);
+        // Only stable across clients for keys with a value based hashCode(), see the class javadoc.
+        final int start = ring.indexOf(mix(key.hashCode()));
+        // Hosts own many points, only try every host once while walking the ring.
+        boolean[] tried = null;
+        for (int i = 0, triedHosts = 0; i < ring.size() && triedHosts < hosts.size(); ++i) {
+            final int hostIndex = ring.hostIndex((start + i) % ring.size());
+            if (tried != null && tried[hostIndex]) {
+                continue;
+            }
+            final Host<ResolvedAddress, C> host = hosts.get(hostIndex);
+            if (!forceNewConnectionAndReserve) {
+                final C connection = host.pickConnection(selector, context);
+                if (connection != null) {
+                    return succeeded(connection);
+                }
+            }
+            if (host.isActiveAndHealthy()) {
+                return host.newConnection(selector, forceNewConnectionAndReserve, context);
+            }
+            if (tried == null) {
+                tried = new boolean[hosts.size()];
+            }
+            tried[hostIndex] = true;
+            ++triedHosts;
+        }
+        return failed(StacklessNoAvailableHostException.newInstance("Failed to pick an active host for " +
+                        targetResource + " and key " + key + ". Either all are busy, expired, or unhealthy: " + hosts,
+                ConsistentHashSelector.class, "selectConnection(...)"));
+    }
+
+    private Ring ring(final List<Host<ResolvedAddress, C>> hosts) {
+        Ring current = ring;
+        if (current.hosts != hosts) {
+            current = Ring.forHosts(hosts, ringSize);
+            ring = current;
+        }
+        return current;
+    }
+
+    // The finalizer of the SplitMix64 generator, which spreads small differences of the input over all bits.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The points of the hosts on the ring, sorted by their hash. Because the {@link RoundRobinLoadBalancer} replaces
+     * its list of hosts on every change, the identity of the list is used to detect that the ring is stale.
+     */
+    static final class Ring {
+        final List<?> hosts;
+        private final long[] hashes;
+        private final int[] hostIndexes;
+
+        private Ring(final List<?> hosts, final long[] hashes, final int[] hostIndexes) {
+            this.hosts = hosts;
+            this.hashes = hashes;
+            this.hostIndexes = hostIndexes;
+        }
+
+        static Ring forHosts(final List<? extends Host<?, ?>> hosts, final int ringSize) {
+            final int size = hosts.size();
+            double totalWeight = 0;
+            for (Host<?, ?> host : hosts) {
+                totalWeight += host.weight();
+            }
+            // Hosts get points in proportion to their weight. The points per unit of weight are a power of two, so that
+            // they only change when the total weight crosses a power of two. Otherwise, every added or removed host
+            // would change the points of all other hosts, and move keys between them.
+            double pointsPerWeight = 1;
+            while (pointsPerWeight * totalWeight < ringSize) {
+                pointsPerWeight *= 2;
+            }
+            while (pointsPerWeight * totalWeight >= 2L * ringSize) {
+                pointsPerWeight /= 2;
+            }
+            final int[] points = new int[size];
+            int totalPoints = 0;
+            for (int i = 0; i < size; ++i) {
+                points[i] = Math.max(1, (int) Math.round(pointsPerWeight * hosts.get(i).weight()));
+                totalPoints += points[i];
+            }
+            final long[] unsortedHashes = new long[totalPoints];
+            final int[] unsortedIndexes = new int[totalPoints];
+            final Integer[] order = new Integer[totalPoints];
+            for (int i = 0, p = 0; i < size; ++i) {
+                // Points only depend on the address, so that all clients build the same ring for the same hosts.
+                final long addressHash = mix(hosts.get(i).address.hashCode());
+                for (int replica = 0; replica < points[i]; ++replica, ++p) {
+                    unsortedHashes[p] = mix(addressHash + replica);
+                    unsortedIndexes[p] = i;
+                    order[p] = p;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(unsortedHashes[a], unsortedHashes[b]));
+            final long[] hashes = new long[totalPoints];
+            final int[] hostIndexes = new int[totalPoints];
+            for (int i = 0; i < totalPoints; ++i) {
+                hashes[i] = unsortedHashes[order[i]];
+                hostIndexes[i] = unsortedIndexes[order[i]];
+            }
+            return new Ring(hosts, hashes, hostIndexes);
+        }
+
+        int size() {
+            return hashes.length;
+        }
+
+        /**
+         * Returns the index of the first point at or after the passed hash, wrapping around at the end of the ring.
+         */
+        int indexOf(final long hash) {
+            final int index = Arrays.binarySearch(hashes, hash);
+            if (index >= 0) {
+                return index;
+            }
+            final int insertionPoint = -index - 1;
+            return insertionPoint == hashes.length ? 0 : insertionPoint;
+        }
+
+        int hostIndex(final int index) {
+            return hostIndexes[index];
+        }
+    }
+}
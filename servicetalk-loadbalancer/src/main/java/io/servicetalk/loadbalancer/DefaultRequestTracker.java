@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.client.api.ScoreSupplier;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A {@link RequestTracker} which keeps track of the number of pending requests and a peak exponentially weighted
+ * moving average (peak EWMA) of the observed latency, and exposes the combination of both as a {@link #score()}.
+ * <p>
+ * A latency sample that is higher than the current average replaces it right away, while lower samples are blended
+ * in with a weight that grows with the time elapsed since the previous sample. The average also decays towards zero
+ * while no requests complete, so that a host that was slow in the past eventually gets probed again. The rate of decay
+ * is controlled by the half-life: after that much time without samples the contribution of the past latency is
+ * halved.
+ * <p>
+ * Failed requests are sampled with at least the current average, so that a resource which fails fast does not look
+ * faster than it is. Cancelled requests are not sampled, their elapsed time says nothing about the resource.
+ * <p>
+ * The score is the negated product of the decayed latency in microseconds and the number of pending requests
+ * (plus one), so that {@link io.servicetalk.client.api.LoadBalancer}s which prefer higher scores pick the resource
+ * expected to serve the next request the fastest.
+ * <p>
+ * All updates are lock-free and allocation-free. The latency average and the time of the last sample are updated
+ * independently, a concurrent observer may therefore see a slightly stale decay, which does not affect the ranking.
+ */
+final class DefaultRequestTracker implements RequestTracker, ScoreSupplier {
+
+    /**
+     * Score of a resource that has requests in flight, but did not complete any request yet.
+     */
+    private static final long PENDING_WITHOUT_LATENCY_PENALTY = Integer.MAX_VALUE >> 4;
+
+    private static final AtomicLongFieldUpdater<DefaultRequestTracker> pendingUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultRequestTracker.class, "pending");
+    private static final AtomicLongFieldUpdater<DefaultRequestTracker> ewmaUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultRequestTracker.class, "ewmaNanos");
+
+    private final LongSupplier currentTimeNanos;
+    /**
+     * {@code ln(2) / halfLife}, so that the weight of the past average is {@code exp(-elapsed * invTau)}.
+     */
+    private final double invTau;
+
+    private volatile long pending;
+    private volatile long ewmaNanos;
+    private volatile long lastTimeNanos;
+
+    DefaultRequestTracker(final long halfLifeNanos) {
+        this(halfLifeNanos, System::nanoTime);
+    }
+
+    DefaultRequestTracker(final long halfLifeNanos, final LongSupplier currentTimeNanos) {
+        if (halfLifeNanos <= 0) {
+            throw new IllegalArgumentException("halfLifeNanos: " + halfLifeNanos + " (expected >0)");
+        }
+        this.invTau = log(2) / halfLifeNanos;
+        this.currentTimeNanos = currentTimeNanos;
+        this.lastTimeNanos = currentTimeNanos.getAsLong();
+    }
+
+    @Override
+    public long beforeStart() {
+        pendingUpdater.incrementAndGet(this);
+        return currentTimeNanos.getAsLong();
+    }
+
+    @Override
+    public void onSuccess(final long beforeStartTimeNs) {
+        onComplete(beforeStartTimeNs, false);
+    }
+
+    @Override
+    public void onError(final long beforeStartTimeNs, final ErrorClass errorClass) {
+        if (errorClass == CANCELLED) {
+            pendingUpdater.decrementAndGet(this);
+        } else {
+            onComplete(beforeStartTimeNs, true);
+        }
+    }
+
+    private void onComplete(final long beforeStartTimeNs, final boolean failed) {
+        pendingUpdater.decrementAndGet(this);
+        final long now = currentTimeNanos.getAsLong();
+        long sample = max(1, now - beforeStartTimeNs);
+        if (failed) {
+            sample = max(sample, latencyNanos(now));
+        }
+        for (;;) {
+            final long current = ewmaNanos;
+            final long next = sample >= current ? sample : current + (long) ((sample - current) * (1 - weight(now)));
+            if (ewmaUpdater.compareAndSet(this, current, next)) {
+                lastTimeNanos = now;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of the current average at the passed time.
+     *
+     * @param now the current time in nanoseconds.
+     * @return the weight of the current average, in the range {@code (0, 1]}.
+     */
+    private double weight(final long now) {
+        return exp(-max(0, now - lastTimeNanos) * invTau);
+    }
+
+    /**
+     * Returns the current latency average, decayed by the time elapsed since the last sample.
+     *
+     * @return the current latency average in nanoseconds, or {@code 0} if no request completed yet.
+     */
+    long latencyNanos() {
+        return latencyNanos(currentTimeNanos.getAsLong());
+    }
+
+    private long latencyNanos(final long now) {
+        final long ewma = ewmaNanos;
+        return ewma == 0 ? 0 : max(1, (long) (ewma * weight(now)));
+    }
+
+    /**
+     * Returns the number of requests which did not terminate yet.
+     *
+     * @return the number of requests which did not terminate yet.
+     */
+    long pending() {
+        return max(0, pending);
+    }
+
+    @Override
+    public int score() {
+        final long latency = latencyNanos();
+        final long pending = pending();
+        if (latency == 0) {
+            return pending == 0 ? 0 : (int) -min(Integer.MAX_VALUE, PENDING_WITHOUT_LATENCY_PENALTY + pending);
+        }
+        final long latencyMicros = max(1, min(Integer.MAX_VALUE, NANOSECONDS.toMicros(latency)));
+        return (int) -min(Integer.MAX_VALUE, latencyMicros * min(Integer.MAX_VALUE, pending + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultRequestTracker{" +
+                "pending=" + pending +
+                ", latencyNanos=" + latencyNanos() +
+                '}';
+    }
+}
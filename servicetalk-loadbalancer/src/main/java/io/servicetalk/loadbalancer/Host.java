@@ -0,0 +1,1045 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.ConnectionLimitReachedException;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.client.api.ScoreSupplier;
+import io.servicetalk.concurrent.api.AsyncCloseable;
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.DelayedCancellable;
+import io.servicetalk.concurrent.internal.SequentialCancellable;
+import io.servicetalk.context.api.ContextMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.RequestTracker.REQUEST_TRACKER_KEY;
+import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
+import static io.servicetalk.concurrent.api.Completable.completed;
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.RetryStrategies.retryWithConstantBackoffDeltaJitter;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A host (address) managed by a {@link RoundRobinLoadBalancer} together with its pool of connections.
+ *
+ * @param <Addr> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class Host<Addr, C extends LoadBalancedConnection> implements ListenableAsyncCloseable, ScoreSupplier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Host.class);
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    /**
+     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
+     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
+     * selection attempt.
+     */
+    private static final int MIN_RANDOM_SEARCH_SPACE = 64;
+
+    /**
+     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
+     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
+     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
+     * <p>
+     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
+     * counts, larger connection counts, low connection churn, high connection churn.
+     */
+    private static final float RANDOM_SEARCH_FACTOR = 0.75f;
+
+    /**
+     * When connections are tracked in a {@link ConnectionFreeList}, connections that are not listed most likely can not
+     * serve another request. Only this many of them are probed, in case the list missed that they became available,
+     * before opening a new connection, so that the cost of a selection does not depend on the number of connections.
+     */
+    private static final int FREE_LIST_FALLBACK_ATTEMPTS = 4;
+
+    private enum State {
+        // The enum is not exhaustive, as other states have dynamic properties.
+        // For clarity, the other state classes are listed as comments:
+        // ACTIVE - see ActiveState
+        // UNHEALTHY - see HealthCheck
+        EXPIRED,
+        CLOSED
+    }
+
+    private static final ActiveState STATE_ACTIVE_NO_FAILURES = new ActiveState();
+    private static final ConnState ACTIVE_EMPTY_CONN_STATE = new ConnState(EMPTY_ARRAY, STATE_ACTIVE_NO_FAILURES);
+    private static final ConnState CLOSED_CONN_STATE = new ConnState(EMPTY_ARRAY, State.CLOSED);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Host, ConnState> connStateUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Host.class, ConnState.class, "connState");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Host> pendingConnectionsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "pendingConnections");
+
+    private final String targetResource;
+    final Addr address;
+    private final ConnectionFactory<Addr, ? extends C> connectionFactory;
+    private final int linearSearchSpace;
+    @Nullable
+    private final HealthCheckConfig healthCheckConfig;
+    @Nullable
+    private final DefaultRequestTracker latencyTracker;
+    @Nullable
+    private final OutlierDetector.HostTracker outlierTracker;
+    @Nullable
+    private final RequestTracker requestTracker;
+    @Nullable
+    private final SlowStartConfig slowStartConfig;
+    private final long slowStartTimeNanos;
+    @Nullable
+    private final ConnectionFreeList<C> freeConnections;
+    @Nullable
+    private final MinConnectionsConfig minConnectionsConfig;
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
+    @Nullable
+    private final ConnectionLifetimeConfig lifetimeConfig;
+    @Nullable
+    private final Map<C, ConnectionLifetime> idleTrackedConnections;
+    private final ListenableAsyncCloseable closeable;
+    private volatile ConnState connState = ACTIVE_EMPTY_CONN_STATE;
+    private volatile boolean slowStartComplete;
+    private volatile double weight = 1;
+    @Nullable
+    private volatile String zone;
+    private volatile int pendingConnections;
+    /**
+     * Whether the minimum number of connections is kept for this host, which is only the case while the host can be
+     * selected.
+     */
+    private volatile boolean keepMinConnections = true;
+
+    /**
+     * Creates a new instance that does not keep track of requests.
+     *
+     * @param targetResource the name of the target resource, used in log messages.
+     * @param address the address of the host.
+     * @param connectionFactory the {@link ConnectionFactory} which opens connections to the host.
+     * @param config the configuration shared by all hosts.
+     */
+    Host(String targetResource, Addr address, ConnectionFactory<Addr, ? extends C> connectionFactory,
+         HostConfig config) {
+        this(targetResource, address, connectionFactory, config, null, null, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param targetResource the name of the target resource, used in log messages.
+     * @param address the address of the host.
+     * @param connectionFactory the {@link ConnectionFactory} which opens connections to the host.
+     * @param config the configuration shared by all hosts.
+     * @param latencyTracker the tracker of the latency of requests, if enabled.
+     * @param outlierTracker the tracker of the outlier detection, if enabled. Forwards outcomes to
+     * {@code latencyTracker}.
+     * @param circuitBreaker the circuit breaker, if enabled. Forwards outcomes to {@code outlierTracker} or
+     * {@code latencyTracker}.
+     */
+    Host(String targetResource, Addr address, ConnectionFactory<Addr, ? extends C> connectionFactory,
+         HostConfig config, @Nullable DefaultRequestTracker latencyTracker,
+         @Nullable OutlierDetector.HostTracker outlierTracker, @Nullable CircuitBreaker circuitBreaker) {
+        this.targetResource = requireNonNull(targetResource);
+        this.address = requireNonNull(address);
+        this.connectionFactory = requireNonNull(connectionFactory);
+        final SlowStartConfig slowStartConfig = config.slowStartConfig;
+        final ConnectionLifetimeConfig lifetimeConfig = config.connectionLifetimeConfig;
+        this.linearSearchSpace = config.linearSearchSpace;
+        this.healthCheckConfig = config.healthCheckConfig;
+        this.latencyTracker = latencyTracker;
+        this.outlierTracker = outlierTracker;
+        this.circuitBreaker = circuitBreaker;
+        // The circuit breaker forwards request outcomes to the outlier tracker, which forwards them to the latency
+        // tracker, if present.
+        this.requestTracker = circuitBreaker != null ? circuitBreaker :
+                outlierTracker != null ? outlierTracker : latencyTracker;
+        this.slowStartConfig = slowStartConfig;
+        this.slowStartTimeNanos = slowStartConfig == null ? 0 : slowStartConfig.currentTimeNanos();
+        this.slowStartComplete = slowStartConfig == null;
+        this.freeConnections = config.trackFreeConnections ? new ConnectionFreeList<>(requestTracker) : null;
+        this.minConnectionsConfig = config.minConnectionsConfig;
+        this.lifetimeConfig = lifetimeConfig;
+        this.idleTrackedConnections = lifetimeConfig == null || lifetimeConfig.idleTimeoutNanos == 0 ? null :
+                new ConcurrentHashMap<>();
+        this.closeable = toAsyncCloseable(graceful ->
+                graceful ? doClose(AsyncCloseable::closeAsyncGracefully) : doClose(AsyncCloseable::closeAsync));
+    }
+
+    boolean markActiveIfNotClosed() {
+        final Object oldState = connStateUpdater.getAndUpdate(this, oldConnState -> {
+            if (oldConnState.state == State.EXPIRED) {
+                return new ConnState(oldConnState.connections, STATE_ACTIVE_NO_FAILURES);
+            }
+            // If oldConnState.state == State.ACTIVE this could mean either a duplicate event,
+            // or a repeated CAS operation. We could issue a warning, but as we don't know, we don't log anything.
+            // UNHEALTHY state cannot transition to ACTIVE without passing the health check.
+            return oldConnState;
+        }).state;
+        return oldState != State.CLOSED;
+    }
+
+    void markClosed() {
+        final ConnState oldState = closeConnState();
+        final Object[] toRemove = oldState.connections;
+        cancelIfHealthCheck(oldState.state);
+        LOGGER.debug("Load balancer for {}: closing {} connection(s) gracefully to the closed address: {}.",
+                targetResource, toRemove.length, address);
+        for (Object conn : toRemove) {
+            @SuppressWarnings("unchecked")
+            final C cConn = (C) conn;
+            cConn.closeAsyncGracefully().subscribe();
+        }
+    }
+
+    private ConnState closeConnState() {
+        for (;;) {
+            // We need to keep the oldState.connections around even if we are closed because the user may do
+            // closeGracefully with a timeout, which fails, and then force close. If we discard connections when
+            // closeGracefully is started we may leak connections.
+            final ConnState oldState = connState;
+            if (oldState.state == State.CLOSED || connStateUpdater.compareAndSet(this, oldState,
+                    new ConnState(oldState.connections, State.CLOSED))) {
+                return oldState;
+            }
+        }
+    }
+
+    void markExpired() {
+        for (;;) {
+            ConnState oldState = connStateUpdater.get(this);
+            if (oldState.state == State.EXPIRED || oldState.state == State.CLOSED) {
+                break;
+            }
+            Object nextState = oldState.connections.length == 0 ? State.CLOSED : State.EXPIRED;
+
+            if (connStateUpdater.compareAndSet(this, oldState,
+                    new ConnState(oldState.connections, nextState))) {
+                cancelIfHealthCheck(oldState.state);
+                if (nextState == State.CLOSED) {
+                    // Trigger the callback to remove the host from usedHosts array.
+                    this.closeAsync().subscribe();
+                }
+                break;
+            }
+        }
+    }
+
+    void markHealthy(final HealthCheck<Addr, C> originalHealthCheckState) {
+        // Marking healthy is generally called from a successful health check, after a connection was added.
+        // However, it is possible that in the meantime, the host entered an EXPIRED state, then ACTIVE, then failed
+        // to open connections and entered the UNHEALTHY state before the original thread continues execution here.
+        // In such case, the flipped state is not the same as the one that just succeeded to open a connection.
+        // In an unlikely scenario that the following connection attempts fail indefinitely, a health check task
+        // would leak and would not be cancelled. Therefore, we cancel it here and allow failures to trigger a new
+        // health check.
+        Object oldState = connStateUpdater.getAndUpdate(this, previous -> {
+            if (HealthCheck.class.equals(previous.state.getClass())) {
+                return new ConnState(previous.connections, STATE_ACTIVE_NO_FAILURES);
+            }
+            return previous;
+        }).state;
+        if (oldState != originalHealthCheckState) {
+            cancelIfHealthCheck(oldState);
+        }
+        ensureMinConnections();
+    }
+
+    void markUnhealthy(final Throwable cause) {
+        assert healthCheckConfig != null;
+        for (;;) {
+            ConnState previous = connStateUpdater.get(this);
+
+            if (!ActiveState.class.equals(previous.state.getClass()) || previous.connections.length > 0
+                    || cause instanceof ConnectionLimitReachedException) {
+                LOGGER.debug("Load balancer for {}: failed to open a new connection to the host on address {}. {}",
+                        targetResource, address, previous, cause);
+                break;
+            }
+
+            ActiveState previousState = (ActiveState) previous.state;
+            if (previousState.failedConnections + 1 < healthCheckConfig.failedThreshold) {
+                final ActiveState nextState = previousState.forNextFailedConnection();
+                if (connStateUpdater.compareAndSet(this, previous,
+                        new ConnState(previous.connections, nextState))) {
+                    LOGGER.debug("Load balancer for {}: failed to open a new connection to the host on address {}" +
+                                    " {} time(s) ({} consecutive failures will trigger health-checking).",
+                            targetResource, address, nextState.failedConnections,
+                            healthCheckConfig.failedThreshold, cause);
+                    break;
+                }
+                // another thread won the race, try again
+                continue;
+            }
+
+            final HealthCheck<Addr, C> healthCheck = new HealthCheck<>(connectionFactory, this, cause);
+            final ConnState nextState = new ConnState(previous.connections, healthCheck);
+            if (connStateUpdater.compareAndSet(this, previous, nextState)) {
+                LOGGER.info("Load balancer for {}: failed to open a new connection to the host on address {} " +
+                                "{} time(s) in a row. Error counting threshold reached, marking this host as " +
+                                "UNHEALTHY for the selection algorithm and triggering background health-checking.",
+                        targetResource, address, healthCheckConfig.failedThreshold, cause);
+                healthCheck.schedule(cause);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sets whether this host keeps the configured minimum number of connections, and opens the missing connections if
+     * it does. Hosts that can not be selected, for example because they are not part of the subset of this client, do
+     * not keep any connections in the background.
+     *
+     * @param keep {@code true} if the minimum number of connections has to be kept.
+     */
+    void keepMinConnections(final boolean keep) {
+        keepMinConnections = keep;
+        if (keep) {
+            ensureMinConnections();
+        }
+    }
+
+    /**
+     * Opens connections in the background until this host has at least the configured minimum number of connections,
+     * so that requests do not have to wait for a connection to be established. Every connection is opened after a
+     * random delay to avoid a burst of connection attempts when many hosts are discovered at the same time.
+     */
+    void ensureMinConnections() {
+        final MinConnectionsConfig config = minConnectionsConfig;
+        if (config == null || !keepMinConnections) {
+            return;
+        }
+        for (;;) {
+            final ConnState current = connState;
+            // Unhealthy hosts are taken care of by the health check, expired and closed hosts need no connections.
+            if (!ActiveState.class.equals(current.state.getClass())) {
+                return;
+            }
+            final int pending = pendingConnections;
+            if (current.connections.length + pending >= config.minConnections) {
+                return;
+            }
+            if (pendingConnectionsUpdater.compareAndSet(this, pending, pending + 1)) {
+                openConnectionInBackground(config);
+            }
+        }
+    }
+
+    private void openConnectionInBackground(final MinConnectionsConfig config) {
+        config.executor.timer(config.nextConnectDelayNanos(), NANOSECONDS)
+                .concat(connectionFactory.newConnection(address, null, null)
+                        .flatMapCompletable(newCnx -> {
+                            if (addConnection(newCnx)) {
+                                return completed();
+                            }
+                            // This happens only if the host is closed.
+                            return newCnx.closeAsync();
+                        }))
+                // Decrement before the error handling below, which may try again.
+                .beforeFinally(() -> pendingConnectionsUpdater.decrementAndGet(this))
+                .onErrorComplete(cause -> {
+                    LOGGER.debug("Load balancer for {}: failed to open a connection in the background to {}.",
+                            targetResource, this, cause);
+                    if (healthCheckConfig != null) {
+                        markUnhealthy(cause);
+                    }
+                    config.executor.timer(config.nextRetryDelayNanos(), NANOSECONDS)
+                            .whenOnComplete(this::ensureMinConnections)
+                            .subscribe();
+                    return true;
+                })
+                .subscribe();
+    }
+
+    boolean isActiveAndHealthy() {
+        return ActiveState.class.equals(connState.state.getClass()) && !isEjected();
+    }
+
+    private boolean isEjected() {
+        return (outlierTracker != null && outlierTracker.isEjected()) ||
+                (circuitBreaker != null && circuitBreaker.isOpen());
+    }
+
+    /**
+     * Returns the relative weight of this host, as provided by the service discovery.
+     *
+     * @return the relative weight of this host.
+     * @see io.servicetalk.client.api.ServiceDiscovererEvent#weight()
+     */
+    double weight() {
+        return weight;
+    }
+
+    /**
+     * Updates the relative weight of this host. Weights that are not positive and finite are replaced with the default
+     * weight {@code 1}, because {@link io.servicetalk.client.api.ServiceDiscovererEvent} implementations other than
+     * {@link io.servicetalk.client.api.DefaultServiceDiscovererEvent} are not validated.
+     *
+     * @param weight the new weight.
+     * @return {@code true} if the weight changed.
+     */
+    boolean updateWeight(double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            LOGGER.warn("Load balancer for {}: ignoring invalid weight {} of {} (expected >0 and finite), using 1.",
+                    targetResource, weight, address);
+            weight = 1;
+        }
+        if (this.weight == weight) {
+            return false;
+        }
+        this.weight = weight;
+        return true;
+    }
+
+    /**
+     * Returns the zone of this host, as provided by the service discovery.
+     *
+     * @return the zone of this host, or {@code null} if unknown.
+     * @see io.servicetalk.client.api.ServiceDiscovererEvent#zone()
+     */
+    @Nullable
+    String zone() {
+        return zone;
+    }
+
+    /**
+     * Updates the zone of this host.
+     *
+     * @param zone the new zone, or {@code null} if unknown.
+     * @return {@code true} if the zone changed.
+     */
+    boolean updateZone(@Nullable final String zone) {
+        if (Objects.equals(this.zone, zone)) {
+            return false;
+        }
+        this.zone = zone;
+        return true;
+    }
+
+    /**
+     * Returns the share of selections this host should receive while it is warming up after being discovered.
+     *
+     * @return the share of selections in the range {@code (0, 1]}, {@code 1} if the host is not warming up.
+     */
+    double slowStartFactor() {
+        if (slowStartComplete) {
+            return 1;
+        }
+        assert slowStartConfig != null;
+        final double factor = slowStartConfig.factor(slowStartTimeNanos);
+        if (factor >= 1) {
+            slowStartComplete = true;
+        }
+        return factor;
+    }
+
+    @Nullable
+    OutlierDetector.HostTracker outlierTracker() {
+        return outlierTracker;
+    }
+
+    /**
+     * Attempts to find an already established connection accepted by the passed {@code selector}.
+     *
+     * @param selector the {@link Predicate} that a connection has to satisfy.
+     * @param context the {@link ContextMap context} of the caller or {@code null} if none is available.
+     * @return a selected connection or {@code null} if none of the existing connections can be used, the host is
+     * ejected or its circuit is open.
+     */
+    @Nullable
+    C pickConnection(final Predicate<C> selector, @Nullable final ContextMap context) {
+        if (outlierTracker != null && outlierTracker.isEjected()) {
+            return null;
+        }
+        if (circuitBreaker == null) {
+            return pickConnection0(selector, context);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return null;
+        }
+        final C connection = pickConnection0(selector, context);
+        if (connection == null) {
+            circuitBreaker.releasePermission();
+        }
+        return connection;
+    }
+
+    @Nullable
+    private C pickConnection0(final Predicate<C> selector, @Nullable final ContextMap context) {
+        if (freeConnections != null) {
+            final C connection = freeConnections.poll(selector);
+            if (connection != null) {
+                return selected(connection, context);
+            }
+            return pickUnlistedConnection(selector, context);
+        }
+        final Object[] connections = connState.connections;
+        // Exhaust the linear search space first:
+        final int linearAttempts = min(connections.length, linearSearchSpace);
+        for (int j = 0; j < linearAttempts; ++j) {
+            @SuppressWarnings("unchecked")
+            final C connection = (C) connections[j];
+            if (selector.test(connection)) {
+                return selected(connection, context);
+            }
+        }
+        // Try other connections randomly:
+        if (connections.length > linearAttempts) {
+            final int diff = connections.length - linearAttempts;
+            // With small enough search space, attempt number of times equal to number of remaining connections.
+            // Back off after exploring most of the search space, it gives diminishing returns.
+            final int randomAttempts = diff < MIN_RANDOM_SEARCH_SPACE ? diff :
+                    (int) (diff * RANDOM_SEARCH_FACTOR);
+            final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (int j = 0; j < randomAttempts; ++j) {
+                @SuppressWarnings("unchecked")
+                final C connection = (C) connections[rnd.nextInt(linearAttempts, connections.length)];
+                if (selector.test(connection)) {
+                    return selected(connection, context);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private C pickUnlistedConnection(final Predicate<C> selector, @Nullable final ContextMap context) {
+        final Object[] connections = connState.connections;
+        if (connections.length == 0) {
+            return null;
+        }
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int j = min(connections.length, FREE_LIST_FALLBACK_ATTEMPTS); j > 0; --j) {
+            @SuppressWarnings("unchecked")
+            final C connection = (C) connections[rnd.nextInt(connections.length)];
+            if (selector.test(connection)) {
+                // Requests over the connection are reported back to the list from now on.
+                return selected(connection, context);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a new connection to this host and adds it to the pool.
+     *
+     * @param selector the {@link Predicate} that the new connection has to satisfy.
+     * @param forceNewConnectionAndReserve {@code true} if the new connection has to be reserved.
+     * @param context the {@link ContextMap context} of the caller or {@code null} if none is available.
+     * @return a {@link Single} that completes with the new connection, or fails if the circuit of this host rejects the
+     * selection.
+     */
+    Single<C> newConnection(final Predicate<C> selector, final boolean forceNewConnectionAndReserve,
+                            @Nullable final ContextMap context) {
+        if (circuitBreaker == null) {
+            return newConnection0(selector, forceNewConnectionAndReserve, context);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return failed(StacklessConnectionRejectedException.newInstance(
+                    "Circuit of " + this + " for " + targetResource + " is open.",
+                    RoundRobinLoadBalancer.class, "selectConnection0(...)"));
+        }
+        return newConnection0(selector, forceNewConnectionAndReserve, context)
+                .beforeOnError(__ -> circuitBreaker.releasePermission());
+    }
+
+    private Single<C> newConnection0(final Predicate<C> selector, final boolean forceNewConnectionAndReserve,
+                                     @Nullable final ContextMap context) {
+        // This LB implementation does not automatically provide TransportObserver. Therefore, we pass "null" here.
+        // Users can apply a ConnectionFactoryFilter if they need to override this "null" value with TransportObserver.
+        Single<? extends C> establishConnection = connectionFactory.newConnection(address, context, null);
+        if (healthCheckConfig != null) {
+            // Schedule health check before returning
+            establishConnection = establishConnection.beforeOnError(this::markUnhealthy);
+        }
+        if (circuitBreaker != null) {
+            establishConnection = establishConnection.beforeOnError(__ -> circuitBreaker.onConnectFailure());
+        }
+        return establishConnection
+                .flatMap(newCnx -> {
+                    if (forceNewConnectionAndReserve && !newCnx.tryReserve()) {
+                        return newCnx.closeAsync().<C>concat(failed(StacklessConnectionRejectedException.newInstance(
+                                "Newly created connection " + newCnx + " for " + targetResource
+                                        + " could not be reserved.",
+                                RoundRobinLoadBalancer.class, "selectConnection0(...)")));
+                    }
+
+                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be
+                    // used concurrently and hence a new connection can be rejected by the selector.
+                    if (!selector.test(newCnx)) {
+                        // Failure in selection could be the result of connection factory returning cached connection,
+                        // and not having visibility into max-concurrent-requests, or other threads already selected the
+                        // connection which uses all the max concurrent request count.
+
+                        // If there is caching Propagate the exception and rely upon retry strategy.
+                        Single<C> failedSingle = failed(StacklessConnectionRejectedException.newInstance(
+                                "Newly created connection " + newCnx + " for " + targetResource
+                                        + " was rejected by the selection filter.",
+                                RoundRobinLoadBalancer.class, "selectConnection0(...)"));
+
+                        // Just in case the connection is not closed add it to the host so we don't lose track,
+                        // duplicates will be filtered out.
+                        return addConnection(newCnx) ? failedSingle : newCnx.closeAsync().concat(failedSingle);
+                    }
+                    if (addConnection(newCnx)) {
+                        return succeeded(selected(newCnx, context));
+                    }
+                    return newCnx.closeAsync().<C>concat(failed(StacklessConnectionRejectedException.newInstance(
+                            "Failed to add newly created connection " + newCnx + " for " + targetResource
+                                    + " for " + this, RoundRobinLoadBalancer.class, "selectConnection0(...)")));
+                });
+    }
+
+    private C selected(final C connection, @Nullable final ContextMap context) {
+        if (idleTrackedConnections != null) {
+            final ConnectionLifetime lifetime = idleTrackedConnections.get(connection);
+            if (lifetime != null) {
+                lifetime.onSelected();
+            }
+        }
+        if (context != null) {
+            final RequestTracker tracker = freeConnections == null ? requestTracker :
+                    freeConnections.tracker(connection);
+            if (tracker != null) {
+                context.put(REQUEST_TRACKER_KEY, tracker);
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public int score() {
+        return latencyTracker == null ? 0 : latencyTracker.score();
+    }
+
+    boolean addConnection(C connection) {
+        int addAttempt = 0;
+        for (;;) {
+            final ConnState previous = connStateUpdater.get(this);
+            if (previous.state == State.CLOSED) {
+                return false;
+            }
+            ++addAttempt;
+
+            final Object[] existing = previous.connections;
+            // Brute force iteration to avoid duplicates. If connections grow larger and faster lookup is required
+            // we can keep a Set for faster lookups (at the cost of more memory) as well as array.
+            for (final Object o : existing) {
+                if (o.equals(connection)) {
+                    return true;
+                }
+            }
+            Object[] newList = Arrays.copyOf(existing, existing.length + 1);
+            newList[existing.length] = connection;
+
+            Object newState = ActiveState.class.equals(previous.state.getClass()) ?
+                    STATE_ACTIVE_NO_FAILURES : previous.state;
+
+            if (connStateUpdater.compareAndSet(this,
+                    previous, new ConnState(newList, newState))) {
+                break;
+            }
+        }
+
+        LOGGER.trace("Load balancer for {}: added a new connection {} to {} after {} attempt(s).",
+                targetResource, connection, this, addAttempt);
+        if (freeConnections != null) {
+            freeConnections.add(connection);
+        }
+        // Start tracking the lifetime before instrumenting the close, so that the tracking is cancelled even if the
+        // connection is already closed.
+        final ConnectionLifetime lifetime;
+        if (lifetimeConfig == null) {
+            lifetime = null;
+        } else {
+            lifetime = new ConnectionLifetime(connection);
+            lifetime.start();
+        }
+        // Instrument the new connection so we prune it on close
+        connection.onClose().beforeFinally(() -> {
+            if (lifetime != null) {
+                lifetime.cancel();
+            }
+            if (freeConnections != null) {
+                freeConnections.remove(connection);
+            }
+            removeConnection(connection, 0);
+            ensureMinConnections();
+        }).subscribe();
+        return true;
+    }
+
+    /**
+     * Removes a connection from the pool of this host, unless the pool has no more than {@code minConnections}
+     * connections.
+     *
+     * @param connection the connection to remove.
+     * @param minConnections the number of connections that have to remain in the pool.
+     * @return {@code true} if the connection was removed.
+     */
+    private boolean removeConnection(final C connection, final int minConnections) {
+        boolean removed = false;
+        int removeAttempt = 0;
+        for (;;) {
+            final ConnState currentConnState = this.connState;
+            if (currentConnState.state == State.CLOSED) {
+                break;
+            }
+            ++removeAttempt;
+            int i = 0;
+            final Object[] connections = currentConnState.connections;
+            for (; i < connections.length; ++i) {
+                if (connections[i].equals(connection)) {
+                    break;
+                }
+            }
+            if (i == connections.length || connections.length <= minConnections) {
+                break;
+            } else if (connections.length == 1) {
+                if (ActiveState.class.equals(currentConnState.state.getClass())) {
+                    if (connStateUpdater.compareAndSet(this, currentConnState,
+                            new ConnState(EMPTY_ARRAY, currentConnState.state))) {
+                        removed = true;
+                        break;
+                    }
+                } else if (currentConnState.state == State.EXPIRED
+                        // We're closing the last connection, close the Host.
+                        // Closing the host will trigger the Host's onClose method, which will remove the host
+                        // from used hosts list. If a race condition appears and a new connection was added
+                        // in the meantime, that would mean the host is available again and the CAS operation
+                        // will allow for determining that. It will prevent closing the Host and will only
+                        // remove the connection (previously considered as the last one) from the array
+                        // in the next iteration.
+                        && connStateUpdater.compareAndSet(this, currentConnState, CLOSED_CONN_STATE)) {
+                    this.closeAsync().subscribe();
+                    removed = true;
+                    break;
+                }
+            } else {
+                Object[] newList = new Object[connections.length - 1];
+                System.arraycopy(connections, 0, newList, 0, i);
+                System.arraycopy(connections, i + 1, newList, i, newList.length - i);
+                if (connStateUpdater.compareAndSet(this,
+                        currentConnState, new ConnState(newList, currentConnState.state))) {
+                    removed = true;
+                    break;
+                }
+            }
+        }
+        LOGGER.trace("Load balancer for {}: removed connection {} from {} after {} attempt(s).",
+                targetResource, connection, this, removeAttempt);
+        return removed;
+    }
+
+    private boolean hasConnection(final C connection) {
+        for (final Object o : connState.connections) {
+            if (o.equals(connection)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Used for testing only
+    @SuppressWarnings("unchecked")
+    Entry<Addr, List<C>> asEntry() {
+        return new SimpleImmutableEntry<>(address,
+                Stream.of(connState.connections).map(conn -> (C) conn).collect(toList()));
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return closeable.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return closeable.closeAsyncGracefully();
+    }
+
+    @Override
+    public Completable onClose() {
+        return closeable.onClose();
+    }
+
+    @Override
+    public Completable onClosing() {
+        return closeable.onClosing();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Completable doClose(final Function<? super C, Completable> closeFunction) {
+        return Completable.defer(() -> {
+            final ConnState oldState = closeConnState();
+            cancelIfHealthCheck(oldState.state);
+            final Object[] connections = oldState.connections;
+            return (connections.length == 0 ? completed() :
+                    from(connections).flatMapCompletableDelayError(conn -> closeFunction.apply((C) conn)))
+                    .shareContextOnSubscribe();
+        });
+    }
+
+    private void cancelIfHealthCheck(Object o) {
+        if (HealthCheck.class.equals(o.getClass())) {
+            @SuppressWarnings("unchecked")
+            HealthCheck<Addr, C> healthCheck = (HealthCheck<Addr, C>) o;
+            LOGGER.debug("Load balancer for {}: health check cancelled for {}.", targetResource, healthCheck.host);
+            healthCheck.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final ConnState connState = this.connState;
+        return "Host{" +
+                "address=" + address +
+                ", state=" + connState.state +
+                ", #connections=" + connState.connections.length +
+                (weight == 1 ? "" : ", weight=" + weight) +
+                (zone == null ? "" : ", zone=" + zone) +
+                (latencyTracker == null ? "" : ", score=" + latencyTracker.score()) +
+                (outlierTracker == null ? "" : ", ejected=" + outlierTracker.isEjected()) +
+                (circuitBreaker == null ? "" : ", circuitBreaker=" + circuitBreaker) +
+                (pendingConnections == 0 ? "" : ", #pendingConnections=" + pendingConnections) +
+                '}';
+    }
+
+    /**
+     * Drains a connection from the pool when it reaches its maximum age, or when it was not selected for the idle
+     * timeout while the host has more than the minimum number of idle connections. A drained connection is not
+     * selected anymore and is closed gracefully, so that requests in flight complete, while the minimum number of
+     * connections is restored in the background.
+     */
+    private final class ConnectionLifetime {
+        private final C connection;
+        private final ConnectionLifetimeConfig config;
+        private final long maxAgeNanos;
+        private final long createdNanos;
+        private final SequentialCancellable timer = new SequentialCancellable();
+        private volatile long lastSelectedNanos;
+
+        ConnectionLifetime(final C connection) {
+            assert lifetimeConfig != null;
+            this.connection = connection;
+            this.config = lifetimeConfig;
+            this.maxAgeNanos = config.nextMaxAgeNanos();
+            this.createdNanos = currentTimeNanos();
+            this.lastSelectedNanos = createdNanos;
+        }
+
+        void start() {
+            if (idleTrackedConnections != null) {
+                idleTrackedConnections.put(connection, this);
+            }
+            check();
+        }
+
+        void onSelected() {
+            lastSelectedNanos = currentTimeNanos();
+        }
+
+        void cancel() {
+            timer.cancel();
+            if (idleTrackedConnections != null) {
+                idleTrackedConnections.remove(connection);
+            }
+        }
+
+        private void check() {
+            if (!hasConnection(connection)) {
+                // The connection was closed or removed from the pool, stop tracking it.
+                cancel();
+                return;
+            }
+            final long nowNanos = currentTimeNanos();
+            final long remainingAgeNanos = maxAgeNanos - (nowNanos - createdNanos);
+            if (remainingAgeNanos <= 0) {
+                drain(0, "reached its maximum age");
+                return;
+            }
+            long delayNanos = remainingAgeNanos;
+            if (config.idleTimeoutNanos != 0) {
+                final long remainingIdleNanos = config.idleTimeoutNanos - (nowNanos - lastSelectedNanos);
+                if (remainingIdleNanos > 0) {
+                    delayNanos = min(delayNanos, remainingIdleNanos);
+                } else if (drain(keepMinConnections ? config.minIdleConnections : 0, "was idle")) {
+                    return;
+                } else {
+                    // The connection is one of the minimum number of connections, check again after the idle timeout.
+                    delayNanos = min(delayNanos, config.idleTimeoutNanos);
+                }
+            }
+            timer.nextCancellable(config.executor.timer(delayNanos, NANOSECONDS)
+                    .whenOnComplete(this::check)
+                    .subscribe());
+        }
+
+        private boolean drain(final int minConnections, final String reason) {
+            if (!removeConnection(connection, minConnections)) {
+                return false;
+            }
+            LOGGER.debug("Load balancer for {}: draining connection {} to {} which {}.",
+                    targetResource, connection, address, reason);
+            if (freeConnections != null) {
+                freeConnections.remove(connection);
+            }
+            connection.closeAsyncGracefully().subscribe();
+            ensureMinConnections();
+            return true;
+        }
+
+        private long currentTimeNanos() {
+            return config.executor.currentTime(NANOSECONDS);
+        }
+    }
+
+    private static final class ActiveState {
+        private final int failedConnections;
+
+        ActiveState() {
+            this(0);
+        }
+
+        private ActiveState(int failedConnections) {
+            this.failedConnections = failedConnections;
+        }
+
+        ActiveState forNextFailedConnection() {
+            return new ActiveState(addWithOverflowProtection(this.failedConnections, 1));
+        }
+
+        @Override
+        public String toString() {
+            return "ACTIVE(failedConnections=" + failedConnections + ')';
+        }
+    }
+
+    private static final class HealthCheck<ResolvedAddress, C extends LoadBalancedConnection>
+            extends DelayedCancellable {
+        private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
+        private final Host<ResolvedAddress, C> host;
+        private final Throwable lastError;
+
+        private HealthCheck(final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                            final Host<ResolvedAddress, C> host, final Throwable lastError) {
+            this.connectionFactory = connectionFactory;
+            this.host = host;
+            this.lastError = lastError;
+        }
+
+        public void schedule(final Throwable originalCause) {
+            assert host.healthCheckConfig != null;
+            delayedCancellable(
+                    // Use retry strategy to utilize jitter.
+                    retryWithConstantBackoffDeltaJitter(cause -> true,
+                            host.healthCheckConfig.healthCheckInterval,
+                            host.healthCheckConfig.jitter,
+                            host.healthCheckConfig.executor)
+                            .apply(0, originalCause)
+                            // Remove any state from async context
+                            .beforeOnSubscribe(__ -> AsyncContext.clear())
+                            .concat(connectionFactory.newConnection(host.address, null, null)
+                                    // There is no risk for StackOverflowError because result of each connection
+                                    // attempt will be invoked on IoExecutor as a new task.
+                                    .retryWhen(retryWithConstantBackoffDeltaJitter(
+                                            cause -> {
+                                                LOGGER.debug("Load balancer for {}: health check failed for {}.",
+                                                        host.targetResource, host, cause);
+                                                return true;
+                                            },
+                                            host.healthCheckConfig.healthCheckInterval,
+                                            host.healthCheckConfig.jitter,
+                                            host.healthCheckConfig.executor)))
+                            .flatMapCompletable(newCnx -> {
+                                if (host.addConnection(newCnx)) {
+                                    host.markHealthy(this);
+                                    LOGGER.info("Load balancer for {}: health check passed for {}, marking this " +
+                                                    "host as ACTIVE for the selection algorithm.",
+                                            host.targetResource, host);
+                                    return completed();
+                                } else {
+                                    // This happens only if the host is closed, no need to mark as healthy.
+                                    LOGGER.debug("Load balancer for {}: health check passed for {}, but the " +
+                                                    "host rejected a new connection {}. Closing it now.",
+                                            host.targetResource, host, newCnx);
+                                    return newCnx.closeAsync();
+                                }
+                            })
+                            // Use onErrorComplete instead of whenOnError to avoid double logging of an error inside
+                            // subscribe(): SimpleCompletableSubscriber.
+                            .onErrorComplete(t -> {
+                                LOGGER.error("Load balancer for {}: health check terminated with " +
+                                        "an unexpected error for {}. Marking this host as ACTIVE as a fallback " +
+                                        "to allow connection attempts.", host.targetResource, host, t);
+                                host.markHealthy(this);
+                                return true;
+                            })
+                            .subscribe());
+        }
+
+        @Override
+        public String toString() {
+            return "UNHEALTHY(" + lastError + ')';
+        }
+    }
+
+    private static final class ConnState {
+        final Object[] connections;
+        final Object state;
+
+        ConnState(final Object[] connections, final Object state) {
+            this.connections = connections;
+            this.state = state;
+        }
+
+        @Override
+        public String toString() {
+            return "ConnState{" +
+                    "state=" + state +
+                    ", #connections=" + connections.length +
+                    '}';
+        }
+    }
+}
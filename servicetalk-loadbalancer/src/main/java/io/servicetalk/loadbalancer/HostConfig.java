@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Configuration shared by all {@link Host hosts} of a {@link RoundRobinLoadBalancer}. Every optional mechanism is
+ * disabled by a {@code null} configuration.
+ * <p>
+ * The request tracking configurations are used by the {@link RoundRobinLoadBalancer} to create the request trackers
+ * that it passes to every {@link Host}.
+ */
+final class HostConfig {
+    static final int DEFAULT_LINEAR_SEARCH_SPACE = 16;
+
+    /**
+     * The number of connections of a host to search linearly for one that can serve the next request, before falling
+     * back to a random search.
+     */
+    final int linearSearchSpace;
+    /**
+     * The health checking of hosts that are unable to have a connection established. Without it a failing host
+     * continues being eligible for connecting on the request path.
+     */
+    @Nullable
+    final HealthCheckConfig healthCheckConfig;
+    /**
+     * The half-life in nanoseconds of the latency average that hosts keep track of for ranking, or {@code 0} if hosts
+     * should not keep track of the latency and outcome of requests.
+     */
+    final long requestTrackerHalfLifeNanos;
+    /**
+     * The outlier detection, which ejects hosts based on the outcome of requests.
+     */
+    @Nullable
+    final OutlierDetectorConfig outlierDetectorConfig;
+    /**
+     * The circuit breaker of every host, which stops selecting hosts that fail too many requests.
+     */
+    @Nullable
+    final CircuitBreakerConfig circuitBreakerConfig;
+    /**
+     * The slow start window of newly discovered hosts.
+     */
+    @Nullable
+    final SlowStartConfig slowStartConfig;
+    /**
+     * {@code true} if hosts keep a list of connections that are likely to accept a new request instead of searching
+     * all their connections on every selection.
+     */
+    final boolean trackFreeConnections;
+    /**
+     * The minimum number of connections that hosts keep established in the background.
+     */
+    @Nullable
+    final MinConnectionsConfig minConnectionsConfig;
+    /**
+     * The maximum age and idle time of connections, after which they are drained from the pools of the hosts.
+     */
+    @Nullable
+    final ConnectionLifetimeConfig connectionLifetimeConfig;
+
+    private HostConfig(final Builder builder) {
+        this.linearSearchSpace = builder.linearSearchSpace;
+        this.healthCheckConfig = builder.healthCheckConfig;
+        this.requestTrackerHalfLifeNanos = builder.requestTrackerHalfLifeNanos;
+        this.outlierDetectorConfig = builder.outlierDetectorConfig;
+        this.circuitBreakerConfig = builder.circuitBreakerConfig;
+        this.slowStartConfig = builder.slowStartConfig;
+        this.trackFreeConnections = builder.trackFreeConnections;
+        this.minConnectionsConfig = builder.minConnectionsConfig;
+        this.connectionLifetimeConfig = builder.connectionLifetimeConfig;
+    }
+
+    /**
+     * Returns this configuration without the slow start window, for hosts that do not need to be warmed up.
+     *
+     * @return this configuration without the slow start window.
+     */
+    HostConfig withoutSlowStart() {
+        return slowStartConfig == null ? this : new Builder(this).slowStartConfig(null).build();
+    }
+
+    /**
+     * A builder of {@link HostConfig}, which starts with all optional mechanisms disabled.
+     */
+    static final class Builder {
+        private int linearSearchSpace = DEFAULT_LINEAR_SEARCH_SPACE;
+        @Nullable
+        private HealthCheckConfig healthCheckConfig;
+        private long requestTrackerHalfLifeNanos;
+        @Nullable
+        private OutlierDetectorConfig outlierDetectorConfig;
+        @Nullable
+        private CircuitBreakerConfig circuitBreakerConfig;
+        @Nullable
+        private SlowStartConfig slowStartConfig;
+        private boolean trackFreeConnections;
+        @Nullable
+        private MinConnectionsConfig minConnectionsConfig;
+        @Nullable
+        private ConnectionLifetimeConfig connectionLifetimeConfig;
+
+        Builder() {
+        }
+
+        private Builder(final HostConfig config) {
+            this.linearSearchSpace = config.linearSearchSpace;
+            this.healthCheckConfig = config.healthCheckConfig;
+            this.requestTrackerHalfLifeNanos = config.requestTrackerHalfLifeNanos;
+            this.outlierDetectorConfig = config.outlierDetectorConfig;
+            this.circuitBreakerConfig = config.circuitBreakerConfig;
+            this.slowStartConfig = config.slowStartConfig;
+            this.trackFreeConnections = config.trackFreeConnections;
+            this.minConnectionsConfig = config.minConnectionsConfig;
+            this.connectionLifetimeConfig = config.connectionLifetimeConfig;
+        }
+
+        Builder linearSearchSpace(final int linearSearchSpace) {
+            this.linearSearchSpace = linearSearchSpace;
+            return this;
+        }
+
+        Builder healthCheckConfig(@Nullable final HealthCheckConfig healthCheckConfig) {
+            this.healthCheckConfig = healthCheckConfig;
+            return this;
+        }
+
+        Builder requestTrackerHalfLifeNanos(final long requestTrackerHalfLifeNanos) {
+            this.requestTrackerHalfLifeNanos = requestTrackerHalfLifeNanos;
+            return this;
+        }
+
+        Builder outlierDetectorConfig(@Nullable final OutlierDetectorConfig outlierDetectorConfig) {
+            this.outlierDetectorConfig = outlierDetectorConfig;
+            return this;
+        }
+
+        Builder circuitBreakerConfig(@Nullable final CircuitBreakerConfig circuitBreakerConfig) {
+            this.circuitBreakerConfig = circuitBreakerConfig;
+            return this;
+        }
+
+        Builder slowStartConfig(@Nullable final SlowStartConfig slowStartConfig) {
+            this.slowStartConfig = slowStartConfig;
+            return this;
+        }
+
+        Builder trackFreeConnections(final boolean trackFreeConnections) {
+            this.trackFreeConnections = trackFreeConnections;
+            return this;
+        }
+
+        Builder minConnectionsConfig(@Nullable final MinConnectionsConfig minConnectionsConfig) {
+            this.minConnectionsConfig = minConnectionsConfig;
+            return this;
+        }
+
+        Builder connectionLifetimeConfig(@Nullable final ConnectionLifetimeConfig connectionLifetimeConfig) {
+            this.connectionLifetimeConfig = connectionLifetimeConfig;
+            return this;
+        }
+
+        HostConfig build() {
+            return new HostConfig(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Strategy used by the {@link RoundRobinLoadBalancer} to pick a {@link Host} and a connection of that host for each
+ * selection.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+interface HostSelector<ResolvedAddress, C extends LoadBalancedConnection> {
+
+    /**
+     * Selects a connection from the passed {@code hosts}, opening a new connection if none of the existing connections
+     * are accepted by the {@code selector}.
+     *
+     * @param hosts the current non-empty list of hosts.
+     * @param selector the {@link Predicate} that the selected connection has to satisfy.
+     * @param context the {@link ContextMap context} of the caller or {@code null} if none is available.
+     * @param forceNewConnectionAndReserve {@code true} if a new connection has to be opened and reserved.
+     * @return a {@link Single} that completes with the selected connection.
+     */
+    Single<C> selectConnection(List<Host<ResolvedAddress, C>> hosts, Predicate<C> selector,
+                               @Nullable ContextMap context, boolean forceNewConnectionAndReserve);
+
+    /**
+     * Returns the hosts that selections are currently restricted to, which are the only hosts worth keeping connections
+     * to in the background.
+     *
+     * @param hosts the current list of hosts, the same instance that is passed to
+     * {@link #selectConnection(List, Predicate, ContextMap, boolean)}.
+     * @return the hosts that this selector currently selects from.
+     */
+    default List<Host<ResolvedAddress, C>> selectableHosts(List<Host<ResolvedAddress, C>> hosts) {
+        return hosts;
+    }
+}
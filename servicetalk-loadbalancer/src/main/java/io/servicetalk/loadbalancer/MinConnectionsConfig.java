@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.api.Executor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Configuration for the minimum number of connections that every active host keeps established in the background.
+ */
+final class MinConnectionsConfig {
+    final Executor executor;
+    final int minConnections;
+    private final long jitterNanos;
+    private final long retryIntervalNanos;
+    private final long retryJitterNanos;
+
+    MinConnectionsConfig(final Executor executor, final int minConnections, final long jitterNanos,
+                         final long retryIntervalNanos, final long retryJitterNanos) {
+        this.executor = executor;
+        this.minConnections = minConnections;
+        this.jitterNanos = jitterNanos;
+        this.retryIntervalNanos = retryIntervalNanos;
+        this.retryJitterNanos = retryJitterNanos;
+    }
+
+    /**
+     * Returns the delay before opening the next connection, spread uniformly over the jitter so that hosts discovered
+     * at the same time are not connected to all at once.
+     *
+     * @return the delay in nanoseconds.
+     */
+    long nextConnectDelayNanos() {
+        return jitterNanos == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+    }
+
+    /**
+     * Returns the delay before trying again after a connection could not be opened.
+     *
+     * @return the delay in nanoseconds.
+     */
+    long nextRetryDelayNanos() {
+        return retryJitterNanos == 0 ? retryIntervalNanos :
+                retryIntervalNanos + ThreadLocalRandom.current().nextLong(retryJitterNanos + 1);
+    }
+}
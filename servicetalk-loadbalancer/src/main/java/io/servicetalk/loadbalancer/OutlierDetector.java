@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.RequestTracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Detects hosts which fail more requests than their peers and temporarily ejects them from load balancing selection,
+ * as described in {@link OutlierDetectorConfig}.
+ * <p>
+ * The detection is driven by request outcomes reported through the {@link HostTracker} of every host. There is no
+ * background task: the periodic success rate evaluation runs on the thread that reports the first request outcome
+ * after the interval elapsed, and ejected hosts are re-admitted when their ejection time elapsed and they are
+ * considered for selection again. The number of ejected hosts is counted on ejection and re-admission, so that the
+ * maximum ejection percentage is enforced without scanning all hosts on the request path.
+ */
+final class OutlierDetector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutlierDetector.class);
+
+    private static final AtomicLongFieldUpdater<OutlierDetector> lastEvaluationUpdater =
+            AtomicLongFieldUpdater.newUpdater(OutlierDetector.class, "lastEvaluationNanos");
+    private static final AtomicIntegerFieldUpdater<OutlierDetector> ejectedHostsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(OutlierDetector.class, "ejectedHosts");
+    private static final AtomicLongFieldUpdater<OutlierDetector> nextReadmissionUpdater =
+            AtomicLongFieldUpdater.newUpdater(OutlierDetector.class, "nextReadmissionNanos");
+
+    /**
+     * Successes are counted in the upper half of {@link HostTracker#intervalCounts}, failures in the lower half.
+     */
+    private static final long SUCCESS_INCREMENT = 1L << 32;
+    private static final long FAILURES_MASK = 0xFFFFFFFFL;
+
+    private final String targetResource;
+    private final Supplier<? extends List<? extends Host<?, ?>>> hosts;
+    private final LongSupplier currentTimeNanos;
+    private final int consecutiveFailures;
+    private final long intervalNanos;
+    private final long baseEjectionTimeNanos;
+    private final long maxEjectionTimeNanos;
+    private final int maxEjectionPercentage;
+    private final int successRateMinimumHosts;
+    private final int successRateRequestVolume;
+    private final double successRateStdevFactor;
+
+    private volatile long lastEvaluationNanos;
+    /**
+     * The number of ejected hosts. Hosts which are removed while ejected are not re-admitted, the count is therefore
+     * corrected by every evaluation.
+     */
+    private volatile int ejectedHosts;
+    /**
+     * The earliest time at which an ejected host can be re-admitted. Hosts are re-admitted lazily, so before that time
+     * there is no point in scanning for hosts whose ejection elapsed.
+     */
+    private volatile long nextReadmissionNanos;
+
+    OutlierDetector(final String targetResource, final OutlierDetectorConfig config,
+                    final Supplier<? extends List<? extends Host<?, ?>>> hosts) {
+        this(targetResource, config, hosts, System::nanoTime);
+    }
+
+    OutlierDetector(final String targetResource, final OutlierDetectorConfig config,
+                    final Supplier<? extends List<? extends Host<?, ?>>> hosts, final LongSupplier currentTimeNanos) {
+        this.targetResource = requireNonNull(targetResource);
+        this.hosts = requireNonNull(hosts);
+        this.currentTimeNanos = requireNonNull(currentTimeNanos);
+        this.consecutiveFailures = config.consecutiveFailures();
+        this.intervalNanos = config.interval().toNanos();
+        this.baseEjectionTimeNanos = config.baseEjectionTime().toNanos();
+        this.maxEjectionTimeNanos = config.maxEjectionTime().toNanos();
+        this.maxEjectionPercentage = config.maxEjectionPercentage();
+        this.successRateMinimumHosts = config.successRateMinimumHosts();
+        this.successRateRequestVolume = config.successRateRequestVolume();
+        this.successRateStdevFactor = config.successRateStdevFactor();
+        this.lastEvaluationNanos = currentTimeNanos.getAsLong();
+        this.nextReadmissionNanos = lastEvaluationNanos;
+    }
+
+    /**
+     * Creates a new {@link HostTracker} for a host.
+     *
+     * @param address the address of the host, used for logging.
+     * @param delegate a {@link RequestTracker} which is notified about all request outcomes before they are evaluated
+     * by the new tracker, or {@code null} if there is none.
+     * @return a new {@link HostTracker}.
+     */
+    HostTracker newHostTracker(final Object address, @Nullable final RequestTracker delegate) {
+        return new HostTracker(this, address, delegate);
+    }
+
+    private void maybeEvaluate() {
+        final long now = currentTimeNanos.getAsLong();
+        final long lastEvaluation = lastEvaluationNanos;
+        if (now - lastEvaluation >= intervalNanos &&
+                lastEvaluationUpdater.compareAndSet(this, lastEvaluation, now)) {
+            evaluate(now);
+        }
+    }
+
+    private void evaluate(final long now) {
+        final List<? extends Host<?, ?>> hosts = this.hosts.get();
+        HostTracker[] candidates = null;
+        double[] successRates = null;
+        int count = 0;
+        double sum = 0;
+        double sumOfSquares = 0;
+        int ejected = 0;
+        long nextReadmission = now + maxEjectionTimeNanos;
+        for (Host<?, ?> host : hosts) {
+            final HostTracker tracker = host.outlierTracker();
+            if (tracker == null) {
+                continue;
+            }
+            final long counts = HostTracker.intervalCountsUpdater.getAndSet(tracker, 0);
+            if (tracker.isEjected(now)) {
+                ++ejected;
+                nextReadmission = earliest(nextReadmission, tracker.ejectedUntilNanos);
+                continue;
+            }
+            tracker.relaxEjectionMultiplier();
+            if (successRateMinimumHosts == 0) {
+                continue;
+            }
+            final long successes = counts >>> 32;
+            final long total = successes + (counts & FAILURES_MASK);
+            if (total < successRateRequestVolume) {
+                continue;
+            }
+            if (candidates == null) {
+                candidates = new HostTracker[hosts.size()];
+                successRates = new double[hosts.size()];
+            }
+            final double successRate = (double) successes / total;
+            candidates[count] = tracker;
+            successRates[count] = successRate;
+            ++count;
+            sum += successRate;
+            sumOfSquares += successRate * successRate;
+        }
+        // Ejections which happen concurrently with the scan are not counted until the next evaluation.
+        ejectedHosts = ejected;
+        nextReadmissionNanos = nextReadmission;
+        if (candidates == null || count < successRateMinimumHosts) {
+            return;
+        }
+        final double mean = sum / count;
+        final double stdev = sqrt(max(0, sumOfSquares / count - mean * mean));
+        final double threshold = mean - successRateStdevFactor * stdev;
+        for (int i = 0; i < count; ++i) {
+            if (successRates[i] < threshold) {
+                candidates[i].tryEject(now, "a success rate of " + successRates[i] +
+                        " below the threshold of " + threshold);
+            }
+        }
+    }
+
+    private boolean canEject(final long now) {
+        if (maxEjectionPercentage == 0) {
+            return false;
+        }
+        final int total = hosts.get().size();
+        if (isBelowMaxEjectionPercentage(ejectedHosts, total)) {
+            return true;
+        }
+        if (now - nextReadmissionNanos < 0) {
+            return false;
+        }
+        // Re-admits hosts whose ejection time elapsed, but which were not considered for selection since.
+        int ejected = 0;
+        long nextReadmission = now + maxEjectionTimeNanos;
+        for (Host<?, ?> host : hosts.get()) {
+            final HostTracker tracker = host.outlierTracker();
+            if (tracker != null && tracker.isEjected(now)) {
+                ++ejected;
+                nextReadmission = earliest(nextReadmission, tracker.ejectedUntilNanos);
+            }
+        }
+        ejectedHosts = ejected;
+        nextReadmissionNanos = nextReadmission;
+        return isBelowMaxEjectionPercentage(ejected, total);
+    }
+
+    private boolean isBelowMaxEjectionPercentage(final int ejected, final int total) {
+        return (long) ejected * 100 < (long) maxEjectionPercentage * total;
+    }
+
+    private void onEjected(final long ejectedUntil) {
+        ejectedHostsUpdater.incrementAndGet(this);
+        for (;;) {
+            final long nextReadmission = nextReadmissionNanos;
+            if (ejectedUntil - nextReadmission >= 0 ||
+                    nextReadmissionUpdater.compareAndSet(this, nextReadmission, ejectedUntil)) {
+                break;
+            }
+        }
+    }
+
+    private void onReadmitted() {
+        for (;;) {
+            final int ejected = ejectedHosts;
+            // The count may have been reset by an evaluation which did not see the ejection yet.
+            if (ejected == 0 || ejectedHostsUpdater.compareAndSet(this, ejected, ejected - 1)) {
+                break;
+            }
+        }
+    }
+
+    private static long earliest(final long nanos1, final long nanos2) {
+        return nanos1 - nanos2 <= 0 ? nanos1 : nanos2;
+    }
+
+    private long ejectionTimeNanos(final int multiplier) {
+        final int shift = multiplier - 1;
+        return shift >= Long.numberOfLeadingZeros(baseEjectionTimeNanos) - 1 ? maxEjectionTimeNanos :
+                min(maxEjectionTimeNanos, baseEjectionTimeNanos << shift);
+    }
+
+    /**
+     * The {@link RequestTracker} of a single host, which counts its request outcomes and keeps track of its ejection.
+     */
+    static final class HostTracker implements RequestTracker {
+
+        private static final AtomicIntegerFieldUpdater<HostTracker> consecutiveFailuresUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(HostTracker.class, "consecutiveFailures");
+        private static final AtomicIntegerFieldUpdater<HostTracker> ejectionMultiplierUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(HostTracker.class, "ejectionMultiplier");
+        private static final AtomicLongFieldUpdater<HostTracker> intervalCountsUpdater =
+                AtomicLongFieldUpdater.newUpdater(HostTracker.class, "intervalCounts");
+        private static final AtomicLongFieldUpdater<HostTracker> ejectedUntilUpdater =
+                AtomicLongFieldUpdater.newUpdater(HostTracker.class, "ejectedUntilNanos");
+
+        private final OutlierDetector detector;
+        private final Object address;
+        @Nullable
+        private final RequestTracker delegate;
+
+        private volatile int consecutiveFailures;
+        private volatile int ejectionMultiplier;
+        private volatile long intervalCounts;
+        /**
+         * The time when the ejection of the host ends, or {@code 0} if the host is not ejected.
+         */
+        private volatile long ejectedUntilNanos;
+
+        private HostTracker(final OutlierDetector detector, final Object address,
+                            @Nullable final RequestTracker delegate) {
+            this.detector = detector;
+            this.address = requireNonNull(address);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long beforeStart() {
+            return delegate == null ? detector.currentTimeNanos.getAsLong() : delegate.beforeStart();
+        }
+
+        @Override
+        public void onSuccess(final long beforeStartTimeNs) {
+            if (delegate != null) {
+                delegate.onSuccess(beforeStartTimeNs);
+            }
+            if (consecutiveFailures != 0) {
+                consecutiveFailures = 0;
+            }
+            intervalCountsUpdater.addAndGet(this, SUCCESS_INCREMENT);
+            detector.maybeEvaluate();
+        }
+
+        @Override
+        public void onError(final long beforeStartTimeNs, final ErrorClass errorClass) {
+            if (delegate != null) {
+                delegate.onError(beforeStartTimeNs, errorClass);
+            }
+            // Cancellation is initiated by the caller and doesn't tell anything about the health of the host.
+            if (errorClass != CANCELLED) {
+                intervalCountsUpdater.incrementAndGet(this);
+                if (detector.consecutiveFailures > 0 &&
+                        consecutiveFailuresUpdater.incrementAndGet(this) >= detector.consecutiveFailures &&
+                        ejectedUntilNanos == 0) {
+                    tryEject(detector.currentTimeNanos.getAsLong(), detector.consecutiveFailures +
+                            " consecutive failures");
+                }
+            }
+            detector.maybeEvaluate();
+        }
+
+        /**
+         * Whether the host is currently ejected. Re-admits the host if its ejection time elapsed.
+         *
+         * @return {@code true} if the host is currently ejected.
+         */
+        boolean isEjected() {
+            return ejectedUntilNanos != 0 && isEjected(detector.currentTimeNanos.getAsLong());
+        }
+
+        private boolean isEjected(final long now) {
+            final long ejectedUntil = ejectedUntilNanos;
+            if (ejectedUntil == 0) {
+                return false;
+            }
+            if (now - ejectedUntil < 0) {
+                return true;
+            }
+            if (ejectedUntilUpdater.compareAndSet(this, ejectedUntil, 0)) {
+                detector.onReadmitted();
+                consecutiveFailures = 0;
+                intervalCounts = 0;
+                LOGGER.info("{}: host {} re-admitted after ejection.", detector.targetResource, address);
+            }
+            return false;
+        }
+
+        private void tryEject(final long now, final String reason) {
+            if (ejectedUntilNanos != 0 || !detector.canEject(now)) {
+                return;
+            }
+            final int multiplier = ejectionMultiplier + 1;
+            final long ejectionTimeNanos = detector.ejectionTimeNanos(multiplier);
+            final long ejectedUntil = now + ejectionTimeNanos;
+            if (ejectedUntilUpdater.compareAndSet(this, 0, ejectedUntil == 0 ? 1 : ejectedUntil)) {
+                detector.onEjected(ejectedUntil);
+                ejectionMultiplierUpdater.incrementAndGet(this);
+                LOGGER.info("{}: host {} ejected for {}ms after {}.", detector.targetResource, address,
+                        NANOSECONDS.toMillis(ejectionTimeNanos), reason);
+            }
+        }
+
+        private void relaxEjectionMultiplier() {
+            for (;;) {
+                final int multiplier = ejectionMultiplier;
+                if (multiplier == 0 || ejectionMultiplierUpdater.compareAndSet(this, multiplier, multiplier - 1)) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "HostTracker{" +
+                    "address=" + address +
+                    ", consecutiveFailures=" + consecutiveFailures +
+                    ", ejectionMultiplier=" + ejectionMultiplier +
+                    ", ejected=" + (ejectedUntilNanos != 0) +
+                    '}';
+        }
+    }
+}
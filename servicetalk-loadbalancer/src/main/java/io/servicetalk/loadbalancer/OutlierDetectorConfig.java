@@ -0,0 +1,319 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.RequestTracker;
+
+import java.time.Duration;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of the outlier detection, which temporarily ejects hosts from load balancing selection based on the
+ * outcomes of requests reported through a {@link RequestTracker}.
+ * <p>
+ * Two detection mechanisms are supported:
+ * <ul>
+ * <li>Consecutive failures: a host is ejected as soon as the configured number of requests fails in a row.</li>
+ * <li>Success rate: at every {@link Builder#interval(Duration) interval} the success rate of every host with enough
+ * requests is compared with the success rate of the other hosts. Hosts whose success rate is lower than the mean by
+ * more than {@link Builder#successRateStdevFactor(double) stdevFactor} standard deviations are ejected.</li>
+ * </ul>
+ * An ejected host is re-admitted after its ejection time elapses. The ejection time starts with the
+ * {@link Builder#baseEjectionTime(Duration) base ejection time} and doubles with every subsequent ejection, up to the
+ * {@link Builder#maxEjectionTime(Duration) max ejection time}. Every interval that a host spends without being ejected
+ * reduces the multiplier again. The {@link Builder#maxEjectionPercentage(int) max ejection percentage} limits the
+ * share of hosts that can be ejected at the same time.
+ */
+public final class OutlierDetectorConfig {
+
+    static final int DEFAULT_CONSECUTIVE_FAILURES = 5;
+    static final Duration DEFAULT_INTERVAL = ofSeconds(10);
+    static final Duration DEFAULT_BASE_EJECTION_TIME = ofSeconds(30);
+    static final Duration DEFAULT_MAX_EJECTION_TIME = ofSeconds(300);
+    static final int DEFAULT_MAX_EJECTION_PERCENTAGE = 20;
+    static final int DEFAULT_SUCCESS_RATE_MINIMUM_HOSTS = 5;
+    static final int DEFAULT_SUCCESS_RATE_REQUEST_VOLUME = 100;
+    static final double DEFAULT_SUCCESS_RATE_STDEV_FACTOR = 1.9;
+
+    private final int consecutiveFailures;
+    private final Duration interval;
+    private final Duration baseEjectionTime;
+    private final Duration maxEjectionTime;
+    private final int maxEjectionPercentage;
+    private final int successRateMinimumHosts;
+    private final int successRateRequestVolume;
+    private final double successRateStdevFactor;
+
+    private OutlierDetectorConfig(final int consecutiveFailures, final Duration interval,
+                                  final Duration baseEjectionTime, final Duration maxEjectionTime,
+                                  final int maxEjectionPercentage, final int successRateMinimumHosts,
+                                  final int successRateRequestVolume, final double successRateStdevFactor) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.interval = interval;
+        this.baseEjectionTime = baseEjectionTime;
+        this.maxEjectionTime = maxEjectionTime;
+        this.maxEjectionPercentage = maxEjectionPercentage;
+        this.successRateMinimumHosts = successRateMinimumHosts;
+        this.successRateRequestVolume = successRateRequestVolume;
+        this.successRateStdevFactor = successRateStdevFactor;
+    }
+
+    /**
+     * Returns the number of consecutive failures that triggers the ejection of a host.
+     *
+     * @return the number of consecutive failures that triggers the ejection of a host, or {@code 0} if the detection
+     * based on consecutive failures is disabled.
+     */
+    public int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Returns the interval at which success rates are evaluated and ejected hosts are re-evaluated.
+     *
+     * @return the interval at which success rates are evaluated and ejected hosts are re-evaluated.
+     */
+    public Duration interval() {
+        return interval;
+    }
+
+    /**
+     * Returns the time a host is ejected for at its first ejection.
+     *
+     * @return the time a host is ejected for at its first ejection.
+     */
+    public Duration baseEjectionTime() {
+        return baseEjectionTime;
+    }
+
+    /**
+     * Returns the maximum time a host can be ejected for.
+     *
+     * @return the maximum time a host can be ejected for.
+     */
+    public Duration maxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    /**
+     * Returns the maximum percentage of hosts which can be ejected at the same time.
+     *
+     * @return the maximum percentage of hosts which can be ejected at the same time.
+     */
+    public int maxEjectionPercentage() {
+        return maxEjectionPercentage;
+    }
+
+    /**
+     * Returns the minimum number of hosts with enough requests in an interval to evaluate success rates.
+     *
+     * @return the minimum number of hosts with enough requests in an interval to evaluate success rates, or {@code 0}
+     * if the detection based on success rates is disabled.
+     */
+    public int successRateMinimumHosts() {
+        return successRateMinimumHosts;
+    }
+
+    /**
+     * Returns the minimum number of requests in an interval for the success rate of a host to be evaluated.
+     *
+     * @return the minimum number of requests in an interval for the success rate of a host to be evaluated.
+     */
+    public int successRateRequestVolume() {
+        return successRateRequestVolume;
+    }
+
+    /**
+     * Returns the factor of the standard deviation below the mean success rate at which a host is ejected.
+     *
+     * @return the factor of the standard deviation below the mean success rate at which a host is ejected.
+     */
+    public double successRateStdevFactor() {
+        return successRateStdevFactor;
+    }
+
+    @Override
+    public String toString() {
+        return "OutlierDetectorConfig{" +
+                "consecutiveFailures=" + consecutiveFailures +
+                ", interval=" + interval +
+                ", baseEjectionTime=" + baseEjectionTime +
+                ", maxEjectionTime=" + maxEjectionTime +
+                ", maxEjectionPercentage=" + maxEjectionPercentage +
+                ", successRateMinimumHosts=" + successRateMinimumHosts +
+                ", successRateRequestVolume=" + successRateRequestVolume +
+                ", successRateStdevFactor=" + successRateStdevFactor +
+                '}';
+    }
+
+    /**
+     * Builder for {@link OutlierDetectorConfig}.
+     */
+    public static final class Builder {
+        private int consecutiveFailures = DEFAULT_CONSECUTIVE_FAILURES;
+        private Duration interval = DEFAULT_INTERVAL;
+        private Duration baseEjectionTime = DEFAULT_BASE_EJECTION_TIME;
+        private Duration maxEjectionTime = DEFAULT_MAX_EJECTION_TIME;
+        private int maxEjectionPercentage = DEFAULT_MAX_EJECTION_PERCENTAGE;
+        private int successRateMinimumHosts = DEFAULT_SUCCESS_RATE_MINIMUM_HOSTS;
+        private int successRateRequestVolume = DEFAULT_SUCCESS_RATE_REQUEST_VOLUME;
+        private double successRateStdevFactor = DEFAULT_SUCCESS_RATE_STDEV_FACTOR;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the number of consecutive failures that triggers the ejection of a host.
+         *
+         * @param consecutiveFailures the number of consecutive failures that triggers the ejection of a host, use
+         * {@code 0} to disable the detection based on consecutive failures.
+         * @return {@code this}.
+         */
+        public Builder consecutiveFailures(final int consecutiveFailures) {
+            if (consecutiveFailures < 0) {
+                throw new IllegalArgumentException("consecutiveFailures: " + consecutiveFailures + " (expected >=0)");
+            }
+            this.consecutiveFailures = consecutiveFailures;
+            return this;
+        }
+
+        /**
+         * Sets the interval at which success rates are evaluated and the ejection multiplier of hosts that were not
+         * ejected during the interval is reduced.
+         *
+         * @param interval the evaluation interval.
+         * @return {@code this}.
+         */
+        public Builder interval(final Duration interval) {
+            this.interval = requirePositive(interval, "interval");
+            return this;
+        }
+
+        /**
+         * Sets the time a host is ejected for at its first ejection. Subsequent ejections double the ejection time, up
+         * to {@link #maxEjectionTime(Duration)}.
+         *
+         * @param baseEjectionTime the time a host is ejected for at its first ejection.
+         * @return {@code this}.
+         */
+        public Builder baseEjectionTime(final Duration baseEjectionTime) {
+            this.baseEjectionTime = requirePositive(baseEjectionTime, "baseEjectionTime");
+            return this;
+        }
+
+        /**
+         * Sets the maximum time a host can be ejected for.
+         *
+         * @param maxEjectionTime the maximum time a host can be ejected for.
+         * @return {@code this}.
+         */
+        public Builder maxEjectionTime(final Duration maxEjectionTime) {
+            this.maxEjectionTime = requirePositive(maxEjectionTime, "maxEjectionTime");
+            return this;
+        }
+
+        /**
+         * Sets the maximum percentage of hosts which can be ejected at the same time. At least one host can be ejected
+         * regardless of the number of hosts, unless the percentage is {@code 0}.
+         *
+         * @param maxEjectionPercentage the maximum percentage of hosts which can be ejected at the same time, in the
+         * range {@code [0, 100]}.
+         * @return {@code this}.
+         */
+        public Builder maxEjectionPercentage(final int maxEjectionPercentage) {
+            if (maxEjectionPercentage < 0 || maxEjectionPercentage > 100) {
+                throw new IllegalArgumentException("maxEjectionPercentage: " + maxEjectionPercentage +
+                        " (expected [0, 100])");
+            }
+            this.maxEjectionPercentage = maxEjectionPercentage;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of hosts which have to reach the
+         * {@link #successRateRequestVolume(int) request volume} in an interval for success rates to be evaluated.
+         *
+         * @param successRateMinimumHosts the minimum number of hosts required to evaluate success rates, use {@code 0}
+         * to disable the detection based on success rates.
+         * @return {@code this}.
+         */
+        public Builder successRateMinimumHosts(final int successRateMinimumHosts) {
+            if (successRateMinimumHosts < 0) {
+                throw new IllegalArgumentException("successRateMinimumHosts: " + successRateMinimumHosts +
+                        " (expected >=0)");
+            }
+            this.successRateMinimumHosts = successRateMinimumHosts;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of requests a host has to complete in an interval for its success rate to be
+         * evaluated.
+         *
+         * @param successRateRequestVolume the minimum number of requests in an interval.
+         * @return {@code this}.
+         */
+        public Builder successRateRequestVolume(final int successRateRequestVolume) {
+            if (successRateRequestVolume <= 0) {
+                throw new IllegalArgumentException("successRateRequestVolume: " + successRateRequestVolume +
+                        " (expected >0)");
+            }
+            this.successRateRequestVolume = successRateRequestVolume;
+            return this;
+        }
+
+        /**
+         * Sets the factor of the standard deviation below the mean success rate at which a host is ejected.
+         *
+         * @param successRateStdevFactor the factor of the standard deviation.
+         * @return {@code this}.
+         */
+        public Builder successRateStdevFactor(final double successRateStdevFactor) {
+            if (!(successRateStdevFactor > 0)) {
+                throw new IllegalArgumentException("successRateStdevFactor: " + successRateStdevFactor +
+                        " (expected >0)");
+            }
+            this.successRateStdevFactor = successRateStdevFactor;
+            return this;
+        }
+
+        /**
+         * Builds the {@link OutlierDetectorConfig} configured by this builder.
+         *
+         * @return a new instance of {@link OutlierDetectorConfig} with settings from this builder.
+         */
+        public OutlierDetectorConfig build() {
+            if (maxEjectionTime.compareTo(baseEjectionTime) < 0) {
+                throw new IllegalArgumentException("maxEjectionTime: " + maxEjectionTime +
+                        " (expected >= baseEjectionTime: " + baseEjectionTime + ')');
+            }
+            return new OutlierDetectorConfig(consecutiveFailures, interval, baseEjectionTime, maxEjectionTime,
+                    maxEjectionPercentage, successRateMinimumHosts, successRateRequestVolume, successRateStdevFactor);
+        }
+
+        private static Duration requirePositive(final Duration duration, final String name) {
+            if (requireNonNull(duration, name).isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + ": " + duration + " (expected >0)");
+            }
+            return duration;
+        }
+    }
+}
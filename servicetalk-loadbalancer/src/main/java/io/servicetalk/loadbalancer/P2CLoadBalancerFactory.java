@@ -0,0 +1,546 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.LoadBalancerFactory;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.client.api.ScoreSupplier;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.context.api.ContextMap;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory.SharedExecutor;
+import io.servicetalk.transport.api.ExecutionStrategy;
+
+import java.time.Duration;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.loadbalancer.ConsistentHashSelector.withConsistentHashing;
+import static io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory.DEFAULT_HEALTH_CHECK_FAILED_CONNECTIONS_THRESHOLD;
+import static io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory.DEFAULT_HEALTH_CHECK_INTERVAL;
+import static io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory.DEFAULT_HEALTH_CHECK_JITTER;
+import static io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory.DEFAULT_MIN_CONNECTIONS_JITTER;
+import static io.servicetalk.loadbalancer.SubsetHostSelector.withSubsetting;
+import static io.servicetalk.loadbalancer.ZoneAwareHostSelector.withZoneAwareness;
+import static java.time.Duration.ofSeconds;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link LoadBalancerFactory} that creates {@link LoadBalancer} instances which use the power of two choices (P2C)
+ * strategy for selecting hosts from a pool of addresses. The addresses are provided via the
+ * {@link Publisher published} {@link ServiceDiscovererEvent events} that signal the host's
+ * {@link ServiceDiscovererEvent.Status status}.
+ * <p>The created instances have the following behaviour:
+ * <ul>
+ * <li>For each selection two hosts are picked at random and the host with the higher {@link ScoreSupplier score} is
+ * preferred. The score of a host combines the observed request latency with the number of requests in flight, so that
+ * slow or overloaded hosts receive a smaller share of the traffic. Latency is tracked as a peak exponentially weighted
+ * moving average which decays over time, see {@link Builder#ewmaHalfLife(Duration)}.</li>
+ * <li>The score is computed from the request outcomes which the client reports via the {@link RequestTracker} that is
+ * put into the request {@link ContextMap context} under {@link RequestTracker#REQUEST_TRACKER_KEY} upon connection
+ * selection. If a client does not report request outcomes, the selection degrades to a uniformly random one.</li>
+ * <li>Existing connections of the preferred host are reused, otherwise a new connection is opened to it. The other
+ * host is only used if the preferred host is expired or unhealthy. Connections are created lazily, without any
+ * concurrency control on their creation.</li>
+ * <li>Handling of {@link ServiceDiscovererEvent.Status statuses}, closed connections, and background health checking
+ * of hosts which fail to open connections is the same as described for {@link RoundRobinLoadBalancerFactory}.</li>
+ * <li>Hosts which accept connections but fail requests can be temporarily ejected from the selection by enabling the
+ * outlier detection via {@link Builder#outlierDetectorConfig(OutlierDetectorConfig)}.</li>
+ * <li>Hosts which fail too many requests can be skipped without waiting for connect or request timeouts by enabling
+ * a circuit breaker per host via {@link Builder#circuitBreakerConfig(CircuitBreakerConfig)}.</li>
+ * <li>Requests with the same key in their {@link ContextMap context} can be sent to the same host with consistent
+ * hashing, see {@link Builder#consistentHashing(ContextMap.Key)}.</li>
+ * </ul>
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+public final class P2CLoadBalancerFactory<ResolvedAddress, C extends LoadBalancedConnection>
+        implements LoadBalancerFactory<ResolvedAddress, C> {
+
+    static final int DEFAULT_MAX_EFFORT = 5;
+    static final Duration DEFAULT_EWMA_HALF_LIFE = ofSeconds(10);
+
+    private final HostConfig hostConfig;
+    private final int maxEffort;
+    private final int subsetSize;
+    @Nullable
+    private final String subsetClientId;
+    @Nullable
+    private final String localZone;
+    private final double minHealthyLocalFraction;
+    @Nullable
+    private final ContextMap.Key<?> hashKey;
+    private final int ringSize;
+
+    private P2CLoadBalancerFactory(final HostConfig hostConfig, final int maxEffort, final int subsetSize,
+                                   @Nullable final String subsetClientId, @Nullable final String localZone,
+                                   final double minHealthyLocalFraction,
+                                   @Nullable final ContextMap.Key<?> hashKey, final int ringSize) {
+        this.hostConfig = hostConfig;
+        this.maxEffort = maxEffort;
+        this.subsetSize = subsetSize;
+        this.subsetClientId = subsetClientId;
+        this.localZone = localZone;
+        this.minHealthyLocalFraction = minHealthyLocalFraction;
+        this.hashKey = hashKey;
+        this.ringSize = ringSize;
+    }
+
+    @Deprecated
+    @Override
+    public <T extends C> LoadBalancer<T> newLoadBalancer(
+            final String targetResource,
+            final Publisher<? extends Collection<? extends ServiceDiscovererEvent<ResolvedAddress>>> eventPublisher,
+            final ConnectionFactory<ResolvedAddress, T> connectionFactory) {
+        return new RoundRobinLoadBalancer<>(requireNonNull(targetResource), eventPublisher, connectionFactory,
+                this::newSelector, hostConfig);
+    }
+
+    @Override
+    public LoadBalancer<C> newLoadBalancer(
+            final Publisher<? extends Collection<? extends ServiceDiscovererEvent<ResolvedAddress>>> eventPublisher,
+            final ConnectionFactory<ResolvedAddress, C> connectionFactory,
+            final String targetResource) {
+        return new RoundRobinLoadBalancer<>(requireNonNull(targetResource), eventPublisher, connectionFactory,
+                this::newSelector, hostConfig);
+    }
+
+    private <T extends C> HostSelector<ResolvedAddress, T> newSelector(final String targetResource) {
+        return withZoneAwareness(() -> withSubsetting(withConsistentHashing(
+                new P2CSelector<>(targetResource, maxEffort), hashKey, ringSize, targetResource), subsetSize,
+                subsetClientId), localZone, minHealthyLocalFraction);
+    }
+
+    @Override
+    public ExecutionStrategy requiredOffloads() {
+        // We do not block
+        return ExecutionStrategy.offloadNone();
+    }
+
+    /**
+     * Builder for {@link P2CLoadBalancerFactory}.
+     *
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     */
+    public static final class Builder<ResolvedAddress, C extends LoadBalancedConnection> {
+        private int linearSearchSpace = 16;
+        private int maxEffort = DEFAULT_MAX_EFFORT;
+        private Duration ewmaHalfLife = DEFAULT_EWMA_HALF_LIFE;
+        @Nullable
+        private Executor backgroundExecutor;
+        private Duration healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+        private Duration healthCheckJitter = DEFAULT_HEALTH_CHECK_JITTER;
+        private int healthCheckFailedConnectionsThreshold = DEFAULT_HEALTH_CHECK_FAILED_CONNECTIONS_THRESHOLD;
+        @Nullable
+        private OutlierDetectorConfig outlierDetectorConfig;
+        @Nullable
+        private CircuitBreakerConfig circuitBreakerConfig;
+        private boolean trackFreeConnections;
+        private int subsetSize;
+        @Nullable
+        private String subsetClientId;
+        @Nullable
+        private String localZone;
+        private double minHealthyLocalFraction = ZoneAwareHostSelector.DEFAULT_MIN_HEALTHY_FRACTION;
+        private int minConnectionsPerHost;
+        private Duration minConnectionsJitter = DEFAULT_MIN_CONNECTIONS_JITTER;
+        @Nullable
+        private ContextMap.Key<?> hashKey;
+        private int ringSize = ConsistentHashSelector.DEFAULT_RING_SIZE;
+        @Nullable
+        private Duration maxConnectionAge;
+        private Duration maxConnectionAgeJitter = Duration.ZERO;
+        @Nullable
+        private Duration idleConnectionTimeout;
+
+        /**
+         * Creates a new instance with default settings.
+         */
+        public Builder() {
+        }
+
+        /**
+         * Sets the linear search space to find an available connection for a picked host.
+         *
+         * @param linearSearchSpace the number of attempts for a linear search space, {@code 0} enforces random
+         * selection all the time.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#linearSearchSpace(int)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> linearSearchSpace(int linearSearchSpace) {
+            if (linearSearchSpace < 0) {
+                throw new IllegalArgumentException("linearSearchSpace: " + linearSearchSpace + " (expected >=0)");
+            }
+            this.linearSearchSpace = linearSearchSpace;
+            return this;
+        }
+
+        /**
+         * Sets whether hosts keep track of their connections that are likely to accept a new request.
+         *
+         * @param trackFreeConnections {@code true} to keep track of connections that are likely to accept a new
+         * request.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#trackFreeConnections(boolean)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> trackFreeConnections(boolean trackFreeConnections) {
+            this.trackFreeConnections = trackFreeConnections;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of connections that every selectable host keeps established.
+         *
+         * @param minConnections the minimum number of connections per host, {@code 0} disables the background
+         * connection creation.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#minConnectionsPerHost(int, Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> minConnectionsPerHost(int minConnections) {
+            return minConnectionsPerHost(minConnections, DEFAULT_MIN_CONNECTIONS_JITTER);
+        }
+
+        /**
+         * Sets the minimum number of connections that every selectable host keeps established, which are opened in
+         * the background after a random delay of up to {@code jitter}. With subsetting, only the hosts of the subset
+         * keep connections established.
+         *
+         * @param minConnections the minimum number of connections per host, {@code 0} disables the background
+         * connection creation.
+         * @param jitter the upper bound of the random delay before opening a connection.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#minConnectionsPerHost(int, Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> minConnectionsPerHost(int minConnections,
+                                                                                        Duration jitter) {
+            if (minConnections < 0) {
+                throw new IllegalArgumentException("minConnections: " + minConnections + " (expected >=0)");
+            }
+            if (jitter.isNegative()) {
+                throw new IllegalArgumentException("jitter: " + jitter + " (expected >=0)");
+            }
+            this.minConnectionsPerHost = minConnections;
+            this.minConnectionsJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the maximum age of connections, after which they are drained from the pool.
+         *
+         * @param maxAge the maximum age of a connection.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#maxConnectionAge(Duration, Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> maxConnectionAge(Duration maxAge) {
+            return maxConnectionAge(maxAge, maxAge.dividedBy(10));
+        }
+
+        /**
+         * Sets the maximum age of connections, after which they are drained from the pool. The age of every connection
+         * is reduced by a random duration of up to {@code jitter}.
+         *
+         * @param maxAge the maximum age of a connection.
+         * @param jitter the upper bound of the random duration by which the maximum age of every connection is
+         * reduced, less than {@code maxAge}.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#maxConnectionAge(Duration, Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> maxConnectionAge(Duration maxAge, Duration jitter) {
+            if (maxAge.isNegative() || maxAge.isZero()) {
+                throw new IllegalArgumentException("maxAge: " + maxAge + " (expected >0)");
+            }
+            if (jitter.isNegative() || jitter.compareTo(maxAge) >= 0) {
+                throw new IllegalArgumentException("jitter: " + jitter + " (expected >=0 and <" + maxAge + ')');
+            }
+            this.maxConnectionAge = maxAge;
+            this.maxConnectionAgeJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the time after which connections that were not selected for a request are drained from the pool, while
+         * at least the minimum number of connections per host is kept.
+         *
+         * @param idleTimeout the time after which a connection that was not selected is closed.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#idleConnectionTimeout(Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> idleConnectionTimeout(Duration idleTimeout) {
+            if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+                throw new IllegalArgumentException("idleTimeout: " + idleTimeout + " (expected >0)");
+            }
+            this.idleConnectionTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Restricts every load balancer to a random subset of the discovered hosts.
+         *
+         * @param subsetSize the number of hosts in the subset, {@code 0} disables subsetting.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#subsetting(int, String)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> subsetting(int subsetSize) {
+            return subsetting(subsetSize, null);
+        }
+
+        /**
+         * Restricts every load balancer to a subset of the discovered hosts, which is determined by the identifier of
+         * the client.
+         *
+         * @param subsetSize the number of hosts in the subset, {@code 0} disables subsetting.
+         * @param clientId a stable identifier of this client, or {@code null} to pick a random subset for every load
+         * balancer.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#subsetting(int, String)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> subsetting(int subsetSize,
+                                                                             @Nullable String clientId) {
+            if (subsetSize < 0) {
+                throw new IllegalArgumentException("subsetSize: " + subsetSize + " (expected >=0)");
+            }
+            this.subsetSize = subsetSize;
+            this.subsetClientId = clientId;
+            return this;
+        }
+
+        /**
+         * Sends requests with the same value for {@code hashKey} in their {@link ContextMap context} to the same host.
+         *
+         * @param hashKey the {@link ContextMap.Key} whose value determines the host.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#consistentHashing(ContextMap.Key, int)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> consistentHashing(ContextMap.Key<?> hashKey) {
+            return consistentHashing(hashKey, ConsistentHashSelector.DEFAULT_RING_SIZE);
+        }
+
+        /**
+         * Sends requests with the same value for {@code hashKey} in their {@link ContextMap context} to the same host.
+         * Requests without a value for {@code hashKey} use the power of two choices selection. The values need a value
+         * based {@link Object#hashCode()} that is the same in every JVM, for example a {@link String}.
+         *
+         * @param hashKey the {@link ContextMap.Key} whose value determines the host.
+         * @param ringSize the minimum number of points on the ring.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#consistentHashing(ContextMap.Key, int)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> consistentHashing(ContextMap.Key<?> hashKey,
+                                                                                    int ringSize) {
+            if (ringSize <= 0) {
+                throw new IllegalArgumentException("ringSize: " + ringSize + " (expected >0)");
+            }
+            this.hashKey = requireNonNull(hashKey);
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        /**
+         * Prefers hosts in the same {@link io.servicetalk.client.api.ServiceDiscovererEvent#zone() zone} as this
+         * client.
+         *
+         * @param localZone the zone of this client.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#localZone(String, double)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> localZone(String localZone) {
+            return localZone(localZone, ZoneAwareHostSelector.DEFAULT_MIN_HEALTHY_FRACTION);
+        }
+
+        /**
+         * Prefers hosts in the same {@link io.servicetalk.client.api.ServiceDiscovererEvent#zone() zone} as this
+         * client, and spills over to other zones when less than {@code minHealthyFraction} of the local hosts are
+         * healthy.
+         *
+         * @param localZone the zone of this client.
+         * @param minHealthyFraction the share of healthy hosts in the local zone, in the range {@code (0, 1]}, below
+         * which requests spill over to other zones.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#localZone(String, double)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> localZone(String localZone,
+                                                                            double minHealthyFraction) {
+            if (!(minHealthyFraction > 0 && minHealthyFraction <= 1)) {
+                throw new IllegalArgumentException("minHealthyFraction: " + minHealthyFraction +
+                        " (expected (0, 1])");
+            }
+            this.localZone = requireNonNull(localZone);
+            this.minHealthyLocalFraction = minHealthyFraction;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of times a pair of hosts is picked for a single selection before giving up.
+         * <p>
+         * A pair is discarded when neither of its hosts has a connection that can serve the request and neither host
+         * is eligible for opening a new connection, for example because both are expired or unhealthy.
+         *
+         * @param maxEffort the maximum number of pairs to pick for a single selection.
+         * @return {@code this}.
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> maxEffort(int maxEffort) {
+            if (maxEffort <= 0) {
+                throw new IllegalArgumentException("maxEffort: " + maxEffort + " (expected >0)");
+            }
+            this.maxEffort = maxEffort;
+            return this;
+        }
+
+        /**
+         * Sets the half-life of the peak exponentially weighted moving average of the request latency that is kept for
+         * each host.
+         * <p>
+         * Latency spikes are reflected in the average immediately, while lower latencies are blended in over time.
+         * Without new samples the contribution of a past latency is halved after each {@code halfLife}, so that hosts
+         * which were slow in the past are eventually probed again. Smaller values react faster to recovering hosts at
+         * the cost of a noisier ranking.
+         *
+         * @param halfLife the half-life of the latency average.
+         * @return {@code this}.
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> ewmaHalfLife(Duration halfLife) {
+            if (halfLife.isNegative() || halfLife.isZero()) {
+                throw new IllegalArgumentException("ewmaHalfLife: " + halfLife + " (expected >0)");
+            }
+            this.ewmaHalfLife = halfLife;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Executor} on which to schedule background health checking of hosts that failed to open
+         * connections.
+         *
+         * @param backgroundExecutor {@link Executor} on which to schedule health checking.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#backgroundExecutor(Executor)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> backgroundExecutor(Executor backgroundExecutor) {
+            this.backgroundExecutor = requireNonNull(backgroundExecutor);
+            return this;
+        }
+
+        /**
+         * Configure an interval for health checking a host that failed to open connections.
+         *
+         * @param interval interval at which a background health check will be scheduled.
+         * @param jitter the amount of jitter to apply to each retry {@code interval}.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#healthCheckInterval(Duration, Duration)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> healthCheckInterval(Duration interval,
+                                                                                      Duration jitter) {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Health check interval should be greater than 0");
+            }
+            if (jitter.isNegative() || jitter.isZero()) {
+                throw new IllegalArgumentException("Jitter interval should be greater than 0");
+            }
+            if (interval.minus(jitter).isNegative() || interval.plus(jitter).isNegative()) {
+                throw new IllegalArgumentException("Jitter plus/minus interval underflow/overflow");
+            }
+            this.healthCheckInterval = interval;
+            this.healthCheckJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Configure a threshold for consecutive connection failures to a host.
+         * <p>
+         * Use a negative value of the argument to disable health checking.
+         *
+         * @param threshold number of consecutive connection failures to consider a host unhealthy and eligible for
+         * background health checking. Use negative value to disable the health checking mechanism.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#healthCheckFailedConnectionsThreshold(int)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> healthCheckFailedConnectionsThreshold(
+                int threshold) {
+            if (threshold == 0) {
+                throw new IllegalArgumentException("Health check failed connections threshold should not be 0");
+            }
+            this.healthCheckFailedConnectionsThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Enables the outlier detection, which temporarily ejects hosts that fail more requests than their peers from
+         * load balancing selection.
+         *
+         * @param outlierDetectorConfig the {@link OutlierDetectorConfig} to use.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#outlierDetectorConfig(OutlierDetectorConfig)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> outlierDetectorConfig(
+                OutlierDetectorConfig outlierDetectorConfig) {
+            this.outlierDetectorConfig = requireNonNull(outlierDetectorConfig);
+            return this;
+        }
+
+        /**
+         * Enables a circuit breaker per host, which skips hosts whose share of failed requests gets too high until
+         * probe requests succeed again.
+         *
+         * @param circuitBreakerConfig the {@link CircuitBreakerConfig} to use.
+         * @return {@code this}.
+         * @see RoundRobinLoadBalancerFactory.Builder#circuitBreakerConfig(CircuitBreakerConfig)
+         */
+        public P2CLoadBalancerFactory.Builder<ResolvedAddress, C> circuitBreakerConfig(
+                CircuitBreakerConfig circuitBreakerConfig) {
+            this.circuitBreakerConfig = requireNonNull(circuitBreakerConfig);
+            return this;
+        }
+
+        /**
+         * Builds the {@link P2CLoadBalancerFactory} configured by this builder.
+         *
+         * @return a new instance of {@link P2CLoadBalancerFactory} with settings from this builder.
+         */
+        public P2CLoadBalancerFactory<ResolvedAddress, C> build() {
+            final Executor executor = backgroundExecutor == null ? SharedExecutor.getInstance() : backgroundExecutor;
+            final MinConnectionsConfig minConnectionsConfig = minConnectionsPerHost == 0 ? null :
+                    new MinConnectionsConfig(executor, minConnectionsPerHost, minConnectionsJitter.toNanos(),
+                            healthCheckInterval.toNanos(), healthCheckJitter.toNanos());
+            final ConnectionLifetimeConfig connectionLifetimeConfig =
+                    maxConnectionAge == null && idleConnectionTimeout == null ? null :
+                            new ConnectionLifetimeConfig(executor,
+                                    maxConnectionAge == null ? 0 : maxConnectionAge.toNanos(),
+                                    maxConnectionAgeJitter.toNanos(),
+                                    idleConnectionTimeout == null ? 0 : idleConnectionTimeout.toNanos(),
+                                    minConnectionsPerHost);
+            final HealthCheckConfig healthCheckConfig = this.healthCheckFailedConnectionsThreshold < 0 ? null :
+                    new HealthCheckConfig(executor, healthCheckInterval, healthCheckJitter,
+                            healthCheckFailedConnectionsThreshold);
+            final HostConfig hostConfig = new HostConfig.Builder()
+                    .linearSearchSpace(linearSearchSpace)
+                    .healthCheckConfig(healthCheckConfig)
+                    .requestTrackerHalfLifeNanos(ewmaHalfLife.toNanos())
+                    .outlierDetectorConfig(outlierDetectorConfig)
+                    .circuitBreakerConfig(circuitBreakerConfig)
+                    .trackFreeConnections(trackFreeConnections)
+                    .minConnectionsConfig(minConnectionsConfig)
+                    .connectionLifetimeConfig(connectionLifetimeConfig)
+                    .build();
+            return new P2CLoadBalancerFactory<>(hostConfig, maxEffort, subsetSize, subsetClientId, localZone,
+                    minHealthyLocalFraction, hashKey, ringSize);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+
+/**
+ * {@link HostSelector} that implements the power of two choices algorithm: two hosts are picked at random and the one
+ * with the higher {@link Host#score() score} is preferred.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class P2CSelector<ResolvedAddress, C extends LoadBalancedConnection>
+        implements HostSelector<ResolvedAddress, C> {
+
+    private static final int MAX_WEIGHTED_PICK_ATTEMPTS = 3;
+
+    private final String targetResource;
+    private final int maxEffort;
+    private volatile AliasTable aliasTable = AliasTable.EMPTY;
+
+    P2CSelector(final String targetResource, final int maxEffort) {
+        this.targetResource = targetResource;
+        this.maxEffort = maxEffort;
+    }
+
+    @Override
+    public Single<C> selectConnection(final List<Host<ResolvedAddress, C>> usedHosts, final Predicate<C> selector,
+                                      @Nullable final ContextMap context,
+                                      final boolean forceNewConnectionAndReserve) {
+        final int size = usedHosts.size();
+        if (size == 1) {
+            final Single<C> selected = selectFromHost(usedHosts.get(0), selector, context,
+                    forceNewConnectionAndReserve);
+            return selected != null ? selected : noActiveHost(usedHosts);
+        }
+
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        final AliasTable aliasTable = aliasTable(usedHosts);
+        for (int i = 0; i < maxEffort; ++i) {
+            final int i1;
+            int i2;
+            if (aliasTable.isUniform()) {
+                i1 = rnd.nextInt(size);
+                i2 = rnd.nextInt(size - 1);
+                if (i2 >= i1) {
+                    ++i2;
+                }
+            } else {
+                // Both hosts are picked proportionally to their weights, the second pick is retried a few times
+                // before falling back to a uniform pick when it keeps hitting the first host.
+                i1 = aliasTable.sample(rnd);
+                i2 = aliasTable.sample(rnd);
+                for (int j = 0; i2 == i1 && j < MAX_WEIGHTED_PICK_ATTEMPTS; ++j) {
+                    i2 = aliasTable.sample(rnd);
+                }
+                if (i2 == i1) {
+                    i2 = rnd.nextInt(size - 1);
+                    if (i2 >= i1) {
+                        ++i2;
+                    }
+                }
+            }
+            Host<ResolvedAddress, C> best = usedHosts.get(i1);
+            Host<ResolvedAddress, C> other = usedHosts.get(i2);
+            if (prefer(other, best)) {
+                final Host<ResolvedAddress, C> tmp = best;
+                best = other;
+                other = tmp;
+            }
+
+            Single<C> selected = selectFromHost(best, selector, context, forceNewConnectionAndReserve);
+            if (selected == null) {
+                selected = selectFromHost(other, selector, context, forceNewConnectionAndReserve);
+            }
+            if (selected != null) {
+                return selected;
+            }
+        }
+        return noActiveHost(usedHosts);
+    }
+
+    private AliasTable aliasTable(final List<Host<ResolvedAddress, C>> usedHosts) {
+        AliasTable table = aliasTable;
+        if (!table.isBuiltFor(usedHosts)) {
+            table = AliasTable.forHosts(usedHosts);
+            aliasTable = table;
+        }
+        return table;
+    }
+
+    @Nullable
+    private Single<C> selectFromHost(final Host<ResolvedAddress, C> host, final Predicate<C> selector,
+                                     @Nullable final ContextMap context, final boolean forceNewConnectionAndReserve) {
+        if (!forceNewConnectionAndReserve) {
+            final C connection = host.pickConnection(selector, context);
+            if (connection != null) {
+                return succeeded(connection);
+            }
+        }
+        // Don't open new connections for expired or unhealthy hosts, the other host of the pair may be used instead.
+        return host.isActiveAndHealthy() ? host.newConnection(selector, forceNewConnectionAndReserve, context) : null;
+    }
+
+    private static boolean prefer(final Host<?, ?> candidate, final Host<?, ?> current) {
+        final boolean candidateHealthy = candidate.isActiveAndHealthy();
+        if (candidateHealthy != current.isActiveAndHealthy()) {
+            return candidateHealthy;
+        }
+        return candidate.score() > current.score();
+    }
+
+    private Single<C> noActiveHost(final List<Host<ResolvedAddress, C>> usedHosts) {
+        return failed(StacklessNoAvailableHostException.newInstance("Failed to pick an active host for " +
+                        targetResource + " after " + maxEffort + " attempt(s). Either all are busy, expired, or " +
+                        "unhealthy: " + usedHosts,
+                RoundRobinLoadBalancer.class, "selectConnection0(...)"));
+    }
+}
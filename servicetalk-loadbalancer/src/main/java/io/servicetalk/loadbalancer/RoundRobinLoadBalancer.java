@@ -16,44 +16,35 @@
 package io.servicetalk.loadbalancer;
 
 import io.servicetalk.client.api.ConnectionFactory;
-import io.servicetalk.client.api.ConnectionLimitReachedException;
-import io.servicetalk.client.api.ConnectionRejectedException;
 import io.servicetalk.client.api.LoadBalancedConnection;
 import io.servicetalk.client.api.LoadBalancer;
-import io.servicetalk.client.api.NoAvailableHostException;
 import io.servicetalk.client.api.ServiceDiscovererEvent;
 import io.servicetalk.concurrent.PublisherSource.Processor;
 import io.servicetalk.concurrent.PublisherSource.Subscriber;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
-import io.servicetalk.concurrent.api.AsyncCloseable;
-import io.servicetalk.concurrent.api.AsyncContext;
 import io.servicetalk.concurrent.api.Completable;
 import io.servicetalk.concurrent.api.CompositeCloseable;
-import io.servicetalk.concurrent.api.Executor;
 import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.concurrent.api.Single;
-import io.servicetalk.concurrent.internal.DelayedCancellable;
 import io.servicetalk.concurrent.internal.SequentialCancellable;
-import io.servicetalk.concurrent.internal.ThrowableUtils;
 import io.servicetalk.context.api.ContextMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Duration;
-import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Spliterator;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -72,24 +63,20 @@ import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
 import static io.servicetalk.concurrent.api.Completable.completed;
 import static io.servicetalk.concurrent.api.Processors.newPublisherProcessorDropHeadOnOverflow;
 import static io.servicetalk.concurrent.api.Publisher.from;
-import static io.servicetalk.concurrent.api.RetryStrategies.retryWithConstantBackoffDeltaJitter;
 import static io.servicetalk.concurrent.api.Single.defer;
 import static io.servicetalk.concurrent.api.Single.failed;
-import static io.servicetalk.concurrent.api.Single.succeeded;
 import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
-import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
 import static java.lang.Integer.toHexString;
-import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
+import static java.util.Collections.newSetFromMap;
 import static java.util.Objects.requireNonNull;
-import static java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater;
 import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
 import static java.util.stream.Collectors.toList;
 
 /**
- * Consult {@link RoundRobinLoadBalancerFactory} for a description of this {@link LoadBalancer} type.
+ * Consult {@link RoundRobinLoadBalancerFactory} and {@link P2CLoadBalancerFactory} for a description of this
+ * {@link LoadBalancer} type. The algorithm that picks a host for each selection is provided by a {@link HostSelector}.
  *
  * @param <ResolvedAddress> The resolved address type.
  * @param <C> The type of connection.
@@ -98,41 +85,20 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
         implements LoadBalancer<C> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RoundRobinLoadBalancer.class);
-    private static final Object[] EMPTY_ARRAY = new Object[0];
 
     @SuppressWarnings("rawtypes")
     private static final AtomicReferenceFieldUpdater<RoundRobinLoadBalancer, List> usedHostsUpdater =
             newUpdater(RoundRobinLoadBalancer.class, List.class, "usedHosts");
-    @SuppressWarnings("rawtypes")
-    private static final AtomicIntegerFieldUpdater<RoundRobinLoadBalancer> indexUpdater =
-            newUpdater(RoundRobinLoadBalancer.class, "index");
-
-    /**
-     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
-     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
-     * selection attempt.
-     */
-    private static final int MIN_RANDOM_SEARCH_SPACE = 64;
-
-    /**
-     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
-     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
-     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
-     * <p>
-     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
-     * counts, larger connection counts, low connection churn, high connection churn.
-     */
-    private static final float RANDOM_SEARCH_FACTOR = 0.75f;
 
-    @SuppressWarnings("unused")
-    private volatile int index;
     private volatile List<Host<ResolvedAddress, C>> usedHosts = emptyList();
 
     private final String targetResource;
     private final Publisher<Object> eventStream;
     private final SequentialCancellable discoveryCancellable = new SequentialCancellable();
     private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
-    private final int linearSearchSpace;
+    private final HostSelector<ResolvedAddress, C> hostSelector;
+    @Nullable
+    private final OutlierDetector outlierDetector;
     private final ListenableAsyncCloseable asyncCloseable;
 
     /**
@@ -142,26 +108,31 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
      * is performing load balancing.
      * @param eventPublisher provides a stream of addresses to connect to.
      * @param connectionFactory a function which creates new connections.
-     * @param healthCheckConfig configuration for the health checking mechanism, which monitors hosts that
-     * are unable to have a connection established. Providing {@code null} disables this mechanism (meaning the host
-     * continues being eligible for connecting on the request path).
+     * @param hostSelectorFactory a function which creates the {@link HostSelector} for the target resource name.
+     * @param hostConfig configuration shared by all hosts.
      * @see io.servicetalk.loadbalancer.RoundRobinLoadBalancerFactory
      */
     RoundRobinLoadBalancer(
             final String targetResourceName,
             final Publisher<? extends Collection<? extends ServiceDiscovererEvent<ResolvedAddress>>> eventPublisher,
             final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
-            final int linearSearchSpace,
-            @Nullable final HealthCheckConfig healthCheckConfig) {
+            final Function<String, HostSelector<ResolvedAddress, C>> hostSelectorFactory,
+            final HostConfig hostConfig) {
         this.targetResource = requireNonNull(targetResourceName) + " (instance @" + toHexString(hashCode()) + ')';
         Processor<Object, Object> eventStreamProcessor = newPublisherProcessorDropHeadOnOverflow(32);
         this.eventStream = fromSource(eventStreamProcessor);
         this.connectionFactory = requireNonNull(connectionFactory);
-        this.linearSearchSpace = linearSearchSpace;
+        this.hostSelector = requireNonNull(hostSelectorFactory.apply(targetResource));
+        final OutlierDetectorConfig outlierDetectorConfig = hostConfig.outlierDetectorConfig;
+        this.outlierDetector = outlierDetectorConfig == null ? null :
+                new OutlierDetector(targetResource, outlierDetectorConfig, () -> usedHosts);
 
         toSource(eventPublisher).subscribe(
                 new Subscriber<Collection<? extends ServiceDiscovererEvent<ResolvedAddress>>>() {
 
+            // Hosts of the first batch of events all start at the same time, there is no point in warming them up.
+            private HostConfig currentHostConfig = hostConfig.withoutSlowStart();
+
             @Override
             public void onSubscribe(final Subscription s) {
                 // We request max value here to make sure we do not access Subscription concurrently
@@ -174,73 +145,152 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
 
             @Override
             public void onNext(final Collection<? extends ServiceDiscovererEvent<ResolvedAddress>> events) {
+                if (events.isEmpty()) {
+                    return;
+                }
+                final List<Host<ResolvedAddress, C>> availableHosts = new ArrayList<>();
+                List<Host<ResolvedAddress, C>> oldHosts;
+                List<Host<ResolvedAddress, C>> newHosts;
+                for (;;) {
+                    @SuppressWarnings("unchecked")
+                    final List<Host<ResolvedAddress, C>> current = (List<Host<ResolvedAddress, C>>) usedHosts;
+                    if (isClosedList(current)) {
+                        return;
+                    }
+                    availableHosts.clear();
+                    oldHosts = current;
+                    newHosts = applyEvents(oldHosts, events, availableHosts);
+                    if (newHosts == oldHosts || usedHostsUpdater.compareAndSet(RoundRobinLoadBalancer.this,
+                            oldHosts, newHosts)) {
+                        break;
+                    }
+                }
+
+                LOGGER.debug("Load balancer for {}: now using {} addresses: {}.",
+                        targetResource, newHosts.size(), newHosts);
+
+                if (!availableHosts.isEmpty()) {
+                    if (oldHosts.isEmpty()) {
+                        eventStreamProcessor.onNext(LOAD_BALANCER_READY_EVENT);
+                    }
+                }
+                if (hostConfig.minConnectionsConfig != null && newHosts != oldHosts) {
+                    // Hosts are created inside of a CAS loop, start connecting only once the host is in use. Only
+                    // the hosts that the selector currently picks from are worth connecting to, with subsetting
+                    // that is a small share of all hosts.
+                    final Set<Host<ResolvedAddress, C>> selectable = newSetFromMap(new IdentityHashMap<>());
+                    selectable.addAll(hostSelector.selectableHosts(newHosts));
+                    for (Host<ResolvedAddress, C> host : newHosts) {
+                        host.keepMinConnections(selectable.contains(host));
+                    }
+                }
+                if (newHosts.isEmpty()) {
+                    eventStreamProcessor.onNext(LOAD_BALANCER_NOT_READY_EVENT);
+                }
+                currentHostConfig = hostConfig;
+            }
+
+            /**
+             * Applies a batch of events to the hosts with a single copy of the list.
+             *
+             * @param oldHosts the hosts in use.
+             * @param events the events to apply.
+             * @param availableHosts collects the hosts of {@link ServiceDiscovererEvent.Status#AVAILABLE} events.
+             * @return the new hosts, or {@code oldHosts} if the list did not change.
+             */
+            private List<Host<ResolvedAddress, C>> applyEvents(
+                    final List<Host<ResolvedAddress, C>> oldHosts,
+                    final Collection<? extends ServiceDiscovererEvent<ResolvedAddress>> events,
+                    final List<Host<ResolvedAddress, C>> availableHosts) {
+                // Index the hosts by address once per batch instead of searching the list for every event. A closed
+                // host can be in the list until it is removed by its onClose callback, the newest host for an address
+                // is indexed.
+                final Map<ResolvedAddress, Host<ResolvedAddress, C>> index = new HashMap<>(
+                        (int) ((oldHosts.size() + events.size()) / 0.75f) + 1);
+                for (Host<ResolvedAddress, C> host : oldHosts) {
+                    index.put(host.address, host);
+                }
+                // Identity matters: a host that is replaced by a new host for the same address is removed by itself.
+                final Set<Host<ResolvedAddress, C>> removed = newSetFromMap(new IdentityHashMap<>());
+                final Set<Host<ResolvedAddress, C>> added = newSetFromMap(new IdentityHashMap<>());
+                boolean updated = false;
                 for (ServiceDiscovererEvent<ResolvedAddress> event : events) {
                     final ServiceDiscovererEvent.Status eventStatus = event.status();
                     LOGGER.debug("Load balancer for {}: received new ServiceDiscoverer event {}. Inferred status: {}.",
                             targetResource, event, eventStatus);
-
-                    @SuppressWarnings("unchecked")
-                    final List<Host<ResolvedAddress, C>> usedAddresses =
-                            usedHostsUpdater.updateAndGet(RoundRobinLoadBalancer.this, oldHosts -> {
-                                if (isClosedList(oldHosts)) {
-                                    return oldHosts;
-                                }
-                                final ResolvedAddress addr = requireNonNull(event.address());
-                                @SuppressWarnings("unchecked")
-                                final List<Host<ResolvedAddress, C>> oldHostsTyped =
-                                        (List<Host<ResolvedAddress, C>>) oldHosts;
-
-                                if (AVAILABLE.equals(eventStatus)) {
-                                    return addHostToList(oldHostsTyped, addr);
-                                } else if (EXPIRED.equals(eventStatus)) {
-                                    if (oldHostsTyped.isEmpty()) {
-                                        return emptyList();
-                                    } else {
-                                        return markHostAsExpired(oldHostsTyped, addr);
-                                    }
-                                } else if (UNAVAILABLE.equals(eventStatus)) {
-                                    return listWithHostRemoved(oldHostsTyped, host -> {
-                                        boolean match = host.address.equals(addr);
-                                        if (match) {
-                                            host.markClosed();
-                                        }
-                                        return match;
-                                    });
-                                } else {
-                                    LOGGER.error("Load balancer for {}: Unexpected Status in event:" +
-                                            " {} (mapped to {}). Leaving usedHosts unchanged: {}",
-                                            targetResource, event, eventStatus, oldHosts);
-                                    return oldHosts;
-                                }
-                            });
-
-                    LOGGER.debug("Load balancer for {}: now using {} addresses: {}.",
-                            targetResource, usedAddresses.size(), usedAddresses);
-
+                    final ResolvedAddress addr = requireNonNull(event.address());
+                    final Host<ResolvedAddress, C> host = index.get(addr);
                     if (AVAILABLE.equals(eventStatus)) {
-                        if (usedAddresses.size() == 1) {
-                            eventStreamProcessor.onNext(LOAD_BALANCER_READY_EVENT);
+                        // If the host is already in CLOSED state, we should create a new entry. For duplicate ACTIVE
+                        // events or for repeated activation due to failed CAS of replacing the usedHosts list the
+                        // marking succeeds so we will not add a new entry.
+                        if (host != null && host.markActiveIfNotClosed()) {
+                            // A new list lets host selectors notice the changed weight or zone.
+                            updated |= host.updateWeight(event.weight()) | host.updateZone(event.zone());
+                            availableHosts.add(host);
+                        } else {
+                            final Host<ResolvedAddress, C> newHost = createHost(addr, event);
+                            index.put(addr, newHost);
+                            added.add(newHost);
+                            availableHosts.add(newHost);
+                        }
+                    } else if (EXPIRED.equals(eventStatus) || UNAVAILABLE.equals(eventStatus)) {
+                        if (host == null) {
+                            continue;
+                        }
+                        availableHosts.remove(host);
+                        if (added.remove(host)) {
+                            // The host was created by this batch and was never in use.
+                            index.remove(addr);
+                            host.markClosed();
+                        } else if (EXPIRED.equals(eventStatus)) {
+                            // Host removal will be handled by the Host's onClose::afterFinally callback
+                            host.markExpired();
+                        } else {
+                            index.remove(addr);
+                            removed.add(host);
+                            host.markClosed();
                         }
-                    } else if (usedAddresses.isEmpty()) {
-                        eventStreamProcessor.onNext(LOAD_BALANCER_NOT_READY_EVENT);
+                    } else {
+                        LOGGER.error("Load balancer for {}: Unexpected Status in event:" +
+                                " {} (mapped to {}). Leaving usedHosts unchanged: {}",
+                                targetResource, event, eventStatus, oldHosts);
                     }
                 }
-            }
-
-            private List<Host<ResolvedAddress, C>> markHostAsExpired(
-                    final List<Host<ResolvedAddress, C>> oldHostsTyped, final ResolvedAddress addr) {
-                for (Host<ResolvedAddress, C> host : oldHostsTyped) {
-                    if (host.address.equals(addr)) {
-                        // Host removal will be handled by the Host's onClose::afterFinally callback
-                        host.markExpired();
-                        break;  // because duplicates are not allowed, we can stop iteration
+                if (added.isEmpty() && removed.isEmpty()) {
+                    return updated ? new ArrayList<>(oldHosts) : oldHosts;
+                }
+                final List<Host<ResolvedAddress, C>> newHosts =
+                        new ArrayList<>(oldHosts.size() - removed.size() + added.size());
+                for (Host<ResolvedAddress, C> host : oldHosts) {
+                    if (!removed.contains(host)) {
+                        newHosts.add(host);
                     }
                 }
-                return oldHostsTyped;
+                for (ServiceDiscovererEvent<ResolvedAddress> event : events) {
+                    // Keep the order of the events for the added hosts.
+                    final Host<ResolvedAddress, C> host = index.get(event.address());
+                    if (host != null && added.remove(host)) {
+                        newHosts.add(host);
+                    }
+                }
+                return newHosts.isEmpty() ? emptyList() : newHosts;
             }
 
-            private Host<ResolvedAddress, C> createHost(ResolvedAddress addr) {
-                Host<ResolvedAddress, C> host = new Host<>(targetResource, addr, healthCheckConfig);
+            private Host<ResolvedAddress, C> createHost(ResolvedAddress addr,
+                                                        ServiceDiscovererEvent<ResolvedAddress> event) {
+                final DefaultRequestTracker latencyTracker = hostConfig.requestTrackerHalfLifeNanos > 0 ?
+                        new DefaultRequestTracker(hostConfig.requestTrackerHalfLifeNanos) : null;
+                final OutlierDetector.HostTracker outlierTracker = outlierDetector == null ? null :
+                        outlierDetector.newHostTracker(addr, latencyTracker);
+                final CircuitBreakerConfig circuitBreakerConfig = hostConfig.circuitBreakerConfig;
+                final CircuitBreaker circuitBreaker = circuitBreakerConfig == null ? null :
+                        new CircuitBreaker(targetResource, addr, circuitBreakerConfig,
+                                outlierTracker != null ? outlierTracker : latencyTracker);
+                Host<ResolvedAddress, C> host = new Host<>(targetResource, addr, connectionFactory,
+                        currentHostConfig, latencyTracker, outlierTracker, circuitBreaker);
+                host.updateWeight(event.weight());
+                host.updateZone(event.zone());
                 host.onClose().afterFinally(() ->
                         usedHostsUpdater.updateAndGet(RoundRobinLoadBalancer.this, previousHosts -> {
                                     @SuppressWarnings("unchecked")
@@ -252,31 +302,6 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
                 return host;
             }
 
-            private List<Host<ResolvedAddress, C>> addHostToList(
-                    List<Host<ResolvedAddress, C>> oldHostsTyped, ResolvedAddress addr) {
-                if (oldHostsTyped.isEmpty()) {
-                    return singletonList(createHost(addr));
-                }
-
-                // duplicates are not allowed
-                for (Host<ResolvedAddress, C> host : oldHostsTyped) {
-                    if (host.address.equals(addr)) {
-                        if (!host.markActiveIfNotClosed()) {
-                            // If the host is already in CLOSED state, we should create a new entry.
-                            // For duplicate ACTIVE events or for repeated activation due to failed CAS
-                            // of replacing the usedHosts array the marking succeeds so we will not add a new entry.
-                            break;
-                        }
-                        return oldHostsTyped;
-                    }
-                }
-
-                final List<Host<ResolvedAddress, C>> newHosts = new ArrayList<>(oldHostsTyped.size() + 1);
-                newHosts.addAll(oldHostsTyped);
-                newHosts.add(createHost(addr));
-                return newHosts;
-            }
-
             private List<Host<ResolvedAddress, C>> listWithHostRemoved(
                     List<Host<ResolvedAddress, C>> oldHostsTyped, Predicate<Host<ResolvedAddress, C>> hostPredicate) {
                 if (oldHostsTyped.isEmpty()) {
@@ -376,101 +401,7 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
                         RoundRobinLoadBalancer.class, "selectConnection0(...)"));
         }
 
-        // try one loop over hosts and if all are expired, give up
-        final int cursor = (indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE) % usedHosts.size();
-        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
-        Host<ResolvedAddress, C> pickedHost = null;
-        for (int i = 0; i < usedHosts.size(); ++i) {
-            // for a particular iteration we maintain a local cursor without contention with other requests
-            final int localCursor = (cursor + i) % usedHosts.size();
-            final Host<ResolvedAddress, C> host = usedHosts.get(localCursor);
-            assert host != null : "Host can't be null.";
-
-            if (!forceNewConnectionAndReserve) {
-                // Try first to see if an existing connection can be used
-                final Object[] connections = host.connState.connections;
-                // Exhaust the linear search space first:
-                final int linearAttempts = min(connections.length, linearSearchSpace);
-                for (int j = 0; j < linearAttempts; ++j) {
-                    @SuppressWarnings("unchecked")
-                    final C connection = (C) connections[j];
-                    if (selector.test(connection)) {
-                        return succeeded(connection);
-                    }
-                }
-                // Try other connections randomly:
-                if (connections.length > linearAttempts) {
-                    final int diff = connections.length - linearAttempts;
-                    // With small enough search space, attempt number of times equal to number of remaining connections.
-                    // Back off after exploring most of the search space, it gives diminishing returns.
-                    final int randomAttempts = diff < MIN_RANDOM_SEARCH_SPACE ? diff :
-                            (int) (diff * RANDOM_SEARCH_FACTOR);
-                    for (int j = 0; j < randomAttempts; ++j) {
-                        @SuppressWarnings("unchecked")
-                        final C connection = (C) connections[rnd.nextInt(linearAttempts, connections.length)];
-                        if (selector.test(connection)) {
-                            return succeeded(connection);
-                        }
-                    }
-                }
-            }
-
-            // Don't open new connections for expired or unhealthy hosts, try a different one.
-            // Unhealthy hosts have no open connections – that's why we don't fail earlier, the loop will not progress.
-            if (host.isActiveAndHealthy()) {
-                pickedHost = host;
-                break;
-            }
-        }
-        if (pickedHost == null) {
-            return failed(StacklessNoAvailableHostException.newInstance("Failed to pick an active host for " +
-                            targetResource + ". Either all are busy, expired, or unhealthy: " + usedHosts,
-                    RoundRobinLoadBalancer.class, "selectConnection0(...)"));
-        }
-        // No connection was selected: create a new one.
-        final Host<ResolvedAddress, C> host = pickedHost;
-
-        // This LB implementation does not automatically provide TransportObserver. Therefore, we pass "null" here.
-        // Users can apply a ConnectionFactoryFilter if they need to override this "null" value with TransportObserver.
-        Single<? extends C> establishConnection = connectionFactory.newConnection(host.address, context, null);
-        if (host.healthCheckConfig != null) {
-                // Schedule health check before returning
-                establishConnection = establishConnection.beforeOnError(t -> host.markUnhealthy(t, connectionFactory));
-        }
-        return establishConnection
-                .flatMap(newCnx -> {
-                    if (forceNewConnectionAndReserve && !newCnx.tryReserve()) {
-                        return newCnx.closeAsync().concat(failed(StacklessConnectionRejectedException.newInstance(
-                                "Newly created connection " + newCnx + " for " + targetResource
-                                        + " could not be reserved.",
-                                RoundRobinLoadBalancer.class, "selectConnection0(...)")));
-                    }
-
-                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be
-                    // used concurrently and hence a new connection can be rejected by the selector.
-                    if (!selector.test(newCnx)) {
-                        // Failure in selection could be the result of connection factory returning cached connection,
-                        // and not having visibility into max-concurrent-requests, or other threads already selected the
-                        // connection which uses all the max concurrent request count.
-
-                        // If there is caching Propagate the exception and rely upon retry strategy.
-                        Single<C> failedSingle = failed(StacklessConnectionRejectedException.newInstance(
-                                "Newly created connection " + newCnx + " for " + targetResource
-                                        + " was rejected by the selection filter.",
-                                RoundRobinLoadBalancer.class, "selectConnection0(...)"));
-
-                        // Just in case the connection is not closed add it to the host so we don't lose track,
-                        // duplicates will be filtered out.
-                        return host.addConnection(newCnx) ? failedSingle : newCnx.closeAsync().concat(failedSingle);
-                    }
-                    if (host.addConnection(newCnx)) {
-                        return succeeded(newCnx);
-                    }
-                    return newCnx.closeAsync().concat(isClosedList(this.usedHosts) ? failedLBClosed(targetResource) :
-                            failed(StacklessConnectionRejectedException.newInstance(
-                                    "Failed to add newly created connection " + newCnx + " for " + targetResource
-                                            + " for " + host, RoundRobinLoadBalancer.class, "selectConnection0(...)")));
-                });
+        return hostSelector.selectConnection(usedHosts, selector, context, forceNewConnectionAndReserve);
     }
 
     @Override
@@ -498,461 +429,6 @@ final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnec
         return usedHosts.stream().map(Host::asEntry).collect(toList());
     }
 
-    static final class HealthCheckConfig {
-        private final Executor executor;
-        private final Duration healthCheckInterval;
-        private final Duration jitter;
-        private final int failedThreshold;
-
-        HealthCheckConfig(final Executor executor, final Duration healthCheckInterval, final Duration healthCheckJitter,
-                          final int failedThreshold) {
-            this.executor = executor;
-            this.healthCheckInterval = healthCheckInterval;
-            this.failedThreshold = failedThreshold;
-            this.jitter = healthCheckJitter;
-        }
-    }
-
-    private static final class Host<Addr, C extends LoadBalancedConnection> implements ListenableAsyncCloseable {
-
-        private enum State {
-            // The enum is not exhaustive, as other states have dynamic properties.
-            // For clarity, the other state classes are listed as comments:
-            // ACTIVE - see ActiveState
-            // UNHEALTHY - see HealthCheck
-            EXPIRED,
-            CLOSED
-        }
-
-        private static final ActiveState STATE_ACTIVE_NO_FAILURES = new ActiveState();
-        private static final ConnState ACTIVE_EMPTY_CONN_STATE = new ConnState(EMPTY_ARRAY, STATE_ACTIVE_NO_FAILURES);
-        private static final ConnState CLOSED_CONN_STATE = new ConnState(EMPTY_ARRAY, State.CLOSED);
-
-        @SuppressWarnings("rawtypes")
-        private static final AtomicReferenceFieldUpdater<Host, ConnState> connStateUpdater =
-                AtomicReferenceFieldUpdater.newUpdater(Host.class, ConnState.class, "connState");
-
-        private final String targetResource;
-        final Addr address;
-        @Nullable
-        private final HealthCheckConfig healthCheckConfig;
-        private final ListenableAsyncCloseable closeable;
-        private volatile ConnState connState = ACTIVE_EMPTY_CONN_STATE;
-
-        Host(String targetResource, Addr address, @Nullable HealthCheckConfig healthCheckConfig) {
-            this.targetResource = requireNonNull(targetResource);
-            this.address = requireNonNull(address);
-            this.healthCheckConfig = healthCheckConfig;
-            this.closeable = toAsyncCloseable(graceful ->
-                    graceful ? doClose(AsyncCloseable::closeAsyncGracefully) : doClose(AsyncCloseable::closeAsync));
-        }
-
-        boolean markActiveIfNotClosed() {
-            final Object oldState = connStateUpdater.getAndUpdate(this, oldConnState -> {
-                if (oldConnState.state == State.EXPIRED) {
-                    return new ConnState(oldConnState.connections, STATE_ACTIVE_NO_FAILURES);
-                }
-                // If oldConnState.state == State.ACTIVE this could mean either a duplicate event,
-                // or a repeated CAS operation. We could issue a warning, but as we don't know, we don't log anything.
-                // UNHEALTHY state cannot transition to ACTIVE without passing the health check.
-                return oldConnState;
-            }).state;
-            return oldState != State.CLOSED;
-        }
-
-        void markClosed() {
-            final ConnState oldState = closeConnState();
-            final Object[] toRemove = oldState.connections;
-            cancelIfHealthCheck(oldState.state);
-            LOGGER.debug("Load balancer for {}: closing {} connection(s) gracefully to the closed address: {}.",
-                    targetResource, toRemove.length, address);
-            for (Object conn : toRemove) {
-                @SuppressWarnings("unchecked")
-                final C cConn = (C) conn;
-                cConn.closeAsyncGracefully().subscribe();
-            }
-        }
-
-        private ConnState closeConnState() {
-            for (;;) {
-                // We need to keep the oldState.connections around even if we are closed because the user may do
-                // closeGracefully with a timeout, which fails, and then force close. If we discard connections when
-                // closeGracefully is started we may leak connections.
-                final ConnState oldState = connState;
-                if (oldState.state == State.CLOSED || connStateUpdater.compareAndSet(this, oldState,
-                        new ConnState(oldState.connections, State.CLOSED))) {
-                    return oldState;
-                }
-            }
-        }
-
-        void markExpired() {
-            for (;;) {
-                ConnState oldState = connStateUpdater.get(this);
-                if (oldState.state == State.EXPIRED || oldState.state == State.CLOSED) {
-                    break;
-                }
-                Object nextState = oldState.connections.length == 0 ? State.CLOSED : State.EXPIRED;
-
-                if (connStateUpdater.compareAndSet(this, oldState,
-                        new ConnState(oldState.connections, nextState))) {
-                    cancelIfHealthCheck(oldState.state);
-                    if (nextState == State.CLOSED) {
-                        // Trigger the callback to remove the host from usedHosts array.
-                        this.closeAsync().subscribe();
-                    }
-                    break;
-                }
-            }
-        }
-
-        void markHealthy(final HealthCheck<Addr, C> originalHealthCheckState) {
-            // Marking healthy is generally called from a successful health check, after a connection was added.
-            // However, it is possible that in the meantime, the host entered an EXPIRED state, then ACTIVE, then failed
-            // to open connections and entered the UNHEALTHY state before the original thread continues execution here.
-            // In such case, the flipped state is not the same as the one that just succeeded to open a connection.
-            // In an unlikely scenario that the following connection attempts fail indefinitely, a health check task
-            // would leak and would not be cancelled. Therefore, we cancel it here and allow failures to trigger a new
-            // health check.
-            Object oldState = connStateUpdater.getAndUpdate(this, previous -> {
-                if (HealthCheck.class.equals(previous.state.getClass())) {
-                    return new ConnState(previous.connections, STATE_ACTIVE_NO_FAILURES);
-                }
-                return previous;
-            }).state;
-            if (oldState != originalHealthCheckState) {
-                cancelIfHealthCheck(oldState);
-            }
-        }
-
-        void markUnhealthy(final Throwable cause, final ConnectionFactory<Addr, ? extends C> connectionFactory) {
-            assert healthCheckConfig != null;
-            for (;;) {
-                ConnState previous = connStateUpdater.get(this);
-
-                if (!ActiveState.class.equals(previous.state.getClass()) || previous.connections.length > 0
-                        || cause instanceof ConnectionLimitReachedException) {
-                    LOGGER.debug("Load balancer for {}: failed to open a new connection to the host on address {}. {}",
-                            targetResource, address, previous, cause);
-                    break;
-                }
-
-                ActiveState previousState = (ActiveState) previous.state;
-                if (previousState.failedConnections + 1 < healthCheckConfig.failedThreshold) {
-                    final ActiveState nextState = previousState.forNextFailedConnection();
-                    if (connStateUpdater.compareAndSet(this, previous,
-                            new ConnState(previous.connections, nextState))) {
-                        LOGGER.debug("Load balancer for {}: failed to open a new connection to the host on address {}" +
-                                        " {} time(s) ({} consecutive failures will trigger health-checking).",
-                                targetResource, address, nextState.failedConnections,
-                                healthCheckConfig.failedThreshold, cause);
-                        break;
-                    }
-                    // another thread won the race, try again
-                    continue;
-                }
-
-                final HealthCheck<Addr, C> healthCheck = new HealthCheck<>(connectionFactory, this, cause);
-                final ConnState nextState = new ConnState(previous.connections, healthCheck);
-                if (connStateUpdater.compareAndSet(this, previous, nextState)) {
-                    LOGGER.info("Load balancer for {}: failed to open a new connection to the host on address {} " +
-                                    "{} time(s) in a row. Error counting threshold reached, marking this host as " +
-                                    "UNHEALTHY for the selection algorithm and triggering background health-checking.",
-                            targetResource, address, healthCheckConfig.failedThreshold, cause);
-                    healthCheck.schedule(cause);
-                    break;
-                }
-            }
-        }
-
-        boolean isActiveAndHealthy() {
-            return ActiveState.class.equals(connState.state.getClass());
-        }
-
-        boolean addConnection(C connection) {
-            int addAttempt = 0;
-            for (;;) {
-                final ConnState previous = connStateUpdater.get(this);
-                if (previous.state == State.CLOSED) {
-                    return false;
-                }
-                ++addAttempt;
-
-                final Object[] existing = previous.connections;
-                // Brute force iteration to avoid duplicates. If connections grow larger and faster lookup is required
-                // we can keep a Set for faster lookups (at the cost of more memory) as well as array.
-                for (final Object o : existing) {
-                    if (o.equals(connection)) {
-                        return true;
-                    }
-                }
-                Object[] newList = Arrays.copyOf(existing, existing.length + 1);
-                newList[existing.length] = connection;
-
-                Object newState = ActiveState.class.equals(previous.state.getClass()) ?
-                        STATE_ACTIVE_NO_FAILURES : previous.state;
-
-                if (connStateUpdater.compareAndSet(this,
-                        previous, new ConnState(newList, newState))) {
-                    break;
-                }
-            }
-
-            LOGGER.trace("Load balancer for {}: added a new connection {} to {} after {} attempt(s).",
-                    targetResource, connection, this, addAttempt);
-            // Instrument the new connection so we prune it on close
-            connection.onClose().beforeFinally(() -> {
-                int removeAttempt = 0;
-                for (;;) {
-                    final ConnState currentConnState = this.connState;
-                    if (currentConnState.state == State.CLOSED) {
-                        break;
-                    }
-                    ++removeAttempt;
-                    int i = 0;
-                    final Object[] connections = currentConnState.connections;
-                    for (; i < connections.length; ++i) {
-                        if (connections[i].equals(connection)) {
-                            break;
-                        }
-                    }
-                    if (i == connections.length) {
-                        break;
-                    } else if (connections.length == 1) {
-                        if (ActiveState.class.equals(currentConnState.state.getClass())) {
-                            if (connStateUpdater.compareAndSet(this, currentConnState,
-                                    new ConnState(EMPTY_ARRAY, currentConnState.state))) {
-                                break;
-                            }
-                        } else if (currentConnState.state == State.EXPIRED
-                                // We're closing the last connection, close the Host.
-                                // Closing the host will trigger the Host's onClose method, which will remove the host
-                                // from used hosts list. If a race condition appears and a new connection was added
-                                // in the meantime, that would mean the host is available again and the CAS operation
-                                // will allow for determining that. It will prevent closing the Host and will only
-                                // remove the connection (previously considered as the last one) from the array
-                                // in the next iteration.
-                                && connStateUpdater.compareAndSet(this, currentConnState, CLOSED_CONN_STATE)) {
-                            this.closeAsync().subscribe();
-                            break;
-                        }
-                    } else {
-                        Object[] newList = new Object[connections.length - 1];
-                        System.arraycopy(connections, 0, newList, 0, i);
-                        System.arraycopy(connections, i + 1, newList, i, newList.length - i);
-                        if (connStateUpdater.compareAndSet(this,
-                                currentConnState, new ConnState(newList, currentConnState.state))) {
-                            break;
-                        }
-                    }
-                }
-                LOGGER.trace("Load balancer for {}: removed connection {} from {} after {} attempt(s).",
-                        targetResource, connection, this, removeAttempt);
-            }).subscribe();
-            return true;
-        }
-
-        // Used for testing only
-        @SuppressWarnings("unchecked")
-        Entry<Addr, List<C>> asEntry() {
-            return new SimpleImmutableEntry<>(address,
-                    Stream.of(connState.connections).map(conn -> (C) conn).collect(toList()));
-        }
-
-        @Override
-        public Completable closeAsync() {
-            return closeable.closeAsync();
-        }
-
-        @Override
-        public Completable closeAsyncGracefully() {
-            return closeable.closeAsyncGracefully();
-        }
-
-        @Override
-        public Completable onClose() {
-            return closeable.onClose();
-        }
-
-        @Override
-        public Completable onClosing() {
-            return closeable.onClosing();
-        }
-
-        @SuppressWarnings("unchecked")
-        private Completable doClose(final Function<? super C, Completable> closeFunction) {
-            return Completable.defer(() -> {
-                final ConnState oldState = closeConnState();
-                cancelIfHealthCheck(oldState.state);
-                final Object[] connections = oldState.connections;
-                return (connections.length == 0 ? completed() :
-                        from(connections).flatMapCompletableDelayError(conn -> closeFunction.apply((C) conn)))
-                        .shareContextOnSubscribe();
-            });
-        }
-
-        private void cancelIfHealthCheck(Object o) {
-            if (HealthCheck.class.equals(o.getClass())) {
-                @SuppressWarnings("unchecked")
-                HealthCheck<Addr, C> healthCheck = (HealthCheck<Addr, C>) o;
-                LOGGER.debug("Load balancer for {}: health check cancelled for {}.", targetResource, healthCheck.host);
-                healthCheck.cancel();
-            }
-        }
-
-        @Override
-        public String toString() {
-            final ConnState connState = this.connState;
-            return "Host{" +
-                    "address=" + address +
-                    ", state=" + connState.state +
-                    ", #connections=" + connState.connections.length +
-                    '}';
-        }
-
-        private static final class ActiveState {
-            private final int failedConnections;
-
-            ActiveState() {
-                this(0);
-            }
-
-            private ActiveState(int failedConnections) {
-                this.failedConnections = failedConnections;
-            }
-
-            ActiveState forNextFailedConnection() {
-                return new ActiveState(addWithOverflowProtection(this.failedConnections, 1));
-            }
-
-            @Override
-            public String toString() {
-                return "ACTIVE(failedConnections=" + failedConnections + ')';
-            }
-        }
-
-        private static final class HealthCheck<ResolvedAddress, C extends LoadBalancedConnection>
-                extends DelayedCancellable {
-            private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
-            private final Host<ResolvedAddress, C> host;
-            private final Throwable lastError;
-
-            private HealthCheck(final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
-                                final Host<ResolvedAddress, C> host, final Throwable lastError) {
-                this.connectionFactory = connectionFactory;
-                this.host = host;
-                this.lastError = lastError;
-            }
-
-            public void schedule(final Throwable originalCause) {
-                assert host.healthCheckConfig != null;
-                delayedCancellable(
-                        // Use retry strategy to utilize jitter.
-                        retryWithConstantBackoffDeltaJitter(cause -> true,
-                                host.healthCheckConfig.healthCheckInterval,
-                                host.healthCheckConfig.jitter,
-                                host.healthCheckConfig.executor)
-                                .apply(0, originalCause)
-                                // Remove any state from async context
-                                .beforeOnSubscribe(__ -> AsyncContext.clear())
-                                .concat(connectionFactory.newConnection(host.address, null, null)
-                                        // There is no risk for StackOverflowError because result of each connection
-                                        // attempt will be invoked on IoExecutor as a new task.
-                                        .retryWhen(retryWithConstantBackoffDeltaJitter(
-                                                cause -> {
-                                                    LOGGER.debug("Load balancer for {}: health check failed for {}.",
-                                                            host.targetResource, host, cause);
-                                                    return true;
-                                                },
-                                                host.healthCheckConfig.healthCheckInterval,
-                                                host.healthCheckConfig.jitter,
-                                                host.healthCheckConfig.executor)))
-                                .flatMapCompletable(newCnx -> {
-                                    if (host.addConnection(newCnx)) {
-                                        host.markHealthy(this);
-                                        LOGGER.info("Load balancer for {}: health check passed for {}, marking this " +
-                                                        "host as ACTIVE for the selection algorithm.",
-                                                host.targetResource, host);
-                                        return completed();
-                                    } else {
-                                        // This happens only if the host is closed, no need to mark as healthy.
-                                        LOGGER.debug("Load balancer for {}: health check passed for {}, but the " +
-                                                        "host rejected a new connection {}. Closing it now.",
-                                                host.targetResource, host, newCnx);
-                                        return newCnx.closeAsync();
-                                    }
-                                })
-                                // Use onErrorComplete instead of whenOnError to avoid double logging of an error inside
-                                // subscribe(): SimpleCompletableSubscriber.
-                                .onErrorComplete(t -> {
-                                    LOGGER.error("Load balancer for {}: health check terminated with " +
-                                            "an unexpected error for {}. Marking this host as ACTIVE as a fallback " +
-                                            "to allow connection attempts.", host.targetResource, host, t);
-                                    host.markHealthy(this);
-                                    return true;
-                                })
-                                .subscribe());
-            }
-
-            @Override
-            public String toString() {
-                return "UNHEALTHY(" + lastError + ')';
-            }
-        }
-
-        private static final class ConnState {
-            final Object[] connections;
-            final Object state;
-
-            ConnState(final Object[] connections, final Object state) {
-                this.connections = connections;
-                this.state = state;
-            }
-
-            @Override
-            public String toString() {
-                return "ConnState{" +
-                        "state=" + state +
-                        ", #connections=" + connections.length +
-                        '}';
-            }
-        }
-    }
-
-    private static final class StacklessNoAvailableHostException extends NoAvailableHostException {
-        private static final long serialVersionUID = 5942960040738091793L;
-
-        private StacklessNoAvailableHostException(final String message) {
-            super(message);
-        }
-
-        @Override
-        public Throwable fillInStackTrace() {
-            return this;
-        }
-
-        public static StacklessNoAvailableHostException newInstance(String message, Class<?> clazz, String method) {
-            return ThrowableUtils.unknownStackTrace(new StacklessNoAvailableHostException(message), clazz, method);
-        }
-    }
-
-    private static final class StacklessConnectionRejectedException extends ConnectionRejectedException {
-        private static final long serialVersionUID = -4940708893680455819L;
-
-        private StacklessConnectionRejectedException(final String message) {
-            super(message);
-        }
-
-        @Override
-        public Throwable fillInStackTrace() {
-            return this;
-        }
-
-        public static StacklessConnectionRejectedException newInstance(String message, Class<?> clazz, String method) {
-            return ThrowableUtils.unknownStackTrace(new StacklessConnectionRejectedException(message), clazz, method);
-        }
-    }
-
     private static boolean isClosedList(List<?> list) {
         return list.getClass().equals(ClosedList.class);
     }
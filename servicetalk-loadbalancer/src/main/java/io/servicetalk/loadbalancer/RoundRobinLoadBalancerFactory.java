@@ -25,7 +25,6 @@ import io.servicetalk.concurrent.api.Executor;
 import io.servicetalk.concurrent.api.Executors;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.context.api.ContextMap;
-import io.servicetalk.loadbalancer.RoundRobinLoadBalancer.HealthCheckConfig;
 import io.servicetalk.transport.api.ExecutionStrategy;
 
 import java.time.Duration;
@@ -35,6 +34,9 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.loadbalancer.ConsistentHashSelector.withConsistentHashing;
+import static io.servicetalk.loadbalancer.SubsetHostSelector.withSubsetting;
+import static io.servicetalk.loadbalancer.ZoneAwareHostSelector.withZoneAwareness;
 import static java.time.Duration.ofSeconds;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -68,6 +70,20 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  * This behaviour can be disabled using a negative argument for
  * {@link Builder#healthCheckFailedConnectionsThreshold(int)} and the failing host will take part in the regular
  * round robin cycle for trying to establish a connection on the request path.</li>
+ * <li>Hosts which accept connections but fail requests can be temporarily ejected from the round robin cycle by
+ * enabling the outlier detection via {@link Builder#outlierDetectorConfig(OutlierDetectorConfig)}.</li>
+ * <li>Hosts which fail too many requests can be skipped without waiting for connect or request timeouts by enabling
+ * a circuit breaker per host via {@link Builder#circuitBreakerConfig(CircuitBreakerConfig)}.</li>
+ * <li>Hosts discovered after the initial set of hosts can be warmed up by gradually increasing their share of the
+ * selections, see {@link Builder#slowStartWindow(Duration)}.</li>
+ * <li>A minimum number of connections per host can be kept established in the background, so that requests to newly
+ * discovered hosts do not wait for connections to be created, see {@link Builder#minConnectionsPerHost(int)}.</li>
+ * <li>Connections can be drained from the pool when they reach a maximum age, so that traffic is rebalanced to new
+ * hosts, or when they were idle, see {@link Builder#maxConnectionAge(Duration)} and
+ * {@link Builder#idleConnectionTimeout(Duration)}.</li>
+ * <li>Requests with the same key in their {@link ContextMap context} can be sent to the same host with consistent
+ * hashing, so that caches of the hosts are used more effectively, see
+ * {@link Builder#consistentHashing(ContextMap.Key)}.</li>
  * </ul>
  *
  * @param <ResolvedAddress> The resolved address type.
@@ -76,18 +92,34 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends LoadBalancedConnection>
         implements LoadBalancerFactory<ResolvedAddress, C> {
 
-    private static final Duration DEFAULT_HEALTH_CHECK_INTERVAL = ofSeconds(5);
-    private static final Duration DEFAULT_HEALTH_CHECK_JITTER = ofSeconds(3);
+    static final Duration DEFAULT_HEALTH_CHECK_INTERVAL = ofSeconds(5);
+    static final Duration DEFAULT_HEALTH_CHECK_JITTER = ofSeconds(3);
     static final int DEFAULT_HEALTH_CHECK_FAILED_CONNECTIONS_THRESHOLD = 5; // higher than default for AutoRetryStrategy
+    static final Duration DEFAULT_MIN_CONNECTIONS_JITTER = ofSeconds(1);
 
-    private final int linearSearchSpace;
+    private final HostConfig hostConfig;
+    private final int subsetSize;
     @Nullable
-    private final HealthCheckConfig healthCheckConfig;
+    private final String subsetClientId;
+    @Nullable
+    private final String localZone;
+    private final double minHealthyLocalFraction;
+    @Nullable
+    private final ContextMap.Key<?> hashKey;
+    private final int ringSize;
 
-    private RoundRobinLoadBalancerFactory(final int linearSearchSpace,
-                                          @Nullable final HealthCheckConfig healthCheckConfig) {
-        this.linearSearchSpace = linearSearchSpace;
-        this.healthCheckConfig = healthCheckConfig;
+    private RoundRobinLoadBalancerFactory(final HostConfig hostConfig, final int subsetSize,
+                                          @Nullable final String subsetClientId,
+                                          @Nullable final String localZone,
+                                          final double minHealthyLocalFraction,
+                                          @Nullable final ContextMap.Key<?> hashKey, final int ringSize) {
+        this.hostConfig = hostConfig;
+        this.subsetSize = subsetSize;
+        this.subsetClientId = subsetClientId;
+        this.localZone = localZone;
+        this.minHealthyLocalFraction = minHealthyLocalFraction;
+        this.hashKey = hashKey;
+        this.ringSize = ringSize;
     }
 
     @Deprecated
@@ -97,7 +129,7 @@ public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends Load
             final Publisher<? extends Collection<? extends ServiceDiscovererEvent<ResolvedAddress>>> eventPublisher,
             final ConnectionFactory<ResolvedAddress, T> connectionFactory) {
         return new RoundRobinLoadBalancer<>(requireNonNull(targetResource), eventPublisher, connectionFactory,
-                linearSearchSpace, healthCheckConfig);
+                this::newSelector, hostConfig);
     }
 
     @Override
@@ -106,7 +138,13 @@ public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends Load
             final ConnectionFactory<ResolvedAddress, C> connectionFactory,
             final String targetResource) {
         return new RoundRobinLoadBalancer<>(requireNonNull(targetResource), eventPublisher, connectionFactory,
-                linearSearchSpace, healthCheckConfig);
+                this::newSelector, hostConfig);
+    }
+
+    private <T extends C> HostSelector<ResolvedAddress, T> newSelector(final String targetResource) {
+        return withZoneAwareness(() -> withSubsetting(withConsistentHashing(
+                new RoundRobinSelector<>(targetResource, hostConfig.slowStartConfig != null), hashKey, ringSize,
+                targetResource), subsetSize, subsetClientId), localZone, minHealthyLocalFraction);
     }
 
     @Override
@@ -128,6 +166,30 @@ public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends Load
         private Duration healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
         private Duration healthCheckJitter = DEFAULT_HEALTH_CHECK_JITTER;
         private int healthCheckFailedConnectionsThreshold = DEFAULT_HEALTH_CHECK_FAILED_CONNECTIONS_THRESHOLD;
+        @Nullable
+        private OutlierDetectorConfig outlierDetectorConfig;
+        @Nullable
+        private CircuitBreakerConfig circuitBreakerConfig;
+        @Nullable
+        private Duration slowStartWindow;
+        private double slowStartAggression = SlowStartConfig.DEFAULT_AGGRESSION;
+        private boolean trackFreeConnections;
+        private int subsetSize;
+        @Nullable
+        private String subsetClientId;
+        @Nullable
+        private String localZone;
+        private double minHealthyLocalFraction = ZoneAwareHostSelector.DEFAULT_MIN_HEALTHY_FRACTION;
+        private int minConnectionsPerHost;
+        private Duration minConnectionsJitter = DEFAULT_MIN_CONNECTIONS_JITTER;
+        @Nullable
+        private ContextMap.Key<?> hashKey;
+        private int ringSize = ConsistentHashSelector.DEFAULT_RING_SIZE;
+        @Nullable
+        private Duration maxConnectionAge;
+        private Duration maxConnectionAgeJitter = Duration.ZERO;
+        @Nullable
+        private Duration idleConnectionTimeout;
 
         /**
          * Creates a new instance with default settings.
@@ -157,6 +219,250 @@ public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends Load
             return this;
         }
 
+        /**
+         * Sets whether hosts keep track of their connections that are likely to accept a new request.
+         * <p>
+         * By default, every selection searches the connections of the selected host, as described in
+         * {@link #linearSearchSpace(int)}. When most of the connections are busy, for example with hundreds of HTTP/1.x
+         * connections per host, this search becomes expensive. With this option enabled, connections are put into a
+         * lock-free list when a request issued over them terminates, and selections take connections from that list
+         * instead, which makes the cost of a selection independent of the number of connections. When the list is
+         * empty, only a few random connections are probed before a new connection is opened.
+         *
+         * @param trackFreeConnections {@code true} to keep track of connections that are likely to accept a new
+         * request.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> trackFreeConnections(
+                boolean trackFreeConnections) {
+            this.trackFreeConnections = trackFreeConnections;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of connections that every selectable host keeps established.
+         *
+         * @param minConnections the minimum number of connections per host, {@code 0} disables the background
+         * connection creation.
+         * @return {@code this}.
+         * @see #minConnectionsPerHost(int, Duration)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> minConnectionsPerHost(int minConnections) {
+            return minConnectionsPerHost(minConnections, DEFAULT_MIN_CONNECTIONS_JITTER);
+        }
+
+        /**
+         * Sets the minimum number of connections that every selectable host keeps established.
+         * <p>
+         * By default, connections are created lazily on the request path, so the first requests to a newly discovered
+         * host pay for establishing the connection, including TLS and protocol negotiation. With a minimum, connections
+         * are opened in the background as soon as a host is discovered, and again when connections close. Every
+         * connection is opened after a random delay of up to {@code jitter} to avoid a burst of connection attempts
+         * when many hosts are discovered at the same time, for example after a deployment. Failed attempts are retried
+         * after the {@link #healthCheckInterval(Duration, Duration) health check interval}, unhealthy hosts are
+         * connected again when the health check succeeds. The background tasks run on the
+         * {@link #backgroundExecutor(Executor) background executor}.
+         * <p>
+         * With {@link #subsetting(int) subsetting}, only the hosts of the subset keep connections established, the
+         * subset is updated whenever the service discovery reports a change.
+         *
+         * @param minConnections the minimum number of connections per host, {@code 0} disables the background
+         * connection creation.
+         * @param jitter the upper bound of the random delay before opening a connection.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> minConnectionsPerHost(int minConnections,
+                                                                                               Duration jitter) {
+            if (minConnections < 0) {
+                throw new IllegalArgumentException("minConnections: " + minConnections + " (expected >=0)");
+            }
+            if (jitter.isNegative()) {
+                throw new IllegalArgumentException("jitter: " + jitter + " (expected >=0)");
+            }
+            this.minConnectionsPerHost = minConnections;
+            this.minConnectionsJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the maximum age of connections, after which they are drained from the pool.
+         *
+         * @param maxAge the maximum age of a connection.
+         * @return {@code this}.
+         * @see #maxConnectionAge(Duration, Duration)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> maxConnectionAge(Duration maxAge) {
+            return maxConnectionAge(maxAge, maxAge.dividedBy(10));
+        }
+
+        /**
+         * Sets the maximum age of connections, after which they are drained from the pool.
+         * <p>
+         * Connections are only closed by the server or by an idle timeout, so long-lived connections keep sending
+         * requests to the hosts they were opened to, even when new hosts were added to rebalance the load. Connections
+         * that reach the maximum age are not selected anymore and are closed gracefully, so that requests in flight
+         * complete. New connections are opened on demand, or in the background if
+         * {@link #minConnectionsPerHost(int, Duration) minimum connections} are configured. The age of every
+         * connection is reduced by a random duration of up to {@code jitter}, so that connections that were opened
+         * at the same time are not all replaced at once, which would cause a burst of reconnects. The checks run on
+         * the {@link #backgroundExecutor(Executor) background executor}.
+         *
+         * @param maxAge the maximum age of a connection.
+         * @param jitter the upper bound of the random duration by which the maximum age of every connection is
+         * reduced, less than {@code maxAge}.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> maxConnectionAge(Duration maxAge,
+                                                                                          Duration jitter) {
+            if (maxAge.isNegative() || maxAge.isZero()) {
+                throw new IllegalArgumentException("maxAge: " + maxAge + " (expected >0)");
+            }
+            if (jitter.isNegative() || jitter.compareTo(maxAge) >= 0) {
+                throw new IllegalArgumentException("jitter: " + jitter + " (expected >=0 and <" + maxAge + ')');
+            }
+            this.maxConnectionAge = maxAge;
+            this.maxConnectionAgeJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the time after which connections that were not selected for a request are drained from the pool.
+         * <p>
+         * Connections opened for a burst of requests are kept until the server or an idle timeout of the connection
+         * closes them. Connections of a host that were not selected for {@code idleTimeout} are not selected anymore
+         * and are closed gracefully, while at least the {@link #minConnectionsPerHost(int, Duration) minimum number
+         * of connections} is kept. The checks run on the {@link #backgroundExecutor(Executor) background executor}.
+         *
+         * @param idleTimeout the time after which a connection that was not selected is closed.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> idleConnectionTimeout(Duration idleTimeout) {
+            if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+                throw new IllegalArgumentException("idleTimeout: " + idleTimeout + " (expected >0)");
+            }
+            this.idleConnectionTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Restricts every load balancer to a random subset of the discovered hosts.
+         *
+         * @param subsetSize the number of hosts in the subset, {@code 0} disables subsetting.
+         * @return {@code this}.
+         * @see #subsetting(int, String)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> subsetting(int subsetSize) {
+            return subsetting(subsetSize, null);
+        }
+
+        /**
+         * Restricts every load balancer to a subset of the discovered hosts, which is determined by the identifier of
+         * the client.
+         * <p>
+         * By default, every client opens connections to every discovered host. With many clients and many hosts, the
+         * number of connections, and the related file descriptors, TLS handshakes and memory, grows with the product
+         * of both. With subsetting, every client only opens connections to {@code subsetSize} hosts. The hosts are
+         * picked with rendezvous hashing of the {@code clientId} and the host address: the subsets of clients with
+         * different identifiers are spread evenly over the hosts, and changes of the discovered hosts only affect the
+         * subsets that contain the added or removed hosts. Hosts of the subset that are not available are replaced by
+         * other hosts until they become available again. Hosts with a higher
+         * {@link io.servicetalk.client.api.ServiceDiscovererEvent#weight() weight} are more likely to be in a subset.
+         *
+         * @param subsetSize the number of hosts in the subset, {@code 0} disables subsetting.
+         * @param clientId a stable identifier of this client, for example a host name, so that the subset does not
+         * change when the client restarts, or {@code null} to pick a random subset for every load balancer.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> subsetting(int subsetSize,
+                                                                                    @Nullable String clientId) {
+            if (subsetSize < 0) {
+                throw new IllegalArgumentException("subsetSize: " + subsetSize + " (expected >=0)");
+            }
+            this.subsetSize = subsetSize;
+            this.subsetClientId = clientId;
+            return this;
+        }
+
+        /**
+         * Sends requests with the same value for {@code hashKey} in their {@link ContextMap context} to the same host.
+         *
+         * @param hashKey the {@link ContextMap.Key} whose value determines the host.
+         * @return {@code this}.
+         * @see #consistentHashing(ContextMap.Key, int)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> consistentHashing(ContextMap.Key<?> hashKey) {
+            return consistentHashing(hashKey, ConsistentHashSelector.DEFAULT_RING_SIZE);
+        }
+
+        /**
+         * Sends requests with the same value for {@code hashKey} in their {@link ContextMap context} to the same host.
+         * <p>
+         * Affinity of requests to hosts raises the hit rate of caches that the hosts keep in memory for the key, for
+         * example a user identifier that a filter copies from a request header into the context. The hosts are
+         * mapped to a ring of hashes with ring hash consistent hashing, every host owns a number of points in
+         * proportion to its {@link io.servicetalk.client.api.ServiceDiscovererEvent#weight() weight}. The ring only
+         * depends on the host addresses, so all clients send a key to the same host, and changes of the discovered
+         * hosts only move the keys of the added or removed hosts, unless the total weight crosses a power of two and
+         * the number of points of every host is halved or doubled. Keys are hashed with their
+         * {@link Object#hashCode()}, which must be value based and the same in every JVM, for example a
+         * {@link String}. Keys with an identity hash code, or enums, map to different hosts on different clients.
+         * If the host of a key is expired, unhealthy or has
+         * no connection available, the key fails over to the next host on the ring. Requests without a value for
+         * {@code hashKey} use the round robin selection. Because clients with different subsets map keys to different
+         * hosts, consistent hashing is best used without {@link #subsetting(int, String) subsetting}.
+         *
+         * @param hashKey the {@link ContextMap.Key} whose value determines the host.
+         * @param ringSize the minimum number of points on the ring, more points spread the keys more evenly over the
+         * hosts at the cost of memory and a slower update of the ring.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> consistentHashing(ContextMap.Key<?> hashKey,
+                                                                                           int ringSize) {
+            if (ringSize <= 0) {
+                throw new IllegalArgumentException("ringSize: " + ringSize + " (expected >0)");
+            }
+            this.hashKey = requireNonNull(hashKey);
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        /**
+         * Prefers hosts in the same {@link io.servicetalk.client.api.ServiceDiscovererEvent#zone() zone} as this
+         * client.
+         *
+         * @param localZone the zone of this client.
+         * @return {@code this}.
+         * @see #localZone(String, double)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> localZone(String localZone) {
+            return localZone(localZone, ZoneAwareHostSelector.DEFAULT_MIN_HEALTHY_FRACTION);
+        }
+
+        /**
+         * Prefers hosts in the same {@link io.servicetalk.client.api.ServiceDiscovererEvent#zone() zone} as this
+         * client.
+         * <p>
+         * Traffic across zones usually adds latency and is often billed. As long as at least
+         * {@code minHealthyFraction} of the hosts in the local zone are healthy, all requests are sent to hosts in the
+         * local zone. Below that threshold, the requests that the local zone can not take anymore spill over to all
+         * hosts, in proportion to the missing healthy hosts. Hosts without a zone are never considered local.
+         *
+         * @param localZone the zone of this client.
+         * @param minHealthyFraction the share of healthy hosts in the local zone, in the range {@code (0, 1]}, below
+         * which requests spill over to other zones.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> localZone(String localZone,
+                double minHealthyFraction) {
+            if (!(minHealthyFraction > 0 && minHealthyFraction <= 1)) {
+                throw new IllegalArgumentException("minHealthyFraction: " + minHealthyFraction +
+                        " (expected (0, 1])");
+            }
+            this.localZone = requireNonNull(localZone);
+            this.minHealthyLocalFraction = minHealthyFraction;
+            return this;
+        }
+
         /**
          * This {@link LoadBalancer} may monitor hosts to which connection establishment has failed
          * using health checks that run in the background. The health check tries to establish a new connection
@@ -246,21 +552,112 @@ public final class RoundRobinLoadBalancerFactory<ResolvedAddress, C extends Load
             return this;
         }
 
+        /**
+         * Enables the outlier detection, which temporarily ejects hosts that fail more requests than their peers from
+         * the round robin cycle. Unlike the health checking configured by
+         * {@link #healthCheckFailedConnectionsThreshold(int)}, which reacts to failures to open connections, the
+         * outlier detection is driven by the outcome of requests reported by the client through the
+         * {@link io.servicetalk.client.api.RequestTracker} available in the request context.
+         *
+         * @param outlierDetectorConfig the {@link OutlierDetectorConfig} to use.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> outlierDetectorConfig(
+                OutlierDetectorConfig outlierDetectorConfig) {
+            this.outlierDetectorConfig = requireNonNull(outlierDetectorConfig);
+            return this;
+        }
+
+        /**
+         * Enables a circuit breaker per host, which skips hosts whose share of failed requests gets too high in the
+         * round robin cycle until probe requests succeed again. Unlike the outlier detection, which compares hosts
+         * with each other, every host is evaluated on its own. The circuit breakers are driven by the outcome of
+         * requests reported by the client through the {@link io.servicetalk.client.api.RequestTracker} available in
+         * the request context, and by failed connection attempts.
+         *
+         * @param circuitBreakerConfig the {@link CircuitBreakerConfig} to use.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> circuitBreakerConfig(
+                CircuitBreakerConfig circuitBreakerConfig) {
+            this.circuitBreakerConfig = requireNonNull(circuitBreakerConfig);
+            return this;
+        }
+
+        /**
+         * Enables a slow start window for hosts discovered after the initial set of hosts, during which their share of
+         * the selections grows linearly from a small fraction to a full share.
+         * <p>
+         * Newly started servers often need to warm up, for example to JIT compile their hot paths or populate caches,
+         * before they can serve a full share of the requests without latency spikes.
+         *
+         * @param window the duration of the slow start window.
+         * @return {@code this}.
+         * @see #slowStartWindow(Duration, double)
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> slowStartWindow(Duration window) {
+            return slowStartWindow(window, SlowStartConfig.DEFAULT_AGGRESSION);
+        }
+
+        /**
+         * Enables a slow start window for hosts discovered after the initial set of hosts, during which their share of
+         * the selections grows from a small fraction to a full share.
+         * <p>
+         * The share of a host grows as {@code (elapsed / window) ^ (1 / aggression)}, but is never less than 10% of a
+         * full share. An {@code aggression} of {@code 1} ramps the share linearly, larger values ramp it faster at the
+         * beginning of the window and smaller values ramp it faster towards the end of the window.
+         *
+         * @param window the duration of the slow start window.
+         * @param aggression the aggression of the ramp, must be greater than {@code 0}.
+         * @return {@code this}.
+         */
+        public RoundRobinLoadBalancerFactory.Builder<ResolvedAddress, C> slowStartWindow(Duration window,
+                                                                                         double aggression) {
+            if (window.isNegative() || window.isZero()) {
+                throw new IllegalArgumentException("Slow start window should be greater than 0");
+            }
+            if (!(aggression > 0) || Double.isInfinite(aggression)) {
+                throw new IllegalArgumentException("aggression: " + aggression + " (expected >0)");
+            }
+            this.slowStartWindow = window;
+            this.slowStartAggression = aggression;
+            return this;
+        }
+
         /**
          * Builds the {@link RoundRobinLoadBalancerFactory} configured by this builder.
          *
          * @return a new instance of {@link RoundRobinLoadBalancerFactory} with settings from this builder.
          */
         public RoundRobinLoadBalancerFactory<ResolvedAddress, C> build() {
-            if (this.healthCheckFailedConnectionsThreshold < 0) {
-                return new RoundRobinLoadBalancerFactory<>(linearSearchSpace, null);
-            }
-
-            HealthCheckConfig healthCheckConfig = new HealthCheckConfig(
-                            this.backgroundExecutor == null ? SharedExecutor.getInstance() : this.backgroundExecutor,
-                    healthCheckInterval, healthCheckJitter, healthCheckFailedConnectionsThreshold);
-
-            return new RoundRobinLoadBalancerFactory<>(linearSearchSpace, healthCheckConfig);
+            final SlowStartConfig slowStartConfig = slowStartWindow == null ? null :
+                    new SlowStartConfig(slowStartWindow.toNanos(), slowStartAggression);
+            final Executor executor = backgroundExecutor == null ? SharedExecutor.getInstance() : backgroundExecutor;
+            final MinConnectionsConfig minConnectionsConfig = minConnectionsPerHost == 0 ? null :
+                    new MinConnectionsConfig(executor, minConnectionsPerHost, minConnectionsJitter.toNanos(),
+                            healthCheckInterval.toNanos(), healthCheckJitter.toNanos());
+            final ConnectionLifetimeConfig connectionLifetimeConfig =
+                    maxConnectionAge == null && idleConnectionTimeout == null ? null :
+                            new ConnectionLifetimeConfig(executor,
+                                    maxConnectionAge == null ? 0 : maxConnectionAge.toNanos(),
+                                    maxConnectionAgeJitter.toNanos(),
+                                    idleConnectionTimeout == null ? 0 : idleConnectionTimeout.toNanos(),
+                                    minConnectionsPerHost);
+            final HealthCheckConfig healthCheckConfig = this.healthCheckFailedConnectionsThreshold < 0 ? null :
+                    new HealthCheckConfig(executor, healthCheckInterval, healthCheckJitter,
+                            healthCheckFailedConnectionsThreshold);
+            final HostConfig hostConfig = new HostConfig.Builder()
+                    .linearSearchSpace(linearSearchSpace)
+                    .healthCheckConfig(healthCheckConfig)
+                    .outlierDetectorConfig(outlierDetectorConfig)
+                    .circuitBreakerConfig(circuitBreakerConfig)
+                    .slowStartConfig(slowStartConfig)
+                    .trackFreeConnections(trackFreeConnections)
+                    .minConnectionsConfig(minConnectionsConfig)
+                    .connectionLifetimeConfig(connectionLifetimeConfig)
+                    .build();
+            return new RoundRobinLoadBalancerFactory<>(hostConfig, subsetSize, subsetClientId, localZone,
+                    minHealthyLocalFraction, hashKey, ringSize);
         }
     }
 
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+
+/**
+ * {@link HostSelector} that walks the hosts in a round robin order.
+ * <p>
+ * If the hosts have different {@link Host#weight() weights}, each selection starts from a host that is picked randomly
+ * with a probability proportional to its weight, and continues in the round robin order from there.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class RoundRobinSelector<ResolvedAddress, C extends LoadBalancedConnection>
+        implements HostSelector<ResolvedAddress, C> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<RoundRobinSelector> indexUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(RoundRobinSelector.class, "index");
+
+    private final String targetResource;
+    private final boolean slowStart;
+    @SuppressWarnings("unused")
+    private volatile int index;
+    private volatile AliasTable aliasTable = AliasTable.EMPTY;
+
+    RoundRobinSelector(final String targetResource) {
+        this(targetResource, false);
+    }
+
+    RoundRobinSelector(final String targetResource, final boolean slowStart) {
+        this.targetResource = targetResource;
+        this.slowStart = slowStart;
+    }
+
+    @Override
+    public Single<C> selectConnection(final List<Host<ResolvedAddress, C>> usedHosts, final Predicate<C> selector,
+                                      @Nullable final ContextMap context,
+                                      final boolean forceNewConnectionAndReserve) {
+        // try one loop over hosts and if all are expired, give up
+        final AliasTable aliasTable = aliasTable(usedHosts);
+        // With different weights, start from a host picked proportionally to its weight instead of the next one.
+        final int cursor = aliasTable.isUniform() ?
+                (indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE) % usedHosts.size() :
+                aliasTable.sample(ThreadLocalRandom.current());
+        Single<C> selected = selectConnection(usedHosts, cursor, selector, context, forceNewConnectionAndReserve,
+                slowStart);
+        if (selected == null && slowStart) {
+            // Hosts that are warming up may have been skipped, consider them before failing the selection.
+            selected = selectConnection(usedHosts, cursor, selector, context, forceNewConnectionAndReserve, false);
+        }
+        if (selected == null) {
+            return failed(StacklessNoAvailableHostException.newInstance("Failed to pick an active host for " +
+                            targetResource + ". Either all are busy, expired, or unhealthy: " + usedHosts,
+                    RoundRobinLoadBalancer.class, "selectConnection0(...)"));
+        }
+        return selected;
+    }
+
+    private AliasTable aliasTable(final List<Host<ResolvedAddress, C>> usedHosts) {
+        AliasTable table = aliasTable;
+        if (!table.isBuiltFor(usedHosts)) {
+            table = AliasTable.forHosts(usedHosts);
+            aliasTable = table;
+        }
+        return table;
+    }
+
+    @Nullable
+    private Single<C> selectConnection(final List<Host<ResolvedAddress, C>> usedHosts, final int cursor,
+                                       final Predicate<C> selector, @Nullable final ContextMap context,
+                                       final boolean forceNewConnectionAndReserve, final boolean skipWarmingUp) {
+        Host<ResolvedAddress, C> pickedHost = null;
+        for (int i = 0; i < usedHosts.size(); ++i) {
+            // for a particular iteration we maintain a local cursor without contention with other requests
+            final int localCursor = (cursor + i) % usedHosts.size();
+            final Host<ResolvedAddress, C> host = usedHosts.get(localCursor);
+            assert host != null : "Host can't be null.";
+
+            if (skipWarmingUp) {
+                // Hosts that are warming up only take their turn with a probability that grows over the slow start
+                // window, otherwise the next host is tried.
+                final double slowStartFactor = host.slowStartFactor();
+                if (slowStartFactor < 1 && ThreadLocalRandom.current().nextDouble() >= slowStartFactor) {
+                    continue;
+                }
+            }
+
+            if (!forceNewConnectionAndReserve) {
+                // Try first to see if an existing connection can be used
+                final C connection = host.pickConnection(selector, context);
+                if (connection != null) {
+                    return succeeded(connection);
+                }
+            }
+
+            // Don't open new connections for expired or unhealthy hosts, try a different one.
+            // Unhealthy hosts have no open connections – that's why we don't fail earlier, the loop will not progress.
+            if (host.isActiveAndHealthy()) {
+                pickedHost = host;
+                break;
+            }
+        }
+        if (pickedHost == null) {
+            return null;
+        }
+        // No connection was selected: create a new one.
+        return pickedHost.newConnection(selector, forceNewConnectionAndReserve, context);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import java.util.function.LongSupplier;
+
+import static java.lang.Math.max;
+import static java.lang.Math.pow;
+
+/**
+ * Configuration of the slow start window, during which newly discovered hosts receive a gradually increasing share of
+ * the selections.
+ * <p>
+ * The share of a host grows with the time elapsed since it was discovered as
+ * {@code max(minFactor, (elapsed / window) ^ (1 / aggression))}: an {@code aggression} of {@code 1} ramps linearly,
+ * larger values ramp faster at the beginning of the window.
+ */
+final class SlowStartConfig {
+    static final double DEFAULT_AGGRESSION = 1.0;
+    static final double DEFAULT_MIN_FACTOR = 0.1;
+
+    private final long windowNanos;
+    private final double exponent;
+    private final double minFactor;
+    private final LongSupplier currentTimeNanos;
+
+    SlowStartConfig(final long windowNanos, final double aggression) {
+        this(windowNanos, aggression, DEFAULT_MIN_FACTOR, System::nanoTime);
+    }
+
+    SlowStartConfig(final long windowNanos, final double aggression, final double minFactor,
+                    final LongSupplier currentTimeNanos) {
+        this.windowNanos = windowNanos;
+        this.exponent = 1 / aggression;
+        this.minFactor = minFactor;
+        this.currentTimeNanos = currentTimeNanos;
+    }
+
+    long currentTimeNanos() {
+        return currentTimeNanos.getAsLong();
+    }
+
+    /**
+     * Computes the share of selections a host receives.
+     *
+     * @param startTimeNanos the time in nanoseconds when the host was discovered.
+     * @return the share of selections in the range {@code (0, 1]}, {@code 1} once the window elapsed.
+     */
+    double factor(final long startTimeNanos) {
+        final long elapsed = currentTimeNanos.getAsLong() - startTimeNanos;
+        if (elapsed >= windowNanos) {
+            return 1;
+        }
+        return max(minFactor, pow(max(0, elapsed) / (double) windowNanos, exponent));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HostSelector} that restricts another {@link HostSelector} to a stable subset of the hosts.
+ * <p>
+ * Hosts are ranked with weighted rendezvous hashing of the client seed and the host address, and the highest ranked
+ * hosts form the subset. Because every client uses a different seed, the subsets of all clients are spread evenly over
+ * the hosts. When hosts are added or removed, only the subsets that contain these hosts change. Hosts of the subset
+ * that are expired, unhealthy or ejected are replaced by the next hosts in the ranking until they become available
+ * again.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class SubsetHostSelector<ResolvedAddress, C extends LoadBalancedConnection>
+        implements HostSelector<ResolvedAddress, C> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<SubsetHostSelector> checkIndexUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(SubsetHostSelector.class, "checkIndex");
+
+    private final HostSelector<ResolvedAddress, C> delegate;
+    private final int subsetSize;
+    private final long seed;
+    private volatile Subset<ResolvedAddress, C> subset = new Subset<>(emptyList(), emptyList(), emptyList(),
+            emptyList(), false);
+    @SuppressWarnings("unused")
+    private volatile int checkIndex;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the {@link HostSelector} that selects a host of the subset.
+     * @param subsetSize the number of hosts in the subset.
+     * @param seed the seed of this client, which determines the subset.
+     */
+    SubsetHostSelector(final HostSelector<ResolvedAddress, C> delegate, final int subsetSize, final long seed) {
+        if (subsetSize <= 0) {
+            throw new IllegalArgumentException("subsetSize: " + subsetSize + " (expected >0)");
+        }
+        this.delegate = requireNonNull(delegate);
+        this.subsetSize = subsetSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Restricts the passed {@link HostSelector} to a subset of the hosts, if subsetting is enabled.
+     *
+     * @param selector the {@link HostSelector} to restrict.
+     * @param subsetSize the number of hosts in the subset, or {@code 0} if subsetting is disabled.
+     * @param clientId the identifier of the client that determines the subset, or {@code null} for a random subset.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return the {@link HostSelector} to use.
+     */
+    static <ResolvedAddress, C extends LoadBalancedConnection> HostSelector<ResolvedAddress, C> withSubsetting(
+            final HostSelector<ResolvedAddress, C> selector, final int subsetSize, @Nullable final String clientId) {
+        if (subsetSize == 0) {
+            return selector;
+        }
+        return new SubsetHostSelector<>(selector, subsetSize,
+                clientId == null ? ThreadLocalRandom.current().nextLong() : clientId.hashCode());
+    }
+
+    @Override
+    public Single<C> selectConnection(final List<Host<ResolvedAddress, C>> hosts, final Predicate<C> selector,
+                                      @Nullable final ContextMap context,
+                                      final boolean forceNewConnectionAndReserve) {
+        if (hosts.size() <= subsetSize) {
+            return delegate.selectConnection(hosts, selector, context, forceNewConnectionAndReserve);
+        }
+        return delegate.selectConnection(subset(hosts).hosts, selector, context, forceNewConnectionAndReserve);
+    }
+
+    @Override
+    public List<Host<ResolvedAddress, C>> selectableHosts(final List<Host<ResolvedAddress, C>> hosts) {
+        return hosts.size() <= subsetSize ? hosts : delegate.selectableHosts(subset(hosts).hosts);
+    }
+
+    // Visible for testing
+    Subset<ResolvedAddress, C> subset(final List<Host<ResolvedAddress, C>> hosts) {
+        Subset<ResolvedAddress, C> current = subset;
+        if (current.allHosts != hosts) {
+            current = newSubset(hosts, rank(hosts));
+            subset = current;
+        } else if (isStale(current)) {
+            current = newSubset(hosts, current.ranked);
+            subset = current;
+        }
+        return current;
+    }
+
+    /**
+     * Checks one host of the subset and one replaced host per selection, so that the cost of a selection does not
+     * depend on the size of the subset, while changes of the host availability are still noticed quickly.
+     */
+    private boolean isStale(final Subset<ResolvedAddress, C> current) {
+        final int index = checkIndexUpdater.getAndIncrement(this) & Integer.MAX_VALUE;
+        if (!current.degraded && !current.hosts.get(index % current.hosts.size()).isActiveAndHealthy()) {
+            return true;
+        }
+        return !current.replaced.isEmpty() &&
+                current.replaced.get(index % current.replaced.size()).isActiveAndHealthy();
+    }
+
+    private Subset<ResolvedAddress, C> newSubset(final List<Host<ResolvedAddress, C>> allHosts,
+                                                 final List<Host<ResolvedAddress, C>> ranked) {
+        final List<Host<ResolvedAddress, C>> hosts = new ArrayList<>(subsetSize);
+        List<Host<ResolvedAddress, C>> replaced = emptyList();
+        for (Host<ResolvedAddress, C> host : ranked) {
+            if (host.isActiveAndHealthy()) {
+                hosts.add(host);
+                if (hosts.size() == subsetSize) {
+                    break;
+                }
+            } else {
+                if (replaced.isEmpty()) {
+                    replaced = new ArrayList<>(2);
+                }
+                replaced.add(host);
+            }
+        }
+        if (hosts.isEmpty()) {
+            // None of the hosts is available, let the delegate fail the selection or try to connect anyway, and wait
+            // for any of the hosts to become available again.
+            return new Subset<>(allHosts, ranked, ranked.subList(0, subsetSize), ranked, true);
+        }
+        return new Subset<>(allHosts, ranked, hosts, replaced, false);
+    }
+
+    private List<Host<ResolvedAddress, C>> rank(final List<Host<ResolvedAddress, C>> hosts) {
+        final int size = hosts.size();
+        final double[] scores = new double[size];
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            final Host<ResolvedAddress, C> host = hosts.get(i);
+            scores[i] = score(seed, host.address.hashCode(), host.weight());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        final List<Host<ResolvedAddress, C>> ranked = new ArrayList<>(size);
+        for (Integer i : order) {
+            ranked.add(hosts.get(i));
+        }
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * Computes the weighted rendezvous hashing score of a host for a client: {@code -weight / ln(u)}, where {@code u}
+     * is a uniformly distributed hash of the client seed and the address in the range {@code (0, 1)}.
+     */
+    static double score(final long seed, final int addressHash, final double weight) {
+        final long hash = mix(seed ^ mix(addressHash));
+        // Use the 53 high bits for the mantissa, and avoid 0 so that the logarithm is finite.
+        final double u = ((hash >>> 11) + 0.5) / (1L << 53);
+        return -weight / Math.log(u);
+    }
+
+    // The finalizer of the SplitMix64 generator, which spreads small differences of the input over all bits.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    static final class Subset<ResolvedAddress, C extends LoadBalancedConnection> {
+        final List<Host<ResolvedAddress, C>> allHosts;
+        final List<Host<ResolvedAddress, C>> ranked;
+        final List<Host<ResolvedAddress, C>> hosts;
+        final List<Host<ResolvedAddress, C>> replaced;
+        final boolean degraded;
+
+        Subset(final List<Host<ResolvedAddress, C>> allHosts, final List<Host<ResolvedAddress, C>> ranked,
+               final List<Host<ResolvedAddress, C>> hosts, final List<Host<ResolvedAddress, C>> replaced,
+               final boolean degraded) {
+            this.allHosts = allHosts;
+            this.ranked = ranked;
+            this.hosts = hosts;
+            this.replaced = replaced;
+            this.degraded = degraded;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.context.api.ContextMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HostSelector} that prefers hosts in the same {@link Host#zone() zone} as the client.
+ * <p>
+ * As long as the share of healthy hosts in the local zone is at least {@code minHealthyFraction}, all selections are
+ * restricted to the local zone. Below that threshold, the traffic that the local zone can not take anymore spills over
+ * to all hosts: the share of selections that stays local is {@code healthyFraction / minHealthyFraction}.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class ZoneAwareHostSelector<ResolvedAddress, C extends LoadBalancedConnection>
+        implements HostSelector<ResolvedAddress, C> {
+
+    static final double DEFAULT_MIN_HEALTHY_FRACTION = 0.7;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ZoneAwareHostSelector> checkIndexUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(ZoneAwareHostSelector.class, "checkIndex");
+
+    private final String localZone;
+    private final double minHealthyFraction;
+    private final HostSelector<ResolvedAddress, C> localSelector;
+    private final HostSelector<ResolvedAddress, C> spilloverSelector;
+    private volatile LocalHosts<ResolvedAddress, C> localHosts = new LocalHosts<>(emptyList(), emptyList());
+    @SuppressWarnings("unused")
+    private volatile int checkIndex;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param localZone the zone of the client.
+     * @param minHealthyFraction the share of healthy hosts in the local zone below which the traffic spills over to
+     * other zones.
+     * @param localSelector the {@link HostSelector} for the hosts of the local zone.
+     * @param spilloverSelector the {@link HostSelector} for all hosts, used when the traffic spills over.
+     */
+    ZoneAwareHostSelector(final String localZone, final double minHealthyFraction,
+                          final HostSelector<ResolvedAddress, C> localSelector,
+                          final HostSelector<ResolvedAddress, C> spilloverSelector) {
+        if (!(minHealthyFraction > 0 && minHealthyFraction <= 1)) {
+            throw new IllegalArgumentException("minHealthyFraction: " + minHealthyFraction + " (expected (0, 1])");
+        }
+        this.localZone = requireNonNull(localZone);
+        this.minHealthyFraction = minHealthyFraction;
+        this.localSelector = requireNonNull(localSelector);
+        this.spilloverSelector = requireNonNull(spilloverSelector);
+    }
+
+    /**
+     * Makes the {@link HostSelector} prefer the hosts in the local zone, if the local zone is known.
+     *
+     * @param selectorFactory creates a new {@link HostSelector}, which is invoked for the local and for the spillover
+     * selections, so that they do not share state.
+     * @param localZone the zone of the client, or {@code null} if zone-aware selection is disabled.
+     * @param minHealthyFraction the share of healthy hosts in the local zone below which the traffic spills over to
+     * other zones.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return the {@link HostSelector} to use.
+     */
+    static <ResolvedAddress, C extends LoadBalancedConnection> HostSelector<ResolvedAddress, C> withZoneAwareness(
+            final Supplier<HostSelector<ResolvedAddress, C>> selectorFactory, @Nullable final String localZone,
+            final double minHealthyFraction) {
+        if (localZone == null) {
+            return selectorFactory.get();
+        }
+        return new ZoneAwareHostSelector<>(localZone, minHealthyFraction, selectorFactory.get(),
+                selectorFactory.get());
+    }
+
+    @Override
+    public Single<C> selectConnection(final List<Host<ResolvedAddress, C>> hosts, final Predicate<C> selector,
+                                      @Nullable final ContextMap context,
+                                      final boolean forceNewConnectionAndReserve) {
+        final LocalHosts<ResolvedAddress, C> localHosts = localHosts(hosts);
+        if (!localHosts.hosts.isEmpty()) {
+            localHosts.check(checkIndexUpdater.getAndIncrement(this) & Integer.MAX_VALUE);
+            final double healthyFraction = localHosts.healthyFraction();
+            if (healthyFraction >= minHealthyFraction ||
+                    ThreadLocalRandom.current().nextDouble() * minHealthyFraction < healthyFraction) {
+                return localSelector.selectConnection(localHosts.hosts, selector, context,
+                        forceNewConnectionAndReserve);
+            }
+        }
+        return spilloverSelector.selectConnection(hosts, selector, context, forceNewConnectionAndReserve);
+    }
+
+    @Override
+    public List<Host<ResolvedAddress, C>> selectableHosts(final List<Host<ResolvedAddress, C>> hosts) {
+        // The traffic may spill over at any time, so the hosts of both selectors are worth keeping connections to.
+        final List<Host<ResolvedAddress, C>> spillover = spilloverSelector.selectableHosts(hosts);
+        final List<Host<ResolvedAddress, C>> localHosts = localHosts(hosts).hosts;
+        if (spillover == hosts || localHosts.isEmpty()) {
+            return spillover;
+        }
+        final List<Host<ResolvedAddress, C>> selectable = new ArrayList<>(spillover);
+        for (Host<ResolvedAddress, C> host : localSelector.selectableHosts(localHosts)) {
+            if (!spillover.contains(host)) {
+                selectable.add(host);
+            }
+        }
+        return selectable;
+    }
+
+    // Visible for testing
+    LocalHosts<ResolvedAddress, C> localHosts(final List<Host<ResolvedAddress, C>> hosts) {
+        LocalHosts<ResolvedAddress, C> current = localHosts;
+        if (current.allHosts != hosts) {
+            final List<Host<ResolvedAddress, C>> local = new ArrayList<>();
+            for (Host<ResolvedAddress, C> host : hosts) {
+                if (localZone.equals(host.zone())) {
+                    local.add(host);
+                }
+            }
+            current = new LocalHosts<>(hosts, local);
+            localHosts = current;
+        }
+        return current;
+    }
+
+    /**
+     * The hosts of the local zone, together with their last observed health. The health of one host is refreshed per
+     * selection, so that the cost of a selection does not depend on the number of hosts.
+     */
+    static final class LocalHosts<ResolvedAddress, C extends LoadBalancedConnection> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LocalHosts> healthyCountUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(LocalHosts.class, "healthyCount");
+
+        final List<Host<ResolvedAddress, C>> allHosts;
+        final List<Host<ResolvedAddress, C>> hosts;
+        private final AtomicIntegerArray healthy;
+        private volatile int healthyCount;
+
+        LocalHosts(final List<Host<ResolvedAddress, C>> allHosts, final List<Host<ResolvedAddress, C>> hosts) {
+            this.allHosts = allHosts;
+            this.hosts = hosts;
+            this.healthy = new AtomicIntegerArray(hosts.size());
+            int healthyCount = 0;
+            for (int i = 0; i < hosts.size(); ++i) {
+                if (hosts.get(i).isActiveAndHealthy()) {
+                    healthy.set(i, 1);
+                    ++healthyCount;
+                }
+            }
+            this.healthyCount = healthyCount;
+        }
+
+        void check(final int index) {
+            final int i = index % hosts.size();
+            final int isHealthy = hosts.get(i).isActiveAndHealthy() ? 1 : 0;
+            if (healthy.get(i) != isHealthy && healthy.compareAndSet(i, 1 - isHealthy, isHealthy)) {
+                healthyCountUpdater.addAndGet(this, isHealthy == 1 ? 1 : -1);
+            }
+        }
+
+        double healthyFraction() {
+            return (double) healthyCount / hosts.size();
+        }
+    }
+}
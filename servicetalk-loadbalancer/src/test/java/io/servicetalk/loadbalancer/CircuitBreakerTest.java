@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.EXT_ORIGIN_REQUEST_FAILED;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.loadbalancer.CircuitBreaker.CLOSED;
+import static io.servicetalk.loadbalancer.CircuitBreaker.HALF_OPEN;
+import static io.servicetalk.loadbalancer.CircuitBreaker.OPEN;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private static final Duration WINDOW = ofSeconds(10);
+    private static final Duration OPEN_DURATION = ofSeconds(30);
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+    private long currentTimeNanos;
+    private CircuitBreaker circuitBreaker;
+    private Host<String, TestLoadBalancedConnection> host;
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(10).failureRateThreshold(0.5), null);
+        succeed(6);
+        fail(5);
+        assertThat(circuitBreaker.state(), is(CLOSED));
+        assertThat(host.isActiveAndHealthy(), is(true));
+        fail(1);
+        assertThat(circuitBreaker.state(), is(OPEN));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        assertThat(host.pickConnection(__ -> true, null), is((TestLoadBalancedConnection) null));
+
+        advance(OPEN_DURATION.minusSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(ofSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(true));
+        // Health checks don't move the circuit to half-open, only a selection does.
+        assertThat(circuitBreaker.state(), is(OPEN));
+        assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+        assertThat(circuitBreaker.state(), is(HALF_OPEN));
+    }
+
+    @Test
+    void requiresMinimumRequests() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(10), null);
+        fail(9);
+        assertThat(circuitBreaker.state(), is(CLOSED));
+        fail(1);
+        assertThat(circuitBreaker.state(), is(OPEN));
+    }
+
+    @Test
+    void outcomesExpireWithWindow() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(10), null);
+        fail(9);
+        advance(WINDOW);
+        fail(1);
+        assertThat(circuitBreaker.state(), is(CLOSED));
+    }
+
+    @Test
+    void cancellationIsIgnored() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(1), null);
+        for (int i = 0; i < 10; ++i) {
+            circuitBreaker.onError(circuitBreaker.beforeStart(), CANCELLED);
+        }
+        assertThat(circuitBreaker.state(), is(CLOSED));
+    }
+
+    @Test
+    void successfulProbesCloseCircuit() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(1).halfOpenProbes(2), null);
+        fail(1);
+        advance(OPEN_DURATION);
+        assertThat(host.isActiveAndHealthy(), is(true));
+        final long first = probe();
+        final long second = probe();
+        // All probes are in flight, the host is not selected for more requests.
+        assertThat(circuitBreaker.tryAcquirePermission(), is(false));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        circuitBreaker.onSuccess(first);
+        assertThat(circuitBreaker.state(), is(HALF_OPEN));
+        circuitBreaker.onSuccess(second);
+        assertThat(circuitBreaker.state(), is(CLOSED));
+        assertThat(host.isActiveAndHealthy(), is(true));
+
+        // Failures from before the circuit opened were discarded.
+        succeed(1);
+        assertThat(circuitBreaker.state(), is(CLOSED));
+    }
+
+    @Test
+    void releasedProbeIsReplaced() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(1).halfOpenProbes(1), null);
+        fail(1);
+        advance(OPEN_DURATION);
+        // There are no connections, the probe is not used.
+        assertThat(host.pickConnection(__ -> true, null), is((TestLoadBalancedConnection) null));
+        assertThat(circuitBreaker.state(), is(HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+        assertThat(circuitBreaker.tryAcquirePermission(), is(false));
+    }
+
+    @Test
+    void failedProbeOpensCircuit() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(1), null);
+        fail(1);
+        advance(OPEN_DURATION);
+        assertThat(host.isActiveAndHealthy(), is(true));
+        circuitBreaker.onError(probe(), EXT_ORIGIN_REQUEST_FAILED);
+        assertThat(circuitBreaker.state(), is(OPEN));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(OPEN_DURATION);
+        assertThat(host.isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void lostProbesAreReplaced() {
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(1).halfOpenProbes(1), null);
+        fail(1);
+        advance(OPEN_DURATION);
+        assertThat(host.isActiveAndHealthy(), is(true));
+        circuitBreaker.onError(probe(), CANCELLED);
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(OPEN_DURATION);
+        assertThat(host.isActiveAndHealthy(), is(true));
+        assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+        assertThat(circuitBreaker.state(), is(HALF_OPEN));
+    }
+
+    @Test
+    void connectFailuresCount() {
+        when(connectionFactory.newConnection(any(), any(), any())).thenReturn(failed(DELIBERATE_EXCEPTION));
+        setUp(new CircuitBreakerConfig.Builder().minimumRequests(2), null);
+        for (int i = 0; i < 2; ++i) {
+            assertThrows(ExecutionException.class,
+                    () -> host.newConnection(__ -> true, false, null).toFuture().get());
+        }
+        assertThat(circuitBreaker.state(), is(OPEN));
+        assertThat(host.isActiveAndHealthy(), is(false));
+    }
+
+    @Test
+    void outcomesAreForwardedToDelegate() {
+        final RequestTracker delegate = mock(RequestTracker.class);
+        when(delegate.beforeStart()).thenReturn(42L);
+        setUp(new CircuitBreakerConfig.Builder(), delegate);
+        assertThat(circuitBreaker.beforeStart(), is(42L));
+        circuitBreaker.onSuccess(42L);
+        verify(delegate).onSuccess(42L);
+        circuitBreaker.onError(42L, EXT_ORIGIN_REQUEST_FAILED);
+        verify(delegate).onError(anyLong(), eq(EXT_ORIGIN_REQUEST_FAILED));
+    }
+
+    @Test
+    void invalidConfig() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreakerConfig.Builder().failureRateThreshold(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreakerConfig.Builder().failureRateThreshold(1.1));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreakerConfig.Builder().minimumRequests(0));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreakerConfig.Builder().halfOpenProbes(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreakerConfig.Builder().openDuration(Duration.ZERO));
+    }
+
+    private void setUp(final CircuitBreakerConfig.Builder config, @Nullable final RequestTracker delegate) {
+        circuitBreaker = new CircuitBreaker("test-service", "address", config.window(WINDOW)
+                .openDuration(OPEN_DURATION).build(), delegate, () -> currentTimeNanos);
+        host = new Host<>("test-service", "address", connectionFactory, new HostConfig.Builder().build(),
+                null, null, circuitBreaker);
+    }
+
+    private void advance(final Duration duration) {
+        currentTimeNanos += duration.toNanos();
+    }
+
+    private long probe() {
+        assertThat(circuitBreaker.tryAcquirePermission(), is(true));
+        return circuitBreaker.beforeStart();
+    }
+
+    private void succeed(final int times) {
+        for (int i = 0; i < times; ++i) {
+            circuitBreaker.onSuccess(circuitBreaker.beforeStart());
+        }
+    }
+
+    private void fail(final int times) {
+        for (int i = 0; i < times; ++i) {
+            circuitBreaker.onError(circuitBreaker.beforeStart(), EXT_ORIGIN_REQUEST_FAILED);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.EXT_ORIGIN_REQUEST_FAILED;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ConnectionFreeListTest {
+
+    private final RequestTracker hostTracker = mock(RequestTracker.class);
+    private final ConnectionFreeList<TestLoadBalancedConnection> freeList = new ConnectionFreeList<>(hostTracker);
+    private final Set<TestLoadBalancedConnection> busy = new HashSet<>();
+    // Mimics a connection that accepts a single request at a time.
+    private final Predicate<TestLoadBalancedConnection> selector = busy::add;
+
+    @Test
+    void busyConnectionsAreSkipped() {
+        final TestLoadBalancedConnection cnx1 = newConnection("address-1");
+        final TestLoadBalancedConnection cnx2 = newConnection("address-1");
+        freeList.add(cnx1);
+        freeList.add(cnx2);
+
+        assertThat(freeList.poll(selector), is(cnx1));
+        assertThat(freeList.poll(selector), is(cnx2));
+        assertThat(freeList.poll(selector), is(nullValue()));
+    }
+
+    @Test
+    void connectionIsReturnedWhenRequestTerminates() {
+        final TestLoadBalancedConnection cnx = newConnection("address-1");
+        freeList.add(cnx);
+        assertThat(freeList.poll(selector), is(cnx));
+        assertThat(freeList.poll(selector), is(nullValue()));
+
+        final RequestTracker tracker = freeList.tracker(cnx);
+        assertThat(tracker, is(not(sameInstance(hostTracker))));
+        busy.remove(cnx);
+        tracker.onSuccess(tracker.beforeStart());
+        verify(hostTracker).onSuccess(0);
+        assertThat(freeList.poll(selector), is(cnx));
+
+        busy.remove(cnx);
+        tracker.onError(tracker.beforeStart(), EXT_ORIGIN_REQUEST_FAILED);
+        verify(hostTracker).onError(0, EXT_ORIGIN_REQUEST_FAILED);
+        assertThat(freeList.poll(selector), is(cnx));
+    }
+
+    @Test
+    void connectionIsListedOnlyOnce() {
+        final TestLoadBalancedConnection cnx = newConnection("address-1");
+        freeList.add(cnx);
+        final RequestTracker tracker = freeList.tracker(cnx);
+        tracker.onSuccess(0);
+        tracker.onSuccess(0);
+
+        assertThat(freeList.poll(selector), is(cnx));
+        assertThat(freeList.poll(selector), is(nullValue()));
+        // The busy connection was dropped from the list.
+        busy.remove(cnx);
+        assertThat(freeList.poll(selector), is(nullValue()));
+    }
+
+    @Test
+    void removedConnectionIsNotSelected() {
+        final TestLoadBalancedConnection cnx = newConnection("address-1");
+        freeList.add(cnx);
+        final RequestTracker tracker = freeList.tracker(cnx);
+        freeList.remove(cnx);
+
+        assertThat(freeList.poll(selector), is(nullValue()));
+        tracker.onSuccess(0);
+        assertThat(freeList.poll(selector), is(nullValue()));
+        assertThat(freeList.tracker(cnx), is(sameInstance(hostTracker)));
+    }
+
+    @Test
+    void hostProbesFewUnlistedConnections() {
+        @SuppressWarnings("unchecked")
+        final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory = mock(ConnectionFactory.class);
+        final Host<String, TestLoadBalancedConnection> host = new Host<>("test-service", "address-1",
+                connectionFactory, new HostConfig.Builder().trackFreeConnections(true).build());
+        for (int i = 0; i < 100; ++i) {
+            host.addConnection(newConnection("address-1"));
+        }
+        // All connections are selected and busy from now on, the first selection that finds them busy drops them from
+        // the list.
+        for (int i = 0; i < 100; ++i) {
+            assertThat(host.pickConnection(selector, null), is(notNullValue()));
+        }
+        assertThat(host.pickConnection(selector, null), is(nullValue()));
+
+        final AtomicInteger probes = new AtomicInteger();
+        assertThat(host.pickConnection(cnx -> {
+            probes.incrementAndGet();
+            return selector.test(cnx);
+        }, null), is(nullValue()));
+        assertThat(probes.get(), is(lessThanOrEqualTo(4)));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionLifetimeTest {
+
+    private static final String ADDRESS = "address-1";
+
+    private final TestExecutor executor = new TestExecutor();
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+
+    @BeforeEach
+    void setUp() {
+        when(connectionFactory.newConnection(any(), any(), any()))
+                .thenAnswer(__ -> succeeded(newConnection(ADDRESS)));
+    }
+
+    @Test
+    void drainsConnectionAtMaxAge() {
+        final Host<String, TestLoadBalancedConnection> host = newHost(null,
+                new ConnectionLifetimeConfig(executor, SECONDS.toNanos(10), 0, 0, 0));
+        final TestLoadBalancedConnection connection = newConnection(ADDRESS);
+        host.addConnection(connection);
+
+        executor.advanceTimeBy(9, SECONDS);
+        assertThat(connections(host), hasSize(1));
+
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(host), hasSize(0));
+        verify(connection).closeAsyncGracefully();
+    }
+
+    @Test
+    void maxAgeIsReducedByJitter() {
+        final Host<String, TestLoadBalancedConnection> host = newHost(null,
+                new ConnectionLifetimeConfig(executor, SECONDS.toNanos(10), SECONDS.toNanos(5), 0, 0));
+        for (int i = 0; i < 20; ++i) {
+            host.addConnection(newConnection(ADDRESS));
+        }
+
+        executor.advanceTimeBy(4, SECONDS);
+        assertThat(connections(host), hasSize(20));
+
+        executor.advanceTimeBy(6, SECONDS);
+        assertThat(connections(host), hasSize(0));
+    }
+
+    @Test
+    void drainedConnectionIsReplaced() {
+        final Host<String, TestLoadBalancedConnection> host = newHost(
+                new MinConnectionsConfig(executor, 1, SECONDS.toNanos(1), SECONDS.toNanos(5), 0),
+                new ConnectionLifetimeConfig(executor, SECONDS.toNanos(10), 0, 0, 1));
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        final List<TestLoadBalancedConnection> connections = connections(host);
+        assertThat(connections, hasSize(1));
+
+        // The drained connection is replaced after the jitter of the minimum connections.
+        executor.advanceTimeBy(10, SECONDS);
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(host), hasSize(1));
+        assertThat(connections(host).get(0), is(not(sameInstance(connections.get(0)))));
+        verify(connections.get(0)).closeAsyncGracefully();
+    }
+
+    @Test
+    void idleConnectionsAreDrainedDownToMinimum() {
+        final Host<String, TestLoadBalancedConnection> host = newHost(null,
+                new ConnectionLifetimeConfig(executor, 0, 0, SECONDS.toNanos(5), 1));
+        final TestLoadBalancedConnection used = newConnection(ADDRESS);
+        host.addConnection(used);
+        host.addConnection(newConnection(ADDRESS));
+        host.addConnection(newConnection(ADDRESS));
+
+        executor.advanceTimeBy(3, SECONDS);
+        // The linear search picks the first connection.
+        assertThat(host.pickConnection(__ -> true, null), is(sameInstance(used)));
+
+        executor.advanceTimeBy(2, SECONDS);
+        assertThat(connections(host), contains(used));
+
+        // The last connection is kept even when it is idle.
+        executor.advanceTimeBy(10, SECONDS);
+        assertThat(connections(host), contains(used));
+    }
+
+    @Test
+    void alreadyClosedConnectionIsNotTracked() throws Exception {
+        final Host<String, TestLoadBalancedConnection> host = newHost(null,
+                new ConnectionLifetimeConfig(executor, SECONDS.toNanos(10), 0, SECONDS.toNanos(5), 0));
+        final TestLoadBalancedConnection connection = newConnection(ADDRESS);
+        connection.closeAsync().toFuture().get();
+        host.addConnection(connection);
+
+        assertThat(connections(host), hasSize(0));
+        assertThat(executor.scheduledTasksPending(), is(0));
+        // The connection is not selected anymore.
+        assertThat(host.pickConnection(__ -> true, null), is(nullValue()));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .maxConnectionAge(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .maxConnectionAge(Duration.ofSeconds(10), Duration.ofSeconds(10)));
+        assertThrows(IllegalArgumentException.class, () -> new P2CLoadBalancerFactory.Builder<>()
+                .idleConnectionTimeout(Duration.ofSeconds(-1)));
+    }
+
+    private Host<String, TestLoadBalancedConnection> newHost(@Nullable final MinConnectionsConfig minConnectionsConfig,
+                                                             final ConnectionLifetimeConfig lifetimeConfig) {
+        return new Host<>("test-service", ADDRESS, connectionFactory, new HostConfig.Builder()
+                .minConnectionsConfig(minConnectionsConfig)
+                .connectionLifetimeConfig(lifetimeConfig)
+                .build());
+    }
+
+    private static List<TestLoadBalancedConnection> connections(final Host<String, TestLoadBalancedConnection> host) {
+        return host.asEntry().getValue();
+    }
+}
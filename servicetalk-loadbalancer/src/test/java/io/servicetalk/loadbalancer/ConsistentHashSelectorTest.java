@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.concurrent.internal.DefaultContextMap;
+import io.servicetalk.context.api.ContextMap;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConsistentHashSelectorTest {
+
+    private static final ContextMap.Key<String> USER_ID = ContextMap.Key.newKey("user-id", String.class);
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+
+    @BeforeEach
+    void setUp() {
+        when(connectionFactory.newConnection(any(), any(), any()))
+                .thenAnswer(invocation -> succeeded(newConnection(invocation.getArgument(0))));
+    }
+
+    @Test
+    void disabledConsistentHashing() {
+        final HostSelector<String, TestLoadBalancedConnection> delegate = new RoundRobinSelector<>("test-service");
+        assertThat(ConsistentHashSelector.withConsistentHashing(delegate, null, 1024, "test-service"),
+                is(sameInstance(delegate)));
+    }
+
+    @Test
+    void sameKeySelectsSameHostOnAllClients() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final HostSelector<String, TestLoadBalancedConnection> selector = newSelector();
+        final HostSelector<String, TestLoadBalancedConnection> otherClient = newSelector();
+        final List<Host<String, TestLoadBalancedConnection>> otherHosts = newHosts(20);
+        for (int user = 0; user < 100; ++user) {
+            final String address = select(selector, hosts, "user-" + user);
+            assertThat(select(selector, hosts, "user-" + user), is(address));
+            assertThat(select(otherClient, otherHosts, "user-" + user), is(address));
+        }
+    }
+
+    @Test
+    void keysAreSpreadOverHosts() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(10);
+        final HostSelector<String, TestLoadBalancedConnection> selector = newSelector();
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int user = 0; user < 5000; ++user) {
+            counts.merge(select(selector, hosts, "user-" + user), 1, Integer::sum);
+        }
+        // Every host is expected to get 5000 / 10 = 500 keys.
+        assertThat(counts.size(), is(hosts.size()));
+        for (int count : counts.values()) {
+            assertThat(count, is(both(greaterThan(300)).and(lessThan(750))));
+        }
+    }
+
+    @Test
+    void removingHostOnlyMovesItsKeys() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final Host<String, TestLoadBalancedConnection> removed = hosts.get(7);
+        final List<Host<String, TestLoadBalancedConnection>> remaining = new ArrayList<>(hosts);
+        remaining.remove(removed);
+        final HostSelector<String, TestLoadBalancedConnection> selector = newSelector();
+        int moved = 0;
+        for (int user = 0; user < 1000; ++user) {
+            final String before = select(selector, hosts, "user-" + user);
+            final String after = select(selector, remaining, "user-" + user);
+            if (!before.equals(after)) {
+                assertThat(before, is(removed.address));
+                ++moved;
+            }
+        }
+        assertThat(moved, is(greaterThan(0)));
+    }
+
+    @Test
+    void unavailableHostFailsOverToSameHostOnAllClients() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final List<Host<String, TestLoadBalancedConnection>> otherHosts = newHosts(20);
+        final String address = select(newSelector(), newHosts(20), "user");
+        // Hosts without connections are closed right away when they expire.
+        hosts.stream().filter(host -> host.address.equals(address)).forEach(Host::markExpired);
+        otherHosts.stream().filter(host -> host.address.equals(address)).forEach(Host::markExpired);
+
+        final String failover = select(newSelector(), hosts, "user");
+        assertThat(failover, is(not(address)));
+        assertThat(select(newSelector(), otherHosts, "user"), is(failover));
+    }
+
+    @Test
+    void requestsWithoutKeyUseDelegate() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final HostSelector<String, TestLoadBalancedConnection> selector = newSelector();
+        assertThat(select(selector, hosts, null), is("address-0"));
+        assertThat(select(selector, hosts, null), is("address-1"));
+    }
+
+    @Test
+    void invalidRingSize() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .consistentHashing(USER_ID, 0));
+        assertThrows(IllegalArgumentException.class, () -> new P2CLoadBalancerFactory.Builder<>()
+                .consistentHashing(USER_ID, -1));
+    }
+
+    private static HostSelector<String, TestLoadBalancedConnection> newSelector() {
+        return new ConsistentHashSelector<>(new RoundRobinSelector<>("test-service"), USER_ID,
+                ConsistentHashSelector.DEFAULT_RING_SIZE, "test-service");
+    }
+
+    private static String select(final HostSelector<String, TestLoadBalancedConnection> selector,
+                                 final List<Host<String, TestLoadBalancedConnection>> hosts,
+                                 @Nullable final String userId) throws Exception {
+        final ContextMap context = new DefaultContextMap();
+        if (userId != null) {
+            context.put(USER_ID, userId);
+        }
+        return selector.selectConnection(hosts, __ -> true, context, false).toFuture().get().address();
+    }
+
+    private List<Host<String, TestLoadBalancedConnection>> newHosts(final int count) {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            hosts.add(new Host<>("test-service", "address-" + i, connectionFactory,
+                    new HostConfig.Builder().build()));
+        }
+        return hosts;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.LOCAL_ORIGIN_REQUEST_FAILED;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DefaultRequestTrackerTest {
+
+    private static final long HALF_LIFE_NANOS = SECONDS.toNanos(10);
+
+    private long currentTimeNanos;
+    private final DefaultRequestTracker tracker = new DefaultRequestTracker(HALF_LIFE_NANOS, () -> currentTimeNanos);
+
+    @Test
+    void noDataScoresZero() {
+        assertThat(tracker.score(), is(0));
+        assertThat(tracker.latencyNanos(), is(0L));
+    }
+
+    @Test
+    void pendingWithoutLatencyIsPenalized() {
+        tracker.beforeStart();
+        assertThat(tracker.pending(), is(1L));
+        assertThat(tracker.score(), lessThan(-1_000_000));
+    }
+
+    @Test
+    void peakIsTakenImmediately() {
+        complete(MILLISECONDS.toNanos(1));
+        assertThat(tracker.latencyNanos(), is(MILLISECONDS.toNanos(1)));
+        complete(MILLISECONDS.toNanos(100));
+        assertThat(tracker.latencyNanos(), is(MILLISECONDS.toNanos(100)));
+        assertThat(tracker.score(), is(-100_000));
+    }
+
+    @Test
+    void lowerSamplesAreBlendedByElapsedTime() {
+        complete(MILLISECONDS.toNanos(100));
+        // Half-life elapses between the samples, so both contribute equally.
+        currentTimeNanos += HALF_LIFE_NANOS - MILLISECONDS.toNanos(20);
+        complete(MILLISECONDS.toNanos(20));
+        assertLatency(MILLISECONDS.toNanos(60));
+    }
+
+    @Test
+    void latencyDecaysWithoutSamples() {
+        complete(MILLISECONDS.toNanos(100));
+        currentTimeNanos += HALF_LIFE_NANOS;
+        assertLatency(MILLISECONDS.toNanos(50));
+        currentTimeNanos += HALF_LIFE_NANOS;
+        assertLatency(MILLISECONDS.toNanos(25));
+    }
+
+    @Test
+    void pendingRequestsScaleScore() {
+        complete(MILLISECONDS.toNanos(10));
+        final int idleScore = tracker.score();
+        tracker.beforeStart();
+        tracker.beforeStart();
+        assertThat(tracker.pending(), is(2L));
+        assertThat(tracker.score(), is(idleScore * 3));
+    }
+
+    @Test
+    void errorsAreTrackedAsCompletions() {
+        final long startTime = tracker.beforeStart();
+        currentTimeNanos += MILLISECONDS.toNanos(5);
+        tracker.onError(startTime, LOCAL_ORIGIN_REQUEST_FAILED);
+        assertThat(tracker.pending(), is(0L));
+        assertThat(tracker.latencyNanos(), is(MILLISECONDS.toNanos(5)));
+    }
+
+    @Test
+    void fastErrorsDoNotLowerLatency() {
+        complete(MILLISECONDS.toNanos(100));
+        currentTimeNanos += HALF_LIFE_NANOS;
+        final long startTime = tracker.beforeStart();
+        currentTimeNanos += MILLISECONDS.toNanos(1);
+        tracker.onError(startTime, LOCAL_ORIGIN_REQUEST_FAILED);
+        assertThat(tracker.pending(), is(0L));
+        // The error is sampled with at least the decayed average of 50ms, the fast failure does not lower it.
+        assertThat(tracker.latencyNanos(), greaterThan(MILLISECONDS.toNanos(50)));
+    }
+
+    @Test
+    void cancellationIsNotSampled() {
+        complete(MILLISECONDS.toNanos(100));
+        final long startTime = tracker.beforeStart();
+        currentTimeNanos += MILLISECONDS.toNanos(1);
+        tracker.onError(startTime, CANCELLED);
+        assertThat(tracker.pending(), is(0L));
+        currentTimeNanos += HALF_LIFE_NANOS - MILLISECONDS.toNanos(1);
+        // Only the decay applies, the cancelled request did not refresh the average.
+        assertLatency(MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void scoreDoesNotOverflow() {
+        for (int i = 0; i < 100; ++i) {
+            tracker.beforeStart();
+        }
+        complete(SECONDS.toNanos(3600));
+        assertThat(tracker.score(), is(both(lessThan(0)).and(greaterThan(Integer.MIN_VALUE))));
+    }
+
+    @Test
+    void invalidHalfLife() {
+        assertThrows(IllegalArgumentException.class, () -> new DefaultRequestTracker(0));
+    }
+
+    private void assertLatency(final long expectedNanos) {
+        // Allow for rounding of the decay factor.
+        assertThat((double) tracker.latencyNanos(), closeTo(expectedNanos, 10));
+    }
+
+    private void complete(final long latencyNanos) {
+        final long startTime = tracker.beforeStart();
+        currentTimeNanos += latencyNanos;
+        tracker.onSuccess(startTime);
+    }
+}
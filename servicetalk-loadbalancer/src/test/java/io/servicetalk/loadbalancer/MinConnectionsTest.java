@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MinConnectionsTest {
+
+    private static final String ADDRESS = "address-1";
+    private static final int MIN_CONNECTIONS = 3;
+
+    private final TestExecutor executor = new TestExecutor();
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+    private final AtomicInteger connectFailures = new AtomicInteger();
+    private final Host<String, TestLoadBalancedConnection> host = new Host<>("test-service", ADDRESS,
+            connectionFactory, new HostConfig.Builder()
+                    .minConnectionsConfig(new MinConnectionsConfig(executor, MIN_CONNECTIONS, SECONDS.toNanos(1),
+                            SECONDS.toNanos(5), 0))
+                    .build());
+
+    @BeforeEach
+    void setUp() {
+        when(connectionFactory.newConnection(any(), any(), any()))
+                .thenAnswer(__ -> connectFailures.getAndDecrement() > 0 ?
+                        failed(new IOException("deliberate exception")) : succeeded(newConnection(ADDRESS)));
+    }
+
+    @Test
+    void opensConnectionsAfterJitter() {
+        host.ensureMinConnections();
+        assertThat(connections(), hasSize(0));
+
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+
+        // Already at the minimum, nothing else to open.
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+        verify(connectionFactory, times(MIN_CONNECTIONS)).newConnection(any(), any(), any());
+    }
+
+    @Test
+    void replacesClosedConnections() throws Exception {
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+
+        connections().get(0).closeAsync().toFuture().get();
+        assertThat(connections(), hasSize(MIN_CONNECTIONS - 1));
+
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+    }
+
+    @Test
+    void retriesFailedConnections() {
+        connectFailures.set(1);
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS - 1));
+
+        // The failed attempt is retried after the retry interval and the jitter.
+        executor.advanceTimeBy(5, SECONDS);
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+    }
+
+    @Test
+    void unselectableHostDoesNotKeepConnections() throws Exception {
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+
+        // Closed connections of a host that left the subset are not replaced.
+        host.keepMinConnections(false);
+        connections().get(0).closeAsync().toFuture().get();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS - 1));
+
+        host.keepMinConnections(true);
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(MIN_CONNECTIONS));
+    }
+
+    @Test
+    void expiredHostIsNotConnected() {
+        host.addConnection(newConnection(ADDRESS));
+        host.markExpired();
+        host.ensureMinConnections();
+        executor.advanceTimeBy(1, SECONDS);
+        assertThat(connections(), hasSize(1));
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .minConnectionsPerHost(-1));
+        assertThrows(IllegalArgumentException.class, () -> new P2CLoadBalancerFactory.Builder<>()
+                .minConnectionsPerHost(1, Duration.ofSeconds(-1)));
+    }
+
+    private List<TestLoadBalancedConnection> connections() {
+        return host.asEntry().getValue();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.loadbalancer.OutlierDetector.HostTracker;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.CANCELLED;
+import static io.servicetalk.client.api.RequestTracker.ErrorClass.EXT_ORIGIN_REQUEST_FAILED;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutlierDetectorTest {
+
+    private static final Duration BASE_EJECTION_TIME = ofSeconds(30);
+    private static final Duration INTERVAL = ofSeconds(10);
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+    private final List<Host<String, TestLoadBalancedConnection>> hosts =
+            new ArrayList<Host<String, TestLoadBalancedConnection>>() {
+                @Override
+                public Iterator<Host<String, TestLoadBalancedConnection>> iterator() {
+                    ++hostScans;
+                    return super.iterator();
+                }
+            };
+    private int hostScans;
+    private long currentTimeNanos;
+    private OutlierDetector detector;
+
+    @Test
+    void consecutiveFailuresEjectHostUntilEjectionTimeElapses() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(3).maxEjectionPercentage(50), 3);
+        final Host<String, TestLoadBalancedConnection> host = hosts.get(0);
+        fail(host, 2);
+        assertThat(host.isActiveAndHealthy(), is(true));
+        fail(host, 1);
+        assertThat(host.isActiveAndHealthy(), is(false));
+        assertThat(host.pickConnection(__ -> true, null), is((TestLoadBalancedConnection) null));
+        assertThat(hosts.get(1).isActiveAndHealthy(), is(true));
+
+        advance(BASE_EJECTION_TIME.minusSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(ofSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(3).maxEjectionPercentage(50), 3);
+        final Host<String, TestLoadBalancedConnection> host = hosts.get(0);
+        fail(host, 2);
+        succeed(host, 1);
+        fail(host, 2);
+        assertThat(host.isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void cancellationIsNotAFailure() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(3).maxEjectionPercentage(50), 3);
+        final HostTracker tracker = tracker(hosts.get(0));
+        for (int i = 0; i < 5; ++i) {
+            tracker.onError(tracker.beforeStart(), CANCELLED);
+        }
+        assertThat(hosts.get(0).isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void maxEjectionPercentageLimitsEjectedHosts() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(1).maxEjectionPercentage(50), 2);
+        fail(hosts.get(0), 1);
+        fail(hosts.get(1), 1);
+        assertThat(hosts.get(0).isActiveAndHealthy(), is(false));
+        assertThat(hosts.get(1).isActiveAndHealthy(), is(true));
+
+        // Once the first host is re-admitted, the second one can be ejected.
+        advance(BASE_EJECTION_TIME);
+        fail(hosts.get(1), 1);
+        assertThat(hosts.get(0).isActiveAndHealthy(), is(true));
+        assertThat(hosts.get(1).isActiveAndHealthy(), is(false));
+    }
+
+    @Test
+    void failuresAtMaxEjectionPercentageDoNotScanHosts() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(1).maxEjectionPercentage(50), 2);
+        fail(hosts.get(0), 1);
+        fail(hosts.get(1), 1);
+        final int scans = hostScans;
+        fail(hosts.get(1), 100);
+        assertThat(hosts.get(1).isActiveAndHealthy(), is(true));
+        assertThat(hostScans, is(scans));
+    }
+
+    @Test
+    void ejectionTimeGrowsExponentially() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(1).maxEjectionPercentage(50)
+                .maxEjectionTime(BASE_EJECTION_TIME.multipliedBy(3)), 2);
+        final Host<String, TestLoadBalancedConnection> host = hosts.get(0);
+        fail(host, 1);
+        advance(BASE_EJECTION_TIME);
+        assertThat(host.isActiveAndHealthy(), is(true));
+
+        fail(host, 1);
+        advance(BASE_EJECTION_TIME);
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(BASE_EJECTION_TIME);
+        assertThat(host.isActiveAndHealthy(), is(true));
+
+        // The third ejection is capped by the max ejection time.
+        fail(host, 1);
+        advance(BASE_EJECTION_TIME.multipliedBy(3).minusSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(false));
+        advance(ofSeconds(1));
+        assertThat(host.isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void successRateOutlierIsEjected() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(0).successRateMinimumHosts(5)
+                .successRateRequestVolume(10), 5);
+        for (int i = 0; i < 4; ++i) {
+            succeed(hosts.get(i), 100);
+        }
+        final Host<String, TestLoadBalancedConnection> outlier = hosts.get(4);
+        for (int i = 0; i < 50; ++i) {
+            succeed(outlier, 1);
+            fail(outlier, 1);
+        }
+        assertThat(outlier.isActiveAndHealthy(), is(true));
+
+        advance(INTERVAL);
+        // The first reported outcome after the interval triggers the evaluation.
+        succeed(hosts.get(0), 1);
+        assertThat(outlier.isActiveAndHealthy(), is(false));
+        for (int i = 0; i < 4; ++i) {
+            assertThat(hosts.get(i).isActiveAndHealthy(), is(true));
+        }
+    }
+
+    @Test
+    void successRateRequiresMinimumHosts() {
+        setUp(new OutlierDetectorConfig.Builder().consecutiveFailures(0).successRateMinimumHosts(5)
+                .successRateRequestVolume(10), 5);
+        for (int i = 0; i < 3; ++i) {
+            succeed(hosts.get(i), 100);
+        }
+        fail(hosts.get(4), 100);
+        advance(INTERVAL);
+        succeed(hosts.get(0), 1);
+        assertThat(hosts.get(4).isActiveAndHealthy(), is(true));
+    }
+
+    @Test
+    void outcomesAreForwardedToDelegate() {
+        setUp(new OutlierDetectorConfig.Builder(), 0);
+        final RequestTracker delegate = mock(RequestTracker.class);
+        when(delegate.beforeStart()).thenReturn(42L);
+        final HostTracker tracker = detector.newHostTracker("address", delegate);
+        assertThat(tracker.beforeStart(), is(42L));
+        tracker.onSuccess(42L);
+        verify(delegate).onSuccess(42L);
+        tracker.onError(42L, EXT_ORIGIN_REQUEST_FAILED);
+        verify(delegate).onError(anyLong(), eq(EXT_ORIGIN_REQUEST_FAILED));
+    }
+
+    @Test
+    void invalidConfig() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new OutlierDetectorConfig.Builder().maxEjectionPercentage(101));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OutlierDetectorConfig.Builder().baseEjectionTime(ofSeconds(10))
+                        .maxEjectionTime(ofSeconds(5)).build());
+    }
+
+    private void setUp(final OutlierDetectorConfig.Builder config, final int numHosts) {
+        detector = new OutlierDetector("test-service", config.interval(INTERVAL)
+                .baseEjectionTime(BASE_EJECTION_TIME).build(), () -> hosts, () -> currentTimeNanos);
+        for (int i = 0; i < numHosts; ++i) {
+            final String address = "address-" + i;
+            hosts.add(new Host<>("test-service", address, connectionFactory, new HostConfig.Builder().build(),
+                    null, detector.newHostTracker(address, null), null));
+        }
+    }
+
+    private void advance(final Duration duration) {
+        currentTimeNanos += duration.toNanos();
+    }
+
+    private static HostTracker tracker(final Host<String, TestLoadBalancedConnection> host) {
+        final HostTracker tracker = host.outlierTracker();
+        assert tracker != null;
+        return tracker;
+    }
+
+    private static void succeed(final Host<String, TestLoadBalancedConnection> host, final int times) {
+        final HostTracker tracker = tracker(host);
+        for (int i = 0; i < times; ++i) {
+            tracker.onSuccess(tracker.beforeStart());
+        }
+    }
+
+    private static void fail(final Host<String, TestLoadBalancedConnection> host, final int times) {
+        final HostTracker tracker = tracker(host);
+        for (int i = 0; i < times; ++i) {
+            tracker.onError(tracker.beforeStart(), EXT_ORIGIN_REQUEST_FAILED);
+        }
+    }
+}
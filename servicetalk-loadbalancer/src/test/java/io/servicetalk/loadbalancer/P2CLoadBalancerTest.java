@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.RequestTracker;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.DefaultContextMap;
+import io.servicetalk.context.api.ContextMap;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.DelegatingConnectionFactory;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static io.servicetalk.client.api.RequestTracker.REQUEST_TRACKER_KEY;
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+
+class P2CLoadBalancerTest {
+
+    private final TestPublisher<Collection<ServiceDiscovererEvent<String>>> serviceDiscoveryPublisher =
+            new TestPublisher<>();
+    private final Set<TestLoadBalancedConnection> seenConnections = newSetFromMap(new ConcurrentHashMap<>());
+    private final Predicate<TestLoadBalancedConnection> alwaysNewConnection = seenConnections::add;
+    private LoadBalancer<TestLoadBalancedConnection> lb;
+
+    @BeforeEach
+    void setUp() {
+        lb = new P2CLoadBalancerFactory.Builder<String, TestLoadBalancedConnection>()
+                .healthCheckFailedConnectionsThreshold(-1)
+                .build()
+                .newLoadBalancer(serviceDiscoveryPublisher,
+                        new DelegatingConnectionFactory(address -> succeeded(newConnection(address))),
+                        "test-service");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        lb.closeAsync().toFuture().get();
+    }
+
+    @Test
+    void selectedConnectionExposesRequestTracker() throws Exception {
+        sendServiceDiscoveryEvents("address-1", "address-2");
+        final ContextMap context = new DefaultContextMap();
+        assertThat(lb.selectConnection(alwaysNewConnection, context).toFuture().get(), is(notNullValue()));
+        assertThat(context.get(REQUEST_TRACKER_KEY), is(notNullValue()));
+    }
+
+    @Test
+    void selectWithoutContext() throws Exception {
+        sendServiceDiscoveryEvents("address-1", "address-2");
+        assertThat(lb.selectConnection(alwaysNewConnection, null).toFuture().get(), is(notNullValue()));
+    }
+
+    @Test
+    void slowHostIsAvoided() throws Exception {
+        sendServiceDiscoveryEvents("address-1", "address-2");
+        final ContextMap context = new DefaultContextMap();
+        final TestLoadBalancedConnection slowConnection =
+                lb.selectConnection(alwaysNewConnection, context).toFuture().get();
+        final RequestTracker slowTracker = context.remove(REQUEST_TRACKER_KEY);
+        assertThat(slowTracker, is(notNullValue()));
+        final long startTime = slowTracker.beforeStart();
+        slowTracker.onSuccess(startTime - SECONDS.toNanos(1));
+
+        for (int i = 0; i < 10; ++i) {
+            final TestLoadBalancedConnection connection =
+                    lb.selectConnection(alwaysNewConnection, null).toFuture().get();
+            assertThat(connection.address(), is(not(slowConnection.address())));
+        }
+    }
+
+    @Test
+    void onlyHostsOfTheSubsetKeepMinConnections() throws Exception {
+        final TestPublisher<Collection<ServiceDiscovererEvent<String>>> subsetDiscoveryPublisher =
+                new TestPublisher<>();
+        final TestExecutor executor = new TestExecutor();
+        final Set<String> connectedAddresses = newSetFromMap(new ConcurrentHashMap<>());
+        final LoadBalancer<TestLoadBalancedConnection> subsetLb =
+                new P2CLoadBalancerFactory.Builder<String, TestLoadBalancedConnection>()
+                        .healthCheckFailedConnectionsThreshold(-1)
+                        .subsetting(3, "test-client")
+                        .minConnectionsPerHost(1)
+                        .backgroundExecutor(executor)
+                        .build()
+                        .newLoadBalancer(subsetDiscoveryPublisher, new DelegatingConnectionFactory(address -> {
+                            connectedAddresses.add(address);
+                            return succeeded(newConnection(address));
+                        }), "test-service");
+        try {
+            sendServiceDiscoveryEvents(subsetDiscoveryPublisher, IntStream.range(0, 20)
+                    .mapToObj(i -> "address-" + i).toArray(String[]::new));
+            executor.advanceTimeBy(1, SECONDS);
+            assertThat(connectedAddresses, hasSize(3));
+        } finally {
+            subsetLb.closeAsync().toFuture().get();
+        }
+    }
+
+    private void sendServiceDiscoveryEvents(final String... addresses) {
+        sendServiceDiscoveryEvents(serviceDiscoveryPublisher, addresses);
+    }
+
+    private static void sendServiceDiscoveryEvents(
+            final TestPublisher<Collection<ServiceDiscovererEvent<String>>> publisher, final String... addresses) {
+        publisher.onNext(Arrays.stream(addresses)
+                .map(address -> new DefaultServiceDiscovererEvent<>(address, AVAILABLE))
+                .collect(toList()));
+    }
+}
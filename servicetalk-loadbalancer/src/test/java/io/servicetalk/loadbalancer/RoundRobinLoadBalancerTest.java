@@ -116,7 +116,6 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -756,6 +755,33 @@ abstract class RoundRobinLoadBalancerTest {
         assertAddresses(lb.usedAddresses(), "address-1");
     }
 
+    @Test
+    void handleDiscoveryEventsInBatch() throws Exception {
+        serviceDiscoveryPublisher.onComplete();
+        lb = defaultLb();
+
+        sendServiceDiscoveryEvents(upEvent("address-1"), upEvent("address-2"), upEvent("address-3"));
+        assertAddresses(lb.usedAddresses(), "address-1", "address-2", "address-3");
+
+        // Make sure all hosts have connections, so expired hosts are kept until their connections close.
+        for (int i = 0; i < 3; ++i) {
+            lb.selectConnection(any(), null).toFuture().get();
+        }
+
+        sendServiceDiscoveryEvents(downEvent("address-2", UNAVAILABLE), upEvent("address-4"),
+                downEvent("address-1", EXPIRED), upEvent("address-2"));
+        assertAddresses(lb.usedAddresses(), "address-1", "address-3", "address-4", "address-2");
+
+        // A host that is added and removed by the same batch is never used.
+        sendServiceDiscoveryEvents(upEvent("address-5"), downEvent("address-5", UNAVAILABLE),
+                upEvent("address-6"), downEvent("address-6", EXPIRED));
+        assertAddresses(lb.usedAddresses(), "address-1", "address-3", "address-4", "address-2");
+
+        sendServiceDiscoveryEvents(downEvent("address-2", UNAVAILABLE), downEvent("address-3", UNAVAILABLE),
+                downEvent("address-4", UNAVAILABLE), upEvent("address-1"));
+        assertAddresses(lb.usedAddresses(), "address-1");
+    }
+
     /**
      * This test verifies that the {@link io.servicetalk.client.api.LoadBalancer#newConnection(ContextMap)} API is
      * supported.
@@ -867,15 +893,7 @@ abstract class RoundRobinLoadBalancerTest {
     }
 
     private TestLoadBalancedConnection newConnection(final String address, final ListenableAsyncCloseable closeable) {
-        final TestLoadBalancedConnection cnx = mock(TestLoadBalancedConnection.class);
-        when(cnx.closeAsync()).thenReturn(closeable.closeAsync());
-        when(cnx.closeAsyncGracefully()).thenReturn(closeable.closeAsyncGracefully());
-        when(cnx.onClose()).thenReturn(closeable.onClose());
-        when(cnx.onClosing()).thenReturn(closeable.onClosing());
-        when(cnx.address()).thenReturn(address);
-        when(cnx.toString()).thenReturn(address + '@' + cnx.hashCode());
-        when(cnx.tryReserve()).thenReturn(true);
-
+        final TestLoadBalancedConnection cnx = LoadBalancerTestUtils.newConnection(address, closeable);
         connectionsCreated.add(cnx);
         return cnx;
     }
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static java.time.Duration.ofSeconds;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class SlowStartTest {
+
+    private static final Duration WINDOW = ofSeconds(60);
+    private static final int SELECTIONS = 10_000;
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+    private long currentTimeNanos;
+
+    @Test
+    void factorRampsLinearly() {
+        final SlowStartConfig config = newConfig(1);
+        assertThat(config.factor(0), is(0.1));
+        advance(WINDOW.dividedBy(2));
+        assertThat(config.factor(0), closeTo(0.5, 0.001));
+        advance(WINDOW.dividedBy(2));
+        assertThat(config.factor(0), is(1.0));
+    }
+
+    @Test
+    void aggressionRampsFasterAtTheBeginning() {
+        final SlowStartConfig config = newConfig(2);
+        advance(WINDOW.dividedBy(4));
+        assertThat(config.factor(0), closeTo(0.5, 0.001));
+    }
+
+    @Test
+    void hostWithoutSlowStartHasFullShare() {
+        final Host<String, TestLoadBalancedConnection> host = newHost("address-1", null);
+        assertThat(host.slowStartFactor(), is(1.0));
+    }
+
+    @Test
+    void warmingUpHostReceivesReducedShare() throws Exception {
+        final SlowStartConfig config = newConfig(1);
+        final Host<String, TestLoadBalancedConnection> warm = newHost("address-1", null);
+        final Host<String, TestLoadBalancedConnection> cold = newHost("address-2", config);
+        final List<Host<String, TestLoadBalancedConnection>> hosts = Arrays.asList(warm, cold);
+        final RoundRobinSelector<String, TestLoadBalancedConnection> selector =
+                new RoundRobinSelector<>("test-service", true);
+
+        // At the beginning of the window the cold host takes 10% of its turns.
+        assertThat(coldShare(selector, hosts), is(both(greaterThan(0.02)).and(lessThan(0.1))));
+
+        advance(WINDOW);
+        assertThat(coldShare(selector, hosts), closeTo(0.5, 0.01));
+    }
+
+    @Test
+    void warmingUpHostIsSelectedWhenOthersAreUnavailable() throws Exception {
+        final Host<String, TestLoadBalancedConnection> cold = newHost("address-1", newConfig(1));
+        final RoundRobinSelector<String, TestLoadBalancedConnection> selector =
+                new RoundRobinSelector<>("test-service", true);
+        for (int i = 0; i < 100; ++i) {
+            assertThat(selector.selectConnection(Arrays.asList(cold), __ -> true, null, false)
+                    .toFuture().get().address(), is("address-1"));
+        }
+    }
+
+    @Test
+    void invalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .slowStartWindow(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .slowStartWindow(WINDOW, 0));
+    }
+
+    private double coldShare(final RoundRobinSelector<String, TestLoadBalancedConnection> selector,
+                             final List<Host<String, TestLoadBalancedConnection>> hosts) throws Exception {
+        int cold = 0;
+        for (int i = 0; i < SELECTIONS; ++i) {
+            if ("address-2".equals(selector.selectConnection(hosts, __ -> true, null, false)
+                    .toFuture().get().address())) {
+                ++cold;
+            }
+        }
+        return (double) cold / SELECTIONS;
+    }
+
+    private SlowStartConfig newConfig(final double aggression) {
+        return new SlowStartConfig(WINDOW.toNanos(), aggression, SlowStartConfig.DEFAULT_MIN_FACTOR,
+                () -> currentTimeNanos);
+    }
+
+    private Host<String, TestLoadBalancedConnection> newHost(final String address,
+                                                             @Nullable final SlowStartConfig slowStartConfig) {
+        final Host<String, TestLoadBalancedConnection> host = new Host<>("test-service", address, connectionFactory,
+                new HostConfig.Builder().slowStartConfig(slowStartConfig).build());
+        host.addConnection(newConnection(address));
+        return host;
+    }
+
+    private void advance(final Duration duration) {
+        currentTimeNanos += duration.toNanos();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SubsetHostSelectorTest {
+
+    private static final int SUBSET_SIZE = 5;
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+
+    @Test
+    void disabledSubsetting() {
+        final HostSelector<String, TestLoadBalancedConnection> delegate = new RoundRobinSelector<>("test-service");
+        assertThat(SubsetHostSelector.withSubsetting(delegate, 0, null), is(sameInstance(delegate)));
+    }
+
+    @Test
+    void subsetIsStableForTheSameClient() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(100);
+        final Set<String> subset = addresses(newSelector(1).subset(hosts).hosts);
+        assertThat(subset, hasSize(SUBSET_SIZE));
+        assertThat(addresses(newSelector(1).subset(new ArrayList<>(hosts)).hosts), is(subset));
+    }
+
+    @Test
+    void subsetsAreSpreadOverHosts() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final int[] counts = new int[hosts.size()];
+        final int clients = 1000;
+        for (int client = 0; client < clients; ++client) {
+            for (Host<String, TestLoadBalancedConnection> host : newSelector(client).subset(hosts).hosts) {
+                ++counts[hosts.indexOf(host)];
+            }
+        }
+        // Every host is expected to be picked by 1000 * 5 / 20 = 250 clients.
+        for (int count : counts) {
+            assertThat(count, is(both(greaterThan(180)).and(lessThan(320))));
+        }
+    }
+
+    @Test
+    void removingHostOnlyAffectsSubsetsContainingIt() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(50);
+        final Host<String, TestLoadBalancedConnection> removed = hosts.get(7);
+        final List<Host<String, TestLoadBalancedConnection>> remaining = new ArrayList<>(hosts);
+        remaining.remove(removed);
+        for (int client = 0; client < 100; ++client) {
+            final Set<String> before = addresses(newSelector(client).subset(hosts).hosts);
+            final Set<String> after = addresses(newSelector(client).subset(remaining).hosts);
+            before.removeAll(after);
+            if (before.isEmpty()) {
+                continue;
+            }
+            assertThat(before, is(singleton(removed.address)));
+        }
+    }
+
+    @Test
+    void unavailableHostIsReplaced() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        final SubsetHostSelector<String, TestLoadBalancedConnection> selector = newSelector(1);
+        final Host<String, TestLoadBalancedConnection> expired = selector.subset(hosts).hosts.get(0);
+        // A host without connections is closed right away when it expires.
+        expired.addConnection(newConnection(expired.address));
+        expired.markExpired();
+
+        // Every selection checks one host of the subset, the expired host is noticed within one round.
+        List<Host<String, TestLoadBalancedConnection>> subset = selector.subset(hosts).hosts;
+        for (int i = 0; i < SUBSET_SIZE; ++i) {
+            subset = selector.subset(hosts).hosts;
+        }
+        assertThat(subset, hasSize(SUBSET_SIZE));
+        assertThat(subset, not(hasItem(expired)));
+
+        // Re-activated host takes its place back.
+        expired.markActiveIfNotClosed();
+        for (int i = 0; i < SUBSET_SIZE; ++i) {
+            subset = selector.subset(hosts).hosts;
+        }
+        assertThat(subset, hasItem(expired));
+    }
+
+    @Test
+    void selectableHostsAreTheSubset() {
+        final SubsetHostSelector<String, TestLoadBalancedConnection> selector = newSelector(1);
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(20);
+        assertThat(addresses(selector.selectableHosts(hosts)), is(addresses(selector.subset(hosts).hosts)));
+
+        final List<Host<String, TestLoadBalancedConnection>> fewHosts = newHosts(SUBSET_SIZE);
+        assertThat(selector.selectableHosts(fewHosts), is(sameInstance(fewHosts)));
+    }
+
+    @Test
+    void invalidSubsetSize() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .subsetting(-1));
+        assertThrows(IllegalArgumentException.class, () -> new P2CLoadBalancerFactory.Builder<>()
+                .subsetting(-1, "client"));
+    }
+
+    private SubsetHostSelector<String, TestLoadBalancedConnection> newSelector(final int client) {
+        return new SubsetHostSelector<>(new RoundRobinSelector<>("test-service"), SUBSET_SIZE,
+                ("client-" + client).hashCode());
+    }
+
+    private List<Host<String, TestLoadBalancedConnection>> newHosts(final int count) {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            hosts.add(new Host<>("test-service", "address-" + i, connectionFactory,
+                    new HostConfig.Builder().build()));
+        }
+        return hosts;
+    }
+
+    private static Set<String> addresses(final List<Host<String, TestLoadBalancedConnection>> hosts) {
+        return hosts.stream().map(host -> host.address).collect(toSet());
+    }
+}
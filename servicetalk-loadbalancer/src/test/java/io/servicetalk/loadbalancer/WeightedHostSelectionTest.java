@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class WeightedHostSelectionTest {
+
+    private static final int SELECTIONS = 20_000;
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+
+    @Test
+    void uniformWeightsDoNotBuildTable() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts =
+                Arrays.asList(newHost("address-1", 2), newHost("address-2", 2));
+        final AliasTable table = AliasTable.forHosts(hosts);
+        assertThat(table.isUniform(), is(true));
+        assertThat(table.isBuiltFor(hosts), is(true));
+        assertThat(table.isBuiltFor(new ArrayList<>(hosts)), is(false));
+    }
+
+    @Test
+    void aliasTableSamplesProportionallyToWeights() {
+        final AliasTable table = AliasTable.forHosts(
+                Arrays.asList(newHost("address-1", 1), newHost("address-2", 3), newHost("address-3", 6)));
+        assertThat(table.isUniform(), is(false));
+        final int[] counts = new int[3];
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < SELECTIONS; ++i) {
+            ++counts[table.sample(rnd)];
+        }
+        assertThat((double) counts[0] / SELECTIONS, closeTo(0.1, 0.02));
+        assertThat((double) counts[1] / SELECTIONS, closeTo(0.3, 0.02));
+        assertThat((double) counts[2] / SELECTIONS, closeTo(0.6, 0.02));
+    }
+
+    @Test
+    void roundRobinRespectsWeights() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts =
+                Arrays.asList(newHost("address-1", 1), newHost("address-2", 4));
+        final RoundRobinSelector<String, TestLoadBalancedConnection> selector =
+                new RoundRobinSelector<>("test-service", false);
+        assertThat(share(selector, hosts, "address-2"), closeTo(0.8, 0.02));
+    }
+
+    @Test
+    void p2cRespectsWeights() throws Exception {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = Arrays.asList(
+                newHost("address-1", 1), newHost("address-2", 1), newHost("address-3", 8));
+        final P2CSelector<String, TestLoadBalancedConnection> selector = new P2CSelector<>("test-service", 5);
+        // Without scores the first pick wins, which is sampled proportionally to the weights.
+        assertThat(share(selector, hosts, "address-3"), closeTo(0.8, 0.02));
+    }
+
+    @Test
+    void newHostListPicksUpChangedWeight() throws Exception {
+        final Host<String, TestLoadBalancedConnection> host1 = newHost("address-1", 1);
+        final Host<String, TestLoadBalancedConnection> host2 = newHost("address-2", 1);
+        final RoundRobinSelector<String, TestLoadBalancedConnection> selector =
+                new RoundRobinSelector<>("test-service", false);
+        assertThat(share(selector, Arrays.asList(host1, host2), "address-2"), closeTo(0.5, 0.02));
+
+        assertThat(host2.updateWeight(9), is(true));
+        assertThat(host2.updateWeight(9), is(false));
+        assertThat(share(selector, Arrays.asList(host1, host2), "address-2"), closeTo(0.9, 0.02));
+    }
+
+    @Test
+    void invalidEventWeight() {
+        assertThat(new DefaultServiceDiscovererEvent<>("address-1", AVAILABLE).weight(), is(1.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DefaultServiceDiscovererEvent<>("address-1", AVAILABLE, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DefaultServiceDiscovererEvent<>("address-1", AVAILABLE, Double.NaN));
+    }
+
+    @Test
+    void invalidHostWeightIsReplacedWithDefault() {
+        final Host<String, TestLoadBalancedConnection> host = newHost("address-1", 2);
+        for (double weight : new double[] {0, -1, Double.NaN, Double.POSITIVE_INFINITY}) {
+            host.updateWeight(2);
+            assertThat(host.updateWeight(weight), is(true));
+            assertThat(host.weight(), is(1.0));
+        }
+
+        // A zero weight would make the sum of the weights zero and the probabilities of the table NaN.
+        final AliasTable table = AliasTable.forHosts(Arrays.asList(newHost("address-1", 0), newHost("address-2", 3)));
+        final int[] counts = new int[2];
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < SELECTIONS; ++i) {
+            ++counts[table.sample(rnd)];
+        }
+        assertThat((double) counts[0] / SELECTIONS, closeTo(0.25, 0.02));
+    }
+
+    private static double share(final HostSelector<String, TestLoadBalancedConnection> selector,
+                                final List<Host<String, TestLoadBalancedConnection>> hosts,
+                                final String address) throws Exception {
+        int selected = 0;
+        for (int i = 0; i < SELECTIONS; ++i) {
+            if (address.equals(selector.selectConnection(hosts, __ -> true, null, false)
+                    .toFuture().get().address())) {
+                ++selected;
+            }
+        }
+        return (double) selected / SELECTIONS;
+    }
+
+    private Host<String, TestLoadBalancedConnection> newHost(final String address, final double weight) {
+        final Host<String, TestLoadBalancedConnection> host = new Host<>("test-service", address, connectionFactory,
+                new HostConfig.Builder().build());
+        host.updateWeight(weight);
+        host.addConnection(newConnection(address));
+        return host;
+    }
+}
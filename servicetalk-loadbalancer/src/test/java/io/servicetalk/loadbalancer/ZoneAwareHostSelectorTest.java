@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.loadbalancer.RoundRobinLoadBalancerTest.TestLoadBalancedConnection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.servicetalk.client.api.ServiceDiscovererEvent.Status.AVAILABLE;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.loadbalancer.LoadBalancerTestUtils.newConnection;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ZoneAwareHostSelectorTest {
+
+    private static final String LOCAL_ZONE = "zone-a";
+    private static final int SELECTIONS = 1000;
+
+    @SuppressWarnings("unchecked")
+    private final ConnectionFactory<String, TestLoadBalancedConnection> connectionFactory =
+            mock(ConnectionFactory.class);
+    private final AtomicInteger localSelections = new AtomicInteger();
+    private final AtomicInteger spilloverSelections = new AtomicInteger();
+    private final ZoneAwareHostSelector<String, TestLoadBalancedConnection> selector =
+            new ZoneAwareHostSelector<>(LOCAL_ZONE, 0.5,
+                    (hosts, predicate, context, forceNew) -> {
+                        localSelections.incrementAndGet();
+                        return succeeded(null);
+                    },
+                    (hosts, predicate, context, forceNew) -> {
+                        spilloverSelections.incrementAndGet();
+                        return succeeded(null);
+                    });
+
+    @Test
+    void disabledWithoutLocalZone() {
+        final HostSelector<String, TestLoadBalancedConnection> delegate = new RoundRobinSelector<>("test-service");
+        assertThat(ZoneAwareHostSelector.withZoneAwareness(() -> delegate, null, 0.5), is(delegate));
+    }
+
+    @Test
+    void zoneDefaultsToNull() {
+        assertThat(new DefaultServiceDiscovererEvent<>("address", AVAILABLE).zone(), is(nullValue()));
+        assertThat(new DefaultServiceDiscovererEvent<>("address", AVAILABLE, 1, LOCAL_ZONE).zone(),
+                is(LOCAL_ZONE));
+    }
+
+    @Test
+    void localHostsAreFilteredByZone() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(4, 6);
+        assertThat(selector.localHosts(hosts).hosts, hasSize(4));
+        assertThat(selector.localHosts(hosts).healthyFraction(), is(1.0));
+    }
+
+    @Test
+    void healthyLocalZoneTakesAllTraffic() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(4, 6);
+        select(hosts, SELECTIONS);
+        assertThat(localSelections.get(), is(SELECTIONS));
+        assertThat(spilloverSelections.get(), is(0));
+    }
+
+    @Test
+    void noLocalHostsSpillOver() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(0, 6);
+        select(hosts, SELECTIONS);
+        assertThat(localSelections.get(), is(0));
+        assertThat(spilloverSelections.get(), is(SELECTIONS));
+    }
+
+    @Test
+    void unhealthyLocalZoneSpillsOverProportionally() {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = newHosts(4, 6);
+        // 1 of 4 local hosts remains available: 0.25 / 0.5 of the traffic is expected to stay local.
+        for (int i = 0; i < 3; ++i) {
+            final Host<String, TestLoadBalancedConnection> host = hosts.get(i);
+            // A host without connections is closed right away when it expires.
+            host.addConnection(newConnection(host.address));
+            host.markExpired();
+        }
+        // Every selection checks one local host, the expired hosts are noticed within one round.
+        select(hosts, 4);
+        assertThat(selector.localHosts(hosts).healthyFraction(), is(closeTo(0.25, 0.001)));
+
+        localSelections.set(0);
+        spilloverSelections.set(0);
+        select(hosts, SELECTIONS);
+        assertThat(localSelections.get(), is(both(greaterThan(400)).and(lessThan(600))));
+        assertThat(localSelections.get() + spilloverSelections.get(), is(SELECTIONS));
+    }
+
+    @Test
+    void invalidMinHealthyFraction() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundRobinLoadBalancerFactory.Builder<>()
+                .localZone(LOCAL_ZONE, 0));
+        assertThrows(IllegalArgumentException.class, () -> new P2CLoadBalancerFactory.Builder<>()
+                .localZone(LOCAL_ZONE, 1.5));
+    }
+
+    private void select(final List<Host<String, TestLoadBalancedConnection>> hosts, final int count) {
+        for (int i = 0; i < count; ++i) {
+            selector.selectConnection(hosts, cnx -> true, null, false);
+        }
+    }
+
+    private List<Host<String, TestLoadBalancedConnection>> newHosts(final int local, final int remote) {
+        final List<Host<String, TestLoadBalancedConnection>> hosts = new ArrayList<>(local + remote);
+        for (int i = 0; i < local + remote; ++i) {
+            final Host<String, TestLoadBalancedConnection> host = new Host<>("test-service", "address-" + i,
+                    connectionFactory, new HostConfig.Builder().build());
+            host.updateZone(i < local ? LOCAL_ZONE : "zone-b");
+            hosts.add(host);
+        }
+        return hosts;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.api;
+
+/**
+ * The transport used by an {@link IoExecutor} to perform I/O.
+ * <p>
+ * Native transports are only used when they are supported by the OS and the corresponding native libraries are
+ * available. If the requested transport can not be used, the best available transport is used instead, in the order
+ * of {@link #EPOLL}, {@link #KQUEUE} and {@link #NIO}.
+ */
+public enum IoTransport {
+    /**
+     * Use the best available transport for the current OS. {@link #IO_URING} is only considered if the
+     * {@code io.servicetalk.transport.netty.tryIoUring} system property is set to {@code true}.
+     */
+    AUTO,
+    /**
+     * Use the <a href="https://kernel.dk/io_uring.pdf">io_uring</a> transport on Linux, which requires kernel 5.9 or
+     * newer. Falls back to {@link #EPOLL} if io_uring is not available.
+     */
+    IO_URING,
+    /**
+     * Use the epoll transport on Linux.
+     */
+    EPOLL,
+    /**
+     * Use the kqueue transport on macOS and BSD.
+     */
+    KQUEUE,
+    /**
+     * Use the JDK NIO transport, which is available on every OS.
+     */
+    NIO
+}
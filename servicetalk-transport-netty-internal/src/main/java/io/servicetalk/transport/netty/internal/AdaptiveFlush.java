@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2023 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+final class AdaptiveFlush implements FlushStrategy {
+
+    static final int DEFAULT_MAX_COALESCED_FLUSHES = 256;
+
+    private final int maxCoalescedFlushes;
+
+    AdaptiveFlush(final int maxCoalescedFlushes) {
+        if (maxCoalescedFlushes <= 0) {
+            throw new IllegalArgumentException("maxCoalescedFlushes: " + maxCoalescedFlushes + " (expected > 0)");
+        }
+        this.maxCoalescedFlushes = maxCoalescedFlushes;
+    }
+
+    @Override
+    public WriteEventsListener apply(final FlushSender sender) {
+        return new NoopWriteEventsListener() {
+            private int coalescedFlushes;
+
+            @Override
+            public void itemWritten(Object __) {
+                if (++coalescedFlushes == maxCoalescedFlushes) {
+                    // Bound the amount of data which can be held back while the connection stays busy.
+                    coalescedFlushes = 0;
+                    sender.flush();
+                } else {
+                    sender.flushCoalesced();
+                }
+            }
+        };
+    }
+}
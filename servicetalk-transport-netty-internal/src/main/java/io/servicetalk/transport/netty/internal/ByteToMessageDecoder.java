@@ -110,14 +110,10 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
     /**
      * Create a new instance.
      *
-     * @param cumulationAllocator Unpooled {@link ByteBufAllocator} used to allocate more memory, if necessary for
-     * cumulation.
-     * @throws IllegalArgumentException if the provided {@code cumulationAllocator} is not unpooled.
+     * @param cumulationAllocator {@link ByteBufAllocator} used to allocate more memory, if necessary for cumulation.
+     * If it is pooled, decoded messages that reference the cumulation must be released by their consumer.
      */
     protected ByteToMessageDecoder(final ByteBufAllocator cumulationAllocator) {
-        if (cumulationAllocator.isDirectBufferPooled()) {
-            throw new IllegalArgumentException("ByteBufAllocator must be unpooled");
-        }
         this.cumulationAllocator = cumulationAllocator;
         ensureNotSharable();
     }
@@ -27,6 +27,8 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 
+import javax.annotation.Nullable;
+
 /**
  * Initializer to configure {@link ChannelInboundHandler} that will ensure no pooled {@link ByteBuf}s are passed to
  * the user and so no leaks are produced if the user does not call {@link ReferenceCountUtil#release(Object)}.
@@ -38,21 +40,26 @@ public final class CopyByteBufHandlerChannelInitializer implements ChannelInitia
      */
     public static final PooledByteBufAllocator POOLED_ALLOCATOR = PooledByteBufAllocator.DEFAULT;
 
+    @Nullable
     private final CopyByteBufHandler copyHandler;
 
     /**
      * Creates a new instance.
+     * <p>
+     * If the provided {@code allocator} is pooled, {@link ByteBuf}s read from the socket are not copied and the user
+     * is responsible for releasing them.
      *
-     * @param unpooledAllocator {@link ByteBufAllocator} to allocate unpooled memory.
-     * @throws IllegalArgumentException if the provided {@code unpooledAllocator} is not unpooled.
+     * @param allocator {@link ByteBufAllocator} to allocate memory for the user.
      */
-    public CopyByteBufHandlerChannelInitializer(final ByteBufAllocator unpooledAllocator) {
-        copyHandler = new CopyByteBufHandler(unpooledAllocator);
+    public CopyByteBufHandlerChannelInitializer(final ByteBufAllocator allocator) {
+        copyHandler = allocator.isDirectBufferPooled() ? null : new CopyByteBufHandler(allocator);
     }
 
     @Override
     public void init(final Channel channel) {
-        channel.pipeline().addLast(copyHandler);
+        if (copyHandler != null) {
+            channel.pipeline().addLast(copyHandler);
+        }
     }
 
     /**
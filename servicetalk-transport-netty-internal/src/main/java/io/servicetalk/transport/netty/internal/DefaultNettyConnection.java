@@ -138,6 +138,14 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
      */
     @Nullable
     private SSLSession sslSession;
+    /**
+     * {@code true} between {@code channelRead} and {@code channelReadComplete}, coalesced flushes requested in the
+     * meantime are sent when the read completes.
+     * <p>
+     * Always accessed from the event loop, doesn't require synchronization.
+     */
+    private boolean readInProgress;
+    private boolean flushOnReadComplete;
     @Nullable
     private final ChannelConfig parentChannelConfig;
     private volatile DataObserver dataObserver;
@@ -621,13 +629,21 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
                 WriteStreamSubscriber subscriber = new WriteStreamSubscriber(channel(), demandEstimatorSupplier.get(),
                         completableSubscriber, closeHandler, writeObserver, enrichProtocolError, isClient, shouldWait);
                 if (failIfWriteActive(subscriber, completableSubscriber)) {
-                    toSource(composeFlushes(channel(), write, flushStrategySupplier.get(), writeObserver))
-                            .subscribe(subscriber);
+                    toSource(composeFlushes(channel(), write, flushStrategySupplier.get(), writeObserver,
+                            DefaultNettyConnection.this::deferFlushUntilReadComplete)).subscribe(subscriber);
                 }
             }
         }).onErrorMap(this::enrichError);
     }
 
+    private boolean deferFlushUntilReadComplete() {
+        if (readInProgress) {
+            flushOnReadComplete = true;
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Visible for testing.
      * <p>
@@ -894,12 +910,18 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
         public void channelRead(ChannelHandlerContext ctx, Object msg) {
             @SuppressWarnings("unchecked")
             final Read t = (Read) msg;
+            connection.readInProgress = true;
             connection.nettyChannelPublisher.channelRead(t);
         }
 
         @Override
         public void channelReadComplete(ChannelHandlerContext ctx) {
+            connection.readInProgress = false;
             connection.nettyChannelPublisher.onReadComplete();
+            if (connection.flushOnReadComplete) {
+                connection.flushOnReadComplete = false;
+                ctx.channel().flush();
+            }
         }
 
         @Override
@@ -19,10 +19,15 @@ import io.servicetalk.concurrent.PublisherSource.Subscriber;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.transport.api.ConnectionObserver.WriteObserver;
+import io.servicetalk.transport.netty.internal.FlushStrategy.FlushSender;
 import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener;
 
 import io.netty.channel.Channel;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BooleanSupplier;
 
 import static io.servicetalk.utils.internal.ThrowableUtils.addSuppressed;
 import static java.util.Objects.requireNonNull;
@@ -32,6 +37,8 @@ import static java.util.Objects.requireNonNull;
  */
 final class Flush {
 
+    private static final BooleanSupplier NEVER_DEFER = () -> false;
+
     private Flush() {
         // no instances
     }
@@ -50,31 +57,96 @@ final class Flush {
      */
     static <T> Publisher<T> composeFlushes(Channel channel, Publisher<T> source, FlushStrategy flushStrategy,
                                            WriteObserver observer) {
+        return composeFlushes(channel, source, flushStrategy, observer, NEVER_DEFER);
+    }
+
+    /**
+     * Apply the passed {@link FlushStrategy} to the passed {@link Publisher} such that the passed {@link Channel} is
+     * flushed according to the {@link FlushStrategy}.
+     *
+     * @param channel Channel to flush.
+     * @param source Original source.
+     * @param flushStrategy {@link FlushStrategy} to apply.
+     * @param observer a {@link WriteObserver} to report write events
+     * @param deferFlush invoked on the event loop for every {@link FlushSender#flushCoalesced() coalesced flush},
+     * returns {@code true} if the owner of the {@link Channel} takes over the flush, for example because it is in the
+     * middle of a read and will flush when the read completes.
+     * @param <T> Type of elements emitted by {@code source}.
+     * @return {@link Publisher} that forwards all items from {@code source} and flushes the channel as directed by
+     * {@link FlushStrategy}.
+     */
+    static <T> Publisher<T> composeFlushes(Channel channel, Publisher<T> source, FlushStrategy flushStrategy,
+                                           WriteObserver observer, BooleanSupplier deferFlush) {
         requireNonNull(channel);
         requireNonNull(flushStrategy);
-        return source.liftSync(subscriber -> new FlushSubscriber<>(flushStrategy, subscriber, channel, observer));
+        requireNonNull(deferFlush);
+        return source.liftSync(subscriber ->
+                new FlushSubscriber<>(flushStrategy, subscriber, channel, observer, deferFlush));
     }
 
-    private static final class FlushSubscriber<T> implements Subscriber<T> {
+    private static final class FlushSubscriber<T> implements Subscriber<T>, FlushSender {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<FlushSubscriber> coalescedFlushPendingUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(FlushSubscriber.class, "coalescedFlushPending");
+
+        private final Channel channel;
         private final EventExecutor eventLoop;
         private final Subscriber<? super T> subscriber;
         private final WriteObserver observer;
+        private final BooleanSupplier deferFlush;
         private final WriteEventsListener writeEventsListener;
+        private final Runnable coalescedFlushTask;
         private volatile boolean enqueueFlush;
+        private volatile int coalescedFlushPending;
 
         FlushSubscriber(FlushStrategy flushStrategy, Subscriber<? super T> subscriber, Channel channel,
-                        WriteObserver observer) {
+                        WriteObserver observer, BooleanSupplier deferFlush) {
+            this.channel = channel;
             this.eventLoop = requireNonNull(channel.eventLoop());
             this.subscriber = requireNonNull(subscriber);
             this.observer = observer;
-            this.writeEventsListener = flushStrategy.apply(() -> {
-                observer.onFlushRequest();
-                if (enqueueFlush) {
-                    eventLoop.execute(channel::flush);
-                } else {
+            this.deferFlush = deferFlush;
+            this.coalescedFlushTask = () -> {
+                coalescedFlushPending = 0;
+                if (!deferFlush.getAsBoolean()) {
+                    channel.flush();
+                }
+            };
+            this.writeEventsListener = flushStrategy.apply(this);
+        }
+
+        @Override
+        public void flush() {
+            observer.onFlushRequest();
+            if (enqueueFlush) {
+                eventLoop.execute(channel::flush);
+            } else {
+                channel.flush();
+            }
+        }
+
+        @Override
+        public void flushCoalesced() {
+            observer.onFlushRequest();
+            if (eventLoop.inEventLoop()) {
+                if (coalescedFlushPending != 0 || deferFlush.getAsBoolean()) {
+                    // A flush is already scheduled, or the read in progress will flush when it completes.
+                    return;
+                }
+                if (!hasPendingTasks(eventLoop)) {
                     channel.flush();
+                    return;
                 }
-            });
+            }
+            // Writes issued by the tasks that are already pending on the event loop will share this flush.
+            if (coalescedFlushPendingUpdater.compareAndSet(this, 0, 1)) {
+                eventLoop.execute(coalescedFlushTask);
+            }
+        }
+
+        private static boolean hasPendingTasks(final EventExecutor eventLoop) {
+            return eventLoop instanceof SingleThreadEventExecutor &&
+                    ((SingleThreadEventExecutor) eventLoop).pendingTasks() > 0;
         }
 
         @Override
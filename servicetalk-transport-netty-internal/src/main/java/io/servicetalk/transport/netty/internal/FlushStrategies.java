@@ -19,6 +19,7 @@ import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.transport.netty.internal.FlushStrategy.FlushSender;
 import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener;
 
+import static io.servicetalk.transport.netty.internal.AdaptiveFlush.DEFAULT_MAX_COALESCED_FLUSHES;
 import static io.servicetalk.transport.netty.internal.FlushOnEach.FLUSH_ON_EACH;
 import static io.servicetalk.transport.netty.internal.FlushOnEnd.FLUSH_ON_END;
 import static java.lang.Integer.MAX_VALUE;
@@ -94,4 +95,34 @@ public final class FlushStrategies {
     public static FlushStrategy flushOnEnd() {
         return FLUSH_ON_END;
     }
+
+    /**
+     * Creates a {@link FlushStrategy} that will {@link FlushSender#flushCoalesced() flush writes} on each call to the
+     * returned {@link WriteEventsListener#itemWritten(Object)} from {@link FlushStrategy#apply(FlushSender)}, but
+     * coalesces the flushes while the connection is busy reading or has other tasks pending on its event loop. Writes
+     * are flushed immediately when the connection is idle.
+     *
+     * @return A {@link FlushStrategy} that will {@link FlushSender#flushCoalesced() flush writes} on each call to the
+     * returned {@link WriteEventsListener#itemWritten(Object)} from {@link FlushStrategy#apply(FlushSender)}, but
+     * coalesces the flushes while the connection is busy.
+     */
+    public static FlushStrategy adaptiveFlush() {
+        return adaptiveFlush(DEFAULT_MAX_COALESCED_FLUSHES);
+    }
+
+    /**
+     * Creates a {@link FlushStrategy} that will {@link FlushSender#flushCoalesced() flush writes} on each call to the
+     * returned {@link WriteEventsListener#itemWritten(Object)} from {@link FlushStrategy#apply(FlushSender)}, but
+     * coalesces the flushes while the connection is busy reading or has other tasks pending on its event loop. Writes
+     * are flushed immediately when the connection is idle.
+     *
+     * @param maxCoalescedFlushes Maximum number of consecutive items which may share a coalesced flush. Every
+     * {@code maxCoalescedFlushes}-th item is {@link FlushSender#flush() flushed} immediately.
+     * @return A {@link FlushStrategy} that will {@link FlushSender#flushCoalesced() flush writes} on each call to the
+     * returned {@link WriteEventsListener#itemWritten(Object)} from {@link FlushStrategy#apply(FlushSender)}, but
+     * coalesces the flushes while the connection is busy.
+     */
+    public static FlushStrategy adaptiveFlush(int maxCoalescedFlushes) {
+        return new AdaptiveFlush(maxCoalescedFlushes);
+    }
 }
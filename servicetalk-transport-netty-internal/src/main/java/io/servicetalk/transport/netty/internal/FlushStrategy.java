@@ -56,6 +56,17 @@ public interface FlushStrategy {
          * {@link WriteEventsListener}.
          */
         void flush();
+
+        /**
+         * Sends a flush on the associated connection which may be coalesced with other flushes while the connection
+         * is busy. If the connection is idle the flush is sent immediately, otherwise it is sent once the connection
+         * completes the current read or the tasks which are already pending on its event loop.
+         * <p>
+         * The default implementation sends the flush immediately, see {@link #flush()}.
+         */
+        default void flushCoalesced() {
+            flush();
+        }
     }
 
     /**
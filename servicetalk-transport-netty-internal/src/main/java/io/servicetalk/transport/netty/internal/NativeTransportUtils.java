@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 
 import static io.netty.util.internal.PlatformDependent.normalizedArch;
 import static java.lang.Boolean.getBoolean;
@@ -106,6 +107,26 @@ final class NativeTransportUtils {
         return IS_LINUX && TRY_IO_URING.get() && IOUring.isAvailable();
     }
 
+    /**
+     * Determine if {@link IOUring} is supported, regardless of the {@code io.servicetalk.transport.netty.tryIoUring}
+     * system property.
+     *
+     * @return {@code true} if {@link IOUring} is supported
+     */
+    static boolean isIoUringSupported() {
+        return IS_LINUX && IOUring.isAvailable();
+    }
+
+    /**
+     * Returns the reason why {@link IOUring} is not supported.
+     *
+     * @return the reason why {@link IOUring} is not supported or {@code null} if it is supported
+     */
+    @Nullable
+    static Throwable ioUringUnavailabilityCause() {
+        return IS_LINUX ? IOUring.unavailabilityCause() : null;
+    }
+
     /**
      * Determine if {@link Epoll} is available.
      *
@@ -131,7 +152,9 @@ final class NativeTransportUtils {
      * @return {@code true} if native {@link IOUring} transport could be used
      */
     static boolean useIoUring(final EventLoopGroup group) {
-        if (!isIoUringAvailable()) {
+        // Only the group decides, not the io.servicetalk.transport.netty.tryIoUring property: an IOUringEventLoopGroup
+        // can only serve io_uring channels, regardless of how it was created.
+        if (!isIoUringSupported()) {
             return false;
         }
         // Check if we should use the io_uring transport. This is true if either the IOUringEventLoopGroup is used
@@ -15,6 +15,7 @@
  */
 package io.servicetalk.transport.netty.internal;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.concurrent.api.internal.SubscribablePublisher;
 import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
 import io.servicetalk.concurrent.internal.TerminalNotification;
@@ -30,6 +31,7 @@ import java.util.ArrayDeque;
 import java.util.Queue;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.buffer.netty.BufferAllocators.release;
 import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverErrorFromSource;
 import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
@@ -77,6 +79,7 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
             return;
         }
         if (fatalError != null) {
+            releaseBuffer(data);
             return;
         }
 
@@ -243,7 +246,6 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
         return false;
     }
 
-    @SuppressWarnings("StatementWithEmptyBody")
     private void emitCatchError(@Nullable SubscriptionImpl target, Throwable cause,
                                 boolean drainPendingToNextTerminal) {
         // If we have items queued, we avoid delivering partial content to the next subscriber by draining until we see
@@ -251,7 +253,7 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
         if (pending != null && drainPendingToNextTerminal) {
             Object top;
             while ((top = pending.poll()) != null && !(top instanceof TerminalNotification)) {
-                // intentionally empty
+                releaseBuffer(top);
             }
         }
         if (fatalError == null) {
@@ -344,6 +346,13 @@ final class NettyChannelPublisher<T> extends SubscribablePublisher<T> {
         pending.add(p);
     }
 
+    private static void releaseBuffer(Object item) {
+        // Items are dropped without being delivered, pooled memory has to be released here.
+        if (item instanceof Buffer) {
+            release((Buffer) item);
+        }
+    }
+
     private boolean shouldBuffer() {
         return hasQueuedSignals() || requestCount == 0;
     }
@@ -18,6 +18,7 @@ package io.servicetalk.transport.netty.internal;
 import io.servicetalk.transport.api.IoExecutor;
 import io.servicetalk.transport.api.IoThreadFactory;
 import io.servicetalk.transport.api.IoThreadFactory.IoThread;
+import io.servicetalk.transport.api.IoTransport;
 
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
@@ -28,8 +29,12 @@ import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import static io.servicetalk.transport.netty.internal.NativeTransportUtils.ioUringUnavailabilityCause;
 import static io.servicetalk.transport.netty.internal.NativeTransportUtils.isEpollAvailable;
 import static io.servicetalk.transport.netty.internal.NativeTransportUtils.isIoUringAvailable;
+import static io.servicetalk.transport.netty.internal.NativeTransportUtils.isIoUringSupported;
 import static io.servicetalk.transport.netty.internal.NativeTransportUtils.isKQueueAvailable;
 import static java.lang.Runtime.getRuntime;
 import static java.util.Objects.requireNonNull;
@@ -109,21 +114,100 @@ public final class NettyIoExecutors {
      */
     public static <T extends Thread & IoThread> EventLoopAwareNettyIoExecutor createIoExecutor(
             int ioThreads, IoThreadFactory<T> threadFactory) {
+        return createIoExecutor(ioThreads, threadFactory, IoTransport.AUTO);
+    }
+
+    /**
+     * Create a new {@link NettyIoExecutor} which uses the specified {@link IoTransport}.
+     *
+     * @param ioThreads number of threads.
+     * @param threadNamePrefix the name prefix used for the created {@link Thread}s.
+     * @param transport the {@link IoTransport} to use. If it is not available, the best available transport is used
+     * instead.
+     * @return The created {@link IoExecutor}
+     */
+    public static EventLoopAwareNettyIoExecutor createIoExecutor(int ioThreads, String threadNamePrefix,
+                                                                 IoTransport transport) {
+        return createIoExecutor(ioThreads, newIoThreadFactory(threadNamePrefix), transport);
+    }
+
+    /**
+     * Create a new {@link NettyIoExecutor} which uses the specified {@link IoTransport}.
+     *
+     * @param <T> Type of the IO thread instances created by factory.
+     * @param ioThreads number of threads.
+     * @param threadFactory the {@link IoThreadFactory} to use. If possible you should use an instance of
+     * {@link NettyIoThreadFactory} as it allows internal optimizations.
+     * @param transport the {@link IoTransport} to use. If it is not available, the best available transport is used
+     * instead.
+     * @return The created {@link IoExecutor}
+     */
+    public static <T extends Thread & IoThread> EventLoopAwareNettyIoExecutor createIoExecutor(
+            int ioThreads, IoThreadFactory<T> threadFactory, IoTransport transport) {
         validateIoThreads(ioThreads);
-        return new EventLoopGroupIoExecutor(createEventLoopGroup(ioThreads, threadFactory), true, true);
+        requireNonNull(transport);
+        return new EventLoopGroupIoExecutor(createEventLoopGroup(ioThreads, threadFactory, transport), true, true);
     }
 
     private static <T extends Thread & IoThread> EventLoopGroup createEventLoopGroup(int ioThreads,
-            IoThreadFactory<T> threadFactory) {
-        validateIoThreads(ioThreads);
-        final EventLoopGroup group = isIoUringAvailable() ? new IOUringEventLoopGroup(ioThreads, threadFactory) :
-                isEpollAvailable() ? new EpollEventLoopGroup(ioThreads, threadFactory) :
-                        isKQueueAvailable() ? new KQueueEventLoopGroup(ioThreads, threadFactory) :
-                                new NioEventLoopGroup(ioThreads, threadFactory);
+            IoThreadFactory<T> threadFactory, IoTransport transport) {
+        EventLoopGroup group = null;
+        switch (transport) {
+            case AUTO:
+                if (isIoUringAvailable()) {
+                    group = newIoUringEventLoopGroup(ioThreads, threadFactory);
+                }
+                break;
+            case IO_URING:
+                if (isIoUringSupported()) {
+                    group = newIoUringEventLoopGroup(ioThreads, threadFactory);
+                } else {
+                    LOGGER.info("{} is not available, falling back to the best available transport.", transport,
+                            ioUringUnavailabilityCause());
+                }
+                break;
+            case EPOLL:
+                if (isEpollAvailable()) {
+                    group = new EpollEventLoopGroup(ioThreads, threadFactory);
+                } else {
+                    LOGGER.info("{} is not available, falling back to the best available transport.", transport);
+                }
+                break;
+            case KQUEUE:
+                if (isKQueueAvailable()) {
+                    group = new KQueueEventLoopGroup(ioThreads, threadFactory);
+                } else {
+                    LOGGER.info("{} is not available, falling back to the best available transport.", transport);
+                }
+                break;
+            case NIO:
+                group = new NioEventLoopGroup(ioThreads, threadFactory);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown IoTransport: " + transport);
+        }
+        if (group == null) {
+            group = isEpollAvailable() ? new EpollEventLoopGroup(ioThreads, threadFactory) :
+                    isKQueueAvailable() ? new KQueueEventLoopGroup(ioThreads, threadFactory) :
+                            new NioEventLoopGroup(ioThreads, threadFactory);
+        }
         LOGGER.debug("Created {} for {} threads using {}.", group.getClass().getSimpleName(), ioThreads, threadFactory);
         return group;
     }
 
+    @Nullable
+    private static <T extends Thread & IoThread> EventLoopGroup newIoUringEventLoopGroup(int ioThreads,
+            IoThreadFactory<T> threadFactory) {
+        try {
+            return new IOUringEventLoopGroup(ioThreads, threadFactory);
+        } catch (Throwable cause) {
+            // The kernel may refuse to set up the rings, for example when RLIMIT_MEMLOCK is too low.
+            LOGGER.warn("Failed to create {}, falling back to the best available transport.",
+                    IOUringEventLoopGroup.class.getSimpleName(), cause);
+            return null;
+        }
+    }
+
     /**
      * Attempts to convert the passed {@link IoExecutor} to a {@link NettyIoExecutor}.
      *
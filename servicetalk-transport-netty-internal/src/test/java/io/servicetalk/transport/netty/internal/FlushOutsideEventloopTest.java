@@ -27,6 +27,7 @@ import org.junit.jupiter.api.Test;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.transport.netty.internal.Flush.composeFlushes;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 
@@ -91,6 +92,42 @@ class FlushOutsideEventloopTest extends AbstractOutOfEventloopTest {
         assertWritten(1);
     }
 
+    @Test
+    void testCoalescedFlushOutsideEventloop() throws Exception {
+        EventLoop executor = getDifferentEventloopThanChannel();
+        executor.submit(() -> {
+            src.onNext(1);
+            flushSender.flushCoalesced();
+            src.onNext(2);
+            flushSender.flushCoalesced();
+        }).get();
+        ensureEnqueuedTaskAreRun(executor);
+        ensureEnqueuedTaskAreRun(channel.eventLoop());
+        assertWritten(1, 2);
+    }
+
+    @Test
+    void testCoalescedFlushInEventloopWithPendingTasks() throws Exception {
+        channel.eventLoop().submit(() -> {
+            channel.eventLoop().execute(() -> src.onNext(2));
+            src.onNext(1);
+            flushSender.flushCoalesced();
+            assertThat("Flush was not deferred after the pending task", written, is(empty()));
+        }).get();
+        ensureEnqueuedTaskAreRun(channel.eventLoop());
+        assertWritten(1, 2);
+    }
+
+    @Test
+    void testCoalescedFlushInIdleEventloop() throws Exception {
+        channel.eventLoop().submit(() -> {
+            src.onNext(1);
+            flushSender.flushCoalesced();
+            assertThat("Flush was deferred on an idle event loop", written, contains(1));
+        }).get();
+        assertWritten(1);
+    }
+
     private void assertWritten(Integer... values) throws InterruptedException {
         strategy.verifyWriteStarted();
         for (Integer v : values) {
@@ -25,13 +25,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEach;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEnd;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 class FlushStrategiesTest {
 
@@ -164,6 +169,26 @@ class FlushStrategiesTest {
         assertTrue(subscription.isCancelled());
     }
 
+    @Test
+    void testAdaptiveFlush() {
+        setupFor(adaptiveFlush(3));
+        listener.itemWritten(1);
+        listener.itemWritten(2);
+        verify(flushSender, times(2)).flushCoalesced();
+        verify(flushSender, never()).flush();
+        listener.itemWritten(3);
+        verify(flushSender).flush();
+        listener.itemWritten(4);
+        verify(flushSender, times(3)).flushCoalesced();
+        listener.writeTerminated();
+        verifyNoMoreInteractions(flushSender);
+    }
+
+    @Test
+    void testAdaptiveFlushInvalidMaxCoalescedFlushes() {
+        assertThrows(IllegalArgumentException.class, () -> adaptiveFlush(0));
+    }
+
     private void setupFor(FlushStrategy strategy) {
         listener = strategy.apply(flushSender);
         listener.writeStarted();
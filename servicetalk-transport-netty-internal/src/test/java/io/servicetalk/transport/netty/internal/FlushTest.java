@@ -78,6 +78,16 @@ class FlushTest extends AbstractFlushTest {
         verifyNoMoreInteractions(channel);
     }
 
+    @Test
+    void testCoalescedFlushWhenIdle() {
+        subscriber.awaitSubscription().request(2);
+        source.onNext("Hello1", "Hello2");
+        flushSender.flushCoalesced();
+
+        verifyWriteAndFlushAfter("Hello1", "Hello2");
+        verifyNoMoreInteractions(channel);
+    }
+
     @Test
     void testCancel() {
         final TestSubscription subscription = new TestSubscription();
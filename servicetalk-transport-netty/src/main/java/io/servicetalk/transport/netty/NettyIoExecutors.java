@@ -18,6 +18,7 @@ package io.servicetalk.transport.netty;
 import io.servicetalk.transport.api.IoExecutor;
 import io.servicetalk.transport.api.IoThreadFactory;
 import io.servicetalk.transport.api.IoThreadFactory.IoThread;
+import io.servicetalk.transport.api.IoTransport;
 
 /**
  * Factory methods to create {@link IoExecutor}s using Netty as the transport.
@@ -41,6 +42,38 @@ public final class NettyIoExecutors {
         return io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor(ioThreads, threadFactory);
     }
 
+    /**
+     * Creates a new {@link IoExecutor} with the specified number of {@code ioThreads} which uses the specified
+     * {@link IoTransport}.
+     *
+     * @param <T> Type of the IO thread instances created by factory.
+     * @param ioThreads number of threads.
+     * @param threadFactory the {@link IoThreadFactory} to use.
+     * @param transport the {@link IoTransport} to use. If it is not available, the best available transport is used
+     * instead.
+     * @return The created {@link IoExecutor}
+     */
+    public static <T extends Thread & IoThread> IoExecutor createIoExecutor(int ioThreads,
+            IoThreadFactory<T> threadFactory, IoTransport transport) {
+        return io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor(ioThreads, threadFactory,
+                transport);
+    }
+
+    /**
+     * Creates a new {@link IoExecutor} with the specified number of {@code ioThreads} which uses the specified
+     * {@link IoTransport}.
+     *
+     * @param ioThreads number of threads.
+     * @param threadNamePrefix the name prefix used for the created {@link Thread}s.
+     * @param transport the {@link IoTransport} to use. If it is not available, the best available transport is used
+     * instead.
+     * @return The created {@link IoExecutor}
+     */
+    public static IoExecutor createIoExecutor(int ioThreads, String threadNamePrefix, IoTransport transport) {
+        return io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor(ioThreads, threadNamePrefix,
+                transport);
+    }
+
     /**
      * Creates a new {@link IoExecutor} with the specified number of {@code ioThreads}.
      *